@@ -0,0 +1,388 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes opaque frames as 8-bit RGB PNG images, compressing independent bands
+ * of rows in parallel.
+ *
+ * <p>
+ * The image data of a PNG image is a single zlib stream. Each band is
+ * compressed by its own deflater, primed with the last 32 KiB of the preceding
+ * rows as dictionary, and ends with a sync flush, so that the compressed bands
+ * concatenate into a single valid deflate stream, as done by for instance
+ * 'pigz'. Each band is written as its own IDAT chunk. The Adler-32 checksum of
+ * the whole stream is combined from the checksums of the bands.
+ *
+ * <p>
+ * Each row is filtered with the filter giving the smallest sum of absolute
+ * differences, the usual heuristic of PNG encoders. Filtering only depends on
+ * the row and the row above it, so bands can be filtered independently.
+ *
+ * <p>
+ * Thread safety: Stateless.
+ */
+final class ChunkedPngWriter {
+
+	private static final byte[] signature = new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	// Default compression method and window, no preset dictionary, default level.
+	private static final byte[] zlibHeader = new byte[] { 0x78, (byte) 0x9C };
+
+	private static final int bytesPerPixel = 3;
+	private static final int filterTypeCount = 5;
+	private static final int maximumDictionaryLength = 32 * 1024;
+
+	// Approximate uncompressed size of a band. Large enough that the
+	// compression ratio hardly suffers from the split.
+	static final int defaultBandLength = 256 * 1024;
+
+	private ChunkedPngWriter() {
+	}
+
+	/**
+	 * Writes a frame, compressing the bands on the given executor.
+	 *
+	 * <p>
+	 * The calling thread compresses the bands that the executor has not started
+	 * yet, so the executor may be busy, or be the one running the caller.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 *
+	 * @param bandLength
+	 *            Approximate uncompressed size of a band, in bytes.
+	 * @throws InterruptedIOException
+	 *             If interrupted while waiting for the executor.
+	 */
+	static void write(PngEncoding.Rows rows, int width, int height, OutputStream out, Executor executor,
+			int bandLength) throws IOException {
+
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Invalid frame size: " + width + "x" + height + ".");
+		}
+
+		final int rowLength = 1 + width * bytesPerPixel;
+		final int bandHeight = Math.max(1, Math.min(height, bandLength / rowLength));
+
+		final List<FutureTask<Band>> bands = new ArrayList<>();
+		for (int fromY = 0; fromY < height; fromY += bandHeight) {
+			final int bandFromY = fromY;
+			final int bandToY = Math.min(fromY + bandHeight, height);
+			bands.add(new FutureTask<>(() -> compress(rows, width, bandFromY, bandToY, bandToY == height)));
+		}
+
+		for (final FutureTask<Band> band : bands) {
+			try {
+				executor.execute(band);
+			} catch (RejectedExecutionException e) {
+				// Run by the calling thread below.
+				break;
+			}
+		}
+
+		final DataOutputStream data = new DataOutputStream(out);
+
+		data.write(signature);
+		writeHeader(data, width, height);
+		writeChunk(data, "IDAT", zlibHeader, zlibHeader.length, crc("IDAT", zlibHeader, zlibHeader.length));
+
+		long adler = 1;
+		try {
+			for (final FutureTask<Band> bandTask : bands) {
+
+				// No effect if already started by the executor.
+				bandTask.run();
+				final Band band = bandTask.get();
+
+				writeChunk(data, "IDAT", band.compressed, band.compressed.length, band.crc);
+				adler = combineAdler32(adler, band.adler, band.uncompressedLength);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Failed to compress a band.", e.getCause());
+		} finally {
+			for (final FutureTask<Band> bandTask : bands) {
+				bandTask.cancel(false);
+			}
+		}
+
+		final byte[] trailer = new byte[] { (byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8),
+				(byte) adler };
+		writeChunk(data, "IDAT", trailer, trailer.length, crc("IDAT", trailer, trailer.length));
+
+		writeChunk(data, "IEND", new byte[0], 0, crc("IEND", new byte[0], 0));
+		data.flush();
+	}
+
+	private static void writeHeader(DataOutputStream data, int width, int height) throws IOException {
+
+		final ByteArrayOutputStream header = new ByteArrayOutputStream();
+		final DataOutputStream headerData = new DataOutputStream(header);
+		headerData.writeInt(width);
+		headerData.writeInt(height);
+		headerData.writeByte(8); // Bit depth.
+		headerData.writeByte(2); // Color type: RGB.
+		headerData.writeByte(0); // Compression method: Deflate.
+		headerData.writeByte(0); // Filter method: Adaptive.
+		headerData.writeByte(0); // Interlace method: None.
+
+		final byte[] bytes = header.toByteArray();
+		writeChunk(data, "IHDR", bytes, bytes.length, crc("IHDR", bytes, bytes.length));
+	}
+
+	private static void writeChunk(DataOutputStream data, String type, byte[] bytes, int length, long crc)
+			throws IOException {
+		data.writeInt(length);
+		data.write(type.getBytes(StandardCharsets.US_ASCII));
+		data.write(bytes, 0, length);
+		data.writeInt((int) crc);
+	}
+
+	private static long crc(String type, byte[] bytes, int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(type.getBytes(StandardCharsets.US_ASCII));
+		crc.update(bytes, 0, length);
+		return crc.getValue();
+	}
+
+	/**
+	 * A compressed band of rows.
+	 */
+	private static final class Band {
+
+		final byte[] compressed;
+		// Of the IDAT chunk holding the compressed band.
+		final long crc;
+		// Of the uncompressed band.
+		final long adler;
+		final int uncompressedLength;
+
+		Band(byte[] compressed, long crc, long adler, int uncompressedLength) {
+			this.compressed = compressed;
+			this.crc = crc;
+			this.adler = adler;
+			this.uncompressedLength = uncompressedLength;
+		}
+	}
+
+	/**
+	 * Filters and compresses the rows from 'fromY' inclusive to 'toY' exclusive.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	private static Band compress(PngEncoding.Rows rows, int width, int fromY, int toY, boolean isLast) {
+
+		final int rowLength = 1 + width * bytesPerPixel;
+
+		// The rows before the band that make up the dictionary.
+		final int dictionaryRowCount = Math.min(fromY, (maximumDictionaryLength + rowLength - 1) / rowLength);
+		final int filterFromY = fromY - dictionaryRowCount;
+
+		final byte[] filtered = new byte[(toY - filterFromY) * rowLength];
+		filterRows(rows, width, filterFromY, toY, filtered);
+
+		final int dictionaryLength = Math.min(dictionaryRowCount * rowLength, maximumDictionaryLength);
+		final int bandOffset = dictionaryRowCount * rowLength;
+		final int bandLength = filtered.length - bandOffset;
+
+		final Adler32 adler = new Adler32();
+		adler.update(filtered, bandOffset, bandLength);
+
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream(bandLength / 4 + 64);
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			if (dictionaryLength > 0) {
+				deflater.setDictionary(filtered, bandOffset - dictionaryLength, dictionaryLength);
+			}
+			deflater.setInput(filtered, bandOffset, bandLength);
+
+			final byte[] buffer = new byte[64 * 1024];
+			if (isLast) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					compressed.write(buffer, 0, deflater.deflate(buffer));
+				}
+			} else {
+				// The sync flush ends the band on a byte boundary, without ending the
+				// stream.
+				int length;
+				do {
+					length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+					compressed.write(buffer, 0, length);
+				} while (length == buffer.length || !deflater.needsInput());
+			}
+		} finally {
+			deflater.end();
+		}
+
+		final byte[] bytes = compressed.toByteArray();
+		return new Band(bytes, crc("IDAT", bytes, bytes.length), adler.getValue(), bandLength);
+	}
+
+	/**
+	 * Writes the filtered rows from 'fromY' inclusive to 'toY' exclusive, each
+	 * starting with its filter type.
+	 */
+	private static void filterRows(PngEncoding.Rows rows, int width, int fromY, int toY, byte[] filteredOut) {
+
+		final int rowLength = width * bytesPerPixel;
+		byte[] previous = new byte[rowLength];
+		byte[] current = new byte[rowLength];
+		final byte[][] candidates = new byte[filterTypeCount][rowLength];
+
+		// Including the row above, if any.
+		final int expandFromY = Math.max(fromY - 1, 0);
+		final int[] argb = new int[(toY - expandFromY) * width];
+		rows.expand(expandFromY, toY, argb);
+
+		if (fromY > 0) {
+			toRgb(argb, 0, width, previous);
+		}
+
+		for (int y = fromY; y < toY; y++) {
+
+			toRgb(argb, (y - expandFromY) * width, width, current);
+
+			int bestType = 0;
+			long bestSum = Long.MAX_VALUE;
+			for (int type = 0; type < filterTypeCount; type++) {
+				final long sum = filter(type, current, previous, candidates[type]);
+				if (sum < bestSum) {
+					bestSum = sum;
+					bestType = type;
+				}
+			}
+
+			final int offset = (y - fromY) * (1 + rowLength);
+			filteredOut[offset] = (byte) bestType;
+			System.arraycopy(candidates[bestType], 0, filteredOut, offset + 1, rowLength);
+
+			final byte[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+	}
+
+	private static void toRgb(int[] argb, int offset, int width, byte[] rgbOut) {
+		for (int x = offset, i = 0; x < offset + width; x++) {
+			final int color = argb[x];
+			rgbOut[i++] = (byte) (color >>> 16);
+			rgbOut[i++] = (byte) (color >>> 8);
+			rgbOut[i++] = (byte) color;
+		}
+	}
+
+	/**
+	 * Applies a PNG filter to a row.
+	 *
+	 * @param previous
+	 *            The row above, all zero for the first row.
+	 * @return The sum of the absolute values of the filtered bytes as signed
+	 *         bytes.
+	 */
+	private static long filter(int type, byte[] row, byte[] previous, byte[] out) {
+
+		long sum = 0;
+		for (int i = 0; i < row.length; i++) {
+
+			final int raw = row[i] & 0xFF;
+			final int left = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+			final int up = previous[i] & 0xFF;
+			final int upLeft = i >= bytesPerPixel ? previous[i - bytesPerPixel] & 0xFF : 0;
+
+			final int predictor;
+			switch (type) {
+			case 0:
+				predictor = 0;
+				break;
+			case 1:
+				predictor = left;
+				break;
+			case 2:
+				predictor = up;
+				break;
+			case 3:
+				predictor = (left + up) >>> 1;
+				break;
+			default:
+				predictor = paeth(left, up, upLeft);
+				break;
+			}
+
+			final byte filtered = (byte) (raw - predictor);
+			out[i] = filtered;
+			sum += Math.abs(filtered);
+		}
+		return sum;
+	}
+
+	private static int paeth(int left, int up, int upLeft) {
+
+		final int estimate = left + up - upLeft;
+		final int leftDistance = Math.abs(estimate - left);
+		final int upDistance = Math.abs(estimate - up);
+		final int upLeftDistance = Math.abs(estimate - upLeft);
+
+		if (leftDistance <= upDistance && leftDistance <= upLeftDistance) {
+			return left;
+		} else if (upDistance <= upLeftDistance) {
+			return up;
+		} else {
+			return upLeft;
+		}
+	}
+
+	/**
+	 * Combines the Adler-32 checksums of two consecutive pieces of data, as
+	 * 'adler32_combine' of zlib.
+	 *
+	 * @param length2
+	 *            The length of the second piece.
+	 * @return The checksum of the concatenation.
+	 */
+	static long combineAdler32(long adler1, long adler2, long length2) {
+
+		final long base = 65521;
+		final long remainder = length2 % base;
+
+		long sum1 = adler1 & 0xFFFF;
+		long sum2 = (remainder * sum1) % base;
+		sum1 += (adler2 & 0xFFFF) + base - 1;
+		sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + base - remainder;
+
+		if (sum1 >= base) {
+			sum1 -= base;
+		}
+		if (sum1 >= base) {
+			sum1 -= base;
+		}
+		if (sum2 >= base << 1) {
+			sum2 -= base << 1;
+		}
+		if (sum2 >= base) {
+			sum2 -= base;
+		}
+		return sum1 | (sum2 << 16);
+	}
+}
@@ -0,0 +1,475 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Renders circle-fractal images, optionally in parallel, with progress and
+ * cancellation, into a {@link PixelSink}. Does not depend on JavaFX, so that it
+ * can be used by servers and batch jobs without starting a GUI toolkit.
+ *
+ * <p>
+ * The tiles of the renders are run on the workers of the shared
+ * {@link RenderScheduler}, by the priority of the engine, so that interactive
+ * renders overtake background renders at tile boundaries.
+ *
+ * <p>
+ * How the work is divided and computed is given by a {@link RenderStrategy},
+ * for instance one tuned for the machine, see {@link RenderAutoTuner}.
+ *
+ * <p>
+ * Renders are recorded in the shared {@link RenderMetrics}, and emitted as
+ * flight recorder events, see {@link RenderEvents}.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+public final class CircleFractalEngine {
+
+	private final CircleFractalParameters parameters;
+	private final RenderStrategy strategy;
+	private final RenderScheduler.Priority priority;
+	// Where the work of the renders is recorded, may be null.
+	private final RenderProfile profile;
+
+	// Number of rows of a tile computed together, at most. The same as the blocks
+	// of the kernel, so that the bands do not cut through them.
+	private static final int rowsPerBand = PointToColorCalculator.coherentBlockSize;
+
+	private static final Logger logger = LogManager.getLogger(CircleFractalEngine.class);
+
+	/**
+	 * Same as
+	 * {@link #CircleFractalEngine(CircleFractalParameters, boolean, boolean, Optional, RenderScheduler.Priority)},
+	 * with interactive priority.
+	 */
+	public CircleFractalEngine(CircleFractalParameters parameters, boolean isParallelizedComputation,
+			boolean isSinglePrecisionAllowed, Optional<RenderProfile> profile) {
+		this(parameters, isParallelizedComputation, isSinglePrecisionAllowed, profile,
+				RenderScheduler.Priority.INTERACTIVE);
+	}
+
+	/**
+	 * Same as
+	 * {@link #CircleFractalEngine(CircleFractalParameters, RenderStrategy, Optional, RenderScheduler.Priority)},
+	 * with the strategy used when not tuned, see {@link RenderStrategy#of}.
+	 *
+	 * @param isSinglePrecisionAllowed
+	 *            Whether the faster single-precision kernel may be used. It is
+	 *            only used where its colors stay within the configured tolerance,
+	 *            see {@link SinglePrecisionKernelSelector}.
+	 */
+	public CircleFractalEngine(CircleFractalParameters parameters, boolean isParallelizedComputation,
+			boolean isSinglePrecisionAllowed, Optional<RenderProfile> profile, RenderScheduler.Priority priority) {
+		this(parameters, RenderStrategy.of(isParallelizedComputation, isSinglePrecisionAllowed), profile,
+				priority);
+	}
+
+	/**
+	 * @param strategy
+	 *            How the work of the renders is divided and computed.
+	 * @param profile
+	 *            Where to record the descent depth of every pixel and the time
+	 *            spent on every tile. Must have the size of the image. If empty,
+	 *            nothing is recorded.
+	 * @param priority
+	 *            The priority of the tiles of the renders on the shared
+	 *            {@link RenderScheduler}.
+	 */
+	public CircleFractalEngine(CircleFractalParameters parameters, RenderStrategy strategy,
+			Optional<RenderProfile> profile, RenderScheduler.Priority priority) {
+
+		if (profile.isPresent()
+				&& (profile.get().width != parameters.width || profile.get().height != parameters.height)) {
+			throw new IllegalArgumentException("The profile did not have the size of the image: "
+					+ profile.get().width + "x" + profile.get().height + ".");
+		}
+
+		this.parameters = parameters;
+		this.strategy = strategy;
+		this.priority = priority;
+		this.profile = profile.orElse(null);
+	}
+
+	public CircleFractalParameters getParameters() {
+		return parameters;
+	}
+
+	public RenderStrategy getStrategy() {
+		return strategy;
+	}
+
+	public RenderScheduler.Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Continually update the progress until cancelled.
+	 *
+	 * <p>
+	 * Updating the drawing progress using a scheduler in order to avoid the issues
+	 * that updating from multiple threads can give, such as progress decreasing
+	 * wrongly. Progress decreasing wrongly can for instance happen this way: a task
+	 * gets the progress value, its executing thread gets paused, and then after
+	 * another task executed by another thread updates with a newer progress value,
+	 * the first thread resumes and the first task updates with its outdated
+	 * progress value.
+	 *
+	 * @param isFinished
+	 *            Set by the caller once the render is finished.
+	 * @param progressSoFarCount
+	 *            The progress so far, owned and updated by the caller.
+	 * @param totalWork
+	 *            The total work. Strictly positive integer, with
+	 *
+	 *            {@code 0 <= progressSoFarCount <= totalWork}.
+	 */
+	private void scheduleProgressCountUpdating(RenderControl control, long renderId, AtomicBoolean isFinished,
+			AtomicInteger progressSoFarCount, int totalWork,
+			ScheduledExecutorService updateProgressScheduledExecutorService) {
+
+		updateProgressScheduledExecutorService.schedule(() -> {
+			final int workDone = progressSoFarCount.get();
+			control.updateProgress(workDone, totalWork);
+
+			final RenderEvents.ProgressEvent progressEvent = withParameters(new RenderEvents.ProgressEvent(),
+					renderId);
+			if (progressEvent.isEnabled()) {
+				progressEvent.workDone = workDone;
+				progressEvent.totalWork = totalWork;
+				progressEvent.commit();
+			}
+
+			if (!isFinished.get()) {
+				scheduleProgressCountUpdating(control, renderId, isFinished, progressSoFarCount, totalWork,
+						updateProgressScheduledExecutorService);
+			}
+
+		}, 5, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Sets the render parameters on the given flight recorder event.
+	 *
+	 * @return The given event.
+	 */
+	private <E extends RenderEvents.RenderEvent> E withParameters(E event, long renderId) {
+		event.setParameters(renderId, parameters.width, parameters.height, parameters.numberOfIterations,
+				parameters.divisionFactor, parameters.cutOff, strategy.isParallelized());
+		return event;
+	}
+
+	/**
+	 * Performs a render, handling cancellation, parallelization and progress
+	 * indication. The tiles are computed on the workers of the shared
+	 * {@link RenderScheduler}, in the priority class of this engine, on up to
+	 * all workers if the strategy is parallelized and otherwise on one at a
+	 * time. The calling thread waits for them, and then lets the sink finish.
+	 *
+	 * <p>
+	 * If there was no progress indication, parallelized drawing, or cancellation
+	 * supported, this would simply be a loop that calculated the color for each
+	 * point using {@link PointToColorCalculator} and returning the resulting
+	 * image.
+	 *
+	 * <p>
+	 * If there was only parallelized drawing and no cancellation and progress
+	 * indication, this would also be relatively simple, since you could just create
+	 * a number of tasks, execute them without giving them any further input or get
+	 * output from them, and wait for them all to finish. And likewise, if there was
+	 * only cancellation and progress indication and no parallelization, simply make
+	 * a basic loop that outputs progress as well as checks for cancellation. It is
+	 * the combination of the three features that complicates matters a whole lot.
+	 *
+	 * <p>
+	 * This is arguably an argument against relatively many inclusions of features,
+	 * and possibly an argument in favour of having something similar to a "feature
+	 * budget" or similar, given that features can have many costs, and the more
+	 * features that are supported, the more everything may be strained, which can
+	 * have both considerably up-front as well as short-term and long-term
+	 * consequences. What if a feature is needed and the "feature budget" is full?
+	 * It may be necessary to take out or deprecate one or more other features. It
+	 * also motivates work towards being able to "increase" the "feature budget",
+	 * which can depend on many factors, including architecture.
+	 *
+	 * <p>
+	 * Blocking: Yes, computationally heavy. Returns only once no worker writes to
+	 * the sink anymore, also when cancelled or failing.
+	 *
+	 * @return Whether the render completed, as opposed to being cancelled.
+	 */
+	public boolean render(RenderControl control, PixelSink sink) throws Exception {
+
+		logger.trace("JVM active thread count: {}", Thread.activeCount());
+
+		final int width = parameters.width;
+		final int height = parameters.height;
+
+		// Identifies this render in the flight recorder events.
+		final long renderId = RenderEvents.nextRenderId();
+
+		// Setup.
+
+		final RenderEvents.SetupEvent setupEvent = withParameters(new RenderEvents.SetupEvent(), renderId);
+		setupEvent.begin();
+
+		final PointToColorKernel pointToColorCalculator = createKernel();
+
+		final int totalWork = width * height;
+
+		final RenderMetrics.Recording recording = RenderMetrics.getInstance().startRender(totalWork);
+
+		control.updateProgress(0, totalWork);
+
+		final AtomicInteger progressSoFarCount = new AtomicInteger();
+		progressSoFarCount.set(0);
+
+		final AtomicBoolean isFinished = new AtomicBoolean();
+
+		// NOTE: Ownership (executor): Locally here, closed in this scope. Its tasks
+		// run on the workers of the shared scheduler, which are not owned.
+		final RenderScheduler scheduler = RenderScheduler.getInstance();
+		final ExecutorService paintingExecutorService = scheduler.newExecutor(priority,
+				strategy.isParallelized() ? scheduler.getWorkerCount() : 1);
+
+		// NOTE: Ownership (thread pool): Locally here, closed in this scope.
+		final ScheduledExecutorService updateProgressScheduledExecutorService = Executors.newScheduledThreadPool(1);
+
+		setupEvent.commit();
+
+		// Drawing.
+
+		try {
+
+			scheduleProgressCountUpdating(control, renderId, isFinished, progressSoFarCount, totalWork,
+					updateProgressScheduledExecutorService);
+
+			final long computeStartNanos = System.nanoTime();
+
+			// Create a task for every tile. For parallel tiles, the tiles are of about
+			// equal estimated cost and the most expensive ones come first, so that the
+			// render does not end with a few workers finishing expensive tiles while the
+			// others are idle. Otherwise, a task for every band of rows.
+			final List<Tile> tiles;
+			if (strategy.execution == RenderStrategy.Execution.PARALLEL_TILES) {
+				final CostMap costMap = CostMap.sample(pointToColorCalculator, width, height,
+						CostMap.defaultCellSize, paintingExecutorService);
+				tiles = costMap.planTiles(strategy.granularity * scheduler.getWorkerCount());
+			} else {
+				final int rowsPerTile = strategy.granularity;
+				tiles = IntStream.range(0, (height + rowsPerTile - 1) / rowsPerTile)
+						.mapToObj(band -> new Tile(0, band * rowsPerTile, width,
+								Math.min(rowsPerTile, height - band * rowsPerTile)))
+						.collect(Collectors.toList());
+			}
+
+			final AtomicInteger startedTaskCount = new AtomicInteger();
+			final AtomicLong lastTaskStartNanos = new AtomicLong();
+
+			final List<Callable<Void>> tasks = tiles.stream().<Callable<Void>>map(tile -> {
+				return new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+
+						final long tileStartNanos = System.nanoTime();
+						if (startedTaskCount.incrementAndGet() == tiles.size()) {
+							lastTaskStartNanos.set(tileStartNanos);
+						}
+
+						final long[] descentDepthHistogram = recording.newLocalDescentDepthHistogram();
+						final int bandHeight = Math.min(rowsPerBand, tile.height);
+						final int[] bandArgb = new int[tile.width * bandHeight];
+						final int[] bandDescentDepths = new int[tile.width * bandHeight];
+						final int[] argb = new int[tile.width];
+
+						// Computed in bands of rows, so that the kernel can share work between
+						// neighbouring pixels, see 'PointToColorKernel.getColors'.
+						for (int bandY = tile.y; bandY < tile.y + tile.height; bandY += rowsPerBand) {
+
+							if (control.isCancelled()) {
+								paintingExecutorService.shutdownNow();
+								throw new InterruptedException("Circle-fractal drawing task was cancelled.");
+							}
+
+							final int rowCount = Math.min(rowsPerBand, tile.y + tile.height - bandY);
+
+							final RenderEvents.LineComputeEvent lineComputeEvent = withParameters(
+									new RenderEvents.LineComputeEvent(), renderId);
+							lineComputeEvent.y = bandY;
+							lineComputeEvent.lineCount = rowCount;
+							lineComputeEvent.begin();
+
+							final long startNanos = System.nanoTime();
+
+							pointToColorCalculator.getColors(tile.x, bandY, tile.width, rowCount, bandArgb,
+									bandDescentDepths);
+
+							Arrays.fill(descentDepthHistogram, 0);
+							long descentDepthSum = 0;
+
+							for (int row = 0; row < rowCount; row++) {
+
+								final int y = bandY + row;
+								for (int column = 0; column < tile.width; column++) {
+
+									final int descentDepth = bandDescentDepths[row * tile.width + column];
+									descentDepthHistogram[RenderMetrics.descentDepthBucket(descentDepth)]++;
+									descentDepthSum += descentDepth;
+
+									if (profile != null) {
+										profile.recordDescentDepth(tile.x + column, y, descentDepth);
+									}
+								}
+
+								System.arraycopy(bandArgb, row * tile.width, argb, 0, tile.width);
+								sink.write(tile.x, y, argb, tile.width);
+							}
+
+							progressSoFarCount.addAndGet(tile.width * rowCount);
+
+							recording.recordLine(System.nanoTime() - startNanos, descentDepthHistogram,
+									descentDepthSum);
+
+							lineComputeEvent.commit();
+						}
+
+						if (profile != null) {
+							profile.recordTile(tile, System.nanoTime() - tileStartNanos);
+						}
+
+						return null;
+					}
+				};
+			}).collect(Collectors.toList());
+
+			final List<Future<Void>> results;
+			try {
+				results = paintingExecutorService.invokeAll(tasks);
+			} catch (RejectedExecutionException e) {
+				// A task was cancelled and shut down the executor while the tasks were
+				// still being submitted.
+				if (control.isCancelled()) {
+					return false;
+				}
+				throw e;
+			}
+
+			final long computeEndNanos = System.nanoTime();
+			recording.recordComputeNanos(computeEndNanos - computeStartNanos);
+			recording.recordTailNanos(computeEndNanos - Math.max(lastTaskStartNanos.get(), computeStartNanos));
+
+			if (control.isCancelled()) {
+				return false;
+			}
+
+			// Check the results, and let the sink finish, for instance by uploading.
+
+			for (final Future<Void> result : results) {
+				try {
+					result.get();
+				} catch (InterruptedException | ExecutionException e) {
+					throw new IllegalArgumentException(e);
+				}
+			}
+
+			final RenderEvents.UploadEvent uploadEvent = withParameters(new RenderEvents.UploadEvent(), renderId);
+			uploadEvent.begin();
+
+			final long uploadStartNanos = System.nanoTime();
+
+			sink.finish();
+
+			recording.recordUploadNanos(System.nanoTime() - uploadStartNanos);
+
+			uploadEvent.commit();
+
+			control.updateProgress(totalWork, totalWork);
+
+			recording.recordCompleted();
+
+			return true;
+		} finally {
+
+			isFinished.set(true);
+
+			if (control.isCancelled()) {
+				recording.recordCancelled();
+
+				final RenderEvents.CancellationEvent cancellationEvent = withParameters(
+						new RenderEvents.CancellationEvent(), renderId);
+				cancellationEvent.workDone = progressSoFarCount.get();
+				cancellationEvent.totalWork = totalWork;
+				cancellationEvent.commit();
+			}
+
+			paintingExecutorService.shutdownNow();
+			updateProgressScheduledExecutorService.shutdownNow();
+
+			awaitTermination(paintingExecutorService);
+		}
+	}
+
+	/*
+	 * Creates the kernel of the strategy.
+	 */
+	private PointToColorKernel createKernel() {
+
+		final PointToColorCalculator reference = PointToColorCalculator.forImage(parameters.width,
+				parameters.height, parameters.numberOfIterations, parameters.divisionFactor, parameters.cutOff);
+
+		switch (strategy.kernel) {
+		case PIXELS:
+			// Only the default, pixel by pixel, 'getColors'.
+			return (x, y, descentDepthOut) -> reference.getColor(x, y, descentDepthOut);
+		case SINGLE_PRECISION:
+			return SinglePrecisionKernelSelector.select(parameters.width, parameters.height,
+					parameters.numberOfIterations, parameters.divisionFactor, parameters.cutOff);
+		case EXACT:
+			return ExactPointToColorCalculator.forImage(parameters.width, parameters.height,
+					parameters.numberOfIterations, parameters.divisionFactor, parameters.cutOff);
+		default:
+			return reference;
+		}
+	}
+
+	/*
+	 * Waits until no worker can write to the sink anymore. The workers check for
+	 * cancellation at every band of rows of their tiles, so this is short.
+	 */
+	private static void awaitTermination(ExecutorService executorService) {
+
+		boolean isInterrupted = false;
+		while (true) {
+			try {
+				if (executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+					break;
+				}
+				logger.warn("Render workers still running after being stopped, waiting for them.");
+			} catch (InterruptedException e) {
+				isInterrupted = true;
+			}
+		}
+
+		if (isInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
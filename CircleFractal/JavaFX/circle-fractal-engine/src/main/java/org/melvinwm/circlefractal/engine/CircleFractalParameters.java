@@ -0,0 +1,70 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * The parameters of a circle-fractal render: The size of the image and the
+ * fractal parameters, see {@link PointToColorCalculator#forImage}.
+ * 
+ * <p>
+ * Thread safety: Immutable.
+ */
+public final class CircleFractalParameters {
+
+	public final int width;
+	public final int height;
+	public final int numberOfIterations;
+	public final int divisionFactor;
+	public final double cutOff;
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             If the size is not strictly positive, or if the fractal
+	 *             parameters are not accepted by {@link PointToColorCalculator}.
+	 */
+	public CircleFractalParameters(int width, int height, int numberOfIterations, int divisionFactor,
+			double cutOff) {
+
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException(
+					"The image size was not strictly positive: " + width + "x" + height + ".");
+		}
+
+		// Validate the fractal parameters.
+		PointToColorCalculator.forImage(width, height, numberOfIterations, divisionFactor, cutOff);
+
+		this.width = width;
+		this.height = height;
+		this.numberOfIterations = numberOfIterations;
+		this.divisionFactor = divisionFactor;
+		this.cutOff = cutOff;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+
+		if (!(other instanceof CircleFractalParameters)) {
+			return false;
+		}
+
+		final CircleFractalParameters parameters = (CircleFractalParameters) other;
+		return width == parameters.width && height == parameters.height
+				&& numberOfIterations == parameters.numberOfIterations
+				&& divisionFactor == parameters.divisionFactor
+				&& Double.compare(cutOff, parameters.cutOff) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+
+		int hash = width;
+		hash = 31 * hash + height;
+		hash = 31 * hash + numberOfIterations;
+		hash = 31 * hash + divisionFactor;
+		hash = 31 * hash + Double.hashCode(cutOff);
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return width + "x" + height + ", i" + numberOfIterations + ", d" + divisionFactor + ", c" + cutOff;
+	}
+}
@@ -0,0 +1,99 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Deviation in color between a reference kernel and a candidate kernel over a
+ * set of pixels.
+ *
+ * <p>
+ * The deviation of a single pixel is the largest absolute difference of its
+ * red, green and blue parts, from 0 to 255.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+final class ColorDeviation {
+
+	final int maximum;
+	final double mean;
+	final long pixelCount;
+
+	ColorDeviation(int maximum, double mean, long pixelCount) {
+		this.maximum = maximum;
+		this.mean = mean;
+		this.pixelCount = pixelCount;
+	}
+
+	/**
+	 * @return The deviation of a single pixel.
+	 */
+	static int of(int referenceARGB, int candidateARGB) {
+
+		int maximum = 0;
+		for (int shift = 0; shift <= 16; shift += 8) {
+			final int reference = (referenceARGB >>> shift) & 0xFF;
+			final int candidate = (candidateARGB >>> shift) & 0xFF;
+			maximum = Math.max(maximum, Math.abs(reference - candidate));
+		}
+		return maximum;
+	}
+
+	/**
+	 * Measures the deviation over an image, optionally only sampling every
+	 * 'step'-th pixel in each direction.
+	 *
+	 * <p>
+	 * Blocking: Yes, CPU-heavy.
+	 *
+	 * @param reference
+	 *            The reference kernel.
+	 * @param candidate
+	 *            The kernel to measure the deviation of.
+	 * @param width
+	 *            Width of the image.
+	 * @param height
+	 *            Height of the image.
+	 * @param step
+	 *            The distance between sampled pixels, 1 for all pixels. Must be
+	 *            at least 1.
+	 * @return The deviation.
+	 */
+	static ColorDeviation measure(PointToColorKernel reference, PointToColorKernel candidate, int width, int height,
+			int step) {
+
+		if (step < 1) {
+			throw new IllegalArgumentException("'step' was not at least 1: " + step + ".");
+		}
+
+		int maximum = 0;
+		long sum = 0;
+		long pixelCount = 0;
+
+		for (int y = 0; y < height; y += step) {
+			for (int x = 0; x < width; x += step) {
+				final int deviation = of(reference.getColor(x, y, null), candidate.getColor(x, y, null));
+				maximum = Math.max(maximum, deviation);
+				sum += deviation;
+				pixelCount++;
+			}
+		}
+
+		return new ColorDeviation(maximum, pixelCount == 0 ? 0.0 : sum / (double) pixelCount, pixelCount);
+	}
+
+	/**
+	 * @return The combined deviation of this and the given deviation.
+	 */
+	ColorDeviation combine(ColorDeviation other) {
+
+		final long combinedPixelCount = pixelCount + other.pixelCount;
+		final double combinedMean = combinedPixelCount == 0 ? 0.0
+				: (mean * pixelCount + other.mean * other.pixelCount) / combinedPixelCount;
+
+		return new ColorDeviation(Math.max(maximum, other.maximum), combinedMean, combinedPixelCount);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("maximum: %d, mean: %.4f, pixels: %d", maximum, mean, pixelCount);
+	}
+}
@@ -0,0 +1,191 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Low-resolution estimate of the cost of rendering each part of an image, for
+ * ordering and sizing the work of a parallel render.
+ *
+ * <p>
+ * The cost of a pixel is dominated by its descent depth, which varies widely:
+ * Pixels near the fractal descend through all the iterations, while pixels
+ * inside the start circle stop at once. The image is divided into square cells,
+ * and the descent depth is sampled at the center of each cell, which costs
+ * about one pixel in 'cellSize' squared, and is itself done in parallel.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+final class CostMap {
+
+	static final int defaultCellSize = 16;
+
+	final int width;
+	final int height;
+	final int cellSize;
+	final int columnCount;
+	final int rowCount;
+
+	// The estimated cost per pixel of each cell, in row-major order.
+	private final double[] pixelCosts;
+	private final double totalCost;
+
+	private CostMap(int width, int height, int cellSize, double[] pixelCosts) {
+
+		this.width = width;
+		this.height = height;
+		this.cellSize = cellSize;
+		this.columnCount = (width + cellSize - 1) / cellSize;
+		this.rowCount = (height + cellSize - 1) / cellSize;
+		this.pixelCosts = pixelCosts;
+
+		double total = 0;
+		for (int row = 0; row < rowCount; row++) {
+			for (int column = 0; column < columnCount; column++) {
+				total += estimateCost(getCell(column, row));
+			}
+		}
+		this.totalCost = total;
+	}
+
+	/**
+	 * Samples the descent depth at the center of each cell, a row of cells per
+	 * task on the given executor service.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 *
+	 * @param cellSize
+	 *            Width and height of the cells. Must be strictly positive.
+	 */
+	static CostMap sample(PointToColorKernel kernel, int width, int height, int cellSize,
+			ExecutorService executorService) throws InterruptedException {
+
+		if (cellSize <= 0) {
+			throw new IllegalArgumentException("'cellSize' was not strictly positive: " + cellSize + ".");
+		}
+
+		final int columnCount = (width + cellSize - 1) / cellSize;
+		final int rowCount = (height + cellSize - 1) / cellSize;
+		final double[] pixelCosts = new double[columnCount * rowCount];
+
+		final List<Callable<Void>> tasks = IntStream.range(0, rowCount).<Callable<Void>>mapToObj(row -> () -> {
+			final int[] descentDepth = new int[1];
+			for (int column = 0; column < columnCount; column++) {
+				final int x = Math.min(column * cellSize + cellSize / 2, width - 1);
+				final int y = Math.min(row * cellSize + cellSize / 2, height - 1);
+				kernel.getColor(x, y, descentDepth);
+				// A pixel costs about one step per level of descent, and one more for
+				// the final distance and color.
+				pixelCosts[row * columnCount + column] = 1 + descentDepth[0];
+			}
+			return null;
+		}).collect(Collectors.toList());
+
+		for (final Future<Void> result : executorService.invokeAll(tasks)) {
+			try {
+				result.get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		return new CostMap(width, height, cellSize, pixelCosts);
+	}
+
+	/**
+	 * @return The cell at the given column and row, clipped to the image.
+	 */
+	Tile getCell(int column, int row) {
+		final int x = column * cellSize;
+		final int y = row * cellSize;
+		return new Tile(x, y, Math.min(cellSize, width - x), Math.min(cellSize, height - y));
+	}
+
+	/**
+	 * @return The estimated cost of the tile, in steps of descent.
+	 */
+	double estimateCost(Tile tile) {
+
+		double cost = 0;
+		for (int row = tile.y / cellSize; row * cellSize < tile.y + tile.height; row++) {
+			final int overlapHeight = Math.min(tile.y + tile.height, (row + 1) * cellSize)
+					- Math.max(tile.y, row * cellSize);
+			for (int column = tile.x / cellSize; column * cellSize < tile.x + tile.width; column++) {
+				final int overlapWidth = Math.min(tile.x + tile.width, (column + 1) * cellSize)
+						- Math.max(tile.x, column * cellSize);
+				cost += (double) overlapWidth * overlapHeight * pixelCosts[row * columnCount + column];
+			}
+		}
+		return cost;
+	}
+
+	double getTotalCost() {
+		return totalCost;
+	}
+
+	/**
+	 * Divides the image into tiles of about equal estimated cost, ordered from
+	 * the most to the least expensive, so that the expensive tiles are started
+	 * first and the cheap ones fill in at the end of a parallel render.
+	 *
+	 * <p>
+	 * Tiles are runs of whole cells within a row of cells, so a single cell more
+	 * expensive than the target is a tile of its own.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @param targetTileCount
+	 *            Number of tiles aimed for. Must be strictly positive.
+	 * @return The tiles, covering the image exactly once.
+	 */
+	List<Tile> planTiles(int targetTileCount) {
+
+		if (targetTileCount <= 0) {
+			throw new IllegalArgumentException(
+					"'targetTileCount' was not strictly positive: " + targetTileCount + ".");
+		}
+
+		final double targetCost = totalCost / targetTileCount;
+		final List<Tile> tiles = new ArrayList<>();
+
+		for (int row = 0; row < rowCount; row++) {
+
+			int fromColumn = 0;
+			double runCost = 0;
+
+			for (int column = 0; column < columnCount; column++) {
+
+				final double cellCost = estimateCost(getCell(column, row));
+
+				if (column > fromColumn && runCost + cellCost > targetCost) {
+					tiles.add(getRun(fromColumn, column, row));
+					fromColumn = column;
+					runCost = 0;
+				}
+				runCost += cellCost;
+			}
+
+			tiles.add(getRun(fromColumn, columnCount, row));
+		}
+
+		final List<Tile> ordered = new ArrayList<>(tiles);
+		ordered.sort(Comparator.comparingDouble(this::estimateCost).reversed());
+		return ordered;
+	}
+
+	private Tile getRun(int fromColumn, int toColumn, int row) {
+		final Tile first = getCell(fromColumn, row);
+		final Tile last = getCell(toColumn - 1, row);
+		return new Tile(first.x, first.y, last.x + last.width - first.x, first.height);
+	}
+}
@@ -0,0 +1,248 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * The distance to the nearest circle for every pixel of an image, kept
+ * together with the state of each pixel's descent, so that it can be shared
+ * between renders: Renders that differ only in the cut-off share the
+ * distances, and renders with more iterations continue the descents instead of
+ * starting over, see {@link PointToColorCalculator#continueDescent}.
+ * 
+ * <p>
+ * The colors are the same as from {@link PointToColorCalculator#forImage}.
+ * 
+ * <p>
+ * Thread safety: Not thread-safe.
+ */
+public final class DistanceField {
+
+	private final int width;
+	private final int height;
+	private final int divisionFactor;
+
+	private int numberOfIterations;
+	// Radius of the circles at depth 'numberOfIterations'.
+	private double radius;
+
+	// Per pixel, in row-major order: The state of the descent, see
+	// 'PointToColorCalculator.continueDescent'. The radius is shared.
+	private final double[] centerXs;
+	private final double[] centerYs;
+	private final byte[] directions;
+	private final double[] distances;
+
+	/**
+	 * Creates the distance field for 0 iterations.
+	 * 
+	 * <p>
+	 * Blocking: Yes, somewhat computationally heavy.
+	 * 
+	 * @param divisionFactor
+	 *            See {@link PointToColorCalculator}.
+	 */
+	public DistanceField(int width, int height, int divisionFactor, ExecutorService executorService)
+			throws InterruptedException {
+
+		// Validate the arguments.
+		new CircleFractalParameters(width, height, 0, divisionFactor, 0.0);
+
+		this.width = width;
+		this.height = height;
+		this.divisionFactor = divisionFactor;
+		this.numberOfIterations = 0;
+		this.radius = PointToColorCalculator.startRadius;
+
+		final int pixelCount = width * height;
+		this.centerXs = new double[pixelCount];
+		this.centerYs = new double[pixelCount];
+		this.directions = new byte[pixelCount];
+		this.distances = new double[pixelCount];
+
+		final PointToColorCalculator calculator = createCalculator(0, 0.0);
+		forEachRow(executorService, y -> {
+			final double[] state = new double[PointToColorCalculator.descentStateLength];
+			for (int x = 0; x < width; x++) {
+				final int index = y * width + x;
+				distances[index] = calculator.startDescent(state, x, y);
+				storeState(index, state);
+			}
+		});
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getDivisionFactor() {
+		return divisionFactor;
+	}
+
+	public int getNumberOfIterations() {
+		return numberOfIterations;
+	}
+
+	/**
+	 * @return Whether renders with the given parameters can be made from this
+	 *         distance field, possibly after deepening it.
+	 */
+	public boolean canRender(CircleFractalParameters parameters) {
+		return parameters.width == width && parameters.height == height
+				&& parameters.divisionFactor == divisionFactor
+				&& parameters.numberOfIterations >= numberOfIterations;
+	}
+
+	/**
+	 * Continues the descents up to the given number of iterations.
+	 * 
+	 * <p>
+	 * Blocking: Yes, computationally heavy.
+	 * 
+	 * @param numberOfIterations
+	 *            Must be at least the current number of iterations.
+	 * @param executorService
+	 *            Rows are computed in parallel on this.
+	 */
+	public void deepen(int numberOfIterations, ExecutorService executorService) throws InterruptedException {
+
+		if (numberOfIterations < this.numberOfIterations) {
+			throw new IllegalArgumentException("Cannot deepen from " + this.numberOfIterations
+					+ " iterations to fewer iterations: " + numberOfIterations + ".");
+		}
+
+		final int levels = numberOfIterations - this.numberOfIterations;
+		if (levels == 0) {
+			return;
+		}
+
+		final PointToColorCalculator calculator = createCalculator(numberOfIterations, 0.0);
+		final double currentRadius = radius;
+
+		forEachRow(executorService, y -> {
+			final double[] state = new double[PointToColorCalculator.descentStateLength];
+			for (int x = 0; x < width; x++) {
+				final int index = y * width + x;
+				if (distances[index] <= 0) {
+					// The descent has ended inside a circle.
+					continue;
+				}
+				state[0] = centerXs[index];
+				state[1] = centerYs[index];
+				state[2] = currentRadius;
+				state[3] = directions[index];
+				state[4] = distances[index];
+				distances[index] = calculator.continueDescent(state, levels, x, y);
+				storeState(index, state);
+			}
+		});
+
+		// The same computation of the radius as in the descent.
+		for (int level = 0; level < levels; level++) {
+			radius = radius * (1.0 / (1.0 * divisionFactor));
+		}
+		this.numberOfIterations = numberOfIterations;
+	}
+
+	/**
+	 * Computes the colors for the given cut-off at the current number of
+	 * iterations.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @param cutOff
+	 *            See {@link PointToColorCalculator}.
+	 * @param argbOut
+	 *            Destination, in row-major order. Must have length at least width
+	 *            times height.
+	 */
+	public void colorize(double cutOff, int[] argbOut, ExecutorService executorService)
+			throws InterruptedException {
+
+		final PointToColorCalculator calculator = createCalculator(numberOfIterations, cutOff);
+
+		forEachRow(executorService, y -> {
+			for (int index = y * width; index < (y + 1) * width; index++) {
+				argbOut[index] = calculator.getColorFromDistanceFromNearestCircle(distances[index]);
+			}
+		});
+	}
+
+	/**
+	 * Same as {@link #colorize(double, int[], ExecutorService)}, into an indexed
+	 * frame.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @param frameOut
+	 *            Destination, must have the size of this field.
+	 */
+	public void colorize(double cutOff, IndexedFrame frameOut, ExecutorService executorService)
+			throws InterruptedException {
+
+		if (frameOut.width != width || frameOut.height != height) {
+			throw new IllegalArgumentException("Frame size " + frameOut.width + "x" + frameOut.height
+					+ " differs from the field size " + width + "x" + height + ".");
+		}
+
+		final PointToColorCalculator calculator = createCalculator(numberOfIterations, cutOff);
+
+		forEachRow(executorService, y -> {
+			for (int index = y * width; index < (y + 1) * width; index++) {
+				frameOut.setArgb(index, calculator.getColorFromDistanceFromNearestCircle(distances[index]));
+			}
+		});
+	}
+
+	private PointToColorCalculator createCalculator(int numberOfIterations, double cutOff) {
+		return PointToColorCalculator.forImage(width, height, numberOfIterations, divisionFactor, cutOff);
+	}
+
+	private void storeState(int index, double[] state) {
+		centerXs[index] = state[0];
+		centerYs[index] = state[1];
+		directions[index] = (byte) state[3];
+	}
+
+	/**
+	 * Runs the given action for every row, with the rows split into bands that
+	 * run in parallel.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	private void forEachRow(ExecutorService executorService, IntConsumer rowAction) throws InterruptedException {
+
+		final int bandCount = Math.min(height, 4 * Runtime.getRuntime().availableProcessors());
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int band = 0; band < bandCount; band++) {
+			final int fromY = band * height / bandCount;
+			final int toY = (band + 1) * height / bandCount;
+			tasks.add(() -> {
+				for (int y = fromY; y < toY; y++) {
+					rowAction.accept(y);
+				}
+				return null;
+			});
+		}
+
+		for (final Future<Void> result : executorService.invokeAll(tasks)) {
+			try {
+				result.get();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Failed to compute the distance field.", e.getCause());
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * A mutable double-double number: The unevaluated sum of two doubles, with the
+ * low part at most half an ulp of the high part, giving about 106 bits of
+ * precision with the range of a double. The operations update the number in
+ * place, so that computations do not allocate.
+ *
+ * <p>
+ * The algorithms are the classic ones by Dekker and by Hida, Li and Bailey,
+ * without fused multiply-add, which is not available on Java 8.
+ *
+ * <p>
+ * Thread safety: Not thread-safe.
+ */
+final class DoubleDouble {
+
+	// 2^27 + 1, for splitting a double into two halves of 26 bits.
+	private static final double splitter = 134217729.0;
+
+	double hi;
+	double lo;
+
+	DoubleDouble() {
+	}
+
+	DoubleDouble(double value) {
+		this.hi = value;
+	}
+
+	/**
+	 * @return The exact value of 'value' times 2 to the power of 'exponent'.
+	 */
+	static DoubleDouble ofScaled(long value, int exponent) {
+
+		final DoubleDouble result = new DoubleDouble();
+		final double hi = value;
+		// Exact, since the rounding error of 'hi' fits in a double.
+		final double lo = (double) (value - (long) hi);
+		result.setNormalized(Math.scalb(hi, exponent), Math.scalb(lo, exponent));
+		return result;
+	}
+
+	DoubleDouble set(DoubleDouble other) {
+		this.hi = other.hi;
+		this.lo = other.lo;
+		return this;
+	}
+
+	DoubleDouble set(double value) {
+		this.hi = value;
+		this.lo = 0.0;
+		return this;
+	}
+
+	private void setNormalized(double a, double b) {
+		final double s = a + b;
+		this.lo = b - (s - a);
+		this.hi = s;
+	}
+
+	double doubleValue() {
+		return hi + lo;
+	}
+
+	/**
+	 * @return -1, 0 or 1 as this is negative, zero or positive.
+	 */
+	int signum() {
+		return hi != 0.0 ? (hi > 0.0 ? 1 : -1) : (lo > 0.0 ? 1 : (lo < 0.0 ? -1 : 0));
+	}
+
+	int compareTo(DoubleDouble other) {
+		if (hi != other.hi) {
+			return hi < other.hi ? -1 : 1;
+		}
+		return lo < other.lo ? -1 : (lo > other.lo ? 1 : 0);
+	}
+
+	DoubleDouble negate() {
+		this.hi = -hi;
+		this.lo = -lo;
+		return this;
+	}
+
+	DoubleDouble add(DoubleDouble other) {
+		return add(other.hi, other.lo);
+	}
+
+	DoubleDouble subtract(DoubleDouble other) {
+		return add(-other.hi, -other.lo);
+	}
+
+	private DoubleDouble add(double bHi, double bLo) {
+
+		// Two-sum of the high parts and of the low parts.
+		double s = hi + bHi;
+		double v = s - hi;
+		double e = (hi - (s - v)) + (bHi - v);
+
+		final double t = lo + bLo;
+		v = t - lo;
+		final double f = (lo - (t - v)) + (bLo - v);
+
+		e += t;
+		double u = s + e;
+		e = e - (u - s);
+		s = u;
+
+		e += f;
+		setNormalized(s, e);
+		return this;
+	}
+
+	DoubleDouble multiply(DoubleDouble other) {
+
+		final double p = hi * other.hi;
+		double e = twoProductError(hi, other.hi, p);
+		e += hi * other.lo + lo * other.hi;
+		setNormalized(p, e);
+		return this;
+	}
+
+	/**
+	 * Divides by a double.
+	 */
+	DoubleDouble divide(double divisor) {
+
+		final double q1 = hi / divisor;
+		final double p1 = q1 * divisor;
+		final double p2 = twoProductError(q1, divisor, p1);
+
+		// The remainder, this minus 'q1' times the divisor.
+		final double s = hi - p1;
+		final double v = s - hi;
+		double e = (hi - (s - v)) + (-p1 - v);
+		e += lo;
+		e -= p2;
+
+		final double q2 = (s + e) / divisor;
+		setNormalized(q1, q2);
+		return this;
+	}
+
+	/**
+	 * Takes the square root. Must not be negative.
+	 */
+	DoubleDouble sqrt() {
+
+		if (hi <= 0.0) {
+			this.hi = 0.0;
+			this.lo = 0.0;
+			return this;
+		}
+
+		// One Newton step from the double square root: sqrt(a) = ax + (a - ax^2) * x /
+		// 2, with x = 1 / sqrt(a) and ax = a * x.
+		final double x = 1.0 / Math.sqrt(hi);
+		final double ax = hi * x;
+		final double p = ax * ax;
+		final double pe = twoProductError(ax, ax, p);
+		final double difference = ((hi - p) - pe) + lo;
+
+		setNormalized(ax, difference * x * 0.5);
+		return this;
+	}
+
+	/*
+	 * The rounding error of 'a' times 'b', given their rounded product, by
+	 * Dekker's splitting.
+	 */
+	private static double twoProductError(double a, double b, double product) {
+
+		double t = splitter * a;
+		final double aHi = t - (t - a);
+		final double aLo = a - aHi;
+		t = splitter * b;
+		final double bHi = t - (t - b);
+		final double bLo = b - bHi;
+
+		return ((aHi * bHi - product) + aHi * bLo + aLo * bHi) + aLo * bLo;
+	}
+
+	@Override
+	public String toString() {
+		return hi + " + " + lo;
+	}
+}
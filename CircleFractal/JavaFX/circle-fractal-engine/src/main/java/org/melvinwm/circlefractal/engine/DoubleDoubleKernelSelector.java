@@ -0,0 +1,46 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Decides when zoomed-in views need the double-double kernel
+ * {@link DoubleDoublePointToColorCalculator} instead of the reference kernel
+ * {@link PointToColorCalculator}.
+ *
+ * <p>
+ * The reference kernel rounds the coordinates of every circle it descends
+ * through to doubles, so the error in the position of the circles grows with
+ * the descent depth, by up to an ulp of the largest coordinate per level. That
+ * is far below a pixel at the image's own scale, but at deep zooms, where the
+ * distance between pixels is 2 to the power of minus the zoom level, the edges
+ * of the circles and the boundaries between the directions become jagged and
+ * noisy, and eventually neighbouring pixels round to the same coordinates. The
+ * double-double kernel is required once the error is more than
+ * 1/{@value #maximumErrorPerPixelReciprocal} of the distance between pixels.
+ *
+ * <p>
+ * Thread safety: Stateless.
+ */
+final class DoubleDoubleKernelSelector {
+
+	private static final int maximumErrorPerPixelReciprocal = 64;
+
+	private DoubleDoubleKernelSelector() {
+	}
+
+	/**
+	 * Blocking: No.
+	 *
+	 * @param zoom
+	 *            The zoom level, see {@link TileRenderer#renderZoomed}.
+	 * @return Whether the given zoomed-in view needs the double-double kernel.
+	 */
+	static boolean isRequired(int width, int height, int numberOfIterations, int zoom) {
+
+		// The coordinates are bounded by the image size and the circles around the
+		// start circle.
+		final double maximumCoordinate = Math.max(width, height) + 3 * PointToColorCalculator.startRadius;
+		// One rounding per level for the circle, and two for the distance.
+		final double coordinateError = (numberOfIterations + 2.0) * Math.ulp(maximumCoordinate);
+
+		return coordinateError * maximumErrorPerPixelReciprocal > Math.scalb(1.0, -zoom);
+	}
+}
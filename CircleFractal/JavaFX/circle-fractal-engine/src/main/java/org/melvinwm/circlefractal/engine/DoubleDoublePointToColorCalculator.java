@@ -0,0 +1,214 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Variant of {@link PointToColorCalculator} that computes the descent in
+ * double-double arithmetic, see {@link DoubleDouble}, for deep zooms, where
+ * the rounding errors of doubles in the coordinates of the circles exceed the
+ * distance between pixels. See {@link DoubleDoubleKernelSelector} for when it is
+ * needed.
+ *
+ * <p>
+ * Only the colors are computed at double precision, from the distances. The
+ * directions are chosen with exact sign tests instead of angles, and the
+ * circles are offset along exact unit vectors, so the colors may differ from
+ * those of the reference kernel by its rounding errors, at the boundaries
+ * between the directions and within the cut-off.
+ *
+ * <p>
+ * Thread safety: Immutable and referentially transparent.
+ */
+final class DoubleDoublePointToColorCalculator implements PointToColorKernel {
+
+	// Used only for the coloring, with the same parameters.
+	private final PointToColorCalculator reference;
+
+	private final double centerX;
+	private final double centerY;
+	private final int numberOfIterations;
+	private final double maximumDistance;
+	private final int divisionFactor;
+
+	/**
+	 * See {@link PointToColorCalculator#PointToColorCalculator}.
+	 */
+	DoubleDoublePointToColorCalculator(double centerX, double centerY, int numberOfIterations,
+			double maximumDistance, int divisionFactor, double cutOff) {
+
+		this.reference = new PointToColorCalculator(centerX, centerY, numberOfIterations, maximumDistance,
+				divisionFactor, cutOff);
+
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.numberOfIterations = numberOfIterations;
+		this.maximumDistance = maximumDistance;
+		this.divisionFactor = divisionFactor;
+	}
+
+	/**
+	 * See {@link PointToColorCalculator#forImage}.
+	 */
+	static DoubleDoublePointToColorCalculator forImage(int width, int height, int numberOfIterations,
+			int divisionFactor, double cutOff) {
+
+		final double centerX = width / 2.0;
+		final double centerY = height / 2.0;
+		final double maximumDistance = PointToColorCalculator.calcLength(centerX, centerY) + 10;
+
+		return new DoubleDoublePointToColorCalculator(centerX, centerY, numberOfIterations, maximumDistance,
+				divisionFactor, cutOff);
+	}
+
+	/*
+	 * The direction to the next circle, the same as
+	 * 'PointToColorCalculator.getNewDirection' but with exact tests: Forward
+	 * within 45 degrees to either side, including the left boundary, left from
+	 * there up to and including straight back, and right for the rest. The offset
+	 * is in the frame of the current direction.
+	 */
+	private static int getNewDirection(int dir, DoubleDouble dx, DoubleDouble dy, DoubleDouble scratch) {
+
+		final DoubleDouble u;
+		final DoubleDouble v;
+		switch (dir) {
+		case 0:
+			u = dx;
+			v = dy;
+			break;
+		case 1:
+			u = dy;
+			v = dx.negate();
+			break;
+		case 2:
+			u = dx.negate();
+			v = dy.negate();
+			break;
+		default:
+			u = dy.negate();
+			v = dx;
+			break;
+		}
+
+		final int uMinusV = scratch.set(u).subtract(v).signum();
+		final int uPlusV = scratch.set(u).add(v).signum();
+		final int uSign = u.signum();
+		final int vSign = v.signum();
+
+		final int newDir;
+		if (uSign == 0 && vSign == 0) {
+			newDir = 0;
+		} else if (uMinusV >= 0 && uPlusV > 0) {
+			newDir = 0;
+		} else if (uMinusV < 0 && (vSign > 0 || (vSign == 0 && uSign < 0))) {
+			newDir = 1;
+		} else {
+			newDir = 3;
+		}
+
+		// Undo the negations of the offset.
+		switch (dir) {
+		case 1:
+			dx.negate();
+			break;
+		case 2:
+			dx.negate();
+			dy.negate();
+			break;
+		case 3:
+			dy.negate();
+			break;
+		default:
+			break;
+		}
+
+		return (dir + newDir) % 4;
+	}
+
+	/**
+	 * Gets the distance from the given point to the nearest circle, the same as
+	 * {@link PointToColorCalculator} but in double-double arithmetic.
+	 *
+	 * @param descentDepthOut
+	 *            May be null. If not null, the number of levels descended is
+	 *            written to its first element.
+	 */
+	double getDistanceAt(DoubleDouble x, DoubleDouble y, int[] descentDepthOut) {
+
+		final DoubleDouble cx = new DoubleDouble(centerX);
+		final DoubleDouble cy = new DoubleDouble(centerY);
+		final DoubleDouble r = new DoubleDouble(PointToColorCalculator.startRadius);
+		final DoubleDouble distanceSoFar = new DoubleDouble(maximumDistance);
+
+		final DoubleDouble dx = new DoubleDouble();
+		final DoubleDouble dy = new DoubleDouble();
+		final DoubleDouble currentDistance = new DoubleDouble();
+		final DoubleDouble scratch = new DoubleDouble();
+
+		int n = numberOfIterations;
+		int currentDirection = PointToColorCalculator.startDirection;
+		int descentDepth = 0;
+
+		while (true) {
+
+			dx.set(x).subtract(cx);
+			dy.set(y).subtract(cy);
+			currentDistance.set(dx).multiply(dx).add(scratch.set(dy).multiply(dy)).sqrt().subtract(r);
+			if (currentDistance.compareTo(distanceSoFar) > 0) {
+				currentDistance.set(distanceSoFar);
+			}
+
+			if (currentDistance.signum() <= 0 || n <= 0) {
+				if (descentDepthOut != null) {
+					descentDepthOut[0] = descentDepth;
+				}
+				return currentDistance.doubleValue();
+			}
+
+			// Calculate new circle, offset by the sum of the radii along the new
+			// direction.
+
+			final int dirnew = getNewDirection(currentDirection, dx, dy, scratch);
+			scratch.set(r);
+			r.divide(divisionFactor);
+			scratch.add(r);
+
+			switch (dirnew) {
+			case 0:
+				cx.add(scratch);
+				break;
+			case 1:
+				cy.add(scratch);
+				break;
+			case 2:
+				cx.subtract(scratch);
+				break;
+			default:
+				cy.subtract(scratch);
+				break;
+			}
+
+			n = n - 1;
+			currentDirection = dirnew;
+			distanceSoFar.set(currentDistance);
+			descentDepth++;
+		}
+	}
+
+	/**
+	 * Given point with exact coordinates, for instance of a pixel of a deeply
+	 * zoomed-in view, returns the corresponding color.
+	 *
+	 * <p>
+	 * Blocking: Can be slightly CPU-heavy, more so than the reference kernel.
+	 *
+	 * @return See {@link PointToColorCalculator#getColor(int, int)}.
+	 */
+	int getColorAt(DoubleDouble x, DoubleDouble y) {
+		return reference.getColorFromDistanceFromNearestCircle(getDistanceAt(x, y, null));
+	}
+
+	@Override
+	public int getColor(int x, int y, int[] descentDepthOut) {
+		return reference.getColorFromDistanceFromNearestCircle(
+				getDistanceAt(new DoubleDouble(x), new DoubleDouble(y), descentDepthOut));
+	}
+}
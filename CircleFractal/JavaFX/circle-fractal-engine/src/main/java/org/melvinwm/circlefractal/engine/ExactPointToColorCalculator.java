@@ -0,0 +1,427 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Variant of {@link PointToColorCalculator} that finds the nearest circle
+ * exactly, over all the circles of the fractal, instead of descending greedily
+ * into a single child per level.
+ *
+ * <p>
+ * The tree of circles is used as a bounding volume hierarchy: Every circle
+ * bounds the circles descending from it by their support function, how far
+ * they reach in each of a number of directions, and the nearest circle is found
+ * by a branch-and-bound search, nearest bound first, skipping the subtrees that
+ * cannot be nearer than the nearest circle found so far. Since every subtree
+ * is a scaled and turned copy of the subtrees below it, the support functions
+ * and the offsets of the children are tabulated per depth, and the circles are
+ * generated while searching, so the hierarchy takes memory proportional to the
+ * number of iterations, not to the number of circles. The centers are computed
+ * with the same arithmetic as the reference kernel, and improvements of the
+ * distance below a tolerance far below the precision of the pixels are not
+ * searched for, so the distance is the same as that of
+ * {@link #getBruteForceDistance}, and no larger than that of
+ * {@link PointToColorCalculator}, up to the tolerance.
+ *
+ * <p>
+ * As with the reference kernel, the search stops at the first circle that
+ * contains the point, so negative distances are not the exact distance, but
+ * give the same color.
+ *
+ * <p>
+ * Thread safety: Immutable and referentially transparent.
+ */
+final class ExactPointToColorCalculator implements PointToColorKernel {
+
+	// The directions of the support function of the subtrees, evenly spaced and
+	// starting with the direction of their circle, so that turning by a quarter
+	// turn moves by a quarter of the directions.
+	private static final int supportDirectionCount = 16;
+	private static final double supportDirectionSpacing = 2.0 * Math.PI / supportDirectionCount;
+	private static final double[] supportDirectionsX = new double[supportDirectionCount];
+	private static final double[] supportDirectionsY = new double[supportDirectionCount];
+	private static final double sineSpacing = Math.sin(supportDirectionSpacing);
+	private static final double tangentSpacing = Math.tan(supportDirectionSpacing);
+
+	static {
+		for (int direction = 0; direction < supportDirectionCount; direction++) {
+			supportDirectionsX[direction] = Math.cos(direction * supportDirectionSpacing);
+			supportDirectionsY[direction] = Math.sin(direction * supportDirectionSpacing);
+		}
+	}
+
+	// Used only for the coloring, with the same parameters.
+	private final PointToColorCalculator reference;
+
+	private final double centerX;
+	private final double centerY;
+	private final int numberOfIterations;
+	private final double maximumDistance;
+
+	// Per depth, from 0 to 'numberOfIterations'. The radius of the circles, and
+	// the support function of the subtrees in their frame: How far the circles
+	// of the subtree reach from the center of its circle in each of the support
+	// directions.
+	private final double[] radii;
+	private final double[][] supports;
+
+	// The smallest improvement of the distance searched for, see the class.
+	private final double tolerance;
+
+	// Per depth and direction, the offset of a child at that depth from its
+	// parent, computed as in 'PointToColorCalculator'.
+	private final double[][] offsetsX;
+	private final double[][] offsetsY;
+
+	/**
+	 * See {@link PointToColorCalculator#PointToColorCalculator}.
+	 */
+	ExactPointToColorCalculator(double centerX, double centerY, int numberOfIterations, double maximumDistance,
+			int divisionFactor, double cutOff) {
+
+		this.reference = new PointToColorCalculator(centerX, centerY, numberOfIterations, maximumDistance,
+				divisionFactor, cutOff);
+
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.numberOfIterations = numberOfIterations;
+		this.maximumDistance = maximumDistance;
+
+		radii = new double[numberOfIterations + 1];
+		offsetsX = new double[numberOfIterations + 1][4];
+		offsetsY = new double[numberOfIterations + 1][4];
+		radii[0] = PointToColorCalculator.startRadius;
+		for (int depth = 1; depth <= numberOfIterations; depth++) {
+
+			final double r = radii[depth - 1];
+			final double rnew = r * (1.0 / (1.0 * divisionFactor));
+			radii[depth] = rnew;
+
+			for (int dir = 0; dir < 4; dir++) {
+				final double radsnew = dir * Math.PI / 2.0;
+				offsetsX[depth][dir] = (r + rnew) * Math.cos(radsnew);
+				offsetsY[depth][dir] = (r + rnew) * Math.sin(radsnew);
+			}
+		}
+
+		// From the deepest circles, which reach only as far as their radius,
+		// upwards. The subtree of a child is the parent's frame turned by the
+		// child's turn, and offset.
+		final int quarterTurn = supportDirectionCount / 4;
+		supports = new double[numberOfIterations + 1][supportDirectionCount];
+		for (int depth = numberOfIterations; depth >= 0; depth--) {
+			for (int direction = 0; direction < supportDirectionCount; direction++) {
+
+				double support = radii[depth];
+				if (depth < numberOfIterations) {
+					final double childOffset = radii[depth] + radii[depth + 1];
+					for (final int turn : new int[] { 0, 1, 3 }) {
+						support = Math.max(support,
+								childOffset * Math.cos(direction * supportDirectionSpacing - turn * Math.PI / 2.0)
+										+ supports[depth + 1][(direction - turn * quarterTurn
+												+ supportDirectionCount) % supportDirectionCount]);
+					}
+				}
+				supports[depth][direction] = support;
+			}
+		}
+
+		// Well above the rounding errors of the bounds, and of the centers, which
+		// add up over the levels, yet well below the smallest circles at practical
+		// numbers of iterations. Searching for smaller improvements would mostly
+		// tell apart circles that are nearest up to rounding.
+		tolerance = 1e-14 * (numberOfIterations + 10)
+				* (1.0 + Math.abs(centerX) + Math.abs(centerY) + supports[0][0]);
+	}
+
+	/**
+	 * See {@link PointToColorCalculator#forImage}.
+	 */
+	static ExactPointToColorCalculator forImage(int width, int height, int numberOfIterations, int divisionFactor,
+			double cutOff) {
+
+		final double centerX = width / 2.0;
+		final double centerY = height / 2.0;
+		final double maximumDistance = PointToColorCalculator.calcLength(centerX, centerY) + 10;
+
+		return new ExactPointToColorCalculator(centerX, centerY, numberOfIterations, maximumDistance,
+				divisionFactor, cutOff);
+	}
+
+	/*
+	 * The support direction starting the sector that contains the given offset,
+	 * up to rounding at the boundaries, with 4 sectors per quadrant.
+	 */
+	private static int getSector(double dx, double dy) {
+
+		final double absoluteX = Math.abs(dx);
+		final double absoluteY = Math.abs(dy);
+
+		// Within the quadrant, from its start.
+		final int sector;
+		if (absoluteY < tangentSpacing * absoluteX) {
+			sector = 0;
+		} else if (absoluteY < absoluteX) {
+			sector = 1;
+		} else if (tangentSpacing * absoluteY < absoluteX) {
+			sector = 2;
+		} else {
+			sector = 3;
+		}
+
+		if (dx >= 0) {
+			return dy >= 0 ? sector : 15 - sector;
+		} else {
+			return dy >= 0 ? 7 - sector : 8 + sector;
+		}
+	}
+
+	/*
+	 * A lower bound of the distance from a point to the circles of a subtree,
+	 * from its support function: The distance is at least that to the supporting
+	 * line facing the point, whose support is at most that interpolated from the
+	 * neighbouring support directions, since the support function is sublinear.
+	 *
+	 * @param length The distance from the point to the center of the circle of
+	 * the subtree.
+	 */
+	private double getBound(double dx, double dy, double length, int dir, int depth) {
+
+		if (length == 0) {
+			return Double.NEGATIVE_INFINITY;
+		}
+
+		final int sector = getSector(dx, dy);
+		final int nextSector = (sector + 1) % supportDirectionCount;
+
+		// The offset in the support directions bounding the sector.
+		final double a = (dx * supportDirectionsY[nextSector] - dy * supportDirectionsX[nextSector]) / sineSpacing;
+		final double b = (supportDirectionsX[sector] * dy - supportDirectionsY[sector] * dx) / sineSpacing;
+
+		final int localSector = (sector - dir * (supportDirectionCount / 4) + supportDirectionCount)
+				% supportDirectionCount;
+		final double[] support = supports[depth];
+		return length - (a * support[localSector] + b * support[(localSector + 1) % supportDirectionCount]) / length;
+	}
+
+	/*
+	 * The state of a search, reused between the points of a block.
+	 *
+	 * NOTE: An explicit stack rather than recursion, since a recursive variant can
+	 * overflow the stack for too high iteration values. Every expanded circle
+	 * replaces itself with at most 3 children, so the stack holds at most 2 per
+	 * level and 1 more.
+	 */
+	private final class Search {
+
+		// Per circle to visit, with the distance from the point to its center, and
+		// the bound of its subtree.
+		private final double[] xs = new double[2 * numberOfIterations + 3];
+		private final double[] ys = new double[xs.length];
+		private final int[] directions = new int[xs.length];
+		private final int[] depths = new int[xs.length];
+		private final double[] lengths = new double[xs.length];
+		private final double[] bounds = new double[xs.length];
+		private int size;
+
+		// The children of the circle being expanded, farthest first.
+		private final double[] childXs = new double[3];
+		private final double[] childYs = new double[3];
+		private final int[] childDirections = new int[3];
+		private final double[] childLengths = new double[3];
+		private final double[] childBounds = new double[3];
+
+		/*
+		 * @param descentDepthOut If not null, the depth of the nearest circle is
+		 * written to its first element.
+		 */
+		double getDistance(double x, double y, int[] descentDepthOut) {
+
+			double best = Math.min(PointToColorCalculator.calcLength(x - centerX, y - centerY) - radii[0],
+					maximumDistance);
+			int bestDepth = 0;
+
+			if (best > 0 && numberOfIterations > 0) {
+
+				size = 0;
+				pushChildren(centerX, centerY, PointToColorCalculator.startDirection, 0, x, y, best);
+
+				while (size > 0) {
+
+					size--;
+					if (bounds[size] >= best - tolerance) {
+						continue;
+					}
+
+					final int depth = depths[size];
+					final double distance = lengths[size] - radii[depth];
+					if (distance < best) {
+						best = distance;
+						bestDepth = depth;
+						if (best <= 0) {
+							break;
+						}
+					}
+
+					if (depth < numberOfIterations) {
+						pushChildren(xs[size], ys[size], directions[size], depth, x, y, best);
+					}
+				}
+			}
+
+			if (descentDepthOut != null) {
+				descentDepthOut[0] = bestDepth;
+			}
+			return best;
+		}
+
+		/*
+		 * Pushes the children of the given circle whose bounds are below the given
+		 * distance, nearest last, so that it is searched first.
+		 */
+		private void pushChildren(double cx, double cy, int dir, int depth, double x, double y, double best) {
+
+			final int childDepth = depth + 1;
+
+			int childCount = 0;
+			for (int turn = 0; turn < 3; turn++) {
+
+				// Forward, left and right, never back.
+				final int childDirection = (dir + (turn == 0 ? 0 : (turn == 1 ? 1 : 3))) % 4;
+				final double childX = cx + offsetsX[childDepth][childDirection];
+				final double childY = cy + offsetsY[childDepth][childDirection];
+
+				final double dx = x - childX;
+				final double dy = y - childY;
+				final double length = PointToColorCalculator.calcLength(dx, dy);
+				final double bound = getBound(dx, dy, length, childDirection, childDepth);
+				if (bound >= best - tolerance) {
+					continue;
+				}
+
+				// Insertion, farthest first.
+				int position = childCount;
+				while (position > 0 && childBounds[position - 1] < bound) {
+					childXs[position] = childXs[position - 1];
+					childYs[position] = childYs[position - 1];
+					childDirections[position] = childDirections[position - 1];
+					childLengths[position] = childLengths[position - 1];
+					childBounds[position] = childBounds[position - 1];
+					position--;
+				}
+				childXs[position] = childX;
+				childYs[position] = childY;
+				childDirections[position] = childDirection;
+				childLengths[position] = length;
+				childBounds[position] = bound;
+				childCount++;
+			}
+
+			for (int child = 0; child < childCount; child++) {
+				xs[size] = childXs[child];
+				ys[size] = childYs[child];
+				directions[size] = childDirections[child];
+				depths[size] = childDepth;
+				lengths[size] = childLengths[child];
+				bounds[size] = childBounds[child];
+				size++;
+			}
+		}
+	}
+
+	/**
+	 * Gets the distance from the given point to the nearest circle, with distance
+	 * ceiled by 'maximumDistance', see the class.
+	 *
+	 * @param descentDepthOut
+	 *            May be null. If not null, the depth of the nearest circle is
+	 *            written to its first element.
+	 */
+	double getDistance(double x, double y, int[] descentDepthOut) {
+		return new Search().getDistance(x, y, descentDepthOut);
+	}
+
+	/**
+	 * Gets the distance from the given point to the nearest circle, with distance
+	 * ceiled by 'maximumDistance', by visiting every circle, for validating and
+	 * benchmarking the search.
+	 *
+	 * <p>
+	 * Blocking: Yes, exponential in the number of iterations, only feasible up to
+	 * about 12 iterations.
+	 */
+	double getBruteForceDistance(double x, double y) {
+
+		double best = Math.min(PointToColorCalculator.calcLength(x - centerX, y - centerY) - radii[0],
+				maximumDistance);
+
+		// Each entry is a circle whose children remain to be visited.
+		final double[] xs = new double[2 * numberOfIterations + 3];
+		final double[] ys = new double[xs.length];
+		final int[] directions = new int[xs.length];
+		final int[] depths = new int[xs.length];
+		int size = 0;
+
+		xs[0] = centerX;
+		ys[0] = centerY;
+		directions[0] = PointToColorCalculator.startDirection;
+		depths[0] = 0;
+		size++;
+
+		while (size > 0) {
+
+			size--;
+			final double cx = xs[size];
+			final double cy = ys[size];
+			final int dir = directions[size];
+			final int childDepth = depths[size] + 1;
+			if (childDepth > numberOfIterations) {
+				continue;
+			}
+
+			for (final int turn : new int[] { 0, 1, 3 }) {
+
+				final int childDirection = (dir + turn) % 4;
+				final double childX = cx + offsetsX[childDepth][childDirection];
+				final double childY = cy + offsetsY[childDepth][childDirection];
+				best = Math.min(best, PointToColorCalculator.calcLength(x - childX, y - childY) - radii[childDepth]);
+
+				xs[size] = childX;
+				ys[size] = childY;
+				directions[size] = childDirection;
+				depths[size] = childDepth;
+				size++;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * See {@link PointToColorKernel#getColor}. The descent depth is the depth of
+	 * the nearest circle.
+	 */
+	@Override
+	public int getColor(int x, int y, int[] descentDepthOut) {
+		return reference.getColorFromDistanceFromNearestCircle(getDistance(x, y, descentDepthOut));
+	}
+
+	/**
+	 * Computes the colors pixel by pixel, as {@link #getColor}, reusing the state
+	 * of the search.
+	 */
+	@Override
+	public void getColors(int x, int y, int width, int height, int[] argbOut, int[] descentDepthsOut) {
+
+		final Search search = new Search();
+		final int[] descentDepth = new int[1];
+		for (int row = 0; row < height; row++) {
+			for (int column = 0; column < width; column++) {
+				final int index = row * width + column;
+				argbOut[index] = reference.getColorFromDistanceFromNearestCircle(
+						search.getDistance(x + column, y + row, descentDepth));
+				if (descentDepthsOut != null) {
+					descentDepthsOut[index] = descentDepth[0];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * The palette of the circle-fractal colors, which all lie on two ramps, see
+ * {@link PointToColorCalculator}: From black to red, and from red to blue. A
+ * color is identified by its index in the palette, which fits in 16 bits, see
+ * {@link IndexedFrame}.
+ *
+ * <p>
+ * Indices 0 to 255 are black to red, with red equal to the index. Indices 256
+ * to 510 continue from red to blue, with blue equal to the index minus 255 and
+ * red equal to 255 minus blue.
+ *
+ * <p>
+ * Thread safety: Stateless.
+ */
+public final class IndexedColors {
+
+	/**
+	 * The number of colors in the palette.
+	 */
+	public static final int colorCount = 511;
+
+	private static final int[] palette = createPalette();
+
+	private IndexedColors() {
+	}
+
+	private static int[] createPalette() {
+
+		final int[] colors = new int[colorCount];
+		for (int index = 0; index < colorCount; index++) {
+			final int blue = Math.max(index - 255, 0);
+			final int red = Math.min(index, 255) - blue;
+			colors[index] = (0xFF << 24) | (red << 16) | blue;
+		}
+		return colors;
+	}
+
+	/**
+	 * Blocking: No.
+	 *
+	 * @param index
+	 *            Must be from 0 to {@link #colorCount} exclusive.
+	 * @return The ARGB color of the index.
+	 */
+	public static int toArgb(int index) {
+		return palette[index];
+	}
+
+	/**
+	 * Blocking: No.
+	 *
+	 * @param argb
+	 *            A color of the palette.
+	 * @return The index of the color.
+	 * @throws IllegalArgumentException
+	 *             If the color is not in the palette.
+	 */
+	public static int toIndex(int argb) {
+
+		final int alpha = argb >>> 24;
+		final int red = (argb >>> 16) & 0xFF;
+		final int green = (argb >>> 8) & 0xFF;
+		final int blue = argb & 0xFF;
+
+		if (alpha == 0xFF && green == 0) {
+			if (blue == 0) {
+				return red;
+			}
+			if (red == 255 - blue) {
+				return 255 + blue;
+			}
+		}
+
+		throw new IllegalArgumentException("Color is not in the palette: " + Integer.toHexString(argb) + ".");
+	}
+}
@@ -0,0 +1,148 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * A frame stored compactly as a 16-bit palette index per pixel, see
+ * {@link IndexedColors}, instead of a 32-bit ARGB color, halving the memory
+ * of frames held in buffers and pipelines. The colors are expanded to ARGB
+ * only when needed, for instance when uploading to the display or encoding.
+ *
+ * <p>
+ * Pixels are numbered in row-major order, from 0 to width times height
+ * exclusive.
+ *
+ * <p>
+ * Thread safety: Pixels may be written concurrently by multiple threads as long
+ * as they write distinct pixels. Reading a pixel concurrently with writing it
+ * is not safe.
+ */
+public final class IndexedFrame {
+
+	public final int width;
+	public final int height;
+
+	// Unsigned 16-bit palette indices.
+	private final char[] indices;
+
+	/**
+	 * Creates a black frame.
+	 *
+	 * @param width
+	 *            Must be strictly positive.
+	 * @param height
+	 *            Must be strictly positive.
+	 */
+	public IndexedFrame(int width, int height) {
+
+		if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid frame size: " + width + "x" + height + ".");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.indices = new char[width * height];
+	}
+
+	/**
+	 * Blocking: Yes.
+	 *
+	 * @param argb
+	 *            Colors of the palette, in row-major order.
+	 * @return The frame with the given colors.
+	 * @throws IllegalArgumentException
+	 *             If a color is not in the palette.
+	 */
+	public static IndexedFrame of(int[] argb, int width, int height) {
+
+		final IndexedFrame frame = new IndexedFrame(width, height);
+		if (argb.length != frame.indices.length) {
+			throw new IllegalArgumentException("Expected " + frame.indices.length + " colors, got " + argb.length + ".");
+		}
+
+		for (int pixel = 0; pixel < argb.length; pixel++) {
+			frame.setArgb(pixel, argb[pixel]);
+		}
+		return frame;
+	}
+
+	public int getPixelCount() {
+		return indices.length;
+	}
+
+	/**
+	 * @return The memory used by the pixels, in bytes.
+	 */
+	public long getByteCount() {
+		return (long) indices.length * Character.BYTES;
+	}
+
+	/**
+	 * Blocking: No.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the color is not in the palette.
+	 */
+	public void setArgb(int pixel, int argb) {
+		indices[pixel] = (char) IndexedColors.toIndex(argb);
+	}
+
+	/**
+	 * Blocking: No.
+	 */
+	public int getArgb(int pixel) {
+		return IndexedColors.toArgb(indices[pixel]);
+	}
+
+	/**
+	 * Blocking: No.
+	 *
+	 * @param index
+	 *            Must be from 0 to {@link IndexedColors#colorCount} exclusive.
+	 */
+	public void setIndex(int pixel, int index) {
+
+		if (index < 0 || index >= IndexedColors.colorCount) {
+			throw new IllegalArgumentException("Invalid palette index: " + index + ".");
+		}
+
+		indices[pixel] = (char) index;
+	}
+
+	/**
+	 * Blocking: No.
+	 */
+	public int getIndex(int pixel) {
+		return indices[pixel];
+	}
+
+	/**
+	 * Expands a range of pixels to ARGB colors.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 *
+	 * @param fromPixel
+	 *            The first pixel.
+	 * @param pixelCount
+	 *            The number of pixels.
+	 * @param argbOut
+	 *            Receives the colors.
+	 * @param offset
+	 *            Where in 'argbOut' the color of the first pixel goes.
+	 */
+	public void expand(int fromPixel, int pixelCount, int[] argbOut, int offset) {
+		for (int i = 0; i < pixelCount; i++) {
+			argbOut[offset + i] = IndexedColors.toArgb(indices[fromPixel + i]);
+		}
+	}
+
+	/**
+	 * Blocking: Yes.
+	 *
+	 * @return The ARGB colors of the whole frame, in row-major order.
+	 */
+	public int[] toArgb() {
+		final int[] argb = new int[indices.length];
+		expand(0, indices.length, argb, 0);
+		return argb;
+	}
+}
@@ -0,0 +1,309 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Renders a grid of thumbnails of the same size for a matrix of parameters, for
+ * overviews of the parameter space, in a single pass: Every pixel position is
+ * visited once for the whole grid. For each division factor, the pixel's
+ * descent is continued from one iteration count to the next, see
+ * {@link PointToColorCalculator#continueDescent}, and each distance is colored
+ * for every cut-off, so thumbnails that differ only in the number of iterations
+ * or in the cut-off share the descent.
+ *
+ * <p>
+ * The grid has a row per division factor, and a column per iteration count and
+ * cut-off, iteration count by iteration count, in the given orders. The cells
+ * are separated by {@link #getGap()} pixels, which are not written.
+ *
+ * <p>
+ * The whole grid is a single workload on the shared {@link RenderScheduler},
+ * with a task per band of thumbnail rows, each task computing the band for
+ * every cell.
+ *
+ * <p>
+ * The colors are the same as from {@link PointToColorCalculator#forImage} for
+ * the parameters of each cell, see {@link #getParameters}.
+ *
+ * <p>
+ * Thread safety: Immutable, and renders may run concurrently.
+ */
+public final class ParameterGridRenderer {
+
+	// Number of thumbnail rows computed by a task.
+	private static final int rowsPerBand = PointToColorCalculator.coherentBlockSize;
+
+	private static final Logger logger = LogManager.getLogger(CircleFractalEngine.class);
+
+	private final int thumbnailWidth;
+	private final int thumbnailHeight;
+	private final List<Integer> divisionFactors;
+	private final List<Integer> iterationCounts;
+	private final List<Double> cutOffs;
+	private final int gap;
+	private final RenderScheduler.Priority priority;
+
+	/**
+	 * @param thumbnailWidth
+	 *            Must be strictly positive.
+	 * @param thumbnailHeight
+	 *            Must be strictly positive.
+	 * @param divisionFactors
+	 *            The division factors of the rows. Must not be empty.
+	 * @param iterationCounts
+	 *            The iteration counts of the columns. Must not be empty.
+	 * @param cutOffs
+	 *            The cut-offs of the columns, for every iteration count. Must not
+	 *            be empty.
+	 * @param gap
+	 *            Pixels between the cells. Must not be negative.
+	 * @throws IllegalArgumentException
+	 *             If the parameters of a cell are not valid, see
+	 *             {@link CircleFractalParameters}, or the grid is too large.
+	 */
+	public ParameterGridRenderer(int thumbnailWidth, int thumbnailHeight, List<Integer> divisionFactors,
+			List<Integer> iterationCounts, List<Double> cutOffs, int gap, RenderScheduler.Priority priority) {
+
+		if (divisionFactors.isEmpty() || iterationCounts.isEmpty() || cutOffs.isEmpty() || gap < 0) {
+			throw new IllegalArgumentException("Invalid parameter grid: division factors " + divisionFactors
+					+ ", iteration counts " + iterationCounts + ", cut-offs " + cutOffs + ", gap " + gap + ".");
+		}
+
+		this.thumbnailWidth = thumbnailWidth;
+		this.thumbnailHeight = thumbnailHeight;
+		this.divisionFactors = Collections.unmodifiableList(new ArrayList<>(divisionFactors));
+		this.iterationCounts = Collections.unmodifiableList(new ArrayList<>(iterationCounts));
+		this.cutOffs = Collections.unmodifiableList(new ArrayList<>(cutOffs));
+		this.gap = gap;
+		this.priority = priority;
+
+		// Validate the parameters of every cell.
+		for (int row = 0; row < getRowCount(); row++) {
+			for (int column = 0; column < getColumnCount(); column++) {
+				getParameters(row, column);
+			}
+		}
+
+		final long gridWidth = (long) getColumnCount() * (thumbnailWidth + gap) - gap;
+		final long gridHeight = (long) getRowCount() * (thumbnailHeight + gap) - gap;
+		if (gridWidth * gridHeight > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The grid was too large: " + gridWidth + "x" + gridHeight + ".");
+		}
+	}
+
+	public int getRowCount() {
+		return divisionFactors.size();
+	}
+
+	public int getColumnCount() {
+		return iterationCounts.size() * cutOffs.size();
+	}
+
+	public int getGap() {
+		return gap;
+	}
+
+	public int getGridWidth() {
+		return getColumnCount() * (thumbnailWidth + gap) - gap;
+	}
+
+	public int getGridHeight() {
+		return getRowCount() * (thumbnailHeight + gap) - gap;
+	}
+
+	/**
+	 * @return The x coordinate in the grid of the left edge of the cells of the
+	 *         column.
+	 */
+	public int getCellX(int column) {
+		return column * (thumbnailWidth + gap);
+	}
+
+	/**
+	 * @return The y coordinate in the grid of the top edge of the cells of the
+	 *         row.
+	 */
+	public int getCellY(int row) {
+		return row * (thumbnailHeight + gap);
+	}
+
+	/**
+	 * @return The parameters of the thumbnail in the given cell.
+	 */
+	public CircleFractalParameters getParameters(int row, int column) {
+		return new CircleFractalParameters(thumbnailWidth, thumbnailHeight,
+				iterationCounts.get(column / cutOffs.size()), divisionFactors.get(row),
+				cutOffs.get(column % cutOffs.size()));
+	}
+
+	/**
+	 * Renders the grid.
+	 *
+	 * <p>
+	 * Blocking: Yes, computationally heavy. Returns only once no worker writes to
+	 * the sink anymore, also when cancelled or failing.
+	 *
+	 * @param sink
+	 *            Receives the pixels of the cells, in the coordinates of the grid,
+	 *            see {@link #getGridWidth()} and {@link #getGridHeight()}.
+	 * @return Whether the render completed, as opposed to being cancelled.
+	 */
+	public boolean render(RenderControl control, PixelSink sink) throws InterruptedException {
+
+		final long startNanos = System.nanoTime();
+
+		// The descents visit the iteration counts in increasing order, once each.
+		final int[] depths = new TreeSet<>(iterationCounts).stream().mapToInt(Integer::intValue).toArray();
+
+		final long totalWork = (long) thumbnailWidth * thumbnailHeight * getRowCount() * getColumnCount();
+		final long[] workDone = new long[1];
+		control.updateProgress(0, totalWork);
+
+		// NOTE: Ownership (executor): Locally here, closed in this scope. Its tasks
+		// run on the workers of the shared scheduler, which are not owned.
+		final RenderScheduler scheduler = RenderScheduler.getInstance();
+		final ExecutorService executorService = scheduler.newExecutor(priority, scheduler.getWorkerCount());
+
+		try {
+
+			final List<Callable<Void>> tasks = new ArrayList<>();
+			for (int bandY = 0; bandY < thumbnailHeight; bandY += rowsPerBand) {
+				final int fromY = bandY;
+				final int toY = Math.min(bandY + rowsPerBand, thumbnailHeight);
+				tasks.add(() -> {
+
+					if (control.isCancelled()) {
+						executorService.shutdownNow();
+						throw new InterruptedException("Parameter grid task was cancelled.");
+					}
+
+					renderBand(fromY, toY, depths, sink);
+
+					final long bandWork = (long) thumbnailWidth * (toY - fromY) * getRowCount() * getColumnCount();
+					// Synchronized, so that the reported progress does not decrease.
+					synchronized (workDone) {
+						workDone[0] += bandWork;
+						control.updateProgress(workDone[0], totalWork);
+					}
+					return null;
+				});
+			}
+
+			final List<Future<Void>> results;
+			try {
+				results = executorService.invokeAll(tasks);
+			} catch (RejectedExecutionException e) {
+				// A task was cancelled and shut down the executor while the tasks were
+				// still being submitted.
+				if (control.isCancelled()) {
+					return false;
+				}
+				throw e;
+			}
+
+			if (control.isCancelled()) {
+				return false;
+			}
+
+			for (final Future<Void> result : results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Failed to render the parameter grid.", e.getCause());
+				}
+			}
+
+			sink.finish();
+
+			logger.debug("Rendered parameter grid of {}x{} thumbnails of {}x{} in {} ms.", getColumnCount(),
+					getRowCount(), thumbnailWidth, thumbnailHeight,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+			return true;
+
+		} finally {
+			executorService.shutdownNow();
+			while (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+				logger.warn("Parameter grid workers still running after being stopped, waiting for them.");
+			}
+		}
+	}
+
+	/*
+	 * Computes the given thumbnail rows of every cell, pixel by pixel, and writes
+	 * them to the sink.
+	 */
+	private void renderBand(int fromY, int toY, int[] depths, PixelSink sink) {
+
+		final int rowCount = getRowCount();
+		final int columnCount = getColumnCount();
+		final int cutOffCount = cutOffs.size();
+
+		// Per grid row, the calculators for the colors at each cut-off. The
+		// descents only depend on the division factor.
+		final PointToColorCalculator[][] calculators = new PointToColorCalculator[rowCount][cutOffCount];
+		for (int row = 0; row < rowCount; row++) {
+			for (int cutOffIndex = 0; cutOffIndex < cutOffCount; cutOffIndex++) {
+				calculators[row][cutOffIndex] = PointToColorCalculator.forImage(thumbnailWidth, thumbnailHeight, 0,
+						divisionFactors.get(row), cutOffs.get(cutOffIndex));
+			}
+		}
+
+		// Per column, the index of its iteration count in 'depths'.
+		final int[] depthIndices = new int[iterationCounts.size()];
+		for (int i = 0; i < depthIndices.length; i++) {
+			depthIndices[i] = Arrays.binarySearch(depths, iterationCounts.get(i));
+		}
+
+		final double[] startState = new double[PointToColorCalculator.descentStateLength];
+		final double[] state = new double[PointToColorCalculator.descentStateLength];
+		final double[] distances = new double[depths.length];
+		// The current thumbnail row of every cell.
+		final int[][] cellRows = new int[rowCount * columnCount][thumbnailWidth];
+
+		for (int y = fromY; y < toY; y++) {
+
+			for (int x = 0; x < thumbnailWidth; x++) {
+
+				// The start circle does not depend on the division factor.
+				calculators[0][0].startDescent(startState, x, y);
+
+				for (int row = 0; row < rowCount; row++) {
+
+					final PointToColorCalculator descentCalculator = calculators[row][0];
+					System.arraycopy(startState, 0, state, 0, state.length);
+					int depth = 0;
+					for (int i = 0; i < depths.length; i++) {
+						distances[i] = descentCalculator.continueDescent(state, depths[i] - depth, x, y);
+						depth = depths[i];
+					}
+
+					for (int column = 0; column < columnCount; column++) {
+						cellRows[row * columnCount + column][x] = calculators[row][column % cutOffCount]
+								.getColorFromDistanceFromNearestCircle(distances[depthIndices[column / cutOffCount]]);
+					}
+				}
+			}
+
+			for (int row = 0; row < rowCount; row++) {
+				for (int column = 0; column < columnCount; column++) {
+					sink.write(getCellX(column), getCellY(row) + y, cellRows[row * columnCount + column],
+							thumbnailWidth);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Receives the pixels computed by a {@link CircleFractalEngine} render, for
+ * instance to store them in a frame, upload them to an image, or send them on.
+ *
+ * <p>
+ * Thread safety: {@link #write} is called concurrently by the workers of a
+ * render, for distinct pixels. {@link #finish} is called by the thread
+ * performing the render, after the workers are done.
+ */
+public interface PixelSink {
+
+	/**
+	 * Receives a run of computed pixels within a row.
+	 *
+	 * <p>
+	 * Blocking: Should not, since it holds up a worker.
+	 *
+	 * @param x
+	 *            Column of the first pixel.
+	 * @param y
+	 *            Row of the pixels.
+	 * @param argb
+	 *            The ARGB colors of the pixels, from index 0, colors of the
+	 *            palette, see {@link IndexedColors}. Only valid during the call.
+	 * @param count
+	 *            Number of pixels.
+	 */
+	void write(int x, int y, int[] argb, int count);
+
+	/**
+	 * Called once every pixel has been written and before the render completes,
+	 * for instance for uploading the pixels. Not called if the render is
+	 * cancelled or fails.
+	 *
+	 * <p>
+	 * Blocking: Yes, may be.
+	 */
+	default void finish() {
+	}
+}
@@ -0,0 +1,171 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+
+/**
+ * Encodes circle-fractal frames as PNG images.
+ * 
+ * <p>
+ * Bands of rows are compressed independently and stitched into a single valid
+ * PNG image, see {@link ChunkedPngWriter}, so that large frames can be
+ * compressed in parallel on an executor, such as the pool that rendered them.
+ * Without an executor, the bands are compressed by the calling thread.
+ * 
+ * <p>
+ * The alpha of the colors is ignored, since all the colors of the fractal are
+ * opaque.
+ * 
+ * <p>
+ * Thread safety: Stateless.
+ */
+public final class PngEncoding {
+
+	/**
+	 * Source of the rows of a frame, asked for a band of rows at a time, so that
+	 * for instance run-length encoded rows are decoded in one pass per band.
+	 */
+	@FunctionalInterface
+	public interface Rows {
+
+		/**
+		 * Writes the ARGB colors of the rows from 'fromY' inclusive to 'toY'
+		 * exclusive into 'argbOut', in row-major order from index 0.
+		 *
+		 * <p>
+		 * Thread safety: Must be thread-safe.
+		 */
+		void expand(int fromY, int toY, int[] argbOut);
+	}
+
+	private static final Executor callingThread = Runnable::run;
+
+	private PngEncoding() {
+	}
+
+	/**
+	 * Encodes a frame.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @param argb
+	 *            The colors, in row-major order.
+	 */
+	public static void write(int[] argb, int width, int height, OutputStream out) throws IOException {
+
+		if (argb.length != width * height) {
+			throw new IllegalArgumentException("Expected " + width * height + " colors, got " + argb.length + ".");
+		}
+
+		ChunkedPngWriter.write(
+				(fromY, toY, argbOut) -> System.arraycopy(argb, fromY * width, argbOut, 0, (toY - fromY) * width),
+				width, height, out, callingThread, ChunkedPngWriter.defaultBandLength);
+	}
+
+	/**
+	 * See {@link #write(int[], int, int, OutputStream)}.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @return The PNG image.
+	 */
+	public static byte[] encode(int[] argb, int width, int height) throws IOException {
+		final ByteArrayOutputStream png = new ByteArrayOutputStream();
+		write(argb, width, height, png);
+		return png.toByteArray();
+	}
+
+	/**
+	 * See {@link #write(int[], int, int, OutputStream)}.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	public static void write(int[] argb, int width, int height, Path file) throws IOException {
+		try (final OutputStream out = Files.newOutputStream(file)) {
+			write(argb, width, height, out);
+		}
+	}
+
+	/**
+	 * Encodes an indexed frame, expanding its colors a band of rows at a time.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	public static void write(IndexedFrame frame, OutputStream out) throws IOException {
+		write(frame, out, callingThread);
+	}
+
+	/**
+	 * Encodes an indexed frame, compressing bands of rows in parallel on the
+	 * given executor. The calling thread compresses the bands the executor has
+	 * not started yet, so the executor may be busy, or even be the one running
+	 * the caller.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @throws java.io.InterruptedIOException
+	 *             If interrupted.
+	 */
+	public static void write(IndexedFrame frame, OutputStream out, Executor executor) throws IOException {
+		ChunkedPngWriter.write(
+				(fromY, toY, argbOut) -> frame.expand(fromY * frame.width, (toY - fromY) * frame.width, argbOut, 0),
+				frame.width, frame.height, out, executor, ChunkedPngWriter.defaultBandLength);
+	}
+
+	/**
+	 * See {@link #write(IndexedFrame, OutputStream)}.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	public static void write(IndexedFrame frame, Path file) throws IOException {
+		write(frame, file, callingThread);
+	}
+
+	/**
+	 * See {@link #write(IndexedFrame, OutputStream, Executor)}.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	public static void write(IndexedFrame frame, Path file, Executor executor) throws IOException {
+		try (final OutputStream out = Files.newOutputStream(file)) {
+			write(frame, out, executor);
+		}
+	}
+
+	/**
+	 * Encodes a frame given by its rows, compressing bands of rows in parallel on
+	 * the given executor, see {@link #write(IndexedFrame, OutputStream, Executor)}.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @throws java.io.InterruptedIOException
+	 *             If interrupted.
+	 */
+	public static void write(Rows rows, int width, int height, OutputStream out, Executor executor)
+			throws IOException {
+		ChunkedPngWriter.write(rows, width, height, out, executor, ChunkedPngWriter.defaultBandLength);
+	}
+
+	/**
+	 * Encodes a run-length encoded tile, decoding it a band of rows at a time.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	public static void write(RunLengthTile tile, OutputStream out) throws IOException {
+		ChunkedPngWriter.write((fromY, toY, argbOut) -> tile.decodeRows(fromY, toY, argbOut, 0, tile.width),
+				tile.width, tile.height, out, callingThread, ChunkedPngWriter.defaultBandLength);
+	}
+}
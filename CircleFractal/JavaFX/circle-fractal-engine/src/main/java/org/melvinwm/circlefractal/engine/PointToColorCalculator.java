@@ -0,0 +1,632 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Calculates color for given points in the circle-fractal.
+ * 
+ * <p>
+ * Thread safety: Immutable and referentially transparent.
+ */
+final class PointToColorCalculator implements PointToColorKernel {
+
+	private final double centerX;
+	private final double centerY;
+	private final int numberOfIterations;
+	private final double maximumDistance;
+	private final int divisionFactor;
+	private final double cutOff;
+	final static double startRadius = 50; // Side-note: Hard-coded.
+	final static int startDirection = 0;
+
+	/**
+	 * Length of the state of a resumable descent, see {@link #continueDescent}.
+	 */
+	static final int descentStateLength = 5;
+
+	/**
+	 * Side of the square blocks of pixels that {@link #getColors} starts its
+	 * shared descents from.
+	 */
+	static final int coherentBlockSize = 8;
+
+	/**
+	 * The calculation later on may give a stack overflow if the given
+	 * 'numberOfIterations' is too large.
+	 * 
+	 * @param centerX
+	 *            Coordinate for the center of the fractal. Assumed to be relatively
+	 *            small, ie. absolute value below 10E6.
+	 * @param centerY
+	 *            Coordinate for the center of the fractal. Assumed to be relatively
+	 *            small, ie. absolute value below 10E6.
+	 * @param numberOfIterations
+	 *            Number of iterations used when calculating the fractal. Must be at
+	 *            least 0. The calculation later on may give a stack overflow if
+	 *            given values are too large.
+	 * @param maximumDistance
+	 *            The color interpolation distance from the cut-off. Must be
+	 *            positive and should be somewhat larger than the 'cutOff', for
+	 *            instance at least 2 higher.
+	 * @param divisionFactor
+	 *            The factor by which each fractal circle is decreased in radius.
+	 *            Must be at least 2.
+	 * @param cutOff
+	 *            The color interpolation distance from the edge of a circle and
+	 *            outwards. Must be non-negative.
+	 */
+	public PointToColorCalculator(double centerX, double centerY, int numberOfIterations, double maximumDistance,
+			int divisionFactor, double cutOff) {
+
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.numberOfIterations = numberOfIterations;
+		this.maximumDistance = maximumDistance;
+		this.divisionFactor = divisionFactor;
+		this.cutOff = cutOff;
+
+		if (cutOff < 0.0 || maximumDistance < cutOff + 1.0) {
+			throw new IllegalArgumentException("'cutOff' and/or 'maximumDistance' did not have legal values. c: "
+					+ cutOff + ", m: " + maximumDistance + ".");
+		}
+
+		if (divisionFactor < 2) {
+			throw new IllegalArgumentException("'divisionFactor' was not at least 2: " + divisionFactor + ".");
+		}
+
+		if (numberOfIterations < 0) {
+			throw new IllegalArgumentException(
+					"'numberOfIterations' was not non-negative: " + numberOfIterations + ".");
+		}
+	}
+
+	/**
+	 * Creates a calculator for an image of the given size, with the fractal
+	 * centered in the image.
+	 * 
+	 * @param width
+	 *            Width of the image.
+	 * @param height
+	 *            Height of the image.
+	 * @param numberOfIterations
+	 *            See the constructor.
+	 * @param divisionFactor
+	 *            See the constructor.
+	 * @param cutOff
+	 *            See the constructor.
+	 * @return The calculator.
+	 */
+	static PointToColorCalculator forImage(int width, int height, int numberOfIterations, int divisionFactor,
+			double cutOff) {
+
+		final double centerX = width / 2.0;
+		final double centerY = height / 2.0;
+		// Note: Could maybe give as argument instead, but care would have
+		// to be taken regarding the cut-off.
+		final double maximumDistance = calcLength(centerX, centerY) + 10;
+
+		return new PointToColorCalculator(centerX, centerY, numberOfIterations, maximumDistance, divisionFactor,
+				cutOff);
+	}
+
+	private static double sqr(double x) {
+		return x * x;
+	}
+
+	public static double calcLength(double xd, double yd) {
+		return Math.sqrt(sqr(xd) + sqr(yd));
+	};
+
+	private static int dirReturn(int dir, int newDir) {
+		return (dir + newDir) % 4;
+	};
+
+	int getNewDirection(double c1x, double c1y, int dir, double x, double y) {
+
+		final double radsOffset = dir * Math.PI / 2.0;
+		final boolean isZero = (y - c1y) == 0.0 && (x - c1x) == 0.0;
+		double rads = 0.0;
+		if (!isZero) {
+			rads = (Math.atan2(y - c1y, x - c1x) - radsOffset + 4.0 * Math.PI) % (2.0 * Math.PI);
+		}
+
+		if (rads <= Math.PI / 4.0) {
+			return dirReturn(dir, 0);
+		} else if (rads <= Math.PI) {
+			return dirReturn(dir, 1);
+		} else if (rads <= Math.PI * 7.0 / 4.0) {
+			return dirReturn(dir, 3);
+		} else {
+			return dirReturn(dir, 0);
+		}
+	}
+
+	/*
+	 * Descends through the circles, starting from the given circle.
+	 * 
+	 * NOTE: Written as a loop rather than recursively, since Java is not
+	 * guaranteed to have tail recursion optimization, and a recursive variant can
+	 * thus overflow the stack for too high iteration values.
+	 * 
+	 * @param descentDepthOut If not null, the number of levels descended is
+	 * written to its first element.
+	 */
+	private double distanceToCircle(double c1x, double c1y, double r1, int n1, int dir, double lastDistance,
+			double x, double y, int[] descentDepthOut) {
+
+		double cx = c1x;
+		double cy = c1y;
+		double r = r1;
+		int n = n1;
+		int currentDirection = dir;
+		double distanceSoFar = lastDistance;
+		int descentDepth = 0;
+
+		while (true) {
+
+			final double currentDistance = Math.min(calcLength(x - cx, y - cy) - r, distanceSoFar);
+
+			if (currentDistance <= 0 || n <= 0) {
+				if (descentDepthOut != null) {
+					descentDepthOut[0] = descentDepth;
+				}
+				return currentDistance;
+			}
+
+			// Calculate new circle.
+
+			final double rnew = r * (1.0 / (1.0 * divisionFactor));
+			final int dirnew = getNewDirection(cx, cy, currentDirection, x, y);
+			final double radsnew = dirnew * Math.PI / 2.0;
+			final double cnx = cx + (r + rnew) * Math.cos(radsnew);
+			final double cny = cy + (r + rnew) * Math.sin(radsnew);
+
+			cx = cnx;
+			cy = cny;
+			r = rnew;
+			n = n - 1;
+			currentDirection = dirnew;
+			distanceSoFar = currentDistance;
+			descentDepth++;
+		}
+	}
+
+	/**
+	 * Determines the direction that every point of the given rectangle descends
+	 * in from the given circle, if they provably all take the same direction.
+	 * 
+	 * <p>
+	 * The directions are wedges around the circle's center, relative to its
+	 * direction: Forward within 45 degrees to either side, left from there up to
+	 * and including straight back, and right for the rest. Since the wedges are
+	 * convex, the rectangle is within a wedge if its corners are. The corners must
+	 * be inside by a margin well above the rounding errors of
+	 * {@link #getNewDirection}, so that the result is the same as calling it for
+	 * every point.
+	 * 
+	 * @return The direction, or -1 if the points may take different directions.
+	 */
+	static int getSharedDirection(double cx, double cy, int dir, double minimumX, double minimumY,
+			double maximumX, double maximumY) {
+
+		final double dx0 = minimumX - cx;
+		final double dx1 = maximumX - cx;
+		final double dy0 = minimumY - cy;
+		final double dy1 = maximumY - cy;
+
+		final double margin = 1e-9 * (1.0 + Math.abs(cx) + Math.abs(cy) + Math.max(Math.abs(dx0), Math.abs(dx1))
+				+ Math.max(Math.abs(dy0), Math.abs(dy1)));
+
+		// The smallest values over the corners of the half-plane functions bounding
+		// the wedges, in the frame of the direction: 'u' forward and 'v' to the left.
+		double minimumUMinusV = Double.POSITIVE_INFINITY;
+		double minimumUPlusV = Double.POSITIVE_INFINITY;
+		double minimumVMinusU = Double.POSITIVE_INFINITY;
+		double minimumMinusUPlusV = Double.POSITIVE_INFINITY;
+		double minimumV = Double.POSITIVE_INFINITY;
+		double minimumMinusV = Double.POSITIVE_INFINITY;
+
+		for (int corner = 0; corner < 4; corner++) {
+
+			final double dx = (corner & 1) == 0 ? dx0 : dx1;
+			final double dy = (corner & 2) == 0 ? dy0 : dy1;
+
+			final double u;
+			final double v;
+			switch (dir) {
+			case 0:
+				u = dx;
+				v = dy;
+				break;
+			case 1:
+				u = dy;
+				v = -dx;
+				break;
+			case 2:
+				u = -dx;
+				v = -dy;
+				break;
+			default:
+				u = -dy;
+				v = dx;
+				break;
+			}
+
+			minimumUMinusV = Math.min(minimumUMinusV, u - v);
+			minimumUPlusV = Math.min(minimumUPlusV, u + v);
+			minimumVMinusU = Math.min(minimumVMinusU, v - u);
+			minimumMinusUPlusV = Math.min(minimumMinusUPlusV, -(u + v));
+			minimumV = Math.min(minimumV, v);
+			minimumMinusV = Math.min(minimumMinusV, -v);
+		}
+
+		if (minimumUMinusV > margin && minimumUPlusV > margin) {
+			return dir;
+		} else if (minimumVMinusU > margin && minimumV > margin) {
+			return (dir + 1) % 4;
+		} else if (minimumMinusV > margin && minimumMinusUPlusV > margin) {
+			return (dir + 3) % 4;
+		} else {
+			return -1;
+		}
+	}
+
+	/*
+	 * The descents of the pixels of a rectangle, computed together: Blocks of
+	 * pixels that provably take the same directions share their circles, and each
+	 * pixel only computes its distances to them. Blocks are split where the
+	 * directions of their pixels may diverge, down to single pixels, which
+	 * continue with 'distanceToCircle'. The distances and descent depths are the
+	 * same as those of 'distanceToCircle' for every pixel.
+	 */
+	private final class CoherentDescent {
+
+		private final int originX;
+		private final int originY;
+		private final int width;
+
+		// Per pixel, in row-major order relative to the origin.
+		final double[] distances;
+		final int[] descentDepths;
+		private final boolean[] isFinished;
+
+		private final int[] descentDepthOut = new int[1];
+
+		CoherentDescent(int originX, int originY, int width, int height) {
+			this.originX = originX;
+			this.originY = originY;
+			this.width = width;
+			this.distances = new double[width * height];
+			this.descentDepths = new int[width * height];
+			this.isFinished = new boolean[width * height];
+		}
+
+		/*
+		 * Descends for the pixels of the given block, relative to the origin, from
+		 * the start circle.
+		 */
+		void descendFromStart(int x0, int y0, int x1, int y1) {
+
+			boolean isAnyActive = false;
+			for (int y = y0; y < y1; y++) {
+				for (int x = x0; x < x1; x++) {
+					final int index = y * width + x;
+					final double distance = Math.min(
+							calcLength((originX + x) - centerX, (originY + y) - centerY) - startRadius,
+							maximumDistance);
+					distances[index] = distance;
+					if (distance <= 0 || numberOfIterations <= 0) {
+						isFinished[index] = true;
+					} else {
+						isAnyActive = true;
+					}
+				}
+			}
+
+			if (isAnyActive) {
+				descend(x0, y0, x1, y1, centerX, centerY, startRadius, numberOfIterations, startDirection, 0);
+			}
+		}
+
+		/*
+		 * Descends for the unfinished pixels of the given block, whose distances
+		 * include the given circle, and with 'n' strictly positive.
+		 */
+		private void descend(int x0, int y0, int x1, int y1, double c1x, double c1y, double r1, int n1, int dir,
+				int depth1) {
+
+			double cx = c1x;
+			double cy = c1y;
+			double r = r1;
+			int n = n1;
+			int currentDirection = dir;
+			int descentDepth = depth1;
+
+			while (true) {
+
+				final int dirnew = getSharedDirection(cx, cy, currentDirection, originX + x0, originY + y0,
+						originX + x1 - 1, originY + y1 - 1);
+
+				if (dirnew < 0) {
+					if (x1 - x0 == 1 && y1 - y0 == 1) {
+						finishPixel(x0, y0, cx, cy, r, n, currentDirection, descentDepth);
+					} else if (x1 - x0 >= y1 - y0) {
+						final int xm = (x0 + x1) / 2;
+						descend(x0, y0, xm, y1, cx, cy, r, n, currentDirection, descentDepth);
+						descend(xm, y0, x1, y1, cx, cy, r, n, currentDirection, descentDepth);
+					} else {
+						final int ym = (y0 + y1) / 2;
+						descend(x0, y0, x1, ym, cx, cy, r, n, currentDirection, descentDepth);
+						descend(x0, ym, x1, y1, cx, cy, r, n, currentDirection, descentDepth);
+					}
+					return;
+				}
+
+				// Calculate new circle, shared by the block.
+
+				final double rnew = r * (1.0 / (1.0 * divisionFactor));
+				final double radsnew = dirnew * Math.PI / 2.0;
+				final double cnx = cx + (r + rnew) * Math.cos(radsnew);
+				final double cny = cy + (r + rnew) * Math.sin(radsnew);
+
+				cx = cnx;
+				cy = cny;
+				r = rnew;
+				n = n - 1;
+				currentDirection = dirnew;
+				descentDepth++;
+
+				boolean isAnyActive = false;
+				for (int y = y0; y < y1; y++) {
+					for (int x = x0; x < x1; x++) {
+
+						final int index = y * width + x;
+						if (isFinished[index]) {
+							continue;
+						}
+
+						final double currentDistance = Math
+								.min(calcLength((originX + x) - cx, (originY + y) - cy) - r, distances[index]);
+						distances[index] = currentDistance;
+						if (currentDistance <= 0 || n <= 0) {
+							isFinished[index] = true;
+							descentDepths[index] = descentDepth;
+						} else {
+							isAnyActive = true;
+						}
+					}
+				}
+
+				if (!isAnyActive) {
+					return;
+				}
+			}
+		}
+
+		/*
+		 * Continues the descent of a single unfinished pixel on its own.
+		 */
+		private void finishPixel(int x, int y, double cx, double cy, double r, int n, int dir, int depth) {
+
+			final int index = y * width + x;
+			if (isFinished[index]) {
+				return;
+			}
+
+			// Evaluating the given circle again leaves the distance unchanged.
+			distances[index] = distanceToCircle(cx, cy, r, n, dir, distances[index], originX + x, originY + y,
+					descentDepthOut);
+			descentDepths[index] = depth + descentDepthOut[0];
+			isFinished[index] = true;
+		}
+	}
+
+	/**
+	 * Starts a resumable descent for the given point, evaluating the start circle,
+	 * see {@link #continueDescent}.
+	 * 
+	 * @param state
+	 *            Must have length at least {@value #descentStateLength}. Set to
+	 *            the state after evaluating the start circle.
+	 * @return The distance after evaluating the start circle, which is the same
+	 *         as for 0 iterations.
+	 */
+	double startDescent(double[] state, double x, double y) {
+
+		final double distance = Math.min(calcLength(x - centerX, y - centerY) - startRadius, maximumDistance);
+
+		state[0] = centerX;
+		state[1] = centerY;
+		state[2] = startRadius;
+		state[3] = startDirection;
+		state[4] = distance;
+
+		return distance;
+	}
+
+	/**
+	 * Continues a resumable descent for the given further number of levels, with
+	 * the same computation as 'distanceToCircle', so that a descent started with
+	 * {@link #startDescent} and continued for a total of 'n' levels gives the same
+	 * distance as a calculator with 'n' iterations. This allows sharing the
+	 * descent between renders that differ only in the number of iterations.
+	 * 
+	 * @param state
+	 *            The center x, center y, radius, direction and distance of the
+	 *            last evaluated circle. Updated to the state after the descent.
+	 * @return The distance after the descent.
+	 */
+	double continueDescent(double[] state, int levels, double x, double y) {
+
+		double cx = state[0];
+		double cy = state[1];
+		double r = state[2];
+		int currentDirection = (int) state[3];
+		double distanceSoFar = state[4];
+
+		for (int n = levels; n > 0 && distanceSoFar > 0; n--) {
+
+			final double rnew = r * (1.0 / (1.0 * divisionFactor));
+			final int dirnew = getNewDirection(cx, cy, currentDirection, x, y);
+			final double radsnew = dirnew * Math.PI / 2.0;
+			final double cnx = cx + (r + rnew) * Math.cos(radsnew);
+			final double cny = cy + (r + rnew) * Math.sin(radsnew);
+
+			cx = cnx;
+			cy = cny;
+			r = rnew;
+			currentDirection = dirnew;
+			distanceSoFar = Math.min(calcLength(x - cx, y - cy) - r, distanceSoFar);
+		}
+
+		state[0] = cx;
+		state[1] = cy;
+		state[2] = r;
+		state[3] = currentDirection;
+		state[4] = distanceSoFar;
+
+		return distanceSoFar;
+	}
+
+	/**
+	 * Gets distance from given point to the nearest circle, with distance ceiled by
+	 * 'maximumDistance'.
+	 *
+	 * Basic concept: Determine distance to current iteration's circle. If inside
+	 * it, done, else figure out which partition of space the possibly closest
+	 * circle is in and check for the next iteration's circle in that given
+	 * partition of space.
+	 */
+	private double getDistance(double x, double y, int[] descentDepthOut) {
+
+		return distanceToCircle(centerX, centerY, startRadius, numberOfIterations, startDirection, maximumDistance, x,
+				y, descentDepthOut);
+	};
+
+	private static boolean is255(int x) {
+		return 0 <= x && x <= 255;
+	}
+
+	// Returns RGBA in ARGB format, in 32-bit integer.
+	private static int toARGB(int red, int green, int blue) {
+		if (!is255(red) || !is255(green) || !is255(blue)) {
+			throw new IllegalArgumentException(
+					"Illegal values for color parts: " + red + ", " + green + ", " + blue + ".");
+		}
+		return (255 << 24) | (red << 16) | (green << 8) | blue;
+	}
+
+	/*
+	 * Returns color given distance from some point to the nearest circle for that
+	 * point.
+	 * 
+	 * @param distance The distance for some point to its nearest circle.
+	 *
+	 * @return A 32-bit integer encoding ARGB-color, with each part being 0-255. For
+	 * instance, 0xFF00FF00 is green.
+	 */
+	int getColorFromDistanceFromNearestCircle(double distance) {
+		if (distance <= 0) {
+			return toARGB(0, 0, 0);
+		} else if (distance <= cutOff && cutOff > 0.00001) {
+			// Interpolate from black to red.
+			final int val = (int) Math.max(Math.min(Math.round(255 * distance / cutOff), 255), 0);
+			return toARGB(val, 0, 0);
+		} else {
+			// Interpolate from red to blue.
+			final int val = (int) Math
+					.max(Math.min(Math.round(255 * (distance - cutOff) / (maximumDistance - cutOff)), 255), 0);
+			return toARGB(255 - val, 0, val);
+		}
+	};
+
+	/**
+	 * Given point, returns the corresponding color.
+	 * 
+	 * By using the color from this function for every point in a canvas, a
+	 * circle-fractal image can be gained.
+	 * 
+	 * Blocking: Can be slightly CPU-heavy.
+	 *
+	 * @param x
+	 *            X-coordinate of the point in the image to get color for. Should
+	 *            not be too large, ie. less than 10E6.
+	 * @param y
+	 *            Y-coordinate of the point in the image to get color for. Should
+	 *            not be too large, ie. less than 10E6.
+	 * @return A 32-bit integer encoding ARGB-color, with each part being 0-255. For
+	 *         instance, 0xFF00FF00 is green.
+	 */
+	public int getColor(int x, int y) {
+		return getColor(x, y, null);
+	};
+
+	/**
+	 * Given point, returns the corresponding color, and optionally how many levels
+	 * of circles were descended through to find the nearest circle.
+	 * 
+	 * <p>
+	 * Blocking: Can be slightly CPU-heavy.
+	 * 
+	 * @param x
+	 *            See {@link #getColor(int, int)}.
+	 * @param y
+	 *            See {@link #getColor(int, int)}.
+	 * @param descentDepthOut
+	 *            May be null. If not null, must have length at least 1, and the
+	 *            number of levels descended is written to its first element, in
+	 *            the range from 0 to 'numberOfIterations'. Should not be shared
+	 *            between threads.
+	 * @return See {@link #getColor(int, int)}.
+	 */
+	@Override
+	public int getColor(int x, int y, int[] descentDepthOut) {
+		final double distanceToNearestCircle = getDistance(x, y, descentDepthOut);
+
+		final int argb = getColorFromDistanceFromNearestCircle(distanceToNearestCircle);
+
+		return argb;
+	};
+
+	/**
+	 * Computes the colors of a block of pixels, with the same colors and descent
+	 * depths as {@link #getColor(int, int, int[])} for every pixel, by sharing the
+	 * levels of the descents that neighbouring pixels take together, see
+	 * {@link #getSharedDirection}. At high numbers of iterations, this saves most
+	 * of the work of the shallow levels.
+	 */
+	@Override
+	public void getColors(int x, int y, int width, int height, int[] argbOut, int[] descentDepthsOut) {
+
+		final CoherentDescent descent = new CoherentDescent(x, y, width, height);
+		for (int blockY = 0; blockY < height; blockY += coherentBlockSize) {
+			for (int blockX = 0; blockX < width; blockX += coherentBlockSize) {
+				descent.descendFromStart(blockX, blockY, Math.min(blockX + coherentBlockSize, width),
+						Math.min(blockY + coherentBlockSize, height));
+			}
+		}
+
+		for (int i = 0; i < width * height; i++) {
+			argbOut[i] = getColorFromDistanceFromNearestCircle(descent.distances[i]);
+		}
+		if (descentDepthsOut != null) {
+			System.arraycopy(descent.descentDepths, 0, descentDepthsOut, 0, width * height);
+		}
+	}
+
+	/**
+	 * Given point with fractional coordinates, for instance when rendering a
+	 * zoomed-in view of the image, returns the corresponding color. For integer
+	 * coordinates, the color is the same as from {@link #getColor(int, int)}.
+	 * 
+	 * <p>
+	 * Blocking: Can be slightly CPU-heavy.
+	 * 
+	 * @param x
+	 *            See {@link #getColor(int, int)}.
+	 * @param y
+	 *            See {@link #getColor(int, int)}.
+	 * @return See {@link #getColor(int, int)}.
+	 */
+	public int getColorAt(double x, double y) {
+		return getColorFromDistanceFromNearestCircle(getDistance(x, y, null));
+	}
+}
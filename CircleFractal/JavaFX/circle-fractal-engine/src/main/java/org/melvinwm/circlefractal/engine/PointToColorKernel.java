@@ -0,0 +1,64 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Calculates color for given points in the circle-fractal, see
+ * {@link PointToColorCalculator} for the reference implementation.
+ * 
+ * <p>
+ * Thread safety: Implementations must be immutable and referentially
+ * transparent.
+ */
+interface PointToColorKernel {
+
+	/**
+	 * Given point, returns the corresponding color, and optionally how many levels
+	 * of circles were descended through to find the nearest circle.
+	 * 
+	 * <p>
+	 * Blocking: Can be slightly CPU-heavy.
+	 * 
+	 * @param x
+	 *            X-coordinate of the point in the image to get color for.
+	 * @param y
+	 *            Y-coordinate of the point in the image to get color for.
+	 * @param descentDepthOut
+	 *            May be null. If not null, must have length at least 1, and the
+	 *            number of levels descended is written to its first element.
+	 *            Should not be shared between threads.
+	 * @return A 32-bit integer encoding ARGB-color, with each part being 0-255.
+	 */
+	int getColor(int x, int y, int[] descentDepthOut);
+
+	/**
+	 * Computes the colors of a block of pixels, the same as
+	 * {@link #getColor(int, int, int[])} for every pixel, which implementations
+	 * may do faster by sharing work between the pixels.
+	 * 
+	 * <p>
+	 * Blocking: Yes, computationally heavy.
+	 * 
+	 * @param x
+	 *            X-coordinate of the top-left pixel.
+	 * @param y
+	 *            Y-coordinate of the top-left pixel.
+	 * @param argbOut
+	 *            The colors, in row-major order from index 0. Must have room for
+	 *            'width' times 'height' pixels.
+	 * @param descentDepthsOut
+	 *            May be null. If not null, the descent depths, in the same order
+	 *            as the colors.
+	 */
+	default void getColors(int x, int y, int width, int height, int[] argbOut, int[] descentDepthsOut) {
+
+		final int[] descentDepth = new int[1];
+		for (int row = 0; row < height; row++) {
+			for (int column = 0; column < width; column++) {
+				final int index = row * width + column;
+				argbOut[index] = getColor(x + column, y + row, descentDepth);
+				if (descentDepthsOut != null) {
+					descentDepthsOut[index] = descentDepth[0];
+				}
+			}
+		}
+	}
+}
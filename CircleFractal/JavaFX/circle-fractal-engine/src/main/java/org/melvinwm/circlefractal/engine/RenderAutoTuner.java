@@ -0,0 +1,226 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Finds the fastest {@link RenderStrategy} on this machine for each range of
+ * image sizes, see {@link RenderTuning}, by timing short calibration renders.
+ *
+ * <p>
+ * For every size range, an image of a representative size is rendered in two
+ * rounds: First with every execution and granularity, with the reference
+ * kernel, and then with every other kernel tried, see {@link #tunedKernels},
+ * with the fastest execution and granularity. Every candidate is rendered
+ * twice, in turns, and its fastest time is used, so that a disturbance such as
+ * a concurrent render or garbage collection does not hit a single candidate. A
+ * candidate must be at least 5% faster than the best so far to replace it,
+ * starting from the strategy used when not tuned, see {@link RenderStrategy#of},
+ * so that noise does not pick an arbitrary strategy among equally fast ones.
+ *
+ * <p>
+ * The calibration renders run with background priority on the shared
+ * {@link RenderScheduler}, and take a few seconds on a typical machine.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+public final class RenderAutoTuner {
+
+	// The representative size rendered for each size range of 'RenderTuning',
+	// towards the small end of the largest range to keep the calibration short.
+	static final int[][] calibrationSizes = new int[][] { { 320, 240 }, { 700, 500 }, { 1200, 900 } };
+
+	// The default frame of the GUI.
+	private static final int calibrationNumberOfIterations = 5;
+	private static final int calibrationDivisionFactor = 2;
+	private static final double calibrationCutOff = 1.5;
+
+	/**
+	 * The kernels tried, which excludes the exact kernel, since it is a choice of
+	 * result rather than of speed.
+	 */
+	static final List<RenderStrategy.Kernel> tunedKernels = Arrays.asList(RenderStrategy.Kernel.BLOCKS,
+			RenderStrategy.Kernel.PIXELS, RenderStrategy.Kernel.SINGLE_PRECISION);
+
+	private static final int repetitionCount = 2;
+	private static final double minimumImprovement = 0.05;
+
+	private static final Logger logger = LogManager.getLogger(CircleFractalEngine.class);
+
+	private final int[][] sizes;
+
+	public RenderAutoTuner() {
+		this(calibrationSizes);
+	}
+
+	/**
+	 * @param sizes
+	 *            The size rendered for each size range, for instance smaller
+	 *            ones for testing.
+	 */
+	RenderAutoTuner(int[][] sizes) {
+
+		if (sizes.length != RenderTuning.maximumPixelCounts.length) {
+			throw new IllegalArgumentException("Expected " + RenderTuning.maximumPixelCounts.length
+					+ " sizes, got " + sizes.length + ".");
+		}
+
+		this.sizes = sizes;
+	}
+
+	/**
+	 * @return The candidates of the first round: Every execution and
+	 *         granularity, with the reference kernel.
+	 */
+	static List<RenderStrategy> getExecutionCandidates() {
+		return Arrays.asList(
+				new RenderStrategy(RenderStrategy.Execution.SEQUENTIAL, 8, RenderStrategy.Kernel.BLOCKS),
+				new RenderStrategy(RenderStrategy.Execution.SEQUENTIAL, 32, RenderStrategy.Kernel.BLOCKS),
+				new RenderStrategy(RenderStrategy.Execution.PARALLEL_ROWS, 8, RenderStrategy.Kernel.BLOCKS),
+				new RenderStrategy(RenderStrategy.Execution.PARALLEL_ROWS, 32, RenderStrategy.Kernel.BLOCKS),
+				new RenderStrategy(RenderStrategy.Execution.PARALLEL_TILES, 4, RenderStrategy.Kernel.BLOCKS),
+				new RenderStrategy(RenderStrategy.Execution.PARALLEL_TILES, 8, RenderStrategy.Kernel.BLOCKS),
+				new RenderStrategy(RenderStrategy.Execution.PARALLEL_TILES, 16, RenderStrategy.Kernel.BLOCKS));
+	}
+
+	/**
+	 * Calibrates every size range.
+	 *
+	 * <p>
+	 * Blocking: Yes, computationally heavy, a few seconds.
+	 *
+	 * @param control
+	 *            For cancellation, and the progress in renders done.
+	 * @return The tuning, or empty if cancelled.
+	 */
+	public Optional<RenderTuning> calibrate(RenderControl control) throws Exception {
+
+		final RenderScheduler scheduler = RenderScheduler.getInstance();
+		final RenderStrategy untuned = RenderStrategy.of(scheduler.getWorkerCount() > 1, false);
+
+		final List<RenderStrategy> executionCandidates = new ArrayList<>(getExecutionCandidates());
+		executionCandidates.remove(untuned);
+		executionCandidates.add(0, untuned);
+
+		// A warm-up render per size, and the two rounds, the second with a candidate
+		// per kernel.
+		final long totalWork = sizes.length
+				* (1 + repetitionCount * (executionCandidates.size() + tunedKernels.size()));
+		final long[] workDone = new long[1];
+
+		final List<RenderStrategy> strategies = new ArrayList<>();
+		for (final int[] size : sizes) {
+
+			final CircleFractalParameters parameters = new CircleFractalParameters(size[0], size[1],
+					calibrationNumberOfIterations, calibrationDivisionFactor, calibrationCutOff);
+
+			// The single-precision kernel is only selected once its deviation has been
+			// measured, see 'SinglePrecisionKernelSelector', so that is awaited before
+			// timing anything.
+			SinglePrecisionKernelSelector.isWithinTolerance(size[0], size[1], calibrationNumberOfIterations,
+					calibrationDivisionFactor, calibrationCutOff).get();
+
+			// Warm up, so that the first candidate does not pay for the compilation.
+			if (time(parameters, untuned, control) < 0) {
+				return Optional.empty();
+			}
+			control.updateProgress(++workDone[0], totalWork);
+
+			final Optional<RenderStrategy> execution = selectFastest(parameters, executionCandidates, control,
+					workDone, totalWork);
+			if (!execution.isPresent()) {
+				return Optional.empty();
+			}
+
+			final List<RenderStrategy> kernelCandidates = new ArrayList<>();
+			kernelCandidates.add(execution.get());
+			for (final RenderStrategy.Kernel kernel : tunedKernels) {
+				if (kernel != execution.get().kernel) {
+					kernelCandidates.add(
+							new RenderStrategy(execution.get().execution, execution.get().granularity, kernel));
+				}
+			}
+
+			final Optional<RenderStrategy> strategy = selectFastest(parameters, kernelCandidates, control,
+					workDone, totalWork);
+			if (!strategy.isPresent()) {
+				return Optional.empty();
+			}
+			strategies.add(strategy.get());
+		}
+
+		final RenderTuning tuning = new RenderTuning(scheduler.getWorkerCount(), strategies);
+		logger.info("Calibrated the render strategies: {}.", tuning);
+		return Optional.of(tuning);
+	}
+
+	/*
+	 * Times the candidates in turns, and selects the fastest by the rules of the
+	 * class, the first being the best to begin with. Empty if cancelled.
+	 */
+	private Optional<RenderStrategy> selectFastest(CircleFractalParameters parameters,
+			List<RenderStrategy> candidates, RenderControl control, long[] workDone, long totalWork)
+			throws Exception {
+
+		final long[] fastestNanos = new long[candidates.size()];
+		Arrays.fill(fastestNanos, Long.MAX_VALUE);
+
+		for (int repetition = 0; repetition < repetitionCount; repetition++) {
+			for (int candidate = 0; candidate < candidates.size(); candidate++) {
+
+				final long nanos = time(parameters, candidates.get(candidate), control);
+				if (nanos < 0) {
+					return Optional.empty();
+				}
+				fastestNanos[candidate] = Math.min(fastestNanos[candidate], nanos);
+				control.updateProgress(++workDone[0], totalWork);
+			}
+		}
+
+		int best = 0;
+		for (int candidate = 1; candidate < candidates.size(); candidate++) {
+			if (fastestNanos[candidate] < (1 - minimumImprovement) * fastestNanos[best]) {
+				best = candidate;
+			}
+		}
+
+		logger.debug("Calibration of {}: {} fastest, times {} ns for {}.", parameters, candidates.get(best),
+				Arrays.toString(fastestNanos), candidates);
+		return Optional.of(candidates.get(best));
+	}
+
+	/*
+	 * Renders, discarding the pixels.
+	 *
+	 * @return The time taken, or -1 if cancelled.
+	 */
+	private static long time(CircleFractalParameters parameters, RenderStrategy strategy, RenderControl control)
+			throws Exception {
+
+		final CircleFractalEngine engine = new CircleFractalEngine(parameters, strategy, Optional.empty(),
+				RenderScheduler.Priority.BACKGROUND);
+
+		final long startNanos = System.nanoTime();
+		final boolean isCompleted = engine.render(new RenderControl() {
+
+			@Override
+			public boolean isCancelled() {
+				return control.isCancelled();
+			}
+
+			@Override
+			public void updateProgress(long workDone, long totalWork) {
+				// The progress of the calibration is by renders.
+			}
+		}, (x, y, argb, count) -> {
+		});
+
+		return isCompleted ? System.nanoTime() - startNanos : -1;
+	}
+}
@@ -0,0 +1,258 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Shares renders between concurrent callers: A request for a key that already
+ * has a render in flight attaches to that render, instead of starting another
+ * one, and all the callers share its result and progress.
+ * 
+ * <p>
+ * Cancellation is reference-counted: A caller that cancels its ticket stops
+ * waiting at once, but the shared render only stops once every caller attached
+ * to it has cancelled. A request after that starts a new render.
+ * 
+ * <p>
+ * Only renders in flight are shared. Once a render finishes, its key is
+ * forgotten, so caching finished results is up to the callers.
+ * 
+ * <p>
+ * Thread safety: Thread-safe.
+ * 
+ * @param <K>
+ *            The key type, identifying renders with the same result. Must have
+ *            proper 'equals' and 'hashCode'.
+ * @param <V>
+ *            The result type.
+ */
+public final class RenderCoalescer<K, V> {
+
+	/**
+	 * A render, run with a control shared by all its callers.
+	 */
+	@FunctionalInterface
+	public interface Render<V> {
+
+		/**
+		 * @return The result. May be null if cancelled.
+		 */
+		V render(RenderControl control) throws Exception;
+	}
+
+	private final Executor executor;
+
+	// Guarded by 'this'.
+	private final Map<K, SharedRender<V>> inFlight = new HashMap<>();
+	private long coalescedRequestCount;
+
+	/**
+	 * @param executor
+	 *            Runs the renders. May run them on the calling thread, in which
+	 *            case {@link #request} returns once the render is done, and other
+	 *            callers for the same key attach to it meanwhile.
+	 */
+	public RenderCoalescer(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Requests a render, attaching to the render in flight for the key if any,
+	 * and otherwise starting the given render.
+	 * 
+	 * <p>
+	 * Blocking: Only if the executor runs the render on the calling thread.
+	 * 
+	 * @param render
+	 *            Run only if there is no render in flight for the key.
+	 * @return The caller's ticket.
+	 */
+	public Ticket<V> request(K key, Render<V> render) {
+
+		final SharedRender<V> sharedRender;
+		final boolean isNew;
+
+		synchronized (this) {
+			final SharedRender<V> existing = inFlight.get(key);
+			isNew = existing == null;
+			if (isNew) {
+				sharedRender = new SharedRender<>();
+				inFlight.put(key, sharedRender);
+			} else {
+				sharedRender = existing;
+				coalescedRequestCount++;
+			}
+			sharedRender.ticketCount++;
+		}
+
+		final Ticket<V> ticket = new Ticket<>(sharedRender, () -> release(key, sharedRender));
+
+		if (isNew) {
+			executor.execute(() -> run(key, sharedRender, render));
+		}
+
+		return ticket;
+	}
+
+	private void run(K key, SharedRender<V> sharedRender, Render<V> render) {
+
+		V result = null;
+		Throwable exception = null;
+
+		try {
+			if (sharedRender.isCancelled()) {
+				throw new CancellationException("All callers cancelled before the render started.");
+			}
+
+			result = render.render(sharedRender);
+
+			if (sharedRender.isCancelled()) {
+				throw new CancellationException("All callers cancelled the render.");
+			}
+		} catch (Throwable e) {
+			exception = e;
+		}
+
+		// Forget the render before completing it, so that requests after
+		// completion start a new render instead of attaching to this one.
+		synchronized (this) {
+			inFlight.remove(key, sharedRender);
+		}
+
+		if (exception != null) {
+			sharedRender.result.completeExceptionally(exception);
+		} else {
+			sharedRender.result.complete(result);
+		}
+	}
+
+	private synchronized void release(K key, SharedRender<V> sharedRender) {
+
+		sharedRender.ticketCount--;
+		if (sharedRender.ticketCount == 0 && !sharedRender.result.isDone()) {
+			sharedRender.isCancelled = true;
+			// Later requests start a new render instead of attaching to this one.
+			inFlight.remove(key, sharedRender);
+		}
+	}
+
+	/**
+	 * @return The number of renders in flight.
+	 */
+	public synchronized int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * @return The number of requests that attached to a render in flight instead
+	 *         of starting one.
+	 */
+	public synchronized long getCoalescedRequestCount() {
+		return coalescedRequestCount;
+	}
+
+	/**
+	 * A render shared by one or more tickets.
+	 */
+	private static final class SharedRender<V> implements RenderControl {
+
+		final CompletableFuture<V> result = new CompletableFuture<>();
+
+		// Guarded by the coalescer.
+		int ticketCount;
+
+		private volatile boolean isCancelled;
+		private volatile double progress;
+
+		@Override
+		public boolean isCancelled() {
+			return isCancelled;
+		}
+
+		@Override
+		public void updateProgress(long workDone, long totalWork) {
+			progress = totalWork > 0 ? Math.min(Math.max((double) workDone / totalWork, 0.0), 1.0) : 0.0;
+		}
+	}
+
+	/**
+	 * A caller's attachment to a shared render.
+	 * 
+	 * <p>
+	 * Thread safety: Thread-safe.
+	 */
+	public static final class Ticket<V> {
+
+		private final SharedRender<V> sharedRender;
+		private final Runnable releaser;
+		private final CompletableFuture<V> result = new CompletableFuture<>();
+
+		// Guarded by 'this'.
+		private boolean isReleased;
+
+		private Ticket(SharedRender<V> sharedRender, Runnable releaser) {
+
+			this.sharedRender = sharedRender;
+			this.releaser = releaser;
+
+			sharedRender.result.whenComplete((value, exception) -> {
+				synchronized (this) {
+					isReleased = true;
+				}
+				if (exception != null) {
+					result.completeExceptionally(exception);
+				} else {
+					result.complete(value);
+				}
+			});
+
+			result.whenComplete((value, exception) -> {
+				if (result.isCancelled()) {
+					cancel();
+				}
+			});
+		}
+
+		/**
+		 * @return The result of the shared render, or cancelled if this ticket is
+		 *         cancelled. Cancelling the returned future cancels the ticket,
+		 *         see {@link #cancel}.
+		 */
+		public CompletableFuture<V> getResult() {
+			return result;
+		}
+
+		/**
+		 * @return The progress of the shared render, from 0 to 1.
+		 */
+		public double getProgress() {
+			return sharedRender.progress;
+		}
+
+		/**
+		 * Cancels this caller's interest in the render. The shared render stops
+		 * once all its callers have cancelled.
+		 * 
+		 * <p>
+		 * Blocking: No.
+		 * 
+		 * @return Whether cancelled, which is false if already cancelled or done.
+		 */
+		public boolean cancel() {
+
+			synchronized (this) {
+				if (isReleased) {
+					return false;
+				}
+				isReleased = true;
+			}
+
+			result.cancel(false);
+			releaser.run();
+			return true;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Cancellation and progress for a render, see
+ * {@link CircleFractalEngine#render(RenderControl, PixelSink)}.
+ * 
+ * <p>
+ * Thread safety: Implementations must be thread-safe, since renders call them
+ * from multiple threads.
+ */
+public interface RenderControl {
+
+	/**
+	 * Blocking: No.
+	 * 
+	 * @return Whether the render should stop.
+	 */
+	boolean isCancelled();
+
+	/**
+	 * Reports the progress of the render.
+	 * 
+	 * <p>
+	 * Blocking: No.
+	 * 
+	 * @param workDone
+	 *            From 0 to 'totalWork'.
+	 */
+	void updateProgress(long workDone, long totalWork);
+}
@@ -0,0 +1,142 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the phases of a circle-fractal render, see
+ * {@link CircleFractalEngine}.
+ *
+ * <p>
+ * Every event carries the parameters of the render as well as a render ID, so
+ * that the events of a single render can be grouped together, and lined up
+ * against for instance garbage collection pauses in the same recording.
+ *
+ * <p>
+ * When no recording is running, the events are cheap: Creating, beginning and
+ * committing an event is then close to free.
+ *
+ * <p>
+ * Every render creates these events, so the engine requires a runtime with
+ * 'jdk.jfr', that is Java 8u262 or a later update of Java 8, or Java 11 or
+ * later.
+ *
+ * <p>
+ * Example of recording, viewable in for instance Java Mission Control:
+ *
+ * <p>
+ * <code>java -XX:StartFlightRecording=filename=render.jfr -jar ...</code>
+ *
+ * <p>
+ * Thread safety: Each event instance is confined to the thread that created
+ * it.
+ */
+final class RenderEvents {
+
+	private static final AtomicLong renderIdCounter = new AtomicLong();
+
+	private RenderEvents() {
+	}
+
+	/**
+	 * @return A new, unique ID for a render.
+	 */
+	static long nextRenderId() {
+		return renderIdCounter.incrementAndGet();
+	}
+
+	@Category({ "Circle Fractal", "Render" })
+	@StackTrace(false)
+	abstract static class RenderEvent extends Event {
+
+		@Label("Render ID")
+		long renderId;
+
+		@Label("Width")
+		int width;
+
+		@Label("Height")
+		int height;
+
+		@Label("Number of Iterations")
+		int numberOfIterations;
+
+		@Label("Division Factor")
+		int divisionFactor;
+
+		@Label("Cut-off")
+		double cutOff;
+
+		@Label("Parallelized Computation")
+		boolean isParallelizedComputation;
+
+		/**
+		 * Sets the parameter fields of this event.
+		 */
+		final void setParameters(long renderId, int width, int height, int numberOfIterations, int divisionFactor,
+				double cutOff, boolean isParallelizedComputation) {
+
+			this.renderId = renderId;
+			this.width = width;
+			this.height = height;
+			this.numberOfIterations = numberOfIterations;
+			this.divisionFactor = divisionFactor;
+			this.cutOff = cutOff;
+			this.isParallelizedComputation = isParallelizedComputation;
+		}
+	}
+
+	@Name("org.melvinwm.circlefractal.RenderSetup")
+	@Label("Render Setup")
+	@Description("Setting up the calculator, thread pools and progress updating.")
+	static final class SetupEvent extends RenderEvent {
+	}
+
+	@Name("org.melvinwm.circlefractal.RenderLineCompute")
+	@Label("Render Line Compute")
+	@Description("Computing the colors of a band of lines, or part of a band, of the image.")
+	static final class LineComputeEvent extends RenderEvent {
+
+		@Label("Line")
+		int y;
+
+		@Label("Line Count")
+		int lineCount;
+	}
+
+	@Name("org.melvinwm.circlefractal.RenderUpload")
+	@Label("Render Upload")
+	@Description("Letting the pixel sink finish, for instance by uploading the remaining pixels to the image.")
+	static final class UploadEvent extends RenderEvent {
+	}
+
+	@Name("org.melvinwm.circlefractal.RenderProgress")
+	@Label("Render Progress")
+	@Description("Updating the progress of the render.")
+	static final class ProgressEvent extends RenderEvent {
+
+		@Label("Work Done")
+		long workDone;
+
+		@Label("Total Work")
+		long totalWork;
+	}
+
+	@Name("org.melvinwm.circlefractal.RenderCancellation")
+	@Label("Render Cancellation")
+	@Description("The render was cancelled.")
+	static final class CancellationEvent extends RenderEvent {
+
+		@Label("Work Done")
+		long workDone;
+
+		@Label("Total Work")
+		long totalWork;
+	}
+}
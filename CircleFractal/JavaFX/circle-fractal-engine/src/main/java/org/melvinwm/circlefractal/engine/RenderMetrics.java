@@ -0,0 +1,472 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Collects metrics about circle-fractal renders and exposes them as an MXBean.
+ *
+ * <p>
+ * The shared instance is registered with the platform MBean server under
+ * {@link #objectName}.
+ *
+ * <p>
+ * Recording is meant to have low overhead: Workers accumulate per band of lines
+ * locally and only publish once per band, and the cumulative figures are only
+ * updated once per render.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+public final class RenderMetrics implements RenderMetricsMXBean {
+
+	/**
+	 * The name the shared instance is registered under.
+	 */
+	public static final String objectName = "org.melvinwm.circlefractal.engine:type=RenderMetrics";
+
+	/**
+	 * Number of buckets in the descent depth histogram. Bucket 0 holds depth 0,
+	 * and bucket i for i at least 1 holds depths from 2^(i-1) to 2^i - 1, with the
+	 * last bucket also holding all larger depths.
+	 */
+	static final int descentDepthHistogramBucketCount = 12;
+
+	private static final Logger logger = LogManager.getLogger(CircleFractalEngine.class);
+
+	private static final RenderMetrics instance = createRegistered();
+
+	private static final double nanosPerMilli = 1_000_000.0;
+	private static final double nanosPerSecond = 1_000_000_000.0;
+
+	// Counts.
+
+	private final LongAdder startedRenderCount = new LongAdder();
+	private final LongAdder completedRenderCount = new LongAdder();
+	private final LongAdder cancelledRenderCount = new LongAdder();
+	private final LongAdder serviceRenderRequestCount = new LongAdder();
+	private final LongAdder serviceCancellationCount = new LongAdder();
+
+	// Start-up, measured once per JVM. Negative until recorded.
+
+	private final AtomicLong launchToFirstFrameMillis = new AtomicLong(-1);
+	private final AtomicLong launchToFirstRenderedFrameMillis = new AtomicLong(-1);
+
+	// Guarded by 'this'.
+
+	private long totalPixelCount;
+	private long totalWallNanos;
+	private long totalComputeNanos;
+	private long totalUploadNanos;
+	private long totalWorkerBusyNanos;
+	private long totalDescentDepthSum;
+	private final long[] descentDepthHistogram = new long[descentDepthHistogramBucketCount];
+
+	/**
+	 * Snapshot of the last completed render, may be null.
+	 */
+	private volatile Recording lastRender;
+
+	RenderMetrics() {
+	}
+
+	private static RenderMetrics createRegistered() {
+
+		final RenderMetrics renderMetrics = new RenderMetrics();
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(renderMetrics, new ObjectName(objectName));
+		} catch (JMException e) {
+			// Metrics are not essential, so only report.
+			logger.error("Failed to register the render metrics MBean.", e);
+		}
+
+		return renderMetrics;
+	}
+
+	/**
+	 * The shared instance, registered with the platform MBean server.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @return The shared instance.
+	 */
+	public static RenderMetrics getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return The descent depth histogram bucket for the given descent depth.
+	 */
+	static int descentDepthBucket(int descentDepth) {
+		return Math.min(32 - Integer.numberOfLeadingZeros(descentDepth), descentDepthHistogramBucketCount - 1);
+	}
+
+	/**
+	 * Starts recording a render.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @param pixelCount
+	 *            Number of pixels in the render.
+	 * @return The recording for the render, to be updated by the drawer.
+	 */
+	Recording startRender(long pixelCount) {
+		startedRenderCount.increment();
+		return new Recording(pixelCount);
+	}
+
+	/**
+	 * Records that the drawing service was asked to render.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 */
+	public void recordServiceRenderRequest() {
+		serviceRenderRequestCount.increment();
+	}
+
+	/**
+	 * Records that the drawing service was cancelled.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 */
+	public void recordServiceCancellation() {
+		serviceCancellationCount.increment();
+	}
+
+	/**
+	 * Records that a frame has been put on screen. Only the first frame, and the
+	 * first rendered frame, after the launch of the JVM are recorded.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @param isRendered
+	 *            Whether the frame was rendered in this JVM, as opposed to for
+	 *            instance a frame persisted by an earlier session.
+	 */
+	public void recordFrameShown(boolean isRendered) {
+
+		final long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+
+		if (launchToFirstFrameMillis.compareAndSet(-1, millis)) {
+			logger.info("First frame shown {} ms after launch.", millis);
+		}
+		if (isRendered && launchToFirstRenderedFrameMillis.compareAndSet(-1, millis)) {
+			logger.info("First rendered frame shown {} ms after launch.", millis);
+		}
+	}
+
+	private synchronized void addCompleted(Recording recording) {
+
+		totalPixelCount += recording.pixelCount;
+		totalWallNanos += recording.wallNanos;
+		totalComputeNanos += recording.computeNanos;
+		totalUploadNanos += recording.uploadNanos;
+		totalWorkerBusyNanos += recording.getWorkerBusyNanos();
+		totalDescentDepthSum += recording.descentDepthSum.sum();
+		for (int i = 0; i < descentDepthHistogram.length; i++) {
+			descentDepthHistogram[i] += recording.descentDepthHistogram.get(i);
+		}
+
+		lastRender = recording;
+		completedRenderCount.increment();
+	}
+
+	/**
+	 * Recording of a single render.
+	 *
+	 * <p>
+	 * Thread safety: The per-line recording is thread-safe, the rest must be
+	 * called from the thread performing the render.
+	 */
+	final class Recording {
+
+		private final long pixelCount;
+		private final long startNanos = System.nanoTime();
+		private final ConcurrentHashMap<String, LongAdder> workerBusyNanos = new ConcurrentHashMap<>();
+		private final AtomicLongArray descentDepthHistogram = new AtomicLongArray(descentDepthHistogramBucketCount);
+		private final LongAdder descentDepthSum = new LongAdder();
+		private final AtomicBoolean isFinished = new AtomicBoolean(false);
+
+		// Written before the recording is published, in 'addCompleted'.
+		private long wallNanos;
+		private long computeNanos;
+		private long tailNanos;
+		private long uploadNanos;
+
+		private Recording(long pixelCount) {
+			this.pixelCount = pixelCount;
+		}
+
+		/**
+		 * @return A new local histogram for a worker to accumulate descent depths in
+		 *         using {@link RenderMetrics#descentDepthBucket(int)}, before
+		 *         publishing it with {@link #recordLine}.
+		 */
+		long[] newLocalDescentDepthHistogram() {
+			return new long[descentDepthHistogramBucketCount];
+		}
+
+		/**
+		 * Records one or more computed lines, or parts of them, called by the worker
+		 * thread that computed them.
+		 *
+		 * @param busyNanos
+		 *            Time spent computing the lines.
+		 * @param localDescentDepthHistogram
+		 *            The descent depths of the lines.
+		 * @param localDescentDepthSum
+		 *            The sum of the descent depths of the lines.
+		 */
+		void recordLine(long busyNanos, long[] localDescentDepthHistogram, long localDescentDepthSum) {
+
+			workerBusyNanos.computeIfAbsent(Thread.currentThread().getName(), name -> new LongAdder()).add(busyNanos);
+
+			for (int i = 0; i < localDescentDepthHistogram.length; i++) {
+				if (localDescentDepthHistogram[i] != 0) {
+					descentDepthHistogram.addAndGet(i, localDescentDepthHistogram[i]);
+				}
+			}
+			descentDepthSum.add(localDescentDepthSum);
+		}
+
+		void recordComputeNanos(long nanos) {
+			computeNanos = nanos;
+		}
+
+		/**
+		 * @param nanos
+		 *            Time from the start of the last piece of work until the end
+		 *            of the computation, during which workers run out of work.
+		 */
+		void recordTailNanos(long nanos) {
+			tailNanos = nanos;
+		}
+
+		void recordUploadNanos(long nanos) {
+			uploadNanos = nanos;
+		}
+
+		/**
+		 * Records the render as completed. Has no effect if already finished.
+		 */
+		void recordCompleted() {
+			if (isFinished.compareAndSet(false, true)) {
+				wallNanos = System.nanoTime() - startNanos;
+				addCompleted(this);
+			}
+		}
+
+		/**
+		 * Records the render as cancelled. Has no effect if already finished.
+		 */
+		void recordCancelled() {
+			if (isFinished.compareAndSet(false, true)) {
+				cancelledRenderCount.increment();
+			}
+		}
+
+		private long getWorkerBusyNanos() {
+			return workerBusyNanos.values().stream().mapToLong(LongAdder::sum).sum();
+		}
+	}
+
+	//
+	// MXBean.
+	//
+
+	@Override
+	public long getStartedRenderCount() {
+		return startedRenderCount.sum();
+	}
+
+	@Override
+	public long getCompletedRenderCount() {
+		return completedRenderCount.sum();
+	}
+
+	@Override
+	public long getCancelledRenderCount() {
+		return cancelledRenderCount.sum();
+	}
+
+	@Override
+	public long getServiceRenderRequestCount() {
+		return serviceRenderRequestCount.sum();
+	}
+
+	@Override
+	public long getServiceCancellationCount() {
+		return serviceCancellationCount.sum();
+	}
+
+	@Override
+	public long getLaunchToFirstFrameMillis() {
+		return Math.max(launchToFirstFrameMillis.get(), 0);
+	}
+
+	@Override
+	public long getLaunchToFirstRenderedFrameMillis() {
+		return Math.max(launchToFirstRenderedFrameMillis.get(), 0);
+	}
+
+	@Override
+	public long getLastRenderPixelCount() {
+		final Recording last = lastRender;
+		return last == null ? 0 : last.pixelCount;
+	}
+
+	@Override
+	public double getLastRenderWallTimeMillis() {
+		final Recording last = lastRender;
+		return last == null ? 0 : last.wallNanos / nanosPerMilli;
+	}
+
+	@Override
+	public double getLastRenderPixelsPerSecond() {
+		final Recording last = lastRender;
+		return last == null ? 0 : perSecond(last.pixelCount, last.wallNanos);
+	}
+
+	@Override
+	public double getLastRenderComputeTimeMillis() {
+		final Recording last = lastRender;
+		return last == null ? 0 : last.computeNanos / nanosPerMilli;
+	}
+
+	@Override
+	public double getLastRenderTailTimeMillis() {
+		final Recording last = lastRender;
+		return last == null ? 0 : last.tailNanos / nanosPerMilli;
+	}
+
+	@Override
+	public double getLastRenderUploadTimeMillis() {
+		final Recording last = lastRender;
+		return last == null ? 0 : last.uploadNanos / nanosPerMilli;
+	}
+
+	@Override
+	public double getLastRenderAverageDescentDepth() {
+		final Recording last = lastRender;
+		return last == null ? 0 : average(last.descentDepthSum.sum(), last.pixelCount);
+	}
+
+	@Override
+	public Map<String, Double> getLastRenderWorkerBusyTimeMillis() {
+		final Recording last = lastRender;
+		if (last == null) {
+			return Collections.emptyMap();
+		}
+		final Map<String, Double> busyTimes = new HashMap<>();
+		last.workerBusyNanos.forEach((name, nanos) -> busyTimes.put(name, nanos.sum() / nanosPerMilli));
+		return busyTimes;
+	}
+
+	@Override
+	public synchronized long getTotalPixelCount() {
+		return totalPixelCount;
+	}
+
+	@Override
+	public synchronized double getTotalWallTimeMillis() {
+		return totalWallNanos / nanosPerMilli;
+	}
+
+	@Override
+	public synchronized double getTotalPixelsPerSecond() {
+		return perSecond(totalPixelCount, totalWallNanos);
+	}
+
+	@Override
+	public synchronized double getTotalComputeTimeMillis() {
+		return totalComputeNanos / nanosPerMilli;
+	}
+
+	@Override
+	public synchronized double getTotalUploadTimeMillis() {
+		return totalUploadNanos / nanosPerMilli;
+	}
+
+	@Override
+	public synchronized double getTotalWorkerBusyTimeMillis() {
+		return totalWorkerBusyNanos / nanosPerMilli;
+	}
+
+	@Override
+	public synchronized double getTotalAverageDescentDepth() {
+		return average(totalDescentDepthSum, totalPixelCount);
+	}
+
+	@Override
+	public synchronized long[] getDescentDepthHistogram() {
+		return descentDepthHistogram.clone();
+	}
+
+	@Override
+	public String[] getDescentDepthHistogramBucketLabels() {
+
+		final String[] labels = new String[descentDepthHistogramBucketCount];
+		labels[0] = "0";
+		for (int i = 1; i < labels.length; i++) {
+			final int from = 1 << (i - 1);
+			final int to = (1 << i) - 1;
+			if (i == labels.length - 1) {
+				labels[i] = from + "+";
+			} else if (from == to) {
+				labels[i] = Integer.toString(from);
+			} else {
+				labels[i] = from + "-" + to;
+			}
+		}
+		return labels;
+	}
+
+	@Override
+	public synchronized void reset() {
+
+		startedRenderCount.reset();
+		completedRenderCount.reset();
+		cancelledRenderCount.reset();
+		serviceRenderRequestCount.reset();
+		serviceCancellationCount.reset();
+
+		totalPixelCount = 0;
+		totalWallNanos = 0;
+		totalComputeNanos = 0;
+		totalUploadNanos = 0;
+		totalWorkerBusyNanos = 0;
+		totalDescentDepthSum = 0;
+		for (int i = 0; i < descentDepthHistogram.length; i++) {
+			descentDepthHistogram[i] = 0;
+		}
+
+		lastRender = null;
+	}
+
+	private static double perSecond(long count, long nanos) {
+		return nanos == 0 ? 0 : count * nanosPerSecond / nanos;
+	}
+
+	private static double average(long sum, long count) {
+		return count == 0 ? 0 : sum / (double) count;
+	}
+}
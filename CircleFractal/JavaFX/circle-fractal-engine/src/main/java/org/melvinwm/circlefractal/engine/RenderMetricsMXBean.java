@@ -0,0 +1,111 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.Map;
+
+/**
+ * Management interface for the circle-fractal render metrics, for use with
+ * standard JMX tooling such as JConsole and VisualVM.
+ * 
+ * <p>
+ * "Last render" figures are for the most recently completed render, and are 0
+ * if no render has completed yet. "Total" figures are cumulative over all
+ * completed renders since start-up or the last reset. "Start-up" figures are
+ * measured once from the launch of the JVM, are 0 until measured, and are not
+ * reset.
+ * 
+ * <p>
+ * Thread safety: Implementations must be thread-safe.
+ */
+public interface RenderMetricsMXBean {
+
+	// Counts.
+
+	long getStartedRenderCount();
+
+	long getCompletedRenderCount();
+
+	long getCancelledRenderCount();
+
+	long getServiceRenderRequestCount();
+
+	long getServiceCancellationCount();
+
+	// Start-up.
+
+	/**
+	 * @return Time from the launch of the JVM until the first frame was put on
+	 *         screen, which may be a frame persisted by an earlier session.
+	 */
+	long getLaunchToFirstFrameMillis();
+
+	/**
+	 * @return Time from the launch of the JVM until the first frame rendered by
+	 *         this JVM was put on screen.
+	 */
+	long getLaunchToFirstRenderedFrameMillis();
+
+	// Last render.
+
+	long getLastRenderPixelCount();
+
+	double getLastRenderWallTimeMillis();
+
+	double getLastRenderPixelsPerSecond();
+
+	double getLastRenderComputeTimeMillis();
+
+	/**
+	 * @return Time from the start of the last piece of work of the computation
+	 *         until its end, during which some workers are idle. Long tails mean
+	 *         the work was badly balanced between the workers.
+	 */
+	double getLastRenderTailTimeMillis();
+
+	/**
+	 * @return Time for letting the pixel sink finish once the computation is
+	 *         done, for instance by uploading the remaining pixels to the image.
+	 */
+	double getLastRenderUploadTimeMillis();
+
+	double getLastRenderAverageDescentDepth();
+
+	/**
+	 * @return Busy time in milliseconds per worker thread, keyed by thread name.
+	 */
+	Map<String, Double> getLastRenderWorkerBusyTimeMillis();
+
+	// Totals.
+
+	long getTotalPixelCount();
+
+	double getTotalWallTimeMillis();
+
+	double getTotalPixelsPerSecond();
+
+	double getTotalComputeTimeMillis();
+
+	double getTotalUploadTimeMillis();
+
+	double getTotalWorkerBusyTimeMillis();
+
+	double getTotalAverageDescentDepth();
+
+	/**
+	 * @return Number of pixels per descent depth bucket, see
+	 *         {@link #getDescentDepthHistogramBucketLabels()}.
+	 */
+	long[] getDescentDepthHistogram();
+
+	/**
+	 * @return Human-readable descent depth range for each bucket of
+	 *         {@link #getDescentDepthHistogram()}.
+	 */
+	String[] getDescentDepthHistogramBucketLabels();
+
+	// Operations.
+
+	/**
+	 * Resets all counts and figures, except the start-up figures.
+	 */
+	void reset();
+}
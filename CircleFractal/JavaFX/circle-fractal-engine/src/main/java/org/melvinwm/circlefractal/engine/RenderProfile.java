@@ -0,0 +1,151 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where the work of a single render went: The descent depth of every pixel, and
+ * the time spent on every tile, as recorded by {@link CircleFractalEngine} on
+ * its normal path. For debugging and tuning performance, for instance drawn as
+ * a heatmap by the application.
+ *
+ * <p>
+ * Thread safety: Recording is thread-safe as long as distinct pixels are
+ * recorded by distinct threads. Reading must happen after the render has
+ * finished.
+ */
+public final class RenderProfile {
+
+	public final int width;
+	public final int height;
+
+	private final int[] descentDepths;
+
+	// Guarded by 'tileTimes'.
+	private final List<TileTime> tileTimes = new ArrayList<>();
+
+	public RenderProfile(int width, int height) {
+
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException(
+					"The image size was not strictly positive: " + width + "x" + height + ".");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.descentDepths = new int[width * height];
+	}
+
+	void recordDescentDepth(int x, int y, int descentDepth) {
+		descentDepths[y * width + x] = descentDepth;
+	}
+
+	void recordTile(Tile tile, long nanos) {
+		synchronized (tileTimes) {
+			tileTimes.add(new TileTime(tile, nanos));
+		}
+	}
+
+	/**
+	 * @return The number of levels the descent for the pixel went through.
+	 */
+	public int getDescentDepth(int x, int y) {
+		return descentDepths[y * width + x];
+	}
+
+	/**
+	 * @return The time spent on each tile, in the order the tiles finished.
+	 */
+	public List<TileTime> getTileTimes() {
+		synchronized (tileTimes) {
+			return Collections.unmodifiableList(new ArrayList<>(tileTimes));
+		}
+	}
+
+	/**
+	 * Blocking: Yes.
+	 *
+	 * @return Summary statistics of the profile.
+	 */
+	public Summary getSummary() {
+
+		int minimumDepth = Integer.MAX_VALUE;
+		int maximumDepth = 0;
+		long depthSum = 0;
+		for (final int descentDepth : descentDepths) {
+			minimumDepth = Math.min(minimumDepth, descentDepth);
+			maximumDepth = Math.max(maximumDepth, descentDepth);
+			depthSum += descentDepth;
+		}
+
+		final long[] tileNanos = getTileTimes().stream().mapToLong(tileTime -> tileTime.nanos).sorted().toArray();
+		long tileNanosSum = 0;
+		for (final long nanos : tileNanos) {
+			tileNanosSum += nanos;
+		}
+
+		return new Summary(minimumDepth, depthSum / (double) descentDepths.length, maximumDepth, tileNanos.length,
+				tileNanos.length == 0 ? 0 : tileNanos[0], tileNanos.length == 0 ? 0 : tileNanos[tileNanos.length / 2],
+				tileNanos.length == 0 ? 0 : tileNanos[tileNanos.length - 1], tileNanosSum);
+	}
+
+	/**
+	 * The time spent computing a single tile.
+	 *
+	 * <p>
+	 * Thread safety: Immutable.
+	 */
+	public static final class TileTime {
+
+		public final Tile tile;
+		public final long nanos;
+
+		TileTime(Tile tile, long nanos) {
+			this.tile = tile;
+			this.nanos = nanos;
+		}
+	}
+
+	/**
+	 * Summary statistics of a profile.
+	 *
+	 * <p>
+	 * Thread safety: Immutable.
+	 */
+	public static final class Summary {
+
+		private static final double nanosPerMilli = 1_000_000.0;
+
+		public final int minimumDescentDepth;
+		public final double averageDescentDepth;
+		public final int maximumDescentDepth;
+		public final int tileCount;
+		public final long minimumTileNanos;
+		public final long medianTileNanos;
+		public final long maximumTileNanos;
+		public final long totalTileNanos;
+
+		Summary(int minimumDescentDepth, double averageDescentDepth, int maximumDescentDepth, int tileCount,
+				long minimumTileNanos, long medianTileNanos, long maximumTileNanos, long totalTileNanos) {
+			this.minimumDescentDepth = minimumDescentDepth;
+			this.averageDescentDepth = averageDescentDepth;
+			this.maximumDescentDepth = maximumDescentDepth;
+			this.tileCount = tileCount;
+			this.minimumTileNanos = minimumTileNanos;
+			this.medianTileNanos = medianTileNanos;
+			this.maximumTileNanos = maximumTileNanos;
+			this.totalTileNanos = totalTileNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"Descent depth: min %d, mean %.2f, max %d. Tiles: %d, time min %.3f ms, median %.3f ms, "
+							+ "max %.3f ms, total %.1f ms.",
+					minimumDescentDepth, averageDescentDepth, maximumDescentDepth, tileCount,
+					minimumTileNanos / nanosPerMilli, medianTileNanos / nanosPerMilli,
+					maximumTileNanos / nanosPerMilli, totalTileNanos / nanosPerMilli);
+		}
+	}
+}
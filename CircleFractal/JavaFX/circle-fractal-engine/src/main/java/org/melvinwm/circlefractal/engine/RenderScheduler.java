@@ -0,0 +1,359 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares a fixed set of worker threads between the renders of the JVM, by
+ * priority class, so that interactive renders such as previews are not slowed
+ * down by background renders such as exports.
+ *
+ * <p>
+ * Each render gets its own executor, see {@link #newExecutor}, whose tasks are
+ * normally tiles. A free worker takes the next task of an interactive render
+ * if there is any, and only otherwise of a background render, so interactive
+ * tasks overtake queued background tasks at task boundaries. Running tasks are
+ * never preempted. So that background renders are not starved by a steady
+ * stream of interactive renders, a background task is taken first once
+ * background tasks have waited for {@link #defaultMaximumBackgroundWaitMillis}
+ * without any of them being started. Renders of the same class take turns
+ * task by task.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+public final class RenderScheduler {
+
+	/**
+	 * The priority class of a render.
+	 */
+	public enum Priority {
+
+		/**
+		 * Renders that someone is waiting for, such as previews.
+		 */
+		INTERACTIVE,
+
+		/**
+		 * Renders that may take longer, such as exports.
+		 */
+		BACKGROUND
+	}
+
+	/**
+	 * The longest time that queued background tasks wait for a worker without any
+	 * of them being started, by default.
+	 */
+	public static final long defaultMaximumBackgroundWaitMillis = 100;
+
+	private static final RenderScheduler instance = new RenderScheduler(
+			Runtime.getRuntime().availableProcessors(), defaultMaximumBackgroundWaitMillis);
+
+	private final int workerCount;
+	private final long maximumBackgroundWaitNanos;
+
+	// Executors with queued tasks and room for running more, in turn order. Guarded
+	// by 'this'.
+	private final ArrayDeque<PriorityExecutor> readyInteractiveExecutors = new ArrayDeque<>();
+	private final ArrayDeque<PriorityExecutor> readyBackgroundExecutors = new ArrayDeque<>();
+	// Since when background tasks have waited without any being started. Guarded
+	// by 'this'.
+	private long backgroundWaitingSinceNanos;
+	private long starvationPreventionCount;
+
+	/**
+	 * @param workerCount
+	 *            Must be strictly positive.
+	 * @param maximumBackgroundWaitMillis
+	 *            The longest time that queued background tasks wait without any
+	 *            of them being started. Must not be negative.
+	 */
+	public RenderScheduler(int workerCount, long maximumBackgroundWaitMillis) {
+
+		if (workerCount <= 0 || maximumBackgroundWaitMillis < 0) {
+			throw new IllegalArgumentException("Invalid scheduler configuration: " + workerCount + " workers, "
+					+ maximumBackgroundWaitMillis + " ms maximum background wait.");
+		}
+
+		this.workerCount = workerCount;
+		this.maximumBackgroundWaitNanos = TimeUnit.MILLISECONDS.toNanos(maximumBackgroundWaitMillis);
+
+		// NOTE: Ownership (threads): Owned by this, which lives as long as it is
+		// used. Daemon threads, so they do not keep the JVM alive.
+		for (int i = 0; i < workerCount; i++) {
+			final Thread worker = new Thread(this::work, "circle-fractal-render-" + i);
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	/**
+	 * The shared instance, with a worker for every processor.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @return The shared instance.
+	 */
+	public static RenderScheduler getInstance() {
+		return instance;
+	}
+
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	/**
+	 * Blocking: No.
+	 *
+	 * @return The number of background tasks started ahead of waiting interactive
+	 *         tasks, so that background renders were not starved.
+	 */
+	public synchronized long getStarvationPreventionCount() {
+		return starvationPreventionCount;
+	}
+
+	/**
+	 * Creates an executor for the tasks of a render, running them on the workers
+	 * of this by the given priority.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @param parallelism
+	 *            The most tasks of the executor run at the same time. Must be
+	 *            strictly positive.
+	 * @return The executor. Must be shut down once done, which does not affect
+	 *         the workers.
+	 */
+	public ExecutorService newExecutor(Priority priority, int parallelism) {
+
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism was not strictly positive: " + parallelism + ".");
+		}
+
+		return new PriorityExecutor(priority, parallelism);
+	}
+
+	private ArrayDeque<PriorityExecutor> getReadyExecutors(Priority priority) {
+		return priority == Priority.INTERACTIVE ? readyInteractiveExecutors : readyBackgroundExecutors;
+	}
+
+	/*
+	 * Marks the executor as ready if it has queued tasks and room for running
+	 * more. Must hold the lock of this.
+	 */
+	private void updateReadiness(PriorityExecutor executor) {
+
+		final boolean isReady = !executor.queuedTasks.isEmpty() && executor.runningTasks.size() < executor.parallelism;
+		if (isReady && !executor.isReady) {
+
+			final ArrayDeque<PriorityExecutor> readyExecutors = getReadyExecutors(executor.priority);
+			if (executor.priority == Priority.BACKGROUND && readyExecutors.isEmpty()) {
+				backgroundWaitingSinceNanos = System.nanoTime();
+			}
+			readyExecutors.addLast(executor);
+			executor.isReady = true;
+			notifyAll();
+
+		} else if (!isReady && executor.isReady) {
+			getReadyExecutors(executor.priority).remove(executor);
+			executor.isReady = false;
+		}
+	}
+
+	/*
+	 * Takes the next task to run, waiting for one. Must hold the lock of this.
+	 */
+	private ScheduledTask take() throws InterruptedException {
+
+		while (readyInteractiveExecutors.isEmpty() && readyBackgroundExecutors.isEmpty()) {
+			wait();
+		}
+
+		final long nowNanos = System.nanoTime();
+		final boolean isBackgroundStarving = !readyBackgroundExecutors.isEmpty()
+				&& nowNanos - backgroundWaitingSinceNanos >= maximumBackgroundWaitNanos;
+
+		final ArrayDeque<PriorityExecutor> readyExecutors;
+		if (readyInteractiveExecutors.isEmpty() || isBackgroundStarving) {
+			readyExecutors = readyBackgroundExecutors;
+			backgroundWaitingSinceNanos = nowNanos;
+			if (!readyInteractiveExecutors.isEmpty()) {
+				starvationPreventionCount++;
+			}
+		} else {
+			readyExecutors = readyInteractiveExecutors;
+		}
+
+		// Renders of the same class take turns.
+		final PriorityExecutor executor = readyExecutors.pollFirst();
+		executor.isReady = false;
+
+		final ScheduledTask task = executor.queuedTasks.pollFirst();
+		task.thread = Thread.currentThread();
+		executor.runningTasks.add(task);
+
+		updateReadiness(executor);
+		return task;
+	}
+
+	private void work() {
+
+		while (true) {
+
+			final ScheduledTask task;
+			synchronized (this) {
+				try {
+					task = take();
+				} catch (InterruptedException e) {
+					// The workers are never interrupted while waiting, only while running tasks.
+					continue;
+				}
+			}
+
+			try {
+				task.runnable.run();
+			} catch (RuntimeException | Error e) {
+				// Tasks are normally futures, which keep their own failures. Keep the worker.
+				Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+			} finally {
+
+				synchronized (this) {
+					task.thread = null;
+					task.executor.runningTasks.remove(task);
+					updateReadiness(task.executor);
+					notifyAll();
+				}
+
+				// Clear an interruption from the executor of the task, which can no longer
+				// happen now that the task is done.
+				Thread.interrupted();
+			}
+		}
+	}
+
+	private static final class ScheduledTask {
+
+		final PriorityExecutor executor;
+		final Runnable runnable;
+		// The worker running the task, or null if not running. Guarded by the
+		// scheduler.
+		Thread thread;
+
+		ScheduledTask(PriorityExecutor executor, Runnable runnable) {
+			this.executor = executor;
+			this.runnable = runnable;
+		}
+	}
+
+	/*
+	 * The executor of a single render. Its state is guarded by the scheduler.
+	 */
+	private final class PriorityExecutor extends AbstractExecutorService {
+
+		final Priority priority;
+		final int parallelism;
+		final ArrayDeque<ScheduledTask> queuedTasks = new ArrayDeque<>();
+		final Set<ScheduledTask> runningTasks = new HashSet<>();
+		boolean isReady;
+		boolean isShutdown;
+
+		PriorityExecutor(Priority priority, int parallelism) {
+			this.priority = priority;
+			this.parallelism = parallelism;
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			synchronized (RenderScheduler.this) {
+				if (isShutdown) {
+					throw new RejectedExecutionException("The render executor was shut down.");
+				}
+				queuedTasks.addLast(new ScheduledTask(this, command));
+				updateReadiness(this);
+			}
+		}
+
+		@Override
+		public void shutdown() {
+			synchronized (RenderScheduler.this) {
+				isShutdown = true;
+			}
+		}
+
+		/**
+		 * Removes the queued tasks, cancelling those that are futures, and interrupts
+		 * the running tasks.
+		 */
+		@Override
+		public List<Runnable> shutdownNow() {
+
+			final List<Runnable> removed = new ArrayList<>();
+			synchronized (RenderScheduler.this) {
+
+				isShutdown = true;
+
+				for (final ScheduledTask task : queuedTasks) {
+					removed.add(task.runnable);
+				}
+				queuedTasks.clear();
+				updateReadiness(this);
+
+				for (final ScheduledTask task : runningTasks) {
+					task.thread.interrupt();
+				}
+
+				RenderScheduler.this.notifyAll();
+			}
+
+			// Let callers waiting for the removed tasks stop waiting.
+			for (final Runnable runnable : removed) {
+				if (runnable instanceof Future) {
+					((Future<?>) runnable).cancel(false);
+				}
+			}
+
+			return Collections.unmodifiableList(removed);
+		}
+
+		@Override
+		public boolean isShutdown() {
+			synchronized (RenderScheduler.this) {
+				return isShutdown;
+			}
+		}
+
+		@Override
+		public boolean isTerminated() {
+			synchronized (RenderScheduler.this) {
+				return isShutdown && queuedTasks.isEmpty() && runningTasks.isEmpty();
+			}
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+
+			final long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+			synchronized (RenderScheduler.this) {
+				while (!(isShutdown && queuedTasks.isEmpty() && runningTasks.isEmpty())) {
+					final long remainingNanos = deadlineNanos - System.nanoTime();
+					if (remainingNanos <= 0) {
+						return false;
+					}
+					TimeUnit.NANOSECONDS.timedWait(RenderScheduler.this, remainingNanos);
+				}
+				return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.Optional;
+
+/**
+ * How {@link CircleFractalEngine} divides and computes the work of a render:
+ * The execution, the granularity of the tasks, and the kernel. None of these
+ * change the colors, except that the single-precision kernel may be used, see
+ * {@link Kernel#SINGLE_PRECISION}, or the exact kernel, see
+ * {@link Kernel#EXACT}. Which strategy is fastest depends on the machine and
+ * the size of the image, see {@link RenderAutoTuner}.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+public final class RenderStrategy {
+
+	/**
+	 * How the tasks of a render are run.
+	 */
+	public enum Execution {
+
+		/**
+		 * Bands of rows on a single worker. The granularity is the number of rows of
+		 * a band.
+		 */
+		SEQUENTIAL,
+
+		/**
+		 * Bands of rows on all workers. The granularity is the number of rows of a
+		 * band.
+		 */
+		PARALLEL_ROWS,
+
+		/**
+		 * Tiles of about equal estimated cost on all workers, most expensive first,
+		 * see {@link CostMap}. The granularity is the number of tiles per worker.
+		 */
+		PARALLEL_TILES
+	}
+
+	/**
+	 * How the colors of the pixels are computed.
+	 */
+	public enum Kernel {
+
+		/**
+		 * The reference kernel, sharing work between neighbouring pixels in blocks,
+		 * see {@link PointToColorCalculator#coherentBlockSize}.
+		 */
+		BLOCKS,
+
+		/**
+		 * The reference kernel, pixel by pixel.
+		 */
+		PIXELS,
+
+		/**
+		 * The single-precision kernel where its colors stay within the tolerance,
+		 * see {@link SinglePrecisionKernelSelector}, otherwise as {@link #BLOCKS}.
+		 */
+		SINGLE_PRECISION,
+
+		/**
+		 * The nearest circle searched over all the circles, see
+		 * {@link ExactPointToColorCalculator}, pixel by pixel. The colors are those
+		 * of the reference kernel up to rounding, and the descent depths are the
+		 * depths of the nearest circles.
+		 */
+		EXACT
+	}
+
+	// The granularity of the strategies used when not tuned.
+	static final int defaultRowsPerBand = PointToColorCalculator.coherentBlockSize;
+	static final int defaultTilesPerWorker = 8;
+
+	public final Execution execution;
+	public final int granularity;
+	public final Kernel kernel;
+
+	/**
+	 * @param granularity
+	 *            See {@link Execution}. For bands of rows, a multiple of
+	 *            {@link PointToColorCalculator#coherentBlockSize}, so that the
+	 *            bands do not cut through the blocks of the kernel.
+	 * @throws IllegalArgumentException
+	 *             If the granularity is not valid for the execution.
+	 */
+	public RenderStrategy(Execution execution, int granularity, Kernel kernel) {
+
+		if (granularity <= 0 || (execution != Execution.PARALLEL_TILES
+				&& granularity % PointToColorCalculator.coherentBlockSize != 0)) {
+			throw new IllegalArgumentException("Invalid granularity for " + execution + ": " + granularity + ".");
+		}
+
+		this.execution = execution;
+		this.granularity = granularity;
+		this.kernel = kernel;
+	}
+
+	/**
+	 * @return The strategy used when not tuned: Tiles of about equal cost if
+	 *         parallelized, otherwise bands of rows, with the reference kernel or
+	 *         the single-precision kernel if allowed.
+	 */
+	public static RenderStrategy of(boolean isParallelizedComputation, boolean isSinglePrecisionAllowed) {
+		return new RenderStrategy(isParallelizedComputation ? Execution.PARALLEL_TILES : Execution.SEQUENTIAL,
+				isParallelizedComputation ? defaultTilesPerWorker : defaultRowsPerBand,
+				isSinglePrecisionAllowed ? Kernel.SINGLE_PRECISION : Kernel.BLOCKS);
+	}
+
+	/**
+	 * @return Whether the tasks run on all workers.
+	 */
+	public boolean isParallelized() {
+		return execution != Execution.SEQUENTIAL;
+	}
+
+	/**
+	 * @return The kernel with the same colors as this strategy's: The reference
+	 *         kernel in blocks for either reference kernel.
+	 */
+	public Kernel getResultKernel() {
+		return kernel == Kernel.PIXELS ? Kernel.BLOCKS : kernel;
+	}
+
+	/**
+	 * @return This strategy, with the reference kernel instead of the
+	 *         single-precision kernel if that is not allowed.
+	 */
+	public RenderStrategy withSinglePrecisionAllowed(boolean isSinglePrecisionAllowed) {
+		return kernel == Kernel.SINGLE_PRECISION && !isSinglePrecisionAllowed
+				? new RenderStrategy(execution, granularity, Kernel.BLOCKS)
+				: this;
+	}
+
+	/**
+	 * Parses a strategy formatted by {@link #toString()}.
+	 *
+	 * @return The strategy, or empty if malformed.
+	 */
+	public static Optional<RenderStrategy> parse(String text) {
+
+		final String[] parts = text.trim().split("/");
+		if (parts.length != 3) {
+			return Optional.empty();
+		}
+
+		try {
+			return Optional.of(new RenderStrategy(Execution.valueOf(parts[0]), Integer.parseInt(parts[1]),
+					Kernel.valueOf(parts[2])));
+		} catch (IllegalArgumentException e) {
+			// Includes 'NumberFormatException'.
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public boolean equals(Object other) {
+
+		if (!(other instanceof RenderStrategy)) {
+			return false;
+		}
+
+		final RenderStrategy strategy = (RenderStrategy) other;
+		return execution == strategy.execution && granularity == strategy.granularity && kernel == strategy.kernel;
+	}
+
+	@Override
+	public int hashCode() {
+		return (execution.hashCode() * 31 + granularity) * 31 + kernel.hashCode();
+	}
+
+	/**
+	 * @return For instance "PARALLEL_TILES/8/BLOCKS".
+	 */
+	@Override
+	public String toString() {
+		return execution + "/" + granularity + "/" + kernel;
+	}
+}
@@ -0,0 +1,131 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * The fastest {@link RenderStrategy} for each range of image sizes on a
+ * machine, as found by {@link RenderAutoTuner}.
+ *
+ * <p>
+ * The ranges are by pixel count, up to and including each of
+ * {@link #maximumPixelCounts}. A tuning only applies to the number of workers
+ * it was calibrated with, see {@link #isFor(RenderScheduler)}.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+public final class RenderTuning {
+
+	static final long[] maximumPixelCounts = new long[] { 256L * 1024, 1024L * 1024, Long.MAX_VALUE };
+
+	public final int workerCount;
+	// For each size range.
+	private final List<RenderStrategy> strategies;
+
+	/**
+	 * @param strategies
+	 *            The strategy for each size range, smallest first.
+	 * @throws IllegalArgumentException
+	 *             If there is not a strategy for every size range.
+	 */
+	public RenderTuning(int workerCount, List<RenderStrategy> strategies) {
+
+		if (strategies.size() != maximumPixelCounts.length) {
+			throw new IllegalArgumentException("Expected " + maximumPixelCounts.length + " strategies, got "
+					+ strategies.size() + ".");
+		}
+
+		this.workerCount = workerCount;
+		this.strategies = Collections.unmodifiableList(new ArrayList<>(strategies));
+	}
+
+	/**
+	 * @return The index of the size range of the image.
+	 */
+	static int getSizeRange(int width, int height) {
+
+		final long pixelCount = (long) width * height;
+		int sizeRange = 0;
+		while (pixelCount > maximumPixelCounts[sizeRange]) {
+			sizeRange++;
+		}
+		return sizeRange;
+	}
+
+	/**
+	 * @return The strategy for images of the given size.
+	 */
+	public RenderStrategy getStrategy(int width, int height) {
+		return strategies.get(getSizeRange(width, height));
+	}
+
+	/**
+	 * @return The strategy for each size range, smallest first.
+	 */
+	public List<RenderStrategy> getStrategies() {
+		return strategies;
+	}
+
+	/**
+	 * @return Whether this was calibrated with the number of workers of the
+	 *         scheduler.
+	 */
+	public boolean isFor(RenderScheduler scheduler) {
+		return workerCount == scheduler.getWorkerCount();
+	}
+
+	public Properties toProperties() {
+
+		final Properties properties = new Properties();
+		properties.setProperty("workerCount", Integer.toString(workerCount));
+		properties.setProperty("maximumPixelCounts", formatMaximumPixelCounts());
+		for (int sizeRange = 0; sizeRange < strategies.size(); sizeRange++) {
+			properties.setProperty("strategy." + sizeRange, strategies.get(sizeRange).toString());
+		}
+		return properties;
+	}
+
+	private static String formatMaximumPixelCounts() {
+		return LongStream.of(maximumPixelCounts).mapToObj(Long::toString).collect(Collectors.joining(","));
+	}
+
+	/**
+	 * @return The tuning, or empty if any property is missing or malformed, or if
+	 *         the tuning is for other size ranges.
+	 */
+	public static Optional<RenderTuning> fromProperties(Properties properties) {
+
+		if (!formatMaximumPixelCounts().equals(properties.getProperty("maximumPixelCounts"))) {
+			return Optional.empty();
+		}
+
+		final List<RenderStrategy> strategies = new ArrayList<>();
+		for (int sizeRange = 0; sizeRange < maximumPixelCounts.length; sizeRange++) {
+			final Optional<RenderStrategy> strategy = RenderStrategy
+					.parse(properties.getProperty("strategy." + sizeRange, ""));
+			if (!strategy.isPresent()) {
+				return Optional.empty();
+			}
+			strategies.add(strategy.get());
+		}
+
+		try {
+			return Optional.of(new RenderTuning(Integer.parseInt(properties.getProperty("workerCount")), strategies));
+		} catch (NumberFormatException e) {
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RenderTuning [workerCount=" + workerCount + ", maximumPixelCounts="
+				+ Arrays.toString(maximumPixelCounts) + ", strategies=" + strategies + "]";
+	}
+}
@@ -0,0 +1,22 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * A rendered tile of a circle-fractal image, see {@link TilePublisher}.
+ *
+ * <p>
+ * Thread safety: Immutable, as long as the pixels are not modified.
+ */
+public final class RenderedTile {
+
+	public final Tile tile;
+
+	/**
+	 * The ARGB colors of the tile, in row-major order. Must not be modified.
+	 */
+	public final int[] argb;
+
+	RenderedTile(Tile tile, int[] argb) {
+		this.tile = tile;
+		this.argb = argb;
+	}
+}
@@ -0,0 +1,321 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A tile or frame stored run-length encoded, for keeping many of them in
+ * caches. Circle-fractal images consist mostly of runs of the same color, such
+ * as the black insides of the circles and the bands of the far fields, so for
+ * frames of 1000x700 pixels this is typically more than 10 times smaller than
+ * ARGB pixels, and more for larger frames, see {@link #getCompressionRatio()}.
+ *
+ * <p>
+ * The runs are of palette indices, see {@link IndexedColors}, within a row.
+ * Neighbouring runs mostly differ by a few steps of the palette, so a run of up
+ * to {@value #shortRunMaximumLength} pixels whose index differs from the
+ * previous run in the row by -{@value #shortRunMaximumDelta} to
+ * {@value #shortRunMaximumDelta} - 1 is stored in a single byte, and any other
+ * run as a marker byte followed by a variable-length integer of 7 bits per byte,
+ * holding the index in the lowest 9 bits and the length minus 1 above them. The
+ * start of every {@value #rowIndexInterval}th row is indexed, so that bands of
+ * rows can be decoded on their own, for instance straight into an image or a
+ * PNG encoder a band at a time, without decoding the whole tile.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+public final class RunLengthTile {
+
+	// Rows between the indexed row starts.
+	static final int rowIndexInterval = 16;
+
+	// Single-byte runs: 0, then the index delta in 3 bits, then the length minus 1
+	// in 4 bits.
+	static final int shortRunMaximumDelta = 4;
+	static final int shortRunMaximumLength = 16;
+	private static final int longRunMarker = 0x80;
+
+	private static final int indexBits = 9;
+	private static final int indexMask = (1 << indexBits) - 1;
+	// Longer runs are split, so that the stored values stay positive.
+	private static final int maximumRunLength = 1 << (31 - indexBits);
+
+	// Estimated size of the objects, in addition to the contents of the arrays.
+	private static final int overheadBytes = 64;
+
+	public final int width;
+	public final int height;
+
+	private final byte[] runs;
+	// Offset in 'runs' of the start of every 'rowIndexInterval'th row.
+	private final int[] rowOffsets;
+
+	private RunLengthTile(int width, int height, byte[] runs, int[] rowOffsets) {
+		this.width = width;
+		this.height = height;
+		this.runs = runs;
+		this.rowOffsets = rowOffsets;
+	}
+
+	/**
+	 * Encodes ARGB colors.
+	 *
+	 * <p>
+	 * Blocking: Yes, linear in the number of pixels.
+	 *
+	 * @param argb
+	 *            Colors of the palette, see {@link IndexedColors}, in row-major
+	 *            order.
+	 * @throws IllegalArgumentException
+	 *             If the number of colors does not match the size, or a color
+	 *             is not in the palette.
+	 */
+	public static RunLengthTile encode(int[] argb, int width, int height) {
+
+		if (width <= 0 || height <= 0 || argb.length != width * height) {
+			throw new IllegalArgumentException(
+					"Expected " + width + "x" + height + " colors, got " + argb.length + ".");
+		}
+
+		return encode(width, height, pixel -> IndexedColors.toIndex(argb[pixel]));
+	}
+
+	/**
+	 * Encodes an indexed frame.
+	 *
+	 * <p>
+	 * Blocking: Yes, linear in the number of pixels.
+	 */
+	public static RunLengthTile encode(IndexedFrame frame) {
+		return encode(frame.width, frame.height, frame::getIndex);
+	}
+
+	private static RunLengthTile encode(int width, int height, IntUnaryOperator indexOfPixel) {
+
+		final ByteArrayOutputStream runs = new ByteArrayOutputStream(width * height / 16 + 16);
+		final int[] rowOffsets = new int[(height + rowIndexInterval - 1) / rowIndexInterval];
+
+		for (int y = 0; y < height; y++) {
+
+			if (y % rowIndexInterval == 0) {
+				rowOffsets[y / rowIndexInterval] = runs.size();
+			}
+
+			final int rowStart = y * width;
+			int previousIndex = 0;
+			int runStart = 0;
+			int runIndex = indexOfPixel.applyAsInt(rowStart);
+			for (int x = 1; x <= width; x++) {
+				final int index = x < width ? indexOfPixel.applyAsInt(rowStart + x) : -1;
+				if (index != runIndex) {
+					writeRun(runs, previousIndex, runIndex, x - runStart);
+					previousIndex = runIndex;
+					runStart = x;
+					runIndex = index;
+				}
+			}
+		}
+
+		return new RunLengthTile(width, height, runs.toByteArray(), rowOffsets);
+	}
+
+	private static void writeRun(ByteArrayOutputStream runs, int previousIndex, int index, int length) {
+
+		final int delta = index - previousIndex;
+		if (delta >= -shortRunMaximumDelta && delta < shortRunMaximumDelta && length <= shortRunMaximumLength) {
+			runs.write(((delta + shortRunMaximumDelta) << 4) | (length - 1));
+			return;
+		}
+
+		if (length > maximumRunLength) {
+			writeRun(runs, previousIndex, index, maximumRunLength);
+			writeRun(runs, index, index, length - maximumRunLength);
+			return;
+		}
+
+		runs.write(longRunMarker);
+		int value = ((length - 1) << indexBits) | index;
+		while (value >= 0x80) {
+			runs.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		runs.write(value);
+	}
+
+	/**
+	 * Restores a tile from its runs, see {@link #getRuns()}, for instance read
+	 * back from a file.
+	 *
+	 * <p>
+	 * Blocking: Yes, linear in the number of runs.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the runs are not exactly those of a tile of the given size,
+	 *             for instance if they were damaged.
+	 */
+	public static RunLengthTile fromRuns(int width, int height, byte[] runs) {
+
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Invalid tile size: " + width + "x" + height + ".");
+		}
+
+		final int[] rowOffsets = new int[(height + rowIndexInterval - 1) / rowIndexInterval];
+		int position = 0;
+		int x = 0;
+		int index = 0;
+		for (int y = 0; y < height;) {
+
+			if (x == 0 && y % rowIndexInterval == 0) {
+				rowOffsets[y / rowIndexInterval] = position;
+			}
+			if (position >= runs.length) {
+				throw new IllegalArgumentException("The runs ended at row " + y + " of " + height + ".");
+			}
+
+			final int first = runs[position++] & 0xFF;
+			final int length;
+			if (first < longRunMarker) {
+				index += (first >>> 4) - shortRunMaximumDelta;
+				length = (first & 0xF) + 1;
+			} else if (first != longRunMarker) {
+				throw new IllegalArgumentException("Invalid run at row " + y + ", column " + x + ".");
+			} else {
+				long value = 0;
+				int shift = 0;
+				int b;
+				do {
+					if (position >= runs.length || shift > 28) {
+						throw new IllegalArgumentException("Malformed run at row " + y + ".");
+					}
+					b = runs[position++];
+					value |= (long) (b & 0x7F) << shift;
+					shift += 7;
+				} while ((b & 0x80) != 0);
+				if (value > Integer.MAX_VALUE) {
+					throw new IllegalArgumentException("Malformed run at row " + y + ".");
+				}
+
+				index = (int) (value & indexMask);
+				length = (int) (value >>> indexBits) + 1;
+			}
+
+			if (index < 0 || index >= IndexedColors.colorCount || length > width - x) {
+				throw new IllegalArgumentException("Invalid run at row " + y + ", column " + x + ".");
+			}
+
+			x += length;
+			if (x == width) {
+				x = 0;
+				index = 0;
+				y++;
+			}
+		}
+
+		if (position != runs.length) {
+			throw new IllegalArgumentException(
+					(runs.length - position) + " bytes remained after the runs of " + width + "x" + height + ".");
+		}
+
+		return new RunLengthTile(width, height, runs.clone(), rowOffsets);
+	}
+
+	/**
+	 * @return The encoded runs, from which the tile can be restored with
+	 *         {@link #fromRuns}.
+	 */
+	public byte[] getRuns() {
+		return runs.clone();
+	}
+
+	/**
+	 * Decodes the rows from 'fromY' inclusive to 'toY' exclusive.
+	 *
+	 * <p>
+	 * Blocking: Yes, linear in the number of decoded pixels, plus up to
+	 * {@value #rowIndexInterval} rows skipped.
+	 *
+	 * @param argbOut
+	 *            Destination. The pixel at column 'x' of row 'fromY + y' is
+	 *            written at 'offset + y * stride + x'.
+	 */
+	public void decodeRows(int fromY, int toY, int[] argbOut, int offset, int stride) {
+
+		if (fromY < 0 || toY > height || fromY > toY) {
+			throw new IllegalArgumentException(
+					"Rows " + fromY + " to " + toY + " are not within the height " + height + ".");
+		}
+
+		int position = rowOffsets[Math.min(fromY / rowIndexInterval, rowOffsets.length - 1)];
+		int y = fromY / rowIndexInterval * rowIndexInterval;
+		int x = 0;
+		int index = 0;
+
+		while (y < toY) {
+
+			final int first = runs[position++] & 0xFF;
+			final int length;
+			if (first != longRunMarker) {
+				index += (first >>> 4) - shortRunMaximumDelta;
+				length = (first & 0xF) + 1;
+			} else {
+				// Read a variable-length run.
+				int value = 0;
+				int shift = 0;
+				int b;
+				do {
+					b = runs[position++];
+					value |= (b & 0x7F) << shift;
+					shift += 7;
+				} while ((b & 0x80) != 0);
+
+				index = value & indexMask;
+				length = (value >>> indexBits) + 1;
+			}
+
+			if (y >= fromY) {
+				final int argb = IndexedColors.toArgb(index);
+				final int start = offset + (y - fromY) * stride + x;
+				for (int i = start; i < start + length; i++) {
+					argbOut[i] = argb;
+				}
+			}
+
+			x += length;
+			if (x == width) {
+				x = 0;
+				index = 0;
+				y++;
+			}
+		}
+	}
+
+	/**
+	 * Decodes the whole tile.
+	 *
+	 * <p>
+	 * Blocking: Yes, linear in the number of pixels.
+	 *
+	 * @return The ARGB colors, in row-major order.
+	 */
+	public int[] toArgb() {
+		final int[] argb = new int[width * height];
+		decodeRows(0, height, argb, 0, width);
+		return argb;
+	}
+
+	/**
+	 * @return The estimated memory used by this, in bytes.
+	 */
+	public long getSizeBytes() {
+		return overheadBytes + runs.length + 4L * rowOffsets.length;
+	}
+
+	/**
+	 * @return The size of the tile as ARGB pixels relative to the size of this,
+	 *         see {@link #getSizeBytes()}.
+	 */
+	public double getCompressionRatio() {
+		return 4.0 * width * height / getSizeBytes();
+	}
+}
@@ -0,0 +1,166 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Selects the single-precision kernel {@link SinglePrecisionPointToColorCalculator}
+ * only for parameters where its colors stay within a configured tolerance of
+ * the reference kernel {@link PointToColorCalculator}, and otherwise the
+ * reference kernel.
+ *
+ * <p>
+ * The tolerance is the maximum deviation in color, see {@link ColorDeviation},
+ * configured with the system property {@value #toleranceProperty}, with
+ * default {@value #defaultTolerance}.
+ *
+ * <p>
+ * Two checks are done:
+ * <ul>
+ * <li>The cut-off must be large enough. The color is interpolated over the
+ * cut-off distance, so an error in distance is magnified by 255 / cut-off, and
+ * with a cut-off of 0, a point on the edge of a circle can flip between black
+ * and red for any rounding difference.
+ * <li>The deviation measured on every pixel of the image must be within the
+ * tolerance. The measurement renders the image with both kernels, so it is
+ * done in the background, at {@link RenderScheduler.Priority#BACKGROUND}
+ * priority on the shared workers, and the reference kernel is selected until
+ * it is done. The results of the most recently used parameter sets are cached.
+ * </ul>
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+final class SinglePrecisionKernelSelector {
+
+	static final String toleranceProperty = "circlefractal.singlePrecisionTolerance";
+	static final int defaultTolerance = 2;
+
+	// Relative error assumed for the single-precision distances, conservatively
+	// larger than the 2^-24 of a single rounding.
+	private static final double relativeDistanceError = Math.pow(2, -20);
+
+	private static final int maximumCacheSize = 1000;
+
+	// Guarded by 'measurements'. In access order, least recently used first.
+	private static final LinkedHashMap<String, CompletableFuture<Boolean>> measurements = new LinkedHashMap<>(16,
+			0.75f, true);
+
+	// NOTE: Ownership (executor): Owned by this class and never shut down, its
+	// tasks run on the daemon workers of the shared scheduler.
+	private static final ExecutorService measurementExecutor = RenderScheduler.getInstance()
+			.newExecutor(RenderScheduler.Priority.BACKGROUND, 1);
+
+	private static final Logger logger = LogManager.getLogger(CircleFractalEngine.class);
+
+	private SinglePrecisionKernelSelector() {
+	}
+
+	/**
+	 * @return The configured tolerance.
+	 */
+	static int getTolerance() {
+		return Integer.getInteger(toleranceProperty, defaultTolerance);
+	}
+
+	/**
+	 * Selects the kernel for an image, see {@link PointToColorCalculator#forImage}
+	 * for the arguments.
+	 *
+	 * <p>
+	 * Blocking: No. The first time for a given parameter set, the deviation is
+	 * measured in the background, and the reference kernel is selected until
+	 * then.
+	 *
+	 * @return The single-precision kernel if it is within the tolerance,
+	 *         otherwise the reference kernel.
+	 */
+	static PointToColorKernel select(int width, int height, int numberOfIterations, int divisionFactor,
+			double cutOff) {
+
+		if (isWithinTolerance(width, height, numberOfIterations, divisionFactor, cutOff).getNow(false)) {
+			return SinglePrecisionPointToColorCalculator.forImage(width, height, numberOfIterations, divisionFactor,
+					cutOff);
+		}
+
+		return PointToColorCalculator.forImage(width, height, numberOfIterations, divisionFactor, cutOff);
+	}
+
+	/**
+	 * Whether the single-precision kernel stays within the tolerance for an image,
+	 * see {@link PointToColorCalculator#forImage} for the arguments. Starts
+	 * measuring the deviation in the background the first time for a given
+	 * parameter set.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @return Completed with whether the kernel is within the tolerance once
+	 *         known.
+	 */
+	static CompletableFuture<Boolean> isWithinTolerance(int width, int height, int numberOfIterations,
+			int divisionFactor, double cutOff) {
+
+		final int tolerance = getTolerance();
+
+		if (!isCutOffLargeEnough(width, height, cutOff, tolerance)) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		final String key = width + "x" + height + ":" + numberOfIterations + ":" + divisionFactor + ":" + cutOff
+				+ ":" + tolerance;
+
+		final CompletableFuture<Boolean> measurement;
+		synchronized (measurements) {
+
+			final CompletableFuture<Boolean> existing = measurements.get(key);
+			if (existing != null) {
+				return existing;
+			}
+
+			measurement = new CompletableFuture<>();
+			measurements.put(key, measurement);
+
+			for (final Iterator<CompletableFuture<Boolean>> iterator = measurements.values()
+					.iterator(); measurements.size() > maximumCacheSize && iterator.hasNext();) {
+				iterator.next();
+				iterator.remove();
+			}
+		}
+
+		measurementExecutor.execute(() -> {
+			try {
+				final ColorDeviation deviation = ColorDeviation.measure(
+						PointToColorCalculator.forImage(width, height, numberOfIterations, divisionFactor, cutOff),
+						SinglePrecisionPointToColorCalculator.forImage(width, height, numberOfIterations,
+								divisionFactor, cutOff),
+						width, height, 1);
+				logger.debug("Single-precision kernel deviation for {}: {}.", key, deviation);
+				measurement.complete(deviation.maximum <= tolerance);
+			} catch (RuntimeException e) {
+				logger.error("Measuring the single-precision kernel deviation for " + key + " failed.", e);
+				measurement.complete(false);
+			}
+		});
+
+		return measurement;
+	}
+
+	/**
+	 * @return Whether the cut-off is large enough for the error in distance of
+	 *         the single-precision kernel to stay within the tolerance.
+	 */
+	static boolean isCutOffLargeEnough(int width, int height, double cutOff, int tolerance) {
+
+		// The coordinates are bounded by the image size and the start circle.
+		final double maximumCoordinate = Math.max(width, height) + PointToColorCalculator.startRadius;
+		final double distanceError = maximumCoordinate * relativeDistanceError;
+
+		return tolerance > 0 && cutOff >= 255 * distanceError / tolerance;
+	}
+}
@@ -0,0 +1,162 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Calculates color for given points in the circle-fractal, using
+ * single-precision floating point numbers.
+ *
+ * <p>
+ * Approximates {@link PointToColorCalculator}, and is faster but less precise.
+ * Besides using 'float', it avoids trigonometric functions: The partition of
+ * space a point is in is found by comparing the coordinates of the point
+ * relative to the current circle, and the directions of new circles are exact
+ * unit vectors. The resulting colors may therefore deviate slightly from those
+ * of {@link PointToColorCalculator}, see {@link ColorDeviation} and
+ * {@link SinglePrecisionKernelSelector}.
+ *
+ * <p>
+ * Thread safety: Immutable and referentially transparent.
+ */
+final class SinglePrecisionPointToColorCalculator implements PointToColorKernel {
+
+	// Unit vectors for the directions 0 to 3, counter-clockwise from the x-axis.
+	private static final float[] directionX = new float[] { 1.0f, 0.0f, -1.0f, 0.0f };
+	private static final float[] directionY = new float[] { 0.0f, 1.0f, 0.0f, -1.0f };
+
+	private final float centerX;
+	private final float centerY;
+	private final int numberOfIterations;
+	private final float maximumDistance;
+	private final float inverseDivisionFactor;
+	private final float cutOff;
+
+	/**
+	 * See {@link PointToColorCalculator#PointToColorCalculator}, with the same
+	 * requirements for the arguments.
+	 */
+	SinglePrecisionPointToColorCalculator(double centerX, double centerY, int numberOfIterations,
+			double maximumDistance, int divisionFactor, double cutOff) {
+
+		// Validate the arguments the same way as the reference implementation.
+		new PointToColorCalculator(centerX, centerY, numberOfIterations, maximumDistance, divisionFactor, cutOff);
+
+		this.centerX = (float) centerX;
+		this.centerY = (float) centerY;
+		this.numberOfIterations = numberOfIterations;
+		this.maximumDistance = (float) maximumDistance;
+		this.inverseDivisionFactor = 1.0f / divisionFactor;
+		this.cutOff = (float) cutOff;
+	}
+
+	/**
+	 * See {@link PointToColorCalculator#forImage}.
+	 */
+	static SinglePrecisionPointToColorCalculator forImage(int width, int height, int numberOfIterations,
+			int divisionFactor, double cutOff) {
+
+		final double centerX = width / 2.0;
+		final double centerY = height / 2.0;
+		final double maximumDistance = PointToColorCalculator.calcLength(centerX, centerY) + 10;
+
+		return new SinglePrecisionPointToColorCalculator(centerX, centerY, numberOfIterations, maximumDistance,
+				divisionFactor, cutOff);
+	}
+
+	/*
+	 * Gets the new direction for the given point relative to the current circle,
+	 * choosing the same partition of space as 'PointToColorCalculator', but by
+	 * comparing coordinates instead of angles.
+	 */
+	private static int getNewDirection(float dx, float dy, int dir) {
+
+		// Rotate the point so that the current direction is along the x-axis.
+		final float u;
+		final float v;
+		switch (dir) {
+		case 0:
+			u = dx;
+			v = dy;
+			break;
+		case 1:
+			u = dy;
+			v = -dx;
+			break;
+		case 2:
+			u = -dx;
+			v = -dy;
+			break;
+		default:
+			u = -dy;
+			v = dx;
+			break;
+		}
+
+		if ((u == 0.0f && v == 0.0f) || (u > 0.0f && v <= u && v > -u)) {
+			// Within 45 degrees of the current direction, or at the center.
+			return dir;
+		} else if (v > 0.0f || (v == 0.0f && u < 0.0f)) {
+			// Left of the current direction.
+			return (dir + 1) % 4;
+		} else {
+			// Right of the current direction.
+			return (dir + 3) % 4;
+		}
+	}
+
+	private float getDistance(int x, int y, int[] descentDepthOut) {
+
+		float cx = centerX;
+		float cy = centerY;
+		float r = (float) PointToColorCalculator.startRadius;
+		int dir = PointToColorCalculator.startDirection;
+		float distanceSoFar = maximumDistance;
+		int descentDepth = 0;
+
+		for (int n = numberOfIterations;; n--) {
+
+			final float dx = x - cx;
+			final float dy = y - cy;
+			final float currentDistance = Math.min((float) Math.sqrt(dx * dx + dy * dy) - r, distanceSoFar);
+
+			if (currentDistance <= 0 || n <= 0) {
+				if (descentDepthOut != null) {
+					descentDepthOut[0] = descentDepth;
+				}
+				return currentDistance;
+			}
+
+			// Calculate new circle.
+
+			final float rnew = r * inverseDivisionFactor;
+			dir = getNewDirection(dx, dy, dir);
+			cx = cx + (r + rnew) * directionX[dir];
+			cy = cy + (r + rnew) * directionY[dir];
+			r = rnew;
+			distanceSoFar = currentDistance;
+			descentDepth++;
+		}
+	}
+
+	private static int toARGB(int red, int blue) {
+		return (255 << 24) | (red << 16) | blue;
+	}
+
+	private int getColorFromDistanceFromNearestCircle(float distance) {
+		if (distance <= 0) {
+			return toARGB(0, 0);
+		} else if (distance <= cutOff && cutOff > 0.00001f) {
+			// Interpolate from black to red.
+			final int val = Math.max(Math.min(Math.round(255 * distance / cutOff), 255), 0);
+			return toARGB(val, 0);
+		} else {
+			// Interpolate from red to blue.
+			final int val = Math
+					.max(Math.min(Math.round(255 * (distance - cutOff) / (maximumDistance - cutOff)), 255), 0);
+			return toARGB(255 - val, val);
+		}
+	}
+
+	@Override
+	public int getColor(int x, int y, int[] descentDepthOut) {
+		return getColorFromDistanceFromNearestCircle(getDistance(x, y, descentDepthOut));
+	}
+}
@@ -0,0 +1,89 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A rectangular part of an image, in pixels.
+ * 
+ * <p>
+ * Thread safety: Immutable.
+ */
+public final class Tile {
+
+	public final int x;
+	public final int y;
+	public final int width;
+	public final int height;
+
+	public Tile(int x, int y, int width, int height) {
+
+		if (x < 0 || y < 0 || width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Illegal tile: " + x + ", " + y + ", " + width + "x" + height + ".");
+		}
+
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Splits an image into tiles of at most the given size, in row-major order.
+	 * The tiles at the right and bottom edges may be smaller.
+	 * 
+	 * @param tileSize
+	 *            Width and height of the tiles. Must be strictly positive.
+	 * @return The tiles, covering the image exactly once.
+	 */
+	public static List<Tile> split(int imageWidth, int imageHeight, int tileSize) {
+
+		if (tileSize <= 0) {
+			throw new IllegalArgumentException("'tileSize' was not strictly positive: " + tileSize + ".");
+		}
+
+		final List<Tile> tiles = new ArrayList<>();
+		for (int y = 0; y < imageHeight; y += tileSize) {
+			for (int x = 0; x < imageWidth; x += tileSize) {
+				tiles.add(new Tile(x, y, Math.min(tileSize, imageWidth - x), Math.min(tileSize, imageHeight - y)));
+			}
+		}
+		return Collections.unmodifiableList(tiles);
+	}
+
+	/**
+	 * @return The number of pixels in the tile.
+	 */
+	public int getPixelCount() {
+		return width * height;
+	}
+
+	/**
+	 * @return Whether the tile lies within an image of the given size.
+	 */
+	public boolean isWithin(int imageWidth, int imageHeight) {
+		return x + width <= imageWidth && y + height <= imageHeight;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+
+		if (!(other instanceof Tile)) {
+			return false;
+		}
+
+		final Tile tile = (Tile) other;
+		return x == tile.x && y == tile.y && width == tile.width && height == tile.height;
+	}
+
+	@Override
+	public int hashCode() {
+		return ((x * 31 + y) * 31 + width) * 31 + height;
+	}
+
+	@Override
+	public String toString() {
+		return "(" + x + ", " + y + ", " + width + "x" + height + ")";
+	}
+}
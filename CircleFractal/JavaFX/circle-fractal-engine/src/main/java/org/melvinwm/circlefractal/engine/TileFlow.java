@@ -0,0 +1,84 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Interfaces for publishing items with back-pressure, with the same methods and
+ * rules as the Reactive Streams interfaces in 'java.util.concurrent.Flow' of
+ * Java 9 and later, which are not available with Java 8. Adapting between the
+ * two is a matter of forwarding each method.
+ *
+ * <p>
+ * In short: A subscriber gets its subscription in 'onSubscribe', and then gets
+ * no more items than it has requested with 'request'. The signals to a
+ * subscriber never overlap, and end with at most one of 'onComplete' or
+ * 'onError'. Cancelling a subscription stops the signals eventually.
+ */
+public final class TileFlow {
+
+	private TileFlow() {
+	}
+
+	/**
+	 * Produces items for the subscribers that subscribe to it.
+	 *
+	 * <p>
+	 * Thread safety: Implementations must be thread-safe.
+	 */
+	@FunctionalInterface
+	public interface Publisher<T> {
+
+		/**
+		 * Adds the subscriber, which is given its subscription with
+		 * {@link Subscriber#onSubscribe}.
+		 *
+		 * <p>
+		 * Blocking: No.
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * Receives items from a publisher.
+	 *
+	 * <p>
+	 * Thread safety: Called by one thread at a time, not necessarily the same.
+	 */
+	public interface Subscriber<T> {
+
+		void onSubscribe(Subscription subscription);
+
+		void onNext(T item);
+
+		void onError(Throwable throwable);
+
+		void onComplete();
+	}
+
+	/**
+	 * Links a publisher and a subscriber.
+	 *
+	 * <p>
+	 * Thread safety: Implementations must be thread-safe.
+	 */
+	public interface Subscription {
+
+		/**
+		 * Adds to the number of items the subscriber is ready to receive.
+		 *
+		 * <p>
+		 * Blocking: No.
+		 *
+		 * @param n
+		 *            Must be strictly positive, otherwise the subscriber gets an
+		 *            {@link IllegalArgumentException} with 'onError'.
+		 */
+		void request(long n);
+
+		/**
+		 * Stops the publishing to the subscriber, eventually.
+		 *
+		 * <p>
+		 * Blocking: No.
+		 */
+		void cancel();
+	}
+}
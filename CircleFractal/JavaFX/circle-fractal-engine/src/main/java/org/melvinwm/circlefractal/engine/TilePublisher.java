@@ -0,0 +1,213 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the tiles of a circle-fractal image as they are rendered, with
+ * back-pressure: A tile is only rendered once its subscriber has requested it,
+ * so a slow subscriber, such as a network sink or an encoder, slows down the
+ * rendering instead of rendered tiles piling up in memory.
+ *
+ * <p>
+ * Each subscription renders the tiles anew, in the given order, with at most the
+ * given number of tiles rendering at a time. The tiles are delivered in the order
+ * their renders finish, which need not be the given order. Cancelling a
+ * subscription stops the renders in progress at the next band of rows of their
+ * tiles.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+public final class TilePublisher implements TileFlow.Publisher<RenderedTile> {
+
+	// Number of rows of a tile computed together, at most. The same as the blocks
+	// of the kernel, as in the engine, so that the blocks are formed.
+	private static final int rowsPerBand = PointToColorCalculator.coherentBlockSize;
+
+	private final TileRenderer renderer;
+	private final List<Tile> tiles;
+	private final Executor executor;
+	private final int maximumRenderingCount;
+
+	/**
+	 * @param tiles
+	 *            The tiles to publish, each within the image.
+	 * @param executor
+	 *            Renders the tiles, one task per tile.
+	 * @param maximumRenderingCount
+	 *            Maximum number of tiles rendering at a time per subscription.
+	 *            Must be strictly positive.
+	 */
+	public TilePublisher(TileRenderer renderer, List<Tile> tiles, Executor executor, int maximumRenderingCount) {
+
+		if (maximumRenderingCount <= 0) {
+			throw new IllegalArgumentException(
+					"'maximumRenderingCount' was not strictly positive: " + maximumRenderingCount + ".");
+		}
+		for (final Tile tile : tiles) {
+			if (!tile.isWithin(renderer.getParameters().width, renderer.getParameters().height)) {
+				throw new IllegalArgumentException("Tile " + tile + " is not within the image.");
+			}
+		}
+
+		this.renderer = renderer;
+		this.tiles = Collections.unmodifiableList(new ArrayList<>(tiles));
+		this.executor = executor;
+		this.maximumRenderingCount = maximumRenderingCount;
+	}
+
+	@Override
+	public void subscribe(TileFlow.Subscriber<? super RenderedTile> subscriber) {
+		Objects.requireNonNull(subscriber, "'subscriber' was null.");
+		subscriber.onSubscribe(new TileSubscription(subscriber));
+	}
+
+	/**
+	 * The renders and the signals to a single subscriber.
+	 *
+	 * <p>
+	 * The signals are serialized by 'drainCount': Whichever thread raises it from
+	 * 0 drains, and keeps draining until no other thread asked for a drain
+	 * meanwhile.
+	 */
+	private final class TileSubscription implements TileFlow.Subscription {
+
+		private final TileFlow.Subscriber<? super RenderedTile> subscriber;
+
+		// Total number of tiles requested, capped at 'Long.MAX_VALUE'.
+		private final AtomicLong requestedCount = new AtomicLong();
+		private final AtomicInteger drainCount = new AtomicInteger();
+		private final AtomicInteger renderingCount = new AtomicInteger();
+		private final ConcurrentLinkedQueue<RenderedTile> rendered = new ConcurrentLinkedQueue<>();
+
+		private volatile boolean isCancelled;
+		// The first failure, may be null.
+		private volatile Throwable failure;
+
+		// Only accessed while draining.
+		private int startedCount;
+		private long deliveredCount;
+		private boolean isTerminated;
+
+		TileSubscription(TileFlow.Subscriber<? super RenderedTile> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+
+			if (n <= 0) {
+				fail(new IllegalArgumentException("The requested count was not strictly positive: " + n + "."));
+			} else {
+				requestedCount.accumulateAndGet(n, (requested, added) -> {
+					final long sum = requested + added;
+					return sum < 0 ? Long.MAX_VALUE : sum;
+				});
+			}
+
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			isCancelled = true;
+			drain();
+		}
+
+		private void fail(Throwable throwable) {
+			if (failure == null) {
+				failure = throwable;
+			}
+		}
+
+		private void drain() {
+
+			if (drainCount.getAndIncrement() != 0) {
+				return;
+			}
+
+			int missedCount = 1;
+			do {
+				while (!isTerminated) {
+
+					if (isCancelled) {
+						isTerminated = true;
+						break;
+					}
+
+					if (failure != null) {
+						isTerminated = true;
+						isCancelled = true;
+						subscriber.onError(failure);
+						break;
+					}
+
+					final long requested = requestedCount.get();
+
+					if (deliveredCount < requested && !rendered.isEmpty()) {
+						deliveredCount++;
+						subscriber.onNext(rendered.poll());
+						continue;
+					}
+
+					if (deliveredCount == tiles.size()) {
+						isTerminated = true;
+						subscriber.onComplete();
+						break;
+					}
+
+					// Only render tiles that have been requested.
+					if (startedCount < tiles.size() && startedCount < requested
+							&& renderingCount.get() < maximumRenderingCount) {
+						startRender(tiles.get(startedCount++));
+						continue;
+					}
+
+					break;
+				}
+
+				if (isTerminated) {
+					rendered.clear();
+				}
+
+				missedCount = drainCount.addAndGet(-missedCount);
+			} while (missedCount != 0);
+		}
+
+		private void startRender(Tile tile) {
+
+			renderingCount.incrementAndGet();
+
+			try {
+				executor.execute(() -> {
+					try {
+						final int[] argb = new int[tile.getPixelCount()];
+						for (int row = 0; row < tile.height && !isCancelled; row += rowsPerBand) {
+							renderer.renderRows(tile, row, Math.min(row + rowsPerBand, tile.height), argb, 0,
+									tile.width);
+						}
+						if (!isCancelled) {
+							rendered.add(new RenderedTile(tile, argb));
+						}
+					} catch (RuntimeException e) {
+						fail(e);
+					} finally {
+						renderingCount.decrementAndGet();
+						drain();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				renderingCount.decrementAndGet();
+				fail(e);
+			}
+		}
+	}
+}
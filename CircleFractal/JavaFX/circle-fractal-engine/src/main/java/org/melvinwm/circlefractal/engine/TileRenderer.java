@@ -0,0 +1,179 @@
+package org.melvinwm.circlefractal.engine;
+
+/**
+ * Renders tiles of a circle-fractal image with {@link PointToColorCalculator},
+ * independently of JavaFX, for instance for rendering outside the GUI.
+ * 
+ * <p>
+ * Thread safety: Immutable.
+ */
+public final class TileRenderer {
+
+	public static final int maximumZoom = 48;
+
+	private final CircleFractalParameters parameters;
+	private final PointToColorCalculator pointToColorCalculator;
+	private final DoubleDoublePointToColorCalculator doubleDoublePointToColorCalculator;
+
+	public TileRenderer(CircleFractalParameters parameters) {
+		this.parameters = parameters;
+		this.pointToColorCalculator = PointToColorCalculator.forImage(parameters.width, parameters.height,
+				parameters.numberOfIterations, parameters.divisionFactor, parameters.cutOff);
+		this.doubleDoublePointToColorCalculator = DoubleDoublePointToColorCalculator.forImage(parameters.width,
+				parameters.height, parameters.numberOfIterations, parameters.divisionFactor, parameters.cutOff);
+	}
+
+	public CircleFractalParameters getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Renders rows of a tile into the given array, as ARGB colors.
+	 * 
+	 * <p>
+	 * Blocking: Yes, computationally heavy.
+	 * 
+	 * @param tile
+	 *            The tile. Must lie within the image.
+	 * @param fromRow
+	 *            First row of the tile to render, relative to the tile.
+	 * @param toRow
+	 *            Row after the last row of the tile to render, relative to the
+	 *            tile.
+	 * @param argbOut
+	 *            Destination. The pixel at column 'x' and row 'y' relative to the
+	 *            tile is written at 'offset + y * stride + x'.
+	 */
+	public void renderRows(Tile tile, int fromRow, int toRow, int[] argbOut, int offset, int stride) {
+
+		if (!tile.isWithin(parameters.width, parameters.height)) {
+			throw new IllegalArgumentException(
+					"Tile " + tile + " is not within the image of size " + parameters.width + "x"
+							+ parameters.height + ".");
+		}
+
+		if (toRow <= fromRow) {
+			return;
+		}
+
+		// Computed together, so that neighbouring pixels share work.
+		final int[] argb = new int[tile.width * (toRow - fromRow)];
+		pointToColorCalculator.getColors(tile.x, tile.y + fromRow, tile.width, toRow - fromRow, argb, null);
+
+		for (int y = fromRow; y < toRow; y++) {
+			System.arraycopy(argb, (y - fromRow) * tile.width, argbOut, offset + y * stride, tile.width);
+		}
+	}
+
+	/**
+	 * Renders a tile.
+	 * 
+	 * <p>
+	 * Blocking: Yes, computationally heavy.
+	 * 
+	 * @return The ARGB colors of the tile, in row-major order.
+	 */
+	public int[] render(Tile tile) {
+		final int[] argb = new int[tile.getPixelCount()];
+		renderRows(tile, 0, tile.height, argb, 0, tile.width);
+		return argb;
+	}
+
+	/**
+	 * Renders a square tile of a zoomed-in view of the image. At a given zoom
+	 * level, the image is magnified 2 to the power of the zoom level times and
+	 * split into tiles of the given size, so that at zoom level 0, the tiles are
+	 * tiles of the image itself. Tiles at the right and bottom edges extend past
+	 * the image, and the fractal is rendered there as well.
+	 * 
+	 * <p>
+	 * At deep zooms, where doubles can no longer resolve the circles at the
+	 * distance between pixels, see {@link DoubleDoubleKernelSelector}, the tile
+	 * is computed in double-double arithmetic, which is several times slower.
+	 * 
+	 * <p>
+	 * Blocking: Yes, computationally heavy.
+	 * 
+	 * @param zoom
+	 *            From 0 to {@value #maximumZoom}.
+	 * @param column
+	 *            Column of the tile, from 0 and less than
+	 *            {@link #getZoomedColumnCount}.
+	 * @param row
+	 *            Row of the tile, from 0 and less than {@link #getZoomedRowCount}.
+	 * @param tileSize
+	 *            Width and height of the tile. Must be strictly positive.
+	 * @return The ARGB colors of the tile, in row-major order.
+	 */
+	public int[] renderZoomed(int zoom, long column, long row, int tileSize) {
+
+		if (tileSize <= 0) {
+			throw new IllegalArgumentException("'tileSize' was not strictly positive: " + tileSize + ".");
+		}
+		if (column < 0 || column >= getZoomedColumnCount(zoom, tileSize) || row < 0
+				|| row >= getZoomedRowCount(zoom, tileSize)) {
+			throw new IllegalArgumentException(
+					"Tile " + column + ", " + row + " is not within the image at zoom level " + zoom + ".");
+		}
+
+		final long startX = column * tileSize;
+		final long startY = row * tileSize;
+
+		final int[] argb = new int[tileSize * tileSize];
+
+		if (DoubleDoubleKernelSelector.isRequired(parameters.width, parameters.height, parameters.numberOfIterations,
+				zoom)) {
+			for (int y = 0; y < tileSize; y++) {
+				final DoubleDouble pointY = DoubleDouble.ofScaled(startY + y, -zoom);
+				for (int x = 0; x < tileSize; x++) {
+					argb[y * tileSize + x] = doubleDoublePointToColorCalculator
+							.getColorAt(DoubleDouble.ofScaled(startX + x, -zoom), pointY);
+				}
+			}
+			return argb;
+		}
+
+		// Exact, since a power of 2.
+		final double scale = 1.0 / (1L << zoom);
+		for (int y = 0; y < tileSize; y++) {
+			for (int x = 0; x < tileSize; x++) {
+				argb[y * tileSize + x] = pointToColorCalculator.getColorAt((startX + x) * scale,
+						(startY + y) * scale);
+			}
+		}
+		return argb;
+	}
+
+	/**
+	 * @return The number of tile columns at the given zoom level, see
+	 *         {@link #renderZoomed}.
+	 */
+	public long getZoomedColumnCount(int zoom, int tileSize) {
+		return getZoomedTileCount(parameters.width, zoom, tileSize);
+	}
+
+	/**
+	 * @return The number of tile rows at the given zoom level, see
+	 *         {@link #renderZoomed}.
+	 */
+	public long getZoomedRowCount(int zoom, int tileSize) {
+		return getZoomedTileCount(parameters.height, zoom, tileSize);
+	}
+
+	private static long getZoomedTileCount(int size, int zoom, int tileSize) {
+
+		if (zoom < 0 || zoom > maximumZoom) {
+			throw new IllegalArgumentException(
+					"'zoom' was not from 0 to " + maximumZoom + ": " + zoom + ".");
+		}
+
+		// So that the pixel coordinates at the zoom level fit in a long.
+		if (size > (Long.MAX_VALUE >> (zoom + 1))) {
+			throw new IllegalArgumentException(
+					"The image size " + size + " is too large for zoom level " + zoom + ".");
+		}
+
+		final long zoomedSize = (long) size << zoom;
+		return (zoomedSize + tileSize - 1) / tileSize;
+	}
+}
@@ -0,0 +1,109 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Adler32;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+public class ChunkedPngWriterTest {
+
+	private static final int width = 301;
+	private static final int height = 211;
+
+	private static int[] render() {
+		return new TileRenderer(new CircleFractalParameters(width, height, 30, 3, 1.5))
+				.render(new Tile(0, 0, width, height));
+	}
+
+	private static int[] decode(byte[] png) throws Exception {
+		final BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		assertEquals(width, image.getWidth());
+		assertEquals(height, image.getHeight());
+		return image.getRGB(0, 0, width, height, null, 0, width);
+	}
+
+	@Test
+	public void should_stitch_bands_into_a_decodable_image() throws Exception {
+
+		final int[] argb = render();
+		final IndexedFrame frame = IndexedFrame.of(argb, width, height);
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(3);
+		try {
+			// From a single band to bands of a single row.
+			for (final int bandLength : new int[] { Integer.MAX_VALUE, 64 * 1024, 10000, 1 }) {
+
+				final ByteArrayOutputStream png = new ByteArrayOutputStream();
+				ChunkedPngWriter.write(
+						(fromY, toY, argbOut) -> frame.expand(fromY * width, (toY - fromY) * width, argbOut, 0),
+						width, height, png, executorService, bandLength);
+
+				assertArrayEquals(argb, decode(png.toByteArray()), "Band length " + bandLength + ".");
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		// Through the public encoding, on the calling thread.
+		assertArrayEquals(argb, decode(PngEncoding.encode(argb, width, height)));
+
+		// From a run-length tile, decoded a band at a time.
+		final ByteArrayOutputStream tilePng = new ByteArrayOutputStream();
+		PngEncoding.write(RunLengthTile.encode(argb, width, height), tilePng);
+		assertArrayEquals(argb, decode(tilePng.toByteArray()));
+	}
+
+	@Test
+	public void should_compress_about_as_well_as_image_io() throws Exception {
+
+		final int[] argb = render();
+
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, width, height, argb, 0, width);
+		final ByteArrayOutputStream imageIoPng = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", imageIoPng);
+
+		final ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ChunkedPngWriter.write(
+				(fromY, toY, argbOut) -> System.arraycopy(argb, fromY * width, argbOut, 0, (toY - fromY) * width),
+				width, height, png, Runnable::run, 10000);
+
+		assertTrue(png.size() < imageIoPng.size() * 1.1,
+				"PNG sizes: ImageIO " + imageIoPng.size() + " bytes, chunked " + png.size() + " bytes.");
+	}
+
+	@Test
+	public void should_combine_adler32_checksums() {
+
+		final Random random = new Random(3);
+		for (final int length : new int[] { 0, 1, 5, 65521, 100000 }) {
+
+			final byte[] first = new byte[1000];
+			final byte[] second = new byte[length];
+			random.nextBytes(first);
+			random.nextBytes(second);
+
+			final Adler32 whole = new Adler32();
+			whole.update(first);
+			whole.update(second);
+
+			final Adler32 firstAdler = new Adler32();
+			firstAdler.update(first);
+			final Adler32 secondAdler = new Adler32();
+			secondAdler.update(second);
+
+			assertEquals(whole.getValue(),
+					ChunkedPngWriter.combineAdler32(firstAdler.getValue(), secondAdler.getValue(), length));
+		}
+	}
+}
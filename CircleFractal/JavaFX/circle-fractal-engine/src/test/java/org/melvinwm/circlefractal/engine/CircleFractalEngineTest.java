@@ -0,0 +1,166 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class CircleFractalEngineTest {
+
+	private static final CircleFractalParameters parameters = new CircleFractalParameters(160, 120, 5, 2, 1.5);
+
+	/**
+	 * Stores the written pixels in a frame.
+	 */
+	private static class FrameSink implements PixelSink {
+
+		final IndexedFrame frame;
+		final AtomicInteger writtenPixelCount = new AtomicInteger();
+		final AtomicBoolean isFinished = new AtomicBoolean();
+
+		FrameSink(int width, int height) {
+			frame = new IndexedFrame(width, height);
+		}
+
+		@Override
+		public void write(int x, int y, int[] argb, int count) {
+			for (int i = 0; i < count; i++) {
+				frame.setArgb(y * frame.width + x + i, argb[i]);
+			}
+			writtenPixelCount.addAndGet(count);
+		}
+
+		@Override
+		public void finish() {
+			isFinished.set(true);
+		}
+	}
+
+	private static final RenderControl uncancelled = new RenderControl() {
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		@Override
+		public void updateProgress(long workDone, long totalWork) {
+		}
+	};
+
+	/**
+	 * Renders to completion.
+	 *
+	 * @return The rendered frame.
+	 */
+	static IndexedFrame render(CircleFractalEngine engine) throws Exception {
+
+		final FrameSink sink = new FrameSink(engine.getParameters().width, engine.getParameters().height);
+		assertTrue(engine.render(uncancelled, sink));
+		assertTrue(sink.isFinished.get());
+		return sink.frame;
+	}
+
+	@Test
+	public void should_render_same_colors_as_tile_renderer() throws Exception {
+
+		final int[] expected = new TileRenderer(parameters)
+				.render(new Tile(0, 0, parameters.width, parameters.height));
+
+		for (final boolean isParallelizedComputation : new boolean[] { false, true }) {
+			final IndexedFrame frame = render(
+					new CircleFractalEngine(parameters, isParallelizedComputation, false, Optional.empty()));
+			assertArrayEquals(expected, frame.toArgb(), "Parallel: " + isParallelizedComputation);
+		}
+	}
+
+	@Test
+	public void should_render_same_colors_with_every_strategy() throws Exception {
+
+		final int[] expected = new TileRenderer(parameters)
+				.render(new Tile(0, 0, parameters.width, parameters.height));
+
+		for (final RenderStrategy.Execution execution : RenderStrategy.Execution.values()) {
+			for (final int granularity : new int[] { 8, 24 }) {
+				for (final RenderStrategy.Kernel kernel : new RenderStrategy.Kernel[] { RenderStrategy.Kernel.BLOCKS,
+						RenderStrategy.Kernel.PIXELS, RenderStrategy.Kernel.EXACT }) {
+
+					final RenderStrategy strategy = new RenderStrategy(execution, granularity, kernel);
+					final IndexedFrame frame = render(new CircleFractalEngine(parameters, strategy, Optional.empty(),
+							RenderScheduler.Priority.INTERACTIVE));
+					assertArrayEquals(expected, frame.toArgb(), strategy.toString());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void should_record_descent_depths_in_profile() throws Exception {
+
+		final RenderProfile profile = new RenderProfile(parameters.width, parameters.height);
+		render(new CircleFractalEngine(parameters, true, false, Optional.of(profile)));
+
+		final PointToColorCalculator calculator = PointToColorCalculator.forImage(parameters.width,
+				parameters.height, parameters.numberOfIterations, parameters.divisionFactor, parameters.cutOff);
+		final int[] descentDepth = new int[1];
+		for (int y = 0; y < parameters.height; y++) {
+			for (int x = 0; x < parameters.width; x++) {
+				calculator.getColor(x, y, descentDepth);
+				assertEquals(descentDepth[0], profile.getDescentDepth(x, y));
+			}
+		}
+
+		assertEquals(parameters.width * parameters.height,
+				profile.getTileTimes().stream().mapToInt(tileTime -> tileTime.tile.getPixelCount()).sum());
+	}
+
+	@Test
+	public void should_stop_writing_when_cancelled() throws Exception {
+
+		final AtomicBoolean isCancelled = new AtomicBoolean();
+		final FrameSink sink = new FrameSink(parameters.width, parameters.height) {
+
+			@Override
+			public void write(int x, int y, int[] argb, int count) {
+				super.write(x, y, argb, count);
+				isCancelled.set(true);
+			}
+		};
+
+		final RenderControl control = new RenderControl() {
+
+			@Override
+			public boolean isCancelled() {
+				return isCancelled.get();
+			}
+
+			@Override
+			public void updateProgress(long workDone, long totalWork) {
+			}
+		};
+
+		final CircleFractalEngine engine = new CircleFractalEngine(parameters, true, false, Optional.empty());
+		assertFalse(engine.render(control, sink));
+
+		final int writtenPixelCount = sink.writtenPixelCount.get();
+		assertTrue(writtenPixelCount < parameters.width * parameters.height);
+		assertFalse(sink.isFinished.get());
+
+		// No worker may write after the render returned.
+		Thread.sleep(50);
+		assertEquals(writtenPixelCount, sink.writtenPixelCount.get());
+	}
+
+	@Test
+	public void should_reject_profile_of_other_size() {
+		assertThrows(IllegalArgumentException.class, () -> new CircleFractalEngine(parameters, false, false,
+				Optional.of(new RenderProfile(parameters.width, parameters.height + 1))));
+	}
+}
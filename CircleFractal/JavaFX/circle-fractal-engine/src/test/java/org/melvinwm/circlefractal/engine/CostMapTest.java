@@ -0,0 +1,80 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+public class CostMapTest {
+
+	private static final int width = 500;
+	private static final int height = 350;
+
+	private static CostMap sample() throws InterruptedException {
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			return CostMap.sample(PointToColorCalculator.forImage(width, height, 8, 2, 1.5), width, height,
+					CostMap.defaultCellSize, executorService);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_plan_tiles_covering_the_image_exactly_once() throws InterruptedException {
+
+		final int[] coverCounts = new int[width * height];
+		for (final Tile tile : sample().planTiles(64)) {
+			assertTrue(tile.isWithin(width, height), tile.toString());
+			for (int y = tile.y; y < tile.y + tile.height; y++) {
+				for (int x = tile.x; x < tile.x + tile.width; x++) {
+					coverCounts[y * width + x]++;
+				}
+			}
+		}
+
+		for (int i = 0; i < coverCounts.length; i++) {
+			assertEquals(1, coverCounts[i], "Pixel " + i + ".");
+		}
+	}
+
+	@Test
+	public void should_order_tiles_by_decreasing_cost() throws InterruptedException {
+
+		final CostMap costMap = sample();
+		final List<Tile> tiles = costMap.planTiles(64);
+
+		for (int i = 1; i < tiles.size(); i++) {
+			assertTrue(costMap.estimateCost(tiles.get(i - 1)) >= costMap.estimateCost(tiles.get(i)));
+		}
+	}
+
+	@Test
+	public void should_size_tiles_by_cost() throws InterruptedException {
+
+		final CostMap costMap = sample();
+		final List<Tile> tiles = costMap.planTiles(64);
+		final double targetCost = costMap.getTotalCost() / 64;
+
+		// Tiles of several cells stay within the target cost, so expensive parts of
+		// the image are divided into smaller tiles than cheap parts.
+		int smallestPixelCount = Integer.MAX_VALUE;
+		int largestPixelCount = 0;
+		for (final Tile tile : tiles) {
+			if (tile.width > costMap.cellSize) {
+				assertTrue(costMap.estimateCost(tile) <= targetCost, tile.toString());
+			}
+			smallestPixelCount = Math.min(smallestPixelCount, tile.getPixelCount());
+			largestPixelCount = Math.max(largestPixelCount, tile.getPixelCount());
+		}
+		assertTrue(largestPixelCount > 2 * smallestPixelCount);
+
+		final double sum = tiles.stream().mapToDouble(costMap::estimateCost).sum();
+		assertEquals(costMap.getTotalCost(), sum, costMap.getTotalCost() * 1e-9);
+	}
+}
@@ -0,0 +1,61 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+public class DistanceFieldTest {
+
+	@Test
+	public void should_match_calculator_when_deepened_and_recolored() throws Exception {
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			for (final int[] size : new int[][] { { 64, 48 }, { 333, 217 } }) {
+				for (final int divisionFactor : new int[] { 2, 3, 5 }) {
+
+					final DistanceField distanceField = new DistanceField(size[0], size[1], divisionFactor,
+							executorService);
+
+					for (final int numberOfIterations : new int[] { 0, 1, 3, 7, 20 }) {
+
+						distanceField.deepen(numberOfIterations, executorService);
+
+						for (final double cutOff : new double[] { 0.0, 1.5, 4.0 }) {
+
+							final int[] actual = new int[size[0] * size[1]];
+							distanceField.colorize(cutOff, actual, executorService);
+
+							final int[] expected = new TileRenderer(new CircleFractalParameters(size[0], size[1],
+									numberOfIterations, divisionFactor, cutOff)).render(new Tile(0, 0, size[0],
+											size[1]));
+
+							assertArrayEquals(expected, actual, size[0] + "x" + size[1] + ", i" + numberOfIterations
+									+ ", d" + divisionFactor + ", c" + cutOff);
+						}
+					}
+				}
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_not_deepen_to_fewer_iterations() throws Exception {
+
+		final ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			final DistanceField distanceField = new DistanceField(64, 48, 3, executorService);
+			distanceField.deepen(5, executorService);
+
+			assertThrows(IllegalArgumentException.class, () -> distanceField.deepen(4, executorService));
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class DoubleDoublePointToColorCalculatorTest {
+
+	private static BigDecimal toBigDecimal(DoubleDouble value) {
+		return new BigDecimal(value.hi).add(new BigDecimal(value.lo));
+	}
+
+	private static void assertClose(BigDecimal expected, DoubleDouble actual, String operation) {
+		final BigDecimal error = expected.subtract(toBigDecimal(actual)).abs();
+		final BigDecimal tolerance = expected.abs().multiply(new BigDecimal(Math.scalb(1.0, -100)));
+		assertTrue(error.compareTo(tolerance) <= 0, operation + ": expected " + expected + ", was " + actual + ".");
+	}
+
+	@Test
+	public void double_double_arithmetic_should_be_accurate() {
+
+		final Random random = new Random(45);
+		final MathContext context = new MathContext(60);
+
+		for (int i = 0; i < 1000; i++) {
+
+			final DoubleDouble a = DoubleDouble.ofScaled(random.nextLong() >>> 2, -random.nextInt(60));
+			final DoubleDouble b = DoubleDouble.ofScaled(random.nextLong() >>> 2, -random.nextInt(60));
+			final BigDecimal exactA = toBigDecimal(a);
+			final BigDecimal exactB = toBigDecimal(b);
+
+			assertClose(exactA.add(exactB), new DoubleDouble().set(a).add(b), "add");
+			assertClose(exactA.subtract(exactB), new DoubleDouble().set(a).subtract(b), "subtract");
+			assertClose(exactA.multiply(exactB), new DoubleDouble().set(a).multiply(b), "multiply");
+			assertClose(exactA.divide(new BigDecimal(3), context), new DoubleDouble().set(a).divide(3), "divide");
+
+			final DoubleDouble root = new DoubleDouble().set(a).sqrt();
+			assertClose(exactA, new DoubleDouble().set(root).multiply(root), "sqrt");
+		}
+	}
+
+	@Test
+	public void should_match_reference_kernel_at_image_scale() {
+
+		final List<String> failures = new ArrayList<>();
+		for (final RenderRegressionCases.Case regressionCase : RenderRegressionCases.smallest()) {
+
+			// With a cut-off of 0, points on the edges of the circles can flip between
+			// black and red for any rounding difference.
+			if (regressionCase.cutOff == 0.0) {
+				continue;
+			}
+
+			final DoubleDoublePointToColorCalculator doubleDouble = DoubleDoublePointToColorCalculator.forImage(
+					regressionCase.width, regressionCase.height, regressionCase.numberOfIterations,
+					regressionCase.divisionFactor, regressionCase.cutOff);
+
+			final ColorDeviation deviation = ColorDeviation.measure(regressionCase.createCalculator(), doubleDouble,
+					regressionCase.width, regressionCase.height, 1);
+			if (deviation.maximum > 1) {
+				failures.add(regressionCase + ": " + deviation);
+			}
+		}
+
+		assertTrue(failures.isEmpty(), "Cases deviating from the reference kernel: " + failures + ".");
+	}
+
+	@Test
+	public void should_resolve_neighbouring_pixels_at_deep_zoom() {
+
+		final int width = 800;
+		final int height = 600;
+		final int numberOfIterations = 20;
+		final int zoom = 46;
+		assertTrue(DoubleDoubleKernelSelector.isRequired(width, height, numberOfIterations, zoom));
+
+		final DoubleDoublePointToColorCalculator calculator = DoubleDoublePointToColorCalculator.forImage(width,
+				height, numberOfIterations, 2, 1.5);
+
+		// Along the horizontal line through the center, the circles continue forward
+		// from the start circle, and the right edge of the last one is at 150 minus
+		// 100 / 2^20 from the center. Doubles only resolve every 8th pixel there.
+		final long edgeX = ((long) (width / 2 + 150) << zoom) - (100L << (zoom - numberOfIterations));
+		final DoubleDouble y = DoubleDouble.ofScaled((long) (height / 2) << zoom, -zoom);
+
+		for (int offset = -4; offset <= 12; offset++) {
+			final double distance = calculator.getDistanceAt(DoubleDouble.ofScaled(edgeX + offset, -zoom), y, null);
+			assertEquals(offset, Math.scalb(distance, zoom), 1e-6, "Offset " + offset + ".");
+		}
+	}
+
+	@Test
+	public void should_require_double_double_kernel_only_at_deep_zooms() {
+
+		assertFalse(DoubleDoubleKernelSelector.isRequired(800, 600, 5, 0));
+		assertFalse(DoubleDoubleKernelSelector.isRequired(800, 600, 1000, 20));
+		assertTrue(DoubleDoubleKernelSelector.isRequired(800, 600, 5, 40));
+
+		// Deeper descents need it at shallower zooms.
+		assertTrue(DoubleDoubleKernelSelector.isRequired(800, 600, 1000, 30));
+		assertFalse(DoubleDoubleKernelSelector.isRequired(800, 600, 5, 30));
+	}
+
+	@Test
+	public void should_render_deep_zoom_tiles() {
+
+		final TileRenderer renderer = new TileRenderer(new CircleFractalParameters(800, 600, 20, 2, 1.5));
+		final int tileSize = 16;
+
+		// The tile containing the center of the image at the deepest zoom is within
+		// the start circle.
+		final long column = ((long) 400 << TileRenderer.maximumZoom) / tileSize;
+		final long row = ((long) 300 << TileRenderer.maximumZoom) / tileSize;
+		for (final int argb : renderer.renderZoomed(TileRenderer.maximumZoom, column, row, tileSize)) {
+			assertEquals(0xFF000000, argb);
+		}
+
+		// The pixel coordinates would not fit in a long.
+		final TileRenderer wideRenderer = new TileRenderer(new CircleFractalParameters(1 << 20, 1, 5, 2, 1.5));
+		assertThrows(IllegalArgumentException.class,
+				() -> wideRenderer.getZoomedColumnCount(TileRenderer.maximumZoom, tileSize));
+	}
+}
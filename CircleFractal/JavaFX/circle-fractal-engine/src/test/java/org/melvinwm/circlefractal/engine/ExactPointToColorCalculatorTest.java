@@ -0,0 +1,117 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ExactPointToColorCalculatorTest {
+
+	@Test
+	public void should_match_brute_force_distance() {
+
+		final int width = 200;
+		final int height = 140;
+		for (final int[] fractal : new int[][] { { 0, 2 }, { 1, 2 }, { 6, 2 }, { 7, 3 }, { 6, 5 } }) {
+
+			final ExactPointToColorCalculator calculator = ExactPointToColorCalculator.forImage(width, height,
+					fractal[0], fractal[1], 1.5);
+
+			for (int y = 0; y < height; y += 3) {
+				for (int x = 0; x < width; x += 3) {
+
+					final double bruteForce = calculator.getBruteForceDistance(x, y);
+					final double exact = calculator.getDistance(x, y, null);
+
+					// Points inside a circle stop at the first one found.
+					final String point = "(" + x + ", " + y + ") with " + fractal[0] + " iterations, division factor "
+							+ fractal[1];
+					if (bruteForce <= 0) {
+						assertTrue(exact <= 0, point + ": " + exact + ".");
+					} else {
+						assertTrue(Math.abs(exact - bruteForce) <= 1e-9,
+								point + ": " + exact + " instead of " + bruteForce + ".");
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void should_be_at_least_as_near_as_reference_kernel() {
+
+		final double[] state = new double[PointToColorCalculator.descentStateLength];
+		for (final RenderRegressionCases.Case regressionCase : RenderRegressionCases.smallest()) {
+
+			final PointToColorCalculator reference = regressionCase.createCalculator();
+			final ExactPointToColorCalculator exact = ExactPointToColorCalculator.forImage(regressionCase.width,
+					regressionCase.height, regressionCase.numberOfIterations, regressionCase.divisionFactor,
+					regressionCase.cutOff);
+
+			for (int y = 0; y < regressionCase.height; y += 5) {
+				for (int x = 0; x < regressionCase.width; x += 5) {
+
+					reference.startDescent(state, x, y);
+					final double greedy = reference.continueDescent(state, regressionCase.numberOfIterations, x, y);
+					final double distance = exact.getDistance(x, y, null);
+					assertTrue(distance <= greedy + 1e-9,
+							regressionCase + " at (" + x + ", " + y + "): " + distance + " beyond " + greedy + ".");
+				}
+			}
+		}
+	}
+
+	@Test
+	public void should_match_reference_kernel_colors() {
+
+		final List<String> failures = new ArrayList<>();
+		for (final RenderRegressionCases.Case regressionCase : RenderRegressionCases.smallest()) {
+
+			// With a cut-off of 0, points on the edges of the circles can flip between
+			// black and red for any rounding difference.
+			if (regressionCase.cutOff == 0.0) {
+				continue;
+			}
+
+			final ExactPointToColorCalculator exact = ExactPointToColorCalculator.forImage(regressionCase.width,
+					regressionCase.height, regressionCase.numberOfIterations, regressionCase.divisionFactor,
+					regressionCase.cutOff);
+
+			final ColorDeviation deviation = ColorDeviation.measure(regressionCase.createCalculator(), exact,
+					regressionCase.width, regressionCase.height, 1);
+			if (deviation.maximum > 1) {
+				failures.add(regressionCase + ": " + deviation);
+			}
+		}
+
+		assertTrue(failures.isEmpty(), "Cases deviating from the reference kernel: " + failures + ".");
+	}
+
+	@Test
+	public void should_compute_blocks_as_pixel_by_pixel() {
+
+		final int width = 45;
+		final int height = 30;
+		final ExactPointToColorCalculator calculator = ExactPointToColorCalculator.forImage(90, 60, 12, 2, 1.5);
+
+		final int[] argb = new int[width * height];
+		final int[] descentDepths = new int[width * height];
+		calculator.getColors(20, 10, width, height, argb, descentDepths);
+
+		final int[] expectedArgb = new int[width * height];
+		final int[] expectedDescentDepths = new int[width * height];
+		final int[] descentDepth = new int[1];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				expectedArgb[y * width + x] = calculator.getColor(20 + x, 10 + y, descentDepth);
+				expectedDescentDepths[y * width + x] = descentDepth[0];
+			}
+		}
+
+		assertArrayEquals(expectedArgb, argb);
+		assertArrayEquals(expectedDescentDepths, descentDepths);
+	}
+}
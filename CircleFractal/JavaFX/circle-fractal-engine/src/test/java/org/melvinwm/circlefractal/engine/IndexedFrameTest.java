@@ -0,0 +1,61 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class IndexedFrameTest {
+
+	@Test
+	public void should_index_every_color_of_the_ramps() {
+
+		final PointToColorCalculator calculator = PointToColorCalculator.forImage(500, 350, 5, 2, 1.5);
+
+		for (int index = 0; index < IndexedColors.colorCount; index++) {
+			assertEquals(index, IndexedColors.toIndex(IndexedColors.toArgb(index)));
+		}
+
+		// Sample the distances over both ramps.
+		for (double distance = -1.0; distance < 1000.0; distance += 0.01) {
+			final int argb = calculator.getColorFromDistanceFromNearestCircle(distance);
+			assertEquals(argb, IndexedColors.toArgb(IndexedColors.toIndex(argb)));
+		}
+
+		assertEquals(0xFF000000, IndexedColors.toArgb(0));
+		assertEquals(0xFFFF0000, IndexedColors.toArgb(255));
+		assertEquals(0xFF0000FF, IndexedColors.toArgb(IndexedColors.colorCount - 1));
+	}
+
+	@Test
+	public void should_reject_colors_outside_the_palette() {
+
+		assertThrows(IllegalArgumentException.class, () -> IndexedColors.toIndex(0xFF00FF00));
+		assertThrows(IllegalArgumentException.class, () -> IndexedColors.toIndex(0xFF800080));
+		assertThrows(IllegalArgumentException.class, () -> IndexedColors.toIndex(0x00FF0000));
+		assertThrows(IllegalArgumentException.class,
+				() -> new IndexedFrame(2, 2).setIndex(0, IndexedColors.colorCount));
+	}
+
+	@Test
+	public void should_store_frame_in_half_the_memory() {
+
+		final int width = 70;
+		final int height = 50;
+		final int[] argb = new TileRenderer(new CircleFractalParameters(width, height, 20, 3, 0.75))
+				.render(new Tile(0, 0, width, height));
+
+		final IndexedFrame frame = IndexedFrame.of(argb, width, height);
+
+		assertArrayEquals(argb, frame.toArgb());
+		assertEquals(argb.length * Integer.BYTES / 2, frame.getByteCount());
+
+		final int[] row = new int[width + 1];
+		frame.expand(width, width, row, 1);
+		for (int x = 0; x < width; x++) {
+			assertEquals(argb[width + x], row[1 + x]);
+			assertEquals(argb[width + x], frame.getArgb(width + x));
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class ParameterGridRendererTest {
+
+	@Test
+	public void should_render_same_colors_as_tile_renderer_per_cell() throws Exception {
+
+		// Unsorted and repeated iteration counts.
+		final ParameterGridRenderer renderer = new ParameterGridRenderer(61, 43, Arrays.asList(2, 5, 3),
+				Arrays.asList(7, 0, 3, 7), Arrays.asList(0.0, 1.5), 3, RenderScheduler.Priority.BACKGROUND);
+		assertEquals(3, renderer.getRowCount());
+		assertEquals(8, renderer.getColumnCount());
+
+		final int gridWidth = renderer.getGridWidth();
+		final int[] grid = new int[gridWidth * renderer.getGridHeight()];
+		final boolean[] isWritten = new boolean[grid.length];
+		final AtomicLong lastWorkDone = new AtomicLong();
+
+		final boolean isCompleted = renderer.render(new RenderControl() {
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+
+			@Override
+			public void updateProgress(long workDone, long totalWork) {
+				assertTrue(workDone >= lastWorkDone.getAndSet(workDone), "Progress decreased.");
+			}
+		}, (x, y, argb, count) -> {
+			for (int i = 0; i < count; i++) {
+				grid[y * gridWidth + x + i] = argb[i];
+				isWritten[y * gridWidth + x + i] = true;
+			}
+		});
+		assertTrue(isCompleted);
+		assertEquals(61 * 43 * 3 * 8, lastWorkDone.get());
+
+		int writtenCount = 0;
+		for (int row = 0; row < renderer.getRowCount(); row++) {
+			for (int column = 0; column < renderer.getColumnCount(); column++) {
+
+				final CircleFractalParameters parameters = renderer.getParameters(row, column);
+				final int[] expected = new TileRenderer(parameters)
+						.render(new Tile(0, 0, parameters.width, parameters.height));
+
+				final int[] actual = new int[expected.length];
+				for (int y = 0; y < parameters.height; y++) {
+					System.arraycopy(grid, (renderer.getCellY(row) + y) * gridWidth + renderer.getCellX(column),
+							actual, y * parameters.width, parameters.width);
+				}
+				assertArrayEquals(expected, actual, "Row " + row + ", column " + column + ".");
+				writtenCount += expected.length;
+			}
+		}
+
+		// The gaps are not written.
+		int actualWrittenCount = 0;
+		for (final boolean pixelIsWritten : isWritten) {
+			actualWrittenCount += pixelIsWritten ? 1 : 0;
+		}
+		assertEquals(writtenCount, actualWrittenCount);
+	}
+
+	@Test
+	public void should_stop_when_cancelled() throws Exception {
+
+		final ParameterGridRenderer renderer = new ParameterGridRenderer(160, 120, Arrays.asList(2, 3),
+				Arrays.asList(5, 20), Collections.singletonList(1.5), 0, RenderScheduler.Priority.INTERACTIVE);
+
+		final AtomicLong writtenPixelCount = new AtomicLong();
+		final boolean isCompleted = renderer.render(new RenderControl() {
+
+			@Override
+			public boolean isCancelled() {
+				return writtenPixelCount.get() > 0;
+			}
+
+			@Override
+			public void updateProgress(long workDone, long totalWork) {
+			}
+		}, (x, y, argb, count) -> writtenPixelCount.addAndGet(count));
+
+		assertFalse(isCompleted);
+		assertTrue(writtenPixelCount.get() < renderer.getGridWidth() * renderer.getGridHeight());
+	}
+
+	@Test
+	public void should_reject_invalid_grids() {
+
+		assertThrows(IllegalArgumentException.class, () -> new ParameterGridRenderer(10, 10, Arrays.asList(2),
+				Collections.emptyList(), Arrays.asList(1.5), 0, RenderScheduler.Priority.INTERACTIVE));
+		assertThrows(IllegalArgumentException.class, () -> new ParameterGridRenderer(10, 10, Arrays.asList(1),
+				Arrays.asList(5), Arrays.asList(1.5), 0, RenderScheduler.Priority.INTERACTIVE));
+	}
+}
@@ -1,7 +1,11 @@
-package org.melvinwm.circlefractal.javafx.drawer;
+package org.melvinwm.circlefractal.engine;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Random;
 import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
@@ -111,4 +115,84 @@ public class PointToColorCalculatorTest {
 		testFun.accept(new PointToColorCalculator(centerX, centerY, 5, 10.0, 10, 0.1));
 		testFun.accept(new PointToColorCalculator(centerX, centerY, 5, 20.0, 10, 10.0));
 	}
+
+	@Test
+	public void block_colors_should_equal_pixel_colors() {
+
+		final int width = 190;
+		final int height = 130;
+
+		for (final int numberOfIterations : new int[] { 0, 1, 5, 12, 20 }) {
+			for (final int divisionFactor : new int[] { 2, 3, 5 }) {
+
+				final PointToColorCalculator calculator = PointToColorCalculator.forImage(width, height,
+						numberOfIterations, divisionFactor, 1.5);
+
+				// Blocks of various sizes and alignments.
+				for (final int[] block : new int[][] { { 0, 0, width, height }, { 3, 5, 17, 9 }, { 50, 61, 1, 1 },
+						{ 7, 0, 100, 1 }, { 0, 64, 64, 16 } }) {
+
+					final int x = block[0];
+					final int y = block[1];
+					final int blockWidth = block[2];
+					final int blockHeight = block[3];
+
+					final int[] expectedArgb = new int[blockWidth * blockHeight];
+					final int[] expectedDescentDepths = new int[blockWidth * blockHeight];
+					final int[] descentDepth = new int[1];
+					for (int row = 0; row < blockHeight; row++) {
+						for (int column = 0; column < blockWidth; column++) {
+							expectedArgb[row * blockWidth + column] = calculator.getColor(x + column, y + row,
+									descentDepth);
+							expectedDescentDepths[row * blockWidth + column] = descentDepth[0];
+						}
+					}
+
+					final int[] argb = new int[blockWidth * blockHeight];
+					final int[] descentDepths = new int[blockWidth * blockHeight];
+					calculator.getColors(x, y, blockWidth, blockHeight, argb, descentDepths);
+
+					final String message = numberOfIterations + " iterations, division factor " + divisionFactor
+							+ ", block at " + x + "," + y + ".";
+					assertArrayEquals(expectedArgb, argb, message);
+					assertArrayEquals(expectedDescentDepths, descentDepths, message);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void shared_direction_should_be_taken_by_every_point() {
+
+		final PointToColorCalculator calculator = new PointToColorCalculator(centerX, centerY, 5, 200.0, 2, 1.0);
+		final Random random = new Random(42);
+
+		int sharedCount = 0;
+		for (int i = 0; i < 20_000; i++) {
+
+			final double cx = random.nextDouble() * 200;
+			final double cy = random.nextDouble() * 200;
+			final int dir = random.nextInt(4);
+			final int minimumX = random.nextInt(200);
+			final int minimumY = random.nextInt(200);
+			final int maximumX = minimumX + random.nextInt(8);
+			final int maximumY = minimumY + random.nextInt(8);
+
+			final int sharedDirection = PointToColorCalculator.getSharedDirection(cx, cy, dir, minimumX, minimumY,
+					maximumX, maximumY);
+			if (sharedDirection < 0) {
+				continue;
+			}
+			sharedCount++;
+
+			for (int y = minimumY; y <= maximumY; y++) {
+				for (int x = minimumX; x <= maximumX; x++) {
+					assertEquals(sharedDirection, calculator.getNewDirection(cx, cy, dir, x, y));
+				}
+			}
+		}
+
+		// Most small blocks are away from the boundaries between the directions.
+		assertTrue(sharedCount > 10_000, "Shared directions: " + sharedCount + ".");
+	}
 }
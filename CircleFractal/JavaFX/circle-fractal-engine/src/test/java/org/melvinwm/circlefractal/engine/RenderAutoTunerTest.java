@@ -0,0 +1,99 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class RenderAutoTunerTest {
+
+	// Small sizes, so that the calibration is quick.
+	private static final int[][] sizes = new int[][] { { 64, 48 }, { 96, 64 }, { 128, 96 } };
+
+	@Test
+	public void should_select_strategy_for_every_size_range() throws Exception {
+
+		final AtomicLong lastWorkDone = new AtomicLong();
+		final AtomicLong lastTotalWork = new AtomicLong();
+		final Optional<RenderTuning> tuning = new RenderAutoTuner(sizes).calibrate(new RenderControl() {
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+
+			@Override
+			public void updateProgress(long workDone, long totalWork) {
+				assertTrue(workDone > lastWorkDone.get());
+				lastWorkDone.set(workDone);
+				lastTotalWork.set(totalWork);
+			}
+		});
+
+		assertTrue(tuning.isPresent());
+		assertEquals(lastTotalWork.get(), lastWorkDone.get());
+		assertTrue(tuning.get().isFor(RenderScheduler.getInstance()));
+		assertEquals(RenderTuning.maximumPixelCounts.length, tuning.get().getStrategies().size());
+	}
+
+	@Test
+	public void should_stop_when_cancelled() throws Exception {
+
+		final Optional<RenderTuning> tuning = new RenderAutoTuner(sizes).calibrate(new RenderControl() {
+
+			@Override
+			public boolean isCancelled() {
+				return true;
+			}
+
+			@Override
+			public void updateProgress(long workDone, long totalWork) {
+			}
+		});
+
+		assertFalse(tuning.isPresent());
+	}
+
+	@Test
+	public void should_look_up_strategy_by_size_range() {
+
+		final RenderStrategy small = new RenderStrategy(RenderStrategy.Execution.SEQUENTIAL, 8,
+				RenderStrategy.Kernel.PIXELS);
+		final RenderStrategy medium = new RenderStrategy(RenderStrategy.Execution.PARALLEL_ROWS, 32,
+				RenderStrategy.Kernel.BLOCKS);
+		final RenderStrategy large = new RenderStrategy(RenderStrategy.Execution.PARALLEL_TILES, 16,
+				RenderStrategy.Kernel.SINGLE_PRECISION);
+		final RenderTuning tuning = new RenderTuning(4, Arrays.asList(small, medium, large));
+
+		assertEquals(small, tuning.getStrategy(500, 350));
+		assertEquals(small, tuning.getStrategy(512, 512));
+		assertEquals(medium, tuning.getStrategy(513, 512));
+		assertEquals(medium, tuning.getStrategy(1024, 1024));
+		assertEquals(large, tuning.getStrategy(1920, 1080));
+	}
+
+	@Test
+	public void should_restore_tuning_from_properties() {
+
+		final RenderTuning tuning = new RenderTuning(4, RenderAutoTuner.getExecutionCandidates().subList(0, 3));
+		final Optional<RenderTuning> restored = RenderTuning.fromProperties(tuning.toProperties());
+
+		assertTrue(restored.isPresent());
+		assertEquals(tuning.workerCount, restored.get().workerCount);
+		assertEquals(tuning.getStrategies(), restored.get().getStrategies());
+
+		final Properties malformed = tuning.toProperties();
+		malformed.setProperty("strategy.1", "PARALLEL_ROWS/7/BLOCKS");
+		assertFalse(RenderTuning.fromProperties(malformed).isPresent());
+
+		final Properties otherSizeRanges = tuning.toProperties();
+		otherSizeRanges.setProperty("maximumPixelCounts", "1000");
+		assertFalse(RenderTuning.fromProperties(otherSizeRanges).isPresent());
+	}
+}
@@ -0,0 +1,125 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class RenderCoalescerTest {
+
+	/**
+	 * Render that reports half progress and then waits until released or
+	 * cancelled.
+	 */
+	private static final class BlockingRender implements RenderCoalescer.Render<String> {
+
+		final AtomicInteger startCount = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+
+		@Override
+		public String render(RenderControl control) throws Exception {
+			try {
+				startCount.incrementAndGet();
+				control.updateProgress(1, 2);
+				started.countDown();
+				while (!release.await(5, TimeUnit.MILLISECONDS)) {
+					if (control.isCancelled()) {
+						return null;
+					}
+				}
+				return "rendered";
+			} finally {
+				stopped.countDown();
+			}
+		}
+	}
+
+	@Test
+	public void should_share_in_flight_renders_and_their_progress() throws Exception {
+
+		final ExecutorService executorService = Executors.newCachedThreadPool();
+		try {
+			final RenderCoalescer<String, String> coalescer = new RenderCoalescer<>(executorService);
+			final BlockingRender render = new BlockingRender();
+
+			final RenderCoalescer.Ticket<String> first = coalescer.request("a", render);
+			final RenderCoalescer.Ticket<String> second = coalescer.request("a", render);
+			render.started.await();
+
+			assertEquals(0.5, second.getProgress());
+			assertEquals(1, coalescer.getInFlightCount());
+			assertEquals(1, coalescer.getCoalescedRequestCount());
+
+			render.release.countDown();
+			assertEquals("rendered", first.getResult().get());
+			assertEquals("rendered", second.getResult().get());
+			assertEquals(1, render.startCount.get());
+
+			// Finished renders are not shared.
+			final BlockingRender laterRender = new BlockingRender();
+			laterRender.release.countDown();
+			assertEquals("rendered", coalescer.request("a", laterRender).getResult().get());
+			assertEquals(1, laterRender.startCount.get());
+			assertEquals(0, coalescer.getInFlightCount());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_stop_shared_render_only_when_every_caller_has_cancelled() throws Exception {
+
+		final ExecutorService executorService = Executors.newCachedThreadPool();
+		try {
+			final RenderCoalescer<String, String> coalescer = new RenderCoalescer<>(executorService);
+			final BlockingRender render = new BlockingRender();
+
+			final RenderCoalescer.Ticket<String> first = coalescer.request("a", render);
+			final RenderCoalescer.Ticket<String> second = coalescer.request("a", render);
+			render.started.await();
+
+			assertTrue(first.cancel());
+			assertFalse(first.cancel());
+			assertThrows(CancellationException.class, () -> first.getResult().get());
+			assertFalse(render.stopped.await(50, TimeUnit.MILLISECONDS));
+
+			assertTrue(second.cancel());
+			assertTrue(render.stopped.await(5, TimeUnit.SECONDS));
+			assertEquals(0, coalescer.getInFlightCount());
+
+			// A new request after all callers cancelled starts a new render.
+			final BlockingRender laterRender = new BlockingRender();
+			laterRender.release.countDown();
+			assertEquals("rendered", coalescer.request("a", laterRender).getResult().get());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_not_share_renders_between_keys_and_should_propagate_failures() throws Exception {
+
+		final RenderCoalescer<String, String> coalescer = new RenderCoalescer<>(Runnable::run);
+
+		assertEquals("a", coalescer.request("a", control -> "a").getResult().get());
+		assertEquals("b", coalescer.request("b", control -> "b").getResult().get());
+
+		final ExecutionException exception = assertThrows(ExecutionException.class, () -> coalescer
+				.request("c", control -> {
+					throw new IllegalStateException("Failed.");
+				}).getResult().get());
+		assertTrue(exception.getCause() instanceof IllegalStateException);
+	}
+}
@@ -0,0 +1,103 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+public class RenderMetricsTest {
+
+	@Test
+	public void should_bucket_descent_depths() {
+
+		assertEquals(0, RenderMetrics.descentDepthBucket(0));
+		assertEquals(1, RenderMetrics.descentDepthBucket(1));
+		assertEquals(2, RenderMetrics.descentDepthBucket(2));
+		assertEquals(2, RenderMetrics.descentDepthBucket(3));
+		assertEquals(3, RenderMetrics.descentDepthBucket(4));
+		assertEquals(RenderMetrics.descentDepthHistogramBucketCount - 1, RenderMetrics.descentDepthBucket(1000000));
+
+		final String[] labels = new RenderMetrics().getDescentDepthHistogramBucketLabels();
+		assertEquals(RenderMetrics.descentDepthHistogramBucketCount, labels.length);
+		assertEquals("0", labels[0]);
+		assertEquals("1", labels[1]);
+		assertEquals("2-3", labels[2]);
+	}
+
+	@Test
+	public void should_record_completed_and_cancelled_renders() {
+
+		final RenderMetrics metrics = new RenderMetrics();
+
+		final RenderMetrics.Recording completed = metrics.startRender(4);
+		final long[] histogram = completed.newLocalDescentDepthHistogram();
+		for (final int descentDepth : new int[] { 0, 1, 2, 3 }) {
+			histogram[RenderMetrics.descentDepthBucket(descentDepth)]++;
+		}
+		completed.recordLine(2_000_000, histogram, 6);
+		completed.recordComputeNanos(2_000_000);
+		completed.recordCompleted();
+		// Finishing again has no effect.
+		completed.recordCancelled();
+
+		final RenderMetrics.Recording cancelled = metrics.startRender(4);
+		cancelled.recordCancelled();
+
+		assertEquals(2, metrics.getStartedRenderCount());
+		assertEquals(1, metrics.getCompletedRenderCount());
+		assertEquals(1, metrics.getCancelledRenderCount());
+
+		assertEquals(4, metrics.getLastRenderPixelCount());
+		assertEquals(2.0, metrics.getLastRenderComputeTimeMillis());
+		assertEquals(1.5, metrics.getLastRenderAverageDescentDepth());
+		assertTrue(metrics.getLastRenderPixelsPerSecond() > 0);
+		assertEquals(2.0,
+				metrics.getLastRenderWorkerBusyTimeMillis().get(Thread.currentThread().getName()).doubleValue());
+
+		final long[] expectedHistogram = new long[RenderMetrics.descentDepthHistogramBucketCount];
+		expectedHistogram[0] = 1;
+		expectedHistogram[1] = 1;
+		expectedHistogram[2] = 2;
+		assertArrayEquals(expectedHistogram, metrics.getDescentDepthHistogram());
+		assertEquals(2.0, metrics.getTotalWorkerBusyTimeMillis());
+
+		metrics.reset();
+
+		assertEquals(0, metrics.getCompletedRenderCount());
+		assertEquals(0, metrics.getTotalPixelCount());
+		assertEquals(0, metrics.getLastRenderPixelCount());
+	}
+
+	@Test
+	public void should_record_only_first_frames_after_launch() throws Exception {
+
+		final RenderMetrics metrics = new RenderMetrics();
+		assertEquals(0, metrics.getLaunchToFirstFrameMillis());
+		assertEquals(0, metrics.getLaunchToFirstRenderedFrameMillis());
+
+		metrics.recordFrameShown(false);
+		final long firstFrameMillis = metrics.getLaunchToFirstFrameMillis();
+		assertTrue(firstFrameMillis > 0);
+		assertEquals(0, metrics.getLaunchToFirstRenderedFrameMillis());
+
+		Thread.sleep(5);
+		metrics.recordFrameShown(true);
+		metrics.reset();
+
+		assertEquals(firstFrameMillis, metrics.getLaunchToFirstFrameMillis());
+		assertTrue(metrics.getLaunchToFirstRenderedFrameMillis() > firstFrameMillis);
+	}
+
+	@Test
+	public void should_register_shared_instance() throws Exception {
+
+		RenderMetrics.getInstance();
+
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(RenderMetrics.objectName)));
+	}
+}
@@ -0,0 +1,201 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * The matrix of parameter sets used for regression testing the output and
+ * throughput of the circle-fractal rendering.
+ *
+ * <p>
+ * The golden checksums are stored in the test resource
+ * {@value #goldenChecksumsResource}. If the output is changed on purpose, they
+ * can be regenerated by running {@link #main(String[])} and replacing the
+ * resource with the output.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+final class RenderRegressionCases {
+
+	static final String goldenChecksumsResource = "golden-checksums.properties";
+	static final String throughputThresholdsResource = "throughput-thresholds.properties";
+
+	private static final int[][] sizes = new int[][] { { 64, 48 }, { 333, 217 }, { 500, 350 } };
+	private static final int[] iterationCounts = new int[] { 0, 1, 5, 20, 50 };
+	private static final int[] divisionFactors = new int[] { 2, 3, 4, 5 };
+	private static final double[] cutOffs = new double[] { 0.0, 0.01, 1.5, 4.0 };
+
+	private RenderRegressionCases() {
+	}
+
+	/**
+	 * A single parameter set.
+	 */
+	static final class Case {
+
+		final int width;
+		final int height;
+		final int numberOfIterations;
+		final int divisionFactor;
+		final double cutOff;
+
+		Case(int width, int height, int numberOfIterations, int divisionFactor, double cutOff) {
+			this.width = width;
+			this.height = height;
+			this.numberOfIterations = numberOfIterations;
+			this.divisionFactor = divisionFactor;
+			this.cutOff = cutOff;
+		}
+
+		/**
+		 * @return Key identifying this case in the properties resources.
+		 */
+		String key() {
+			return "w" + width + ".h" + height + ".i" + numberOfIterations + ".d" + divisionFactor + ".c" + cutOff;
+		}
+
+		/**
+		 * @return Key identifying this case without the image size.
+		 */
+		String sizeIndependentKey() {
+			return "i" + numberOfIterations + ".d" + divisionFactor + ".c" + cutOff;
+		}
+
+		PointToColorCalculator createCalculator() {
+			return PointToColorCalculator.forImage(width, height, numberOfIterations, divisionFactor, cutOff);
+		}
+
+		/**
+		 * @return The ARGB-colors of the image, line by line, computed directly
+		 *         with {@link PointToColorCalculator}.
+		 */
+		int[] renderWithCalculator() {
+
+			final PointToColorCalculator calculator = createCalculator();
+
+			final int[] argb = new int[width * height];
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					argb[y * width + x] = calculator.getColor(x, y);
+				}
+			}
+			return argb;
+		}
+
+		/**
+		 * @return The ARGB-colors of the image, line by line, computed with
+		 *         {@link PointToColorCalculator#getColors} in bands of rows as tall
+		 *         as its blocks, as the engine does.
+		 */
+		int[] renderWithBlocks() {
+
+			final PointToColorCalculator calculator = createCalculator();
+
+			final int bandHeight = PointToColorCalculator.coherentBlockSize;
+			final int[] band = new int[width * bandHeight];
+			final int[] argb = new int[width * height];
+			for (int y = 0; y < height; y += bandHeight) {
+				final int rowCount = Math.min(bandHeight, height - y);
+				calculator.getColors(0, y, width, rowCount, band, null);
+				System.arraycopy(band, 0, argb, y * width, rowCount * width);
+			}
+			return argb;
+		}
+
+		@Override
+		public String toString() {
+			return key();
+		}
+	}
+
+	/**
+	 * @return All cases in the matrix.
+	 */
+	static List<Case> all() {
+
+		final List<Case> cases = new ArrayList<>();
+		for (final int[] size : sizes) {
+			cases.addAll(forSize(size[0], size[1]));
+		}
+		return Collections.unmodifiableList(cases);
+	}
+
+	/**
+	 * @return The cases in the matrix with the smallest image size.
+	 */
+	static List<Case> smallest() {
+		return forSize(sizes[0][0], sizes[0][1]);
+	}
+
+	/**
+	 * @return The cases in the matrix with the largest image size.
+	 */
+	static List<Case> largest() {
+		return forSize(sizes[sizes.length - 1][0], sizes[sizes.length - 1][1]);
+	}
+
+	private static List<Case> forSize(int width, int height) {
+
+		final List<Case> cases = new ArrayList<>();
+		for (final int numberOfIterations : iterationCounts) {
+			for (final int divisionFactor : divisionFactors) {
+				for (final double cutOff : cutOffs) {
+					cases.add(new Case(width, height, numberOfIterations, divisionFactor, cutOff));
+				}
+			}
+		}
+		return cases;
+	}
+
+	/**
+	 * @return CRC-32 checksum of the given ARGB-colors, as a hexadecimal string.
+	 */
+	static String checksum(int[] argb) {
+
+		final byte[] bytes = new byte[argb.length * 4];
+		for (int i = 0; i < argb.length; i++) {
+			bytes[4 * i] = (byte) (argb[i] >>> 24);
+			bytes[4 * i + 1] = (byte) (argb[i] >>> 16);
+			bytes[4 * i + 2] = (byte) (argb[i] >>> 8);
+			bytes[4 * i + 3] = (byte) argb[i];
+		}
+
+		final CRC32 crc32 = new CRC32();
+		crc32.update(bytes);
+		return String.format("%08x", crc32.getValue());
+	}
+
+	static Properties loadProperties(String resource) {
+
+		final Properties properties = new Properties();
+		try (InputStream inputStream = RenderRegressionCases.class.getResourceAsStream(resource)) {
+			if (inputStream == null) {
+				throw new IllegalStateException("Missing test resource: " + resource + ".");
+			}
+			properties.load(inputStream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return properties;
+	}
+
+	/**
+	 * Prints the golden checksums for all cases, in the format of the golden
+	 * checksums resource.
+	 */
+	public static void main(String[] args) {
+
+		System.out.println("# Golden CRC-32 checksums of the ARGB-colors for the circle-fractal regression cases.");
+		System.out.println("# Generated by 'RenderRegressionCases.main', see there for details.");
+		for (final Case regressionCase : all()) {
+			System.out.println(regressionCase.key() + "=" + checksum(regressionCase.renderWithCalculator()));
+		}
+	}
+}
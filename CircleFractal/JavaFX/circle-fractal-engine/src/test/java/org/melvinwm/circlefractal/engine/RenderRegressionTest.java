@@ -0,0 +1,128 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Regression tests for the output and throughput of the circle-fractal
+ * rendering, see {@link RenderRegressionCases}.
+ *
+ * <p>
+ * Any optimization of the rendering must keep the output identical to the
+ * golden checksums, and must not make the throughput drop below the
+ * thresholds. The throughput checks can be skipped on slow or heavily loaded
+ * machines by setting the system property {@value #skipThroughputProperty} to
+ * "true".
+ */
+public class RenderRegressionTest {
+
+	private static final String skipThroughputProperty = "circlefractal.skipThroughputChecks";
+
+	@Test
+	public void calculator_should_match_golden_checksums() {
+
+		final Properties goldenChecksums = RenderRegressionCases
+				.loadProperties(RenderRegressionCases.goldenChecksumsResource);
+
+		final List<String> mismatches = new ArrayList<>();
+		for (final RenderRegressionCases.Case regressionCase : RenderRegressionCases.all()) {
+
+			final String expected = goldenChecksums.getProperty(regressionCase.key());
+			assertNotNull(expected, "Missing golden checksum for " + regressionCase + ".");
+
+			final String actual = RenderRegressionCases.checksum(regressionCase.renderWithCalculator());
+			if (!expected.equals(actual)) {
+				mismatches.add(regressionCase.key());
+			}
+		}
+
+		assertEquals(new ArrayList<>(), mismatches, "Cases with output differing from the golden checksums.");
+	}
+
+	@Test
+	public void engine_should_match_golden_checksums() throws Exception {
+
+		final Properties goldenChecksums = RenderRegressionCases
+				.loadProperties(RenderRegressionCases.goldenChecksumsResource);
+
+		final List<String> mismatches = new ArrayList<>();
+		for (final boolean doParallelizedComputation : new boolean[] { false, true }) {
+			for (final RenderRegressionCases.Case regressionCase : RenderRegressionCases.smallest()) {
+
+				final CircleFractalEngine engine = new CircleFractalEngine(
+						new CircleFractalParameters(regressionCase.width, regressionCase.height,
+								regressionCase.numberOfIterations, regressionCase.divisionFactor, regressionCase.cutOff),
+						doParallelizedComputation, false, Optional.empty());
+				final IndexedFrame frame = CircleFractalEngineTest.render(engine);
+
+				if (!goldenChecksums.getProperty(regressionCase.key())
+						.equals(RenderRegressionCases.checksum(frame.toArgb()))) {
+					mismatches.add(regressionCase.key() + (doParallelizedComputation ? " (parallel)" : ""));
+				}
+			}
+		}
+
+		assertEquals(new ArrayList<>(), mismatches, "Cases with output differing from the golden checksums.");
+	}
+
+	@Test
+	public void calculator_should_meet_throughput_thresholds() {
+		assertThroughputThresholds("", RenderRegressionCases.Case::renderWithCalculator);
+	}
+
+	@Test
+	public void blocks_should_meet_throughput_thresholds() {
+		assertThroughputThresholds("blocks.", RenderRegressionCases.Case::renderWithBlocks);
+	}
+
+	/*
+	 * Checks the throughput of the largest cases against the thresholds whose keys
+	 * are the size-independent keys of the cases with the given prefix.
+	 */
+	private static void assertThroughputThresholds(String keyPrefix,
+			Function<RenderRegressionCases.Case, int[]> render) {
+
+		assumeFalse(Boolean.getBoolean(skipThroughputProperty), "Throughput checks skipped.");
+
+		final Properties thresholds = RenderRegressionCases
+				.loadProperties(RenderRegressionCases.throughputThresholdsResource);
+		final double tolerance = Double.parseDouble(thresholds.getProperty("tolerance"));
+		final int rounds = Integer.parseInt(thresholds.getProperty("rounds"));
+
+		final List<String> failures = new ArrayList<>();
+		for (final RenderRegressionCases.Case regressionCase : RenderRegressionCases.largest()) {
+
+			final String threshold = thresholds.getProperty(keyPrefix + regressionCase.sizeIndependentKey());
+			if (threshold == null) {
+				continue;
+			}
+			final double minimumPixelsPerSecond = Double.parseDouble(threshold) * (1.0 - tolerance);
+
+			// Use the best round, to reduce the influence of warm-up and noise.
+			double bestPixelsPerSecond = 0.0;
+			for (int round = 0; round < rounds; round++) {
+				final long startNanos = System.nanoTime();
+				final int[] argb = render.apply(regressionCase);
+				final long nanos = Math.max(1, System.nanoTime() - startNanos);
+				bestPixelsPerSecond = Math.max(bestPixelsPerSecond, argb.length * 1e9 / nanos);
+			}
+
+			if (bestPixelsPerSecond < minimumPixelsPerSecond) {
+				failures.add(String.format("%s%s: %.0f < %.0f pixels/s", keyPrefix, regressionCase.key(),
+						bestPixelsPerSecond, minimumPixelsPerSecond));
+			}
+		}
+
+		assertTrue(failures.isEmpty(), "Cases below the throughput thresholds: " + failures + ".");
+	}
+}
@@ -0,0 +1,150 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class RenderSchedulerTest {
+
+	@Test
+	public void should_run_interactive_tasks_before_queued_background_tasks() throws Exception {
+
+		final RenderScheduler scheduler = new RenderScheduler(1, 60_000);
+		final ExecutorService background = scheduler.newExecutor(RenderScheduler.Priority.BACKGROUND, 1);
+		final ExecutorService interactive = scheduler.newExecutor(RenderScheduler.Priority.INTERACTIVE, 1);
+
+		// Keep the only worker busy while queueing.
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		background.execute(() -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		final List<String> order = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < 3; i++) {
+			final String name = "background " + i;
+			background.execute(() -> order.add(name));
+		}
+		for (int i = 0; i < 2; i++) {
+			final String name = "interactive " + i;
+			interactive.execute(() -> order.add(name));
+		}
+
+		release.countDown();
+		background.shutdown();
+		interactive.shutdown();
+		assertTrue(background.awaitTermination(10, TimeUnit.SECONDS));
+		assertTrue(interactive.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(Arrays.asList("interactive 0", "interactive 1", "background 0", "background 1", "background 2"),
+				order);
+	}
+
+	@Test
+	public void should_not_starve_background_tasks() throws Exception {
+
+		final RenderScheduler scheduler = new RenderScheduler(1, 20);
+		final ExecutorService interactive = scheduler.newExecutor(RenderScheduler.Priority.INTERACTIVE, 1);
+		final ExecutorService background = scheduler.newExecutor(RenderScheduler.Priority.BACKGROUND, 1);
+
+		// A steady stream of interactive tasks, each queueing the next.
+		final long endNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+		interactive.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(2);
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (System.nanoTime() < endNanos) {
+					interactive.execute(this);
+				}
+			}
+		});
+
+		final AtomicInteger backgroundRunCount = new AtomicInteger();
+		for (int i = 0; i < 3; i++) {
+			background.execute(backgroundRunCount::incrementAndGet);
+		}
+		background.shutdown();
+
+		assertTrue(background.awaitTermination(1, TimeUnit.SECONDS), "Background tasks starved.");
+		assertEquals(3, backgroundRunCount.get());
+		assertTrue(scheduler.getStarvationPreventionCount() > 0);
+
+		interactive.shutdownNow();
+		assertTrue(interactive.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void should_limit_parallelism_per_executor() throws Exception {
+
+		final RenderScheduler scheduler = new RenderScheduler(4, RenderScheduler.defaultMaximumBackgroundWaitMillis);
+		final ExecutorService executor = scheduler.newExecutor(RenderScheduler.Priority.INTERACTIVE, 2);
+
+		final AtomicInteger runningCount = new AtomicInteger();
+		final AtomicInteger maximumRunningCount = new AtomicInteger();
+		final List<Runnable> tasks = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			tasks.add(() -> {
+				maximumRunningCount.accumulateAndGet(runningCount.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(2);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				runningCount.decrementAndGet();
+			});
+		}
+		tasks.forEach(executor::execute);
+
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(2, maximumRunningCount.get());
+	}
+
+	@Test
+	public void should_cancel_queued_tasks_on_shutdown_now() throws Exception {
+
+		final RenderScheduler scheduler = new RenderScheduler(1, RenderScheduler.defaultMaximumBackgroundWaitMillis);
+		final ExecutorService executor = scheduler.newExecutor(RenderScheduler.Priority.BACKGROUND, 1);
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final Future<?> running = executor.submit(() -> {
+			started.countDown();
+			Thread.sleep(60_000);
+			return null;
+		});
+		final Future<?> queued = executor.submit(() -> null);
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		assertEquals(1, executor.shutdownNow().size());
+		assertTrue(queued.isCancelled());
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertTrue(running.isDone());
+
+		// The worker is still available for other executors.
+		final ExecutorService other = scheduler.newExecutor(RenderScheduler.Priority.INTERACTIVE, 1);
+		assertEquals("done", other.submit(() -> "done").get(10, TimeUnit.SECONDS));
+		other.shutdown();
+	}
+}
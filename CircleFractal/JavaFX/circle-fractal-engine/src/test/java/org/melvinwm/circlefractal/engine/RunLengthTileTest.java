@@ -0,0 +1,105 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class RunLengthTileTest {
+
+	@Test
+	public void should_decode_to_encoded_colors() {
+
+		for (final RenderRegressionCases.Case regressionCase : RenderRegressionCases.smallest()) {
+
+			final int[] argb = regressionCase.renderWithCalculator();
+			final RunLengthTile tile = RunLengthTile.encode(argb, regressionCase.width, regressionCase.height);
+			assertArrayEquals(argb, tile.toArgb(), regressionCase.toString());
+
+			final IndexedFrame frame = IndexedFrame.of(argb, regressionCase.width, regressionCase.height);
+			assertArrayEquals(argb, RunLengthTile.encode(frame).toArgb(), regressionCase.toString());
+		}
+	}
+
+	@Test
+	public void should_decode_bands_of_rows() {
+
+		final int width = 37;
+		final int height = 53;
+		final int[] argb = new TileRenderer(new CircleFractalParameters(width, height, 5, 2, 1.5))
+				.render(new Tile(0, 0, width, height));
+		final RunLengthTile tile = RunLengthTile.encode(argb, width, height);
+
+		for (final int[] rows : new int[][] { { 0, 1 }, { 15, 17 }, { 16, 32 }, { 31, 53 }, { 52, 53 },
+				{ 53, 53 } }) {
+
+			// Into a wider destination, with an offset.
+			final int stride = width + 3;
+			final int[] band = new int[2 + (rows[1] - rows[0]) * stride];
+			tile.decodeRows(rows[0], rows[1], band, 2, stride);
+
+			for (int y = rows[0]; y < rows[1]; y++) {
+				final int bandOffset = 2 + (y - rows[0]) * stride;
+				assertArrayEquals(Arrays.copyOfRange(argb, y * width, (y + 1) * width),
+						Arrays.copyOfRange(band, bandOffset, bandOffset + width), "Row " + y + ".");
+			}
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> tile.decodeRows(0, height + 1, new int[0], 0, width));
+	}
+
+	@Test
+	public void should_handle_runs_of_every_length() {
+
+		// Alternating colors, and runs longer than the rows.
+		final int width = 300;
+		final int height = 20;
+		final int[] argb = new int[width * height];
+		for (int pixel = 0; pixel < argb.length; pixel++) {
+			final int y = pixel / width;
+			argb[pixel] = IndexedColors.toArgb(y < 10 ? (pixel % IndexedColors.colorCount) : (y < 15 ? 510 : 0));
+		}
+
+		assertArrayEquals(argb, RunLengthTile.encode(argb, width, height).toArgb());
+
+		assertThrows(IllegalArgumentException.class, () -> RunLengthTile.encode(new int[] { 0xFF00FF00 }, 1, 1));
+	}
+
+	@Test
+	public void should_restore_from_runs() {
+
+		final int width = 70;
+		final int height = 40;
+		final int[] argb = new TileRenderer(new CircleFractalParameters(width, height, 5, 2, 1.5))
+				.render(new Tile(0, 0, width, height));
+		final byte[] runs = RunLengthTile.encode(argb, width, height).getRuns();
+
+		assertArrayEquals(argb, RunLengthTile.fromRuns(width, height, runs).toArgb());
+
+		// Truncated, trailing bytes, and the wrong size.
+		assertThrows(IllegalArgumentException.class,
+				() -> RunLengthTile.fromRuns(width, height, Arrays.copyOf(runs, runs.length - 1)));
+		assertThrows(IllegalArgumentException.class,
+				() -> RunLengthTile.fromRuns(width, height, Arrays.copyOf(runs, runs.length + 1)));
+		assertThrows(IllegalArgumentException.class, () -> RunLengthTile.fromRuns(width - 1, height, runs));
+	}
+
+	@Test
+	public void should_compress_typical_frames_tenfold() {
+
+		final int width = 1000;
+		final int height = 700;
+		for (final CircleFractalParameters parameters : new CircleFractalParameters[] {
+				new CircleFractalParameters(width, height, 5, 2, 0.0),
+				new CircleFractalParameters(width, height, 20, 3, 1.5) }) {
+
+			final RunLengthTile tile = RunLengthTile
+					.encode(new TileRenderer(parameters).render(new Tile(0, 0, width, height)), width, height);
+			assertTrue(tile.getCompressionRatio() >= 10,
+					"Compression ratio " + tile.getCompressionRatio() + " for " + parameters + ".");
+		}
+	}
+}
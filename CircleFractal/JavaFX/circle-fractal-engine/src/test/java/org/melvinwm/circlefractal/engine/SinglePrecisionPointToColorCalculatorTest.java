@@ -0,0 +1,90 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+public class SinglePrecisionPointToColorCalculatorTest {
+
+	@Test
+	public void should_stay_within_tolerance_where_selected() throws Exception {
+
+		final int tolerance = SinglePrecisionKernelSelector.getTolerance();
+
+		ColorDeviation allDeviation = new ColorDeviation(0, 0.0, 0);
+		ColorDeviation selectedDeviation = new ColorDeviation(0, 0.0, 0);
+		int selectedCount = 0;
+		final List<String> failures = new ArrayList<>();
+
+		for (final RenderRegressionCases.Case regressionCase : RenderRegressionCases.all()) {
+
+			final SinglePrecisionPointToColorCalculator singlePrecision = SinglePrecisionPointToColorCalculator
+					.forImage(regressionCase.width, regressionCase.height, regressionCase.numberOfIterations,
+							regressionCase.divisionFactor, regressionCase.cutOff);
+
+			final ColorDeviation deviation = ColorDeviation.measure(regressionCase.createCalculator(),
+					singlePrecision, regressionCase.width, regressionCase.height, 1);
+			allDeviation = allDeviation.combine(deviation);
+
+			SinglePrecisionKernelSelector.isWithinTolerance(regressionCase.width, regressionCase.height,
+					regressionCase.numberOfIterations, regressionCase.divisionFactor, regressionCase.cutOff).get();
+			final PointToColorKernel selected = SinglePrecisionKernelSelector.select(regressionCase.width,
+					regressionCase.height, regressionCase.numberOfIterations, regressionCase.divisionFactor,
+					regressionCase.cutOff);
+
+			if (selected instanceof SinglePrecisionPointToColorCalculator) {
+				selectedCount++;
+				selectedDeviation = selectedDeviation.combine(deviation);
+				if (deviation.maximum > tolerance) {
+					failures.add(regressionCase + ": " + deviation);
+				}
+			}
+		}
+
+		assertTrue(failures.isEmpty(), "Selected cases exceeding the tolerance: " + failures + ".");
+		assertTrue(selectedDeviation.maximum <= tolerance,
+				"Deviation over the " + selectedCount + " selected cases: " + selectedDeviation + ".");
+		// Not every case is within the tolerance, so the selection matters.
+		assertTrue(allDeviation.maximum > tolerance, "Deviation over all cases: " + allDeviation + ".");
+		assertTrue(selectedCount > 0, "The single-precision kernel was never selected.");
+	}
+
+	@Test
+	public void should_not_select_for_too_small_cut_offs() {
+
+		assertFalse(SinglePrecisionKernelSelector.isCutOffLargeEnough(500, 350, 0.0, 2));
+		assertFalse(SinglePrecisionKernelSelector.isCutOffLargeEnough(500, 350, 1.5, 0));
+		assertTrue(SinglePrecisionKernelSelector.isCutOffLargeEnough(500, 350, 1.5, 2));
+
+		assertTrue(SinglePrecisionKernelSelector.select(500, 350, 5, 2, 0.0) instanceof PointToColorCalculator);
+	}
+
+	@Test
+	public void should_measure_each_parameter_set_once() throws Exception {
+
+		final CompletableFuture<Boolean> measurement = SinglePrecisionKernelSelector.isWithinTolerance(64, 48, 5,
+				2, 1.5);
+
+		assertSame(measurement, SinglePrecisionKernelSelector.isWithinTolerance(64, 48, 5, 2, 1.5));
+		assertTrue(measurement.get());
+		assertTrue(SinglePrecisionKernelSelector.select(64, 48, 5, 2,
+				1.5) instanceof SinglePrecisionPointToColorCalculator);
+	}
+
+	@Test
+	public void should_measure_deviation_per_pixel() {
+
+		assertEquals(0, ColorDeviation.of(0xFF102030, 0xFF102030));
+		assertEquals(5, ColorDeviation.of(0xFF102030, 0xFF10202B));
+		assertEquals(255, ColorDeviation.of(0xFF000000, 0xFFFF0000));
+		// Alpha is ignored.
+		assertEquals(0, ColorDeviation.of(0xFF000000, 0x00000000));
+	}
+}
@@ -0,0 +1,162 @@
+package org.melvinwm.circlefractal.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class TilePublisherTest {
+
+	private static final int width = 200;
+	private static final int height = 150;
+
+	private static final TileRenderer renderer = new TileRenderer(new CircleFractalParameters(width, height, 5, 2,
+			1.5));
+	private static final List<Tile> tiles = Tile.split(width, height, 64);
+
+	/**
+	 * Records the signals it gets, requesting nothing by itself.
+	 */
+	private static final class RecordingSubscriber implements TileFlow.Subscriber<RenderedTile> {
+
+		final List<RenderedTile> items = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch terminated = new CountDownLatch(1);
+		volatile TileFlow.Subscription subscription;
+		volatile Throwable failure;
+
+		@Override
+		public void onSubscribe(TileFlow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(RenderedTile item) {
+			items.add(item);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			failure = throwable;
+			terminated.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			terminated.countDown();
+		}
+	}
+
+	/**
+	 * Runs its tasks only when told to.
+	 */
+	private static final class ManualExecutor implements Executor {
+
+		final Deque<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable task) {
+			tasks.add(task);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) {
+				tasks.poll().run();
+			}
+		}
+	}
+
+	@Test
+	public void should_publish_every_tile() throws Exception {
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			final RecordingSubscriber subscriber = new RecordingSubscriber();
+			new TilePublisher(renderer, tiles, executorService, 2).subscribe(subscriber);
+			subscriber.subscription.request(Long.MAX_VALUE);
+
+			assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+			assertEquals(null, subscriber.failure);
+			assertEquals(tiles.size(), subscriber.items.size());
+
+			final HashSet<Tile> published = new HashSet<>();
+			for (final RenderedTile item : subscriber.items) {
+				published.add(item.tile);
+				assertArrayEquals(renderer.render(item.tile), item.argb);
+			}
+			assertEquals(new HashSet<>(tiles), published);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	public void should_only_render_requested_tiles() {
+
+		final ManualExecutor executor = new ManualExecutor();
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		new TilePublisher(renderer, tiles, executor, 4).subscribe(subscriber);
+
+		executor.runAll();
+		assertEquals(0, subscriber.items.size());
+
+		subscriber.subscription.request(1);
+		assertEquals(1, executor.tasks.size());
+		executor.runAll();
+		assertEquals(1, subscriber.items.size());
+		assertEquals(0, executor.tasks.size());
+
+		// Limited by the maximum number of tiles rendering at a time.
+		subscriber.subscription.request(10);
+		assertEquals(4, executor.tasks.size());
+		executor.runAll();
+		assertEquals(11, subscriber.items.size());
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		executor.runAll();
+		assertEquals(tiles.size(), subscriber.items.size());
+		assertEquals(0, subscriber.terminated.getCount());
+	}
+
+	@Test
+	public void should_stop_rendering_when_cancelled() {
+
+		final ManualExecutor executor = new ManualExecutor();
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		new TilePublisher(renderer, tiles, executor, 2).subscribe(subscriber);
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(2, executor.tasks.size());
+
+		subscriber.subscription.cancel();
+		executor.runAll();
+
+		assertEquals(0, subscriber.items.size());
+		assertEquals(0, executor.tasks.size());
+		// Cancellation does not signal the subscriber.
+		assertEquals(1, subscriber.terminated.getCount());
+	}
+
+	@Test
+	public void should_fail_for_non_positive_requests() {
+
+		final RecordingSubscriber subscriber = new RecordingSubscriber();
+		new TilePublisher(renderer, tiles, new ManualExecutor(), 2).subscribe(subscriber);
+
+		subscriber.subscription.request(0);
+
+		assertTrue(subscriber.failure instanceof IllegalArgumentException);
+	}
+}
@@ -0,0 +1,281 @@
+package org.melvinwm.circlefractal.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.IndexedFrame;
+import org.melvinwm.circlefractal.engine.Tile;
+
+/**
+ * Renders circle-fractal images by splitting them into tiles and handing the
+ * tiles to {@link TileWorker} processes, for instance started with
+ * {@link LocalWorkerProcesses}.
+ * 
+ * <p>
+ * Each worker gets one connection, and is handed the next pending tile each
+ * time it has answered the previous one, so faster workers get more tiles. A
+ * worker that fails, or does not answer a tile within the tile timeout, is
+ * dropped for the rest of the render, and its tile is handed to another
+ * worker. The render fails if a tile has been handed out too many times, or if
+ * all workers have been dropped.
+ * 
+ * <p>
+ * Thread safety: Immutable, and renders may run concurrently.
+ */
+public final class DistributedRenderCoordinator {
+
+	public static final int defaultTileSize = 64;
+	public static final long defaultTileTimeoutMillis = 10_000;
+	public static final int defaultMaximumAttemptsPerTile = 3;
+
+	private static final int connectTimeoutMillis = 5_000;
+	private static final long pollIntervalMillis = 50;
+
+	private static final Logger logger = LogManager.getLogger(DistributedRenderCoordinator.class);
+
+	private final List<InetSocketAddress> workerAddresses;
+	private final int tileSize;
+	private final long tileTimeoutMillis;
+	private final int maximumAttemptsPerTile;
+
+	public DistributedRenderCoordinator(List<InetSocketAddress> workerAddresses) {
+		this(workerAddresses, defaultTileSize, defaultTileTimeoutMillis, defaultMaximumAttemptsPerTile);
+	}
+
+	/**
+	 * @param workerAddresses
+	 *            Addresses of the workers. Must not be empty.
+	 * @param tileSize
+	 *            Width and height of the tiles. Must be strictly positive.
+	 * @param tileTimeoutMillis
+	 *            The time a worker may take to answer a tile before it is
+	 *            considered to have fallen behind. Must be strictly positive.
+	 * @param maximumAttemptsPerTile
+	 *            The number of times a tile may be handed out. Must be strictly
+	 *            positive.
+	 */
+	public DistributedRenderCoordinator(List<InetSocketAddress> workerAddresses, int tileSize,
+			long tileTimeoutMillis, int maximumAttemptsPerTile) {
+
+		if (workerAddresses.isEmpty()) {
+			throw new IllegalArgumentException("No worker addresses were given.");
+		}
+		if (tileSize <= 0 || tileTimeoutMillis <= 0 || maximumAttemptsPerTile <= 0) {
+			throw new IllegalArgumentException("Illegal tile settings: tileSize " + tileSize + ", tileTimeoutMillis "
+					+ tileTimeoutMillis + ", maximumAttemptsPerTile " + maximumAttemptsPerTile + ".");
+		}
+
+		this.workerAddresses = Collections.unmodifiableList(new ArrayList<>(workerAddresses));
+		this.tileSize = tileSize;
+		this.tileTimeoutMillis = tileTimeoutMillis;
+		this.maximumAttemptsPerTile = maximumAttemptsPerTile;
+	}
+
+	/**
+	 * Renders an image.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @throws InterruptedException
+	 *             If interrupted, in which case the render is stopped.
+	 * @throws IllegalStateException
+	 *             If the render failed, see the class documentation.
+	 */
+	public Result render(CircleFractalParameters parameters) throws InterruptedException {
+
+		final List<Tile> tiles = Tile.split(parameters.width, parameters.height, tileSize);
+		final RenderState state = new RenderState(parameters, tiles);
+
+		// NOTE: Ownership (thread pool): Locally here, closed in this scope.
+		final ExecutorService connectionExecutorService = Executors.newFixedThreadPool(workerAddresses.size());
+
+		try {
+
+			for (final InetSocketAddress workerAddress : workerAddresses) {
+				connectionExecutorService.execute(() -> serveWorker(workerAddress, state));
+			}
+
+			while (!state.remainingTileCount.await(pollIntervalMillis, TimeUnit.MILLISECONDS)) {
+
+				final String failure = state.failure.get();
+				if (failure != null) {
+					throw new IllegalStateException(failure);
+				}
+				if (state.droppedWorkerCount.get() == workerAddresses.size()) {
+					throw new IllegalStateException("All workers failed, with "
+							+ state.remainingTileCount.getCount() + " of " + tiles.size() + " tiles not rendered.");
+				}
+			}
+
+			return new Result(state.frame, tiles.size(), state.retriedTileCount.get(),
+					state.droppedWorkerCount.get());
+
+		} finally {
+
+			connectionExecutorService.shutdownNow();
+
+			// Blocking socket operations are not interruptible, so close the sockets.
+			synchronized (state.sockets) {
+				for (final Socket socket : state.sockets) {
+					try {
+						socket.close();
+					} catch (IOException e) {
+						// Ignore.
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Hands tiles to a worker until all tiles are rendered, or the worker fails.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	private void serveWorker(InetSocketAddress workerAddress, RenderState state) {
+
+		// The tile handed to the worker and not yet answered, if any.
+		int tileId = -1;
+
+		try (final Socket socket = new Socket()) {
+
+			synchronized (state.sockets) {
+				state.sockets.add(socket);
+			}
+
+			socket.connect(workerAddress, connectTimeoutMillis);
+			socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, tileTimeoutMillis));
+			socket.setTcpNoDelay(true);
+
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			TileProtocol.writeHandshake(out);
+			TileProtocol.readHandshake(in);
+			TileProtocol.writeJob(out, state.parameters);
+
+			while (state.remainingTileCount.getCount() > 0 && state.failure.get() == null) {
+
+				final Integer nextTileId = state.pendingTileIds.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+				if (nextTileId == null) {
+					continue;
+				}
+
+				tileId = nextTileId;
+				state.attempts.incrementAndGet(tileId);
+
+				final Tile tile = state.tiles.get(tileId);
+				TileProtocol.writeTile(out, tileId, tile);
+				TileProtocol.readTileResult(in, tileId, tile, state.frame);
+
+				tileId = -1;
+				state.remainingTileCount.countDown();
+			}
+
+		} catch (IOException e) {
+			state.droppedWorkerCount.incrementAndGet();
+			logger.warn("Worker {} failed or fell behind, and is dropped for the rest of the render: {}",
+					workerAddress, e.toString());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (tileId >= 0) {
+				if (state.attempts.get(tileId) >= maximumAttemptsPerTile) {
+					state.failure.compareAndSet(null, "Tile " + state.tiles.get(tileId) + " failed "
+							+ maximumAttemptsPerTile + " times.");
+				} else {
+					state.retriedTileCount.incrementAndGet();
+					state.pendingTileIds.add(tileId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The state of a single render, shared by the connections to the workers.
+	 */
+	private static final class RenderState {
+
+		final CircleFractalParameters parameters;
+		final List<Tile> tiles;
+
+		// Written by the connections, each tile by one connection only.
+		final IndexedFrame frame;
+
+		final BlockingQueue<Integer> pendingTileIds;
+		final AtomicIntegerArray attempts;
+		final CountDownLatch remainingTileCount;
+		final AtomicInteger retriedTileCount = new AtomicInteger();
+		final AtomicInteger droppedWorkerCount = new AtomicInteger();
+		/**
+		 * Holds null until the render has failed.
+		 */
+		final AtomicReference<String> failure = new AtomicReference<>();
+
+		// Guarded by itself.
+		final List<Socket> sockets = new ArrayList<>();
+
+		RenderState(CircleFractalParameters parameters, List<Tile> tiles) {
+			this.parameters = parameters;
+			this.tiles = tiles;
+			this.frame = new IndexedFrame(parameters.width, parameters.height);
+			this.pendingTileIds = new LinkedBlockingQueue<>(
+					IntStream.range(0, tiles.size()).boxed().collect(Collectors.toList()));
+			this.attempts = new AtomicIntegerArray(tiles.size());
+			this.remainingTileCount = new CountDownLatch(tiles.size());
+		}
+	}
+
+	/**
+	 * The result of a render.
+	 * 
+	 * <p>
+	 * Thread safety: Immutable, apart from the frame, which is owned by the
+	 * receiver.
+	 */
+	public static final class Result {
+
+		/**
+		 * The image.
+		 */
+		public final IndexedFrame frame;
+		public final int tileCount;
+		/**
+		 * The number of times a tile was handed to another worker after a worker
+		 * failed or fell behind.
+		 */
+		public final int retriedTileCount;
+		public final int droppedWorkerCount;
+
+		Result(IndexedFrame frame, int tileCount, int retriedTileCount, int droppedWorkerCount) {
+			this.frame = frame;
+			this.tileCount = tileCount;
+			this.retriedTileCount = retriedTileCount;
+			this.droppedWorkerCount = droppedWorkerCount;
+		}
+	}
+}
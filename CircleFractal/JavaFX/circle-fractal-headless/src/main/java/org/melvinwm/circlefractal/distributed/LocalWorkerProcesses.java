@@ -0,0 +1,155 @@
+package org.melvinwm.circlefractal.distributed;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TileWorker} processes on the local machine, each in its own JVM with
+ * the class path of this JVM.
+ * 
+ * <p>
+ * The workers exit when closed, and also when this JVM exits, since they exit
+ * when their standard input is closed.
+ * 
+ * <p>
+ * Thread safety: Not thread-safe.
+ */
+public final class LocalWorkerProcesses implements AutoCloseable {
+
+	private final List<Process> processes;
+	private final List<InetSocketAddress> addresses;
+
+	private LocalWorkerProcesses(List<Process> processes, List<InetSocketAddress> addresses) {
+		this.processes = processes;
+		this.addresses = addresses;
+	}
+
+	/**
+	 * Starts the given number of workers, and waits until they listen.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @param jvmOptions
+	 *            Extra options for the worker JVMs, for instance for the heap size.
+	 */
+	public static LocalWorkerProcesses start(int count, List<String> jvmOptions) throws IOException {
+
+		final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+		final List<Process> processes = new ArrayList<>();
+		final List<InetSocketAddress> addresses = new ArrayList<>();
+
+		try {
+			for (int i = 0; i < count; i++) {
+
+				final List<String> command = new ArrayList<>();
+				command.add(java);
+				command.addAll(jvmOptions);
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(TileWorker.class.getName());
+				command.add("0");
+				command.add(TileWorker.exitWhenStdinClosesOption);
+
+				final Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT)
+						.start();
+				processes.add(process);
+
+				addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), readPort(process)));
+			}
+		} catch (IOException | RuntimeException e) {
+			destroy(processes);
+			throw e;
+		}
+
+		return new LocalWorkerProcesses(processes, Collections.unmodifiableList(addresses));
+	}
+
+	/**
+	 * Reads the port from the first line of the worker's output, and then keeps
+	 * draining the output, so that the worker never blocks on it.
+	 */
+	private static int readPort(Process process) throws IOException {
+
+		final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+		final String line = reader.readLine();
+		if (line == null || !line.startsWith(TileWorker.listeningPrefix)) {
+			throw new IOException("Worker did not start, output: " + line);
+		}
+
+		final Thread drainer = new Thread(() -> {
+			try {
+				while (reader.readLine() != null) {
+					// Ignore the output.
+				}
+			} catch (IOException e) {
+				// The worker has exited.
+			}
+		}, "tile-worker-output-drainer");
+		drainer.setDaemon(true);
+		drainer.start();
+
+		try {
+			return Integer.parseInt(line.substring(TileWorker.listeningPrefix.length()).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Worker did not report its port: " + line, e);
+		}
+	}
+
+	/**
+	 * @return The addresses of the workers, in start order.
+	 */
+	public List<InetSocketAddress> getAddresses() {
+		return addresses;
+	}
+
+	/**
+	 * Kills a single worker, for instance to simulate a crash.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	public void kill(int index) throws InterruptedException {
+		processes.get(index).destroyForcibly().waitFor();
+	}
+
+	/**
+	 * Stops all the workers.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	@Override
+	public void close() {
+		destroy(processes);
+	}
+
+	private static void destroy(List<Process> processes) {
+
+		for (final Process process : processes) {
+			process.destroy();
+		}
+		for (final Process process : processes) {
+			try {
+				if (!process.waitFor(5, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+			} catch (InterruptedException e) {
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package org.melvinwm.circlefractal.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.IndexedColors;
+import org.melvinwm.circlefractal.engine.IndexedFrame;
+import org.melvinwm.circlefractal.engine.Tile;
+
+/**
+ * The binary protocol between {@link DistributedRenderCoordinator} and
+ * {@link TileWorker}, over a stream connection.
+ * 
+ * <p>
+ * All numbers are big-endian, as written by {@link DataOutputStream}. A
+ * session is:
+ * <ol>
+ * <li>The coordinator sends the magic number and the protocol version, and the
+ * worker answers with the same.
+ * <li>The coordinator sends a job message with the parameters of the render.
+ * <li>The coordinator sends tile messages, and for each, the worker answers
+ * with a tile result message or an error message, in order.
+ * <li>Either side closes the connection.
+ * </ol>
+ * 
+ * <p>
+ * Messages start with a type byte:
+ * <ul>
+ * <li>Job: Width, height, number of iterations and division factor as ints,
+ * and the cut-off as a double.
+ * <li>Tile: The tile ID, x, y, width and height as ints.
+ * <li>Tile result: The tile ID as an int, and then the packed pixels.
+ * <li>Error: A message, as modified UTF-8.
+ * </ul>
+ * 
+ * <p>
+ * The pixels of a tile are packed in row-major order as 2 bytes each, the
+ * palette index of the color, see {@link IndexedColors}.
+ * 
+ * <p>
+ * Thread safety: Stateless.
+ */
+final class TileProtocol {
+
+	static final int magic = 0x43465244; // "CFRD".
+	static final int version = 2;
+
+	static final byte jobType = 1;
+	static final byte tileType = 2;
+	static final byte tileResultType = 3;
+	static final byte errorType = 4;
+
+	static final int bytesPerPixel = 2;
+
+	private TileProtocol() {
+	}
+
+	/**
+	 * Blocking: Yes.
+	 */
+	static void writeHandshake(DataOutputStream out) throws IOException {
+		out.writeInt(magic);
+		out.writeInt(version);
+		out.flush();
+	}
+
+	/**
+	 * Blocking: Yes.
+	 * 
+	 * @throws IOException
+	 *             Also if the other side does not speak this protocol version.
+	 */
+	static void readHandshake(DataInputStream in) throws IOException {
+
+		final int readMagic = in.readInt();
+		final int readVersion = in.readInt();
+
+		if (readMagic != magic || readVersion != version) {
+			throw new IOException("Unexpected handshake: " + Integer.toHexString(readMagic) + ", version "
+					+ readVersion + ".");
+		}
+	}
+
+	/**
+	 * Blocking: Yes.
+	 */
+	static void writeJob(DataOutputStream out, CircleFractalParameters parameters) throws IOException {
+		out.writeByte(jobType);
+		out.writeInt(parameters.width);
+		out.writeInt(parameters.height);
+		out.writeInt(parameters.numberOfIterations);
+		out.writeInt(parameters.divisionFactor);
+		out.writeDouble(parameters.cutOff);
+		out.flush();
+	}
+
+	/**
+	 * Blocking: Yes.
+	 * 
+	 * @throws IOException
+	 *             Also if the parameters are not valid.
+	 */
+	static CircleFractalParameters readJob(DataInputStream in) throws IOException {
+
+		expectType(in, jobType);
+
+		final int width = in.readInt();
+		final int height = in.readInt();
+		final int numberOfIterations = in.readInt();
+		final int divisionFactor = in.readInt();
+		final double cutOff = in.readDouble();
+
+		try {
+			return new CircleFractalParameters(width, height, numberOfIterations, divisionFactor, cutOff);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid job parameters.", e);
+		}
+	}
+
+	/**
+	 * Blocking: Yes.
+	 */
+	static void writeTile(DataOutputStream out, int tileId, Tile tile) throws IOException {
+		out.writeByte(tileType);
+		out.writeInt(tileId);
+		out.writeInt(tile.x);
+		out.writeInt(tile.y);
+		out.writeInt(tile.width);
+		out.writeInt(tile.height);
+		out.flush();
+	}
+
+	/**
+	 * Reads a tile message, without the type byte.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @return The tile ID and the tile.
+	 */
+	static TileRequest readTileBody(DataInputStream in) throws IOException {
+
+		final int tileId = in.readInt();
+		final int x = in.readInt();
+		final int y = in.readInt();
+		final int width = in.readInt();
+		final int height = in.readInt();
+
+		try {
+			return new TileRequest(tileId, new Tile(x, y, width, height));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid tile.", e);
+		}
+	}
+
+	/**
+	 * Blocking: Yes.
+	 * 
+	 * @param argb
+	 *            The colors of the tile, in row-major order. Must be colors of
+	 *            the palette.
+	 */
+	static void writeTileResult(DataOutputStream out, int tileId, int[] argb) throws IOException {
+
+		final byte[] packed = new byte[argb.length * bytesPerPixel];
+		for (int i = 0, j = 0; i < argb.length; i++) {
+			final int index = IndexedColors.toIndex(argb[i]);
+			packed[j++] = (byte) (index >>> 8);
+			packed[j++] = (byte) index;
+		}
+
+		out.writeByte(tileResultType);
+		out.writeInt(tileId);
+		out.write(packed);
+		out.flush();
+	}
+
+	/**
+	 * Reads the answer to a tile message, and unpacks the pixels into the image.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @param image
+	 *            The image the tile is part of.
+	 * @throws IOException
+	 *             Also if the worker answered with an error, with another tile,
+	 *             or with colors outside the palette.
+	 */
+	static void readTileResult(DataInputStream in, int expectedTileId, Tile tile, IndexedFrame image)
+			throws IOException {
+
+		final int type = in.readByte();
+		if (type == errorType) {
+			throw new IOException("Worker error: " + in.readUTF());
+		}
+		if (type != tileResultType) {
+			throw new IOException("Unexpected message type: " + type + ".");
+		}
+
+		final int tileId = in.readInt();
+		if (tileId != expectedTileId) {
+			throw new IOException("Unexpected tile ID: " + tileId + ", expected " + expectedTileId + ".");
+		}
+
+		final byte[] packed = new byte[tile.getPixelCount() * bytesPerPixel];
+		in.readFully(packed);
+
+		int j = 0;
+		for (int y = 0; y < tile.height; y++) {
+			final int rowOffset = (tile.y + y) * image.width + tile.x;
+			for (int x = 0; x < tile.width; x++) {
+				final int index = ((packed[j++] & 0xFF) << 8) | (packed[j++] & 0xFF);
+				if (index >= IndexedColors.colorCount) {
+					throw new IOException("Invalid palette index: " + index + ".");
+				}
+				image.setIndex(rowOffset + x, index);
+			}
+		}
+	}
+
+	/**
+	 * Blocking: Yes.
+	 */
+	static void writeError(DataOutputStream out, String message) throws IOException {
+		out.writeByte(errorType);
+		out.writeUTF(message);
+		out.flush();
+	}
+
+	private static void expectType(DataInputStream in, byte expectedType) throws IOException {
+		final int type = in.readByte();
+		if (type != expectedType) {
+			throw new IOException("Unexpected message type: " + type + ", expected " + expectedType + ".");
+		}
+	}
+
+	/**
+	 * A tile message.
+	 */
+	static final class TileRequest {
+
+		final int tileId;
+		final Tile tile;
+
+		TileRequest(int tileId, Tile tile) {
+			this.tileId = tileId;
+			this.tile = tile;
+		}
+	}
+}
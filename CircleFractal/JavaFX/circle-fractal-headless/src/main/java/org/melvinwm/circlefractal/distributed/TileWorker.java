@@ -0,0 +1,234 @@
+package org.melvinwm.circlefractal.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.Tile;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+/**
+ * Worker process for distributed rendering: Listens on a local socket, and
+ * renders the tiles it is sent by a {@link DistributedRenderCoordinator}, see
+ * {@link TileProtocol}.
+ * 
+ * <p>
+ * Each tile is rendered using all the cores of the machine, and each
+ * connection is served by its own thread.
+ * 
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+public final class TileWorker implements AutoCloseable {
+
+	/**
+	 * Printed on standard output followed by the port once the worker is
+	 * listening, see {@link #main}.
+	 */
+	static final String listeningPrefix = "Listening on port ";
+
+	static final String exitWhenStdinClosesOption = "--exit-when-stdin-closes";
+
+	private static final Logger logger = LogManager.getLogger(TileWorker.class);
+
+	private final ServerSocket serverSocket;
+
+	// NOTE: Ownership (thread pools): Owned by this, closed in 'close'.
+	private final ExecutorService connectionExecutorService = Executors.newCachedThreadPool();
+	private final ExecutorService renderingExecutorService = Executors
+			.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Starts listening on the loopback interface.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @param port
+	 *            The port, or 0 for any free port.
+	 */
+	public TileWorker(int port) throws IOException {
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+	}
+
+	/**
+	 * @return The port listened on.
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accepts and serves connections until closed.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	public void serve() {
+
+		while (!serverSocket.isClosed()) {
+			try {
+				final Socket socket = serverSocket.accept();
+				connectionExecutorService.execute(() -> serveConnection(socket));
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					logger.warn("Failed to accept a connection.", e);
+				}
+			}
+		}
+	}
+
+	private void serveConnection(Socket acceptedSocket) {
+
+		try (final Socket socket = acceptedSocket) {
+
+			socket.setTcpNoDelay(true);
+
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			TileProtocol.readHandshake(in);
+			TileProtocol.writeHandshake(out);
+
+			final TileRenderer tileRenderer = new TileRenderer(TileProtocol.readJob(in));
+			final CircleFractalParameters parameters = tileRenderer.getParameters();
+
+			while (true) {
+
+				final int type = in.read();
+				if (type < 0) {
+					// Closed by the coordinator.
+					return;
+				}
+				if (type != TileProtocol.tileType) {
+					TileProtocol.writeError(out, "Unexpected message type: " + type + ".");
+					return;
+				}
+
+				final TileProtocol.TileRequest request = TileProtocol.readTileBody(in);
+				if (!request.tile.isWithin(parameters.width, parameters.height)) {
+					TileProtocol.writeError(out, "Tile " + request.tile + " is not within the image.");
+					continue;
+				}
+
+				final int[] argb;
+				try {
+					argb = render(tileRenderer, request.tile);
+				} catch (ExecutionException e) {
+					// Let the coordinator know why, rather than just closing the connection.
+					logger.error("Failed to render tile " + request.tile + ".", e);
+					TileProtocol.writeError(out, "Failed to render tile " + request.tile + ": " + e.getCause() + ".");
+					return;
+				}
+
+				TileProtocol.writeTileResult(out, request.tileId, argb);
+			}
+
+		} catch (IOException e) {
+			logger.debug("Connection closed: {}", e.toString());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Renders the tile, splitting its rows among the rendering threads.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	private int[] render(TileRenderer tileRenderer, Tile tile) throws InterruptedException, ExecutionException {
+
+		final int[] argb = new int[tile.getPixelCount()];
+
+		final int bandCount = Math.min(tile.height, Runtime.getRuntime().availableProcessors());
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int band = 0; band < bandCount; band++) {
+			final int fromRow = band * tile.height / bandCount;
+			final int toRow = (band + 1) * tile.height / bandCount;
+			tasks.add(() -> {
+				tileRenderer.renderRows(tile, fromRow, toRow, argb, 0, tile.width);
+				return null;
+			});
+		}
+
+		for (final Future<Void> result : renderingExecutorService.invokeAll(tasks)) {
+			result.get();
+		}
+
+		return argb;
+	}
+
+	/**
+	 * Stops listening, and stops serving the open connections.
+	 * 
+	 * <p>
+	 * Blocking: No.
+	 */
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		connectionExecutorService.shutdownNow();
+		renderingExecutorService.shutdownNow();
+	}
+
+	/**
+	 * Runs a worker.
+	 * 
+	 * <p>
+	 * Arguments: The port to listen on, where 0 or no port means any free port,
+	 * and optionally {@value #exitWhenStdinClosesOption}, for exiting when the
+	 * standard input is closed, for instance because the process that started the
+	 * worker died. The port listened on is printed on the standard output as the
+	 * first line.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		int port = 0;
+		boolean isExitingWhenStdinCloses = false;
+		for (final String arg : args) {
+			if (arg.equals(exitWhenStdinClosesOption)) {
+				isExitingWhenStdinCloses = true;
+			} else {
+				port = Integer.parseInt(arg);
+			}
+		}
+
+		final TileWorker worker = new TileWorker(port);
+
+		System.out.println(listeningPrefix + worker.getPort());
+		System.out.flush();
+
+		if (isExitingWhenStdinCloses) {
+			final Thread stdinWatcher = new Thread(() -> {
+				try {
+					while (System.in.read() >= 0) {
+						// Ignore the input.
+					}
+				} catch (IOException e) {
+					// Treat as closed.
+				}
+				System.exit(0);
+			}, "tile-worker-stdin-watcher");
+			stdinWatcher.setDaemon(true);
+			stdinWatcher.start();
+		}
+
+		worker.serve();
+	}
+}
@@ -0,0 +1,277 @@
+package org.melvinwm.circlefractal.export;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.DistanceField;
+import org.melvinwm.circlefractal.engine.IndexedFrame;
+import org.melvinwm.circlefractal.engine.PngEncoding;
+import org.melvinwm.circlefractal.engine.RenderScheduler;
+
+/**
+ * Renders animations as numbered PNG files, one per frame of a parameter path,
+ * see {@link ParameterPath}.
+ * 
+ * <p>
+ * Work is shared between frames through a {@link DistanceField}: Frames that
+ * differ from the previous frame only in the cut-off reuse its distances, and
+ * frames with more iterations continue its descents. Only frames that change
+ * the size or the division factor, or decrease the number of iterations, start
+ * over.
+ * 
+ * <p>
+ * Computing and encoding are pipelined: Frames are encoded and written on
+ * separate encoder threads while the following frames are computed, with a
+ * bounded number of frames waiting to be encoded. The encoder threads
+ * compress bands of each frame in parallel on the compute threads, see
+ * {@link PngEncoding#write(IndexedFrame, Path, java.util.concurrent.Executor)},
+ * so that encoding large frames does not fall behind the computation.
+ * 
+ * <p>
+ * The computing runs in the background class of the shared
+ * {@link RenderScheduler}, so interactive renders in the same JVM, such as the
+ * previews of the GUI, go first.
+ * 
+ * <p>
+ * Thread safety: Immutable, and renders may run concurrently.
+ */
+public final class AnimationSweepRenderer {
+
+	/**
+	 * The default file name pattern, formatted with the frame number.
+	 */
+	public static final String defaultFileNamePattern = "frame-%05d.png";
+
+	private static final Logger logger = LogManager.getLogger(AnimationSweepRenderer.class);
+
+	private final int computeThreadCount;
+	private final int encoderThreadCount;
+
+	/**
+	 * Uses all the workers of the shared scheduler for computing, and one encoder
+	 * thread.
+	 */
+	public AnimationSweepRenderer() {
+		this(RenderScheduler.getInstance().getWorkerCount(), 1);
+	}
+
+	/**
+	 * @param computeThreadCount
+	 *            The most workers of the shared scheduler used for computing at
+	 *            the same time. Must be strictly positive.
+	 * @param encoderThreadCount
+	 *            Must be strictly positive.
+	 */
+	public AnimationSweepRenderer(int computeThreadCount, int encoderThreadCount) {
+
+		if (computeThreadCount <= 0 || encoderThreadCount <= 0) {
+			throw new IllegalArgumentException("Thread counts were not strictly positive: " + computeThreadCount
+					+ ", " + encoderThreadCount + ".");
+		}
+
+		this.computeThreadCount = computeThreadCount;
+		this.encoderThreadCount = encoderThreadCount;
+	}
+
+	/**
+	 * Renders every frame of the path into the output directory.
+	 * 
+	 * <p>
+	 * Blocking: Yes, computationally heavy.
+	 * 
+	 * @param fileNamePattern
+	 *            Formatted with the frame number from 0, see
+	 *            {@link #defaultFileNamePattern}.
+	 * @throws InterruptedException
+	 *             If interrupted, in which case the render is stopped.
+	 */
+	public Result render(List<CircleFractalParameters> path, Path outputDirectory, String fileNamePattern)
+			throws IOException, InterruptedException {
+
+		Files.createDirectories(outputDirectory);
+
+		final long startNanos = System.nanoTime();
+
+		// NOTE: Ownership (executor and thread pool): Locally here, closed in this
+		// scope.
+		final ExecutorService computeExecutorService = RenderScheduler.getInstance()
+				.newExecutor(RenderScheduler.Priority.BACKGROUND, computeThreadCount);
+		final ExecutorService encoderExecutorService = Executors.newFixedThreadPool(encoderThreadCount);
+
+		// Bounds the frames computed but not yet written.
+		final Semaphore pendingFramePermits = new Semaphore(2 * encoderThreadCount);
+		final List<Future<?>> writes = new ArrayList<>();
+
+		int newFieldCount = 0;
+		int deepenedCount = 0;
+		int recoloredCount = 0;
+
+		try {
+
+			DistanceField distanceField = null;
+
+			for (int frame = 0; frame < path.size(); frame++) {
+
+				final CircleFractalParameters parameters = path.get(frame);
+
+				if (distanceField == null || !distanceField.canRender(parameters)) {
+					distanceField = new DistanceField(parameters.width, parameters.height,
+							parameters.divisionFactor, computeExecutorService);
+					newFieldCount++;
+				} else if (distanceField.getNumberOfIterations() < parameters.numberOfIterations) {
+					deepenedCount++;
+				} else {
+					recoloredCount++;
+				}
+				distanceField.deepen(parameters.numberOfIterations, computeExecutorService);
+
+				pendingFramePermits.acquire();
+
+				// Pending frames are kept indexed, and only expanded while encoding.
+				final IndexedFrame indexedFrame = new IndexedFrame(parameters.width, parameters.height);
+				distanceField.colorize(parameters.cutOff, indexedFrame, computeExecutorService);
+
+				final Path file = outputDirectory.resolve(String.format(fileNamePattern, frame));
+				writes.add(encoderExecutorService.submit(() -> {
+					try {
+						PngEncoding.write(indexedFrame, file, computeExecutorService);
+					} finally {
+						pendingFramePermits.release();
+					}
+					return null;
+				}));
+
+				checkWrites(writes, false);
+			}
+
+			checkWrites(writes, true);
+
+		} finally {
+			computeExecutorService.shutdownNow();
+			encoderExecutorService.shutdownNow();
+		}
+
+		final Result result = new Result(path.size(), newFieldCount, deepenedCount, recoloredCount,
+				System.nanoTime() - startNanos);
+		logger.info("Rendered animation sweep: {}.", result);
+		return result;
+	}
+
+	/**
+	 * Fails if a write has failed.
+	 * 
+	 * @param isWaiting
+	 *            Whether to wait for the writes to finish.
+	 */
+	private static void checkWrites(List<Future<?>> writes, boolean isWaiting)
+			throws IOException, InterruptedException {
+
+		for (final Future<?> write : writes) {
+			if (!isWaiting && !write.isDone()) {
+				continue;
+			}
+			try {
+				write.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IllegalStateException("Failed to write a frame.", e.getCause());
+			}
+		}
+		writes.removeIf(Future::isDone);
+	}
+
+	/**
+	 * Thread safety: Immutable.
+	 */
+	public static final class Result {
+
+		public final int frameCount;
+		/**
+		 * Frames whose distances were computed from the start.
+		 */
+		public final int newFieldCount;
+		/**
+		 * Frames that continued the descents of the previous frame.
+		 */
+		public final int deepenedCount;
+		/**
+		 * Frames that reused the distances of the previous frame.
+		 */
+		public final int recoloredCount;
+		public final long elapsedNanos;
+
+		Result(int frameCount, int newFieldCount, int deepenedCount, int recoloredCount, long elapsedNanos) {
+			this.frameCount = frameCount;
+			this.newFieldCount = newFieldCount;
+			this.deepenedCount = deepenedCount;
+			this.recoloredCount = recoloredCount;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public double getFramesPerSecond() {
+			return frameCount / (Math.max(elapsedNanos, 1) / 1e9);
+		}
+
+		@Override
+		public String toString() {
+			return frameCount + " frames (" + newFieldCount + " new, " + deepenedCount + " deepened, "
+					+ recoloredCount + " recolored) in " + String.format("%.2f", elapsedNanos / 1e9) + " s, "
+					+ String.format("%.2f", getFramesPerSecond()) + " frames/s";
+		}
+	}
+
+	/**
+	 * Renders a sweep.
+	 * 
+	 * <p>
+	 * Arguments: The output directory, the kind of sweep, "cutOff" or
+	 * "iterations", the value to sweep to, and for cut-off sweeps the number of
+	 * frames. The start parameters are given with the system properties
+	 * 'circlefractal.sweep.width' (default 1280), 'circlefractal.sweep.height'
+	 * (default 720), 'circlefractal.sweep.iterations' (default 5),
+	 * 'circlefractal.sweep.divisionFactor' (default 3) and
+	 * 'circlefractal.sweep.cutOff' (default 1.5).
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		if (args.length < 3) {
+			System.err.println("Arguments: <output directory> cutOff <to cut-off> <frame count>");
+			System.err.println("       or: <output directory> iterations <to number of iterations>");
+			System.exit(2);
+		}
+
+		final CircleFractalParameters start = new CircleFractalParameters(
+				Integer.getInteger("circlefractal.sweep.width", 1280),
+				Integer.getInteger("circlefractal.sweep.height", 720),
+				Integer.getInteger("circlefractal.sweep.iterations", 5),
+				Integer.getInteger("circlefractal.sweep.divisionFactor", 3),
+				Double.parseDouble(System.getProperty("circlefractal.sweep.cutOff", "1.5")));
+
+		final List<CircleFractalParameters> path;
+		if (args[1].equals("cutOff")) {
+			path = ParameterPath.cutOffSweep(start, Double.parseDouble(args[2]), Integer.parseInt(args[3]));
+		} else if (args[1].equals("iterations")) {
+			path = ParameterPath.iterationSweep(start, Integer.parseInt(args[2]), 1);
+		} else {
+			throw new IllegalArgumentException("Unknown kind of sweep: '" + args[1] + "'.");
+		}
+
+		final Result result = new AnimationSweepRenderer().render(path, Paths.get(args[0]), defaultFileNamePattern);
+
+		System.out.println(result);
+	}
+}
@@ -0,0 +1,314 @@
+package org.melvinwm.circlefractal.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.PngEncoding;
+import org.melvinwm.circlefractal.engine.RenderScheduler;
+import org.melvinwm.circlefractal.engine.RunLengthTile;
+import org.melvinwm.circlefractal.engine.Tile;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+/**
+ * Renders large images as PNG files, such as prints that take hours, so that
+ * a render killed part-way, for instance with the JVM, resumes where it
+ * stopped instead of starting over.
+ *
+ * <p>
+ * The image is rendered in tiles, and every completed tile is appended
+ * run-length encoded to a checkpoint file next to the output, see
+ * {@link RenderCheckpoint}, which is forced to the storage device at a fixed
+ * interval. A render of the same parameters to the same output restores the
+ * tiles of the checkpoint and only renders the missing ones, including tiles
+ * whose records were found incomplete or damaged. Once all tiles are
+ * completed, the image is encoded from the tiles a band of rows at a time,
+ * written to a temporary file that is then moved to the output, and the
+ * checkpoint is deleted.
+ *
+ * <p>
+ * The computing runs in the background class of the shared
+ * {@link RenderScheduler}, so interactive renders in the same JVM, such as the
+ * previews of the GUI, go first.
+ *
+ * <p>
+ * Thread safety: Immutable, and renders to different outputs may run
+ * concurrently.
+ */
+public final class CheckpointedExport {
+
+	/**
+	 * The suffix of the checkpoint file, appended to the output file name.
+	 */
+	public static final String checkpointSuffix = ".checkpoint";
+
+	static final int defaultTileSize = 256;
+	static final long defaultCheckpointIntervalMillis = 10_000;
+
+	private static final Logger logger = LogManager.getLogger(CheckpointedExport.class);
+
+	private final int computeThreadCount;
+	private final int tileSize;
+	private final long checkpointIntervalMillis;
+
+	/**
+	 * Uses all the workers of the shared scheduler, tiles of
+	 * {@value #defaultTileSize} pixels, and checkpoints every
+	 * {@value #defaultCheckpointIntervalMillis} ms.
+	 */
+	public CheckpointedExport() {
+		this(RenderScheduler.getInstance().getWorkerCount(), defaultTileSize, defaultCheckpointIntervalMillis);
+	}
+
+	/**
+	 * @param computeThreadCount
+	 *            The most workers of the shared scheduler used at the same
+	 *            time. Must be strictly positive.
+	 * @param tileSize
+	 *            Width and height of the tiles. Must be strictly positive. A
+	 *            checkpoint is only resumed with the same tile size.
+	 * @param checkpointIntervalMillis
+	 *            The most time between forcing the checkpoint to the storage
+	 *            device. Must be strictly positive. Completed tiles are
+	 *            appended at once, so they survive the JVM being killed
+	 *            regardless, but only survive a crash of the operating system
+	 *            once forced.
+	 */
+	public CheckpointedExport(int computeThreadCount, int tileSize, long checkpointIntervalMillis) {
+
+		if (computeThreadCount <= 0 || tileSize <= 0 || checkpointIntervalMillis <= 0) {
+			throw new IllegalArgumentException("Arguments were not strictly positive: " + computeThreadCount + ", "
+					+ tileSize + ", " + checkpointIntervalMillis + ".");
+		}
+
+		this.computeThreadCount = computeThreadCount;
+		this.tileSize = tileSize;
+		this.checkpointIntervalMillis = checkpointIntervalMillis;
+	}
+
+	/**
+	 * @return The checkpoint file of an output file.
+	 */
+	public static Path getCheckpointFile(Path file) {
+		return file.resolveSibling(file.getFileName() + checkpointSuffix);
+	}
+
+	/**
+	 * Renders an image into a PNG file, resuming from its checkpoint if any.
+	 *
+	 * <p>
+	 * Blocking: Yes, computationally heavy.
+	 *
+	 * @throws InterruptedException
+	 *             If interrupted, in which case the render is stopped, and
+	 *             resumed by the next render to the same file.
+	 */
+	public Result render(CircleFractalParameters parameters, Path file) throws IOException, InterruptedException {
+
+		final Path directory = file.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+
+		final long startNanos = System.nanoTime();
+
+		final List<Tile> tiles = Tile.split(parameters.width, parameters.height, tileSize);
+		final Map<Tile, RunLengthTile> completedTiles = new ConcurrentHashMap<>();
+		final TileRenderer renderer = new TileRenderer(parameters);
+
+		// NOTE: Ownership (checkpoint): Locally here, closed in this scope, or
+		// deleted once the image is written.
+		final RenderCheckpoint checkpoint = RenderCheckpoint.open(getCheckpointFile(file), parameters, tileSize);
+		completedTiles.putAll(checkpoint.getRestoredTiles());
+		final int restoredCount = completedTiles.size();
+		final int damagedCount = checkpoint.getDamagedCount();
+
+		if (restoredCount > 0) {
+			logger.info("Resuming the render of '{}' with {} of {} tiles restored.", file, restoredCount,
+					tiles.size());
+		}
+
+		// NOTE: Ownership (executor): Locally here, closed in this scope.
+		final ExecutorService computeExecutorService = RenderScheduler.getInstance()
+				.newExecutor(RenderScheduler.Priority.BACKGROUND, computeThreadCount);
+
+		boolean isWritten = false;
+		try {
+
+			final CompletionService<Void> renders = new ExecutorCompletionService<>(computeExecutorService);
+			int pendingCount = 0;
+			for (final Tile tile : tiles) {
+				if (!completedTiles.containsKey(tile)) {
+					renders.submit(() -> {
+						final RunLengthTile runLengthTile = RunLengthTile.encode(renderer.render(tile), tile.width,
+								tile.height);
+						checkpoint.append(tile, runLengthTile);
+						completedTiles.put(tile, runLengthTile);
+						return null;
+					});
+					pendingCount++;
+				}
+			}
+
+			long nextSyncNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMillis);
+			while (pendingCount > 0) {
+
+				final Future<Void> render = renders.poll(Math.max(0, nextSyncNanos - System.nanoTime()),
+						TimeUnit.NANOSECONDS);
+				if (render != null) {
+					checkRender(render);
+					pendingCount--;
+				}
+
+				if (System.nanoTime() - nextSyncNanos >= 0) {
+					checkpoint.sync();
+					nextSyncNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMillis);
+				}
+			}
+			checkpoint.sync();
+
+			write(parameters, tiles, completedTiles, file, computeExecutorService);
+			isWritten = true;
+
+		} finally {
+			computeExecutorService.shutdownNow();
+			if (isWritten) {
+				checkpoint.delete();
+			} else {
+				checkpoint.close();
+			}
+		}
+
+		final Result result = new Result(tiles.size(), restoredCount, damagedCount, System.nanoTime() - startNanos);
+		logger.info("Rendered '{}': {}.", file, result);
+		return result;
+	}
+
+	private static void checkRender(Future<Void> render) throws IOException, InterruptedException {
+		try {
+			render.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException("Failed to render a tile.", e.getCause());
+		}
+	}
+
+	/*
+	 * Encodes the completed tiles, a band of rows at a time, into a temporary
+	 * file, and moves it to the output, so that a failed write does not leave a
+	 * half-written image behind.
+	 */
+	private void write(CircleFractalParameters parameters, List<Tile> tiles, Map<Tile, RunLengthTile> completedTiles,
+			Path file, ExecutorService executor) throws IOException {
+
+		// In the row-major order of the split.
+		final int columnCount = (parameters.width + tileSize - 1) / tileSize;
+		final RunLengthTile[] tileArray = new RunLengthTile[tiles.size()];
+		for (int i = 0; i < tileArray.length; i++) {
+			tileArray[i] = completedTiles.get(tiles.get(i));
+		}
+
+		final Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temporaryFile)) {
+			PngEncoding.write((fromY, toY, argbOut) -> {
+				// Each tile overlapping the band is decoded in one pass.
+				for (int tileRow = fromY / tileSize; tileRow * tileSize < toY; tileRow++) {
+					final int rowFromY = Math.max(fromY, tileRow * tileSize);
+					final int rowToY = Math.min(toY, (tileRow + 1) * tileSize);
+					for (int column = 0; column < columnCount; column++) {
+						final Tile tile = tiles.get(tileRow * columnCount + column);
+						tileArray[tileRow * columnCount + column].decodeRows(rowFromY - tile.y, rowToY - tile.y,
+								argbOut, (rowFromY - fromY) * parameters.width + tile.x, parameters.width);
+					}
+				}
+			}, parameters.width, parameters.height, out, executor);
+		}
+
+		Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Thread safety: Immutable.
+	 */
+	public static final class Result {
+
+		public final int tileCount;
+		/**
+		 * Tiles restored from the checkpoint instead of rendered.
+		 */
+		public final int restoredCount;
+		/**
+		 * Tiles rendered again since their records in the checkpoint were
+		 * damaged.
+		 */
+		public final int damagedCount;
+		public final long elapsedNanos;
+
+		Result(int tileCount, int restoredCount, int damagedCount, long elapsedNanos) {
+			this.tileCount = tileCount;
+			this.restoredCount = restoredCount;
+			this.damagedCount = damagedCount;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		/**
+		 * @return The number of tiles rendered by this render.
+		 */
+		public int getRenderedCount() {
+			return tileCount - restoredCount;
+		}
+
+		@Override
+		public String toString() {
+			return tileCount + " tiles (" + restoredCount + " restored, " + getRenderedCount() + " rendered, "
+					+ damagedCount + " damaged) in " + String.format("%.2f", elapsedNanos / 1e9) + " s";
+		}
+	}
+
+	/**
+	 * Renders an image, resuming a previous render to the same file if any.
+	 *
+	 * <p>
+	 * Arguments: The output file. The parameters are given with the system
+	 * properties 'circlefractal.export.width' (default 7680),
+	 * 'circlefractal.export.height' (default 4320),
+	 * 'circlefractal.export.iterations' (default 5),
+	 * 'circlefractal.export.divisionFactor' (default 2) and
+	 * 'circlefractal.export.cutOff' (default 1.5).
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		if (args.length < 1) {
+			System.err.println("Arguments: <output file>");
+			System.exit(2);
+		}
+
+		final CircleFractalParameters parameters = new CircleFractalParameters(
+				Integer.getInteger("circlefractal.export.width", 7680),
+				Integer.getInteger("circlefractal.export.height", 4320),
+				Integer.getInteger("circlefractal.export.iterations", 5),
+				Integer.getInteger("circlefractal.export.divisionFactor", 2),
+				Double.parseDouble(System.getProperty("circlefractal.export.cutOff", "1.5")));
+
+		final Result result = new CheckpointedExport().render(parameters, Paths.get(args[0]));
+
+		System.out.println(result);
+	}
+}
@@ -0,0 +1,82 @@
+package org.melvinwm.circlefractal.export;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.melvinwm.circlefractal.engine.IndexedFrame;
+import org.melvinwm.circlefractal.engine.ParameterGridRenderer;
+import org.melvinwm.circlefractal.engine.PngEncoding;
+import org.melvinwm.circlefractal.engine.RenderControl;
+import org.melvinwm.circlefractal.engine.RenderScheduler;
+
+/**
+ * Renders an overview grid of thumbnails for a matrix of parameters as a single
+ * PNG file, see {@link ParameterGridRenderer}.
+ *
+ * <p>
+ * Thread safety: Stateless.
+ */
+public final class ParameterGridExporter {
+
+	private ParameterGridExporter() {
+	}
+
+	private static <T> List<T> parseList(String text, Function<String, T> parser) {
+		return Stream.of(text.split(",")).map(String::trim).map(parser).collect(Collectors.toList());
+	}
+
+	/**
+	 * Renders a grid.
+	 *
+	 * <p>
+	 * Arguments: The output file, and comma-separated lists of the division
+	 * factors of the rows, and of the iteration counts and cut-offs of the
+	 * columns. The thumbnail size and the gap between them are given with the
+	 * system properties 'circlefractal.grid.width' (default 160),
+	 * 'circlefractal.grid.height' (default 120) and 'circlefractal.grid.gap'
+	 * (default 4).
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+
+		if (args.length < 4) {
+			System.err.println(
+					"Arguments: <output file> <division factors> <iteration counts> <cut-offs>, for instance:");
+			System.err.println("           grid.png 2,3,4 5,10,20 0.5,1.5");
+			System.exit(2);
+		}
+
+		final ParameterGridRenderer renderer = new ParameterGridRenderer(
+				Integer.getInteger("circlefractal.grid.width", 160),
+				Integer.getInteger("circlefractal.grid.height", 120), parseList(args[1], Integer::valueOf),
+				parseList(args[2], Integer::valueOf), parseList(args[3], Double::valueOf),
+				Integer.getInteger("circlefractal.grid.gap", 4), RenderScheduler.Priority.BACKGROUND);
+
+		final IndexedFrame frame = new IndexedFrame(renderer.getGridWidth(), renderer.getGridHeight());
+		final long startNanos = System.nanoTime();
+
+		renderer.render(new RenderControl() {
+
+			@Override
+			public boolean isCancelled() {
+				return false;
+			}
+
+			@Override
+			public void updateProgress(long workDone, long totalWork) {
+			}
+		}, (x, y, argb, count) -> {
+			for (int i = 0; i < count; i++) {
+				frame.setArgb(y * frame.width + x + i, argb[i]);
+			}
+		});
+
+		PngEncoding.write(frame, Paths.get(args[0]));
+
+		System.out.println("Rendered " + renderer.getRowCount() + "x" + renderer.getColumnCount() + " grid in "
+				+ String.format("%.2f", (System.nanoTime() - startNanos) / 1e9) + " s.");
+	}
+}
@@ -0,0 +1,76 @@
+package org.melvinwm.circlefractal.export;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+
+/**
+ * Parameter paths for animations, as sequences of the parameters of each
+ * frame, see {@link AnimationSweepRenderer}.
+ * 
+ * <p>
+ * Thread safety: Stateless.
+ */
+public final class ParameterPath {
+
+	private ParameterPath() {
+	}
+
+	/**
+	 * Sweeps the cut-off linearly, with the other parameters fixed.
+	 * 
+	 * @param toCutOff
+	 *            The cut-off of the last frame.
+	 * @param frameCount
+	 *            At least 2.
+	 */
+	public static List<CircleFractalParameters> cutOffSweep(CircleFractalParameters start, double toCutOff,
+			int frameCount) {
+
+		if (frameCount < 2) {
+			throw new IllegalArgumentException("'frameCount' was not at least 2: " + frameCount + ".");
+		}
+
+		final List<CircleFractalParameters> path = new ArrayList<>();
+		for (int frame = 0; frame < frameCount; frame++) {
+			final double cutOff = start.cutOff + (toCutOff - start.cutOff) * frame / (frameCount - 1);
+			path.add(new CircleFractalParameters(start.width, start.height, start.numberOfIterations,
+					start.divisionFactor, cutOff));
+		}
+		return Collections.unmodifiableList(path);
+	}
+
+	/**
+	 * Sweeps the number of iterations one at a time, with the other parameters
+	 * fixed.
+	 * 
+	 * @param toNumberOfIterations
+	 *            The number of iterations of the last frame. May be fewer than
+	 *            at the start.
+	 * @param framesPerIteration
+	 *            The number of frames for each number of iterations. At least 1.
+	 */
+	public static List<CircleFractalParameters> iterationSweep(CircleFractalParameters start,
+			int toNumberOfIterations, int framesPerIteration) {
+
+		if (framesPerIteration < 1) {
+			throw new IllegalArgumentException(
+					"'framesPerIteration' was not at least 1: " + framesPerIteration + ".");
+		}
+
+		final int step = toNumberOfIterations >= start.numberOfIterations ? 1 : -1;
+		final List<CircleFractalParameters> path = new ArrayList<>();
+		for (int iterations = start.numberOfIterations;; iterations += step) {
+			for (int frame = 0; frame < framesPerIteration; frame++) {
+				path.add(new CircleFractalParameters(start.width, start.height, iterations, start.divisionFactor,
+						start.cutOff));
+			}
+			if (iterations == toNumberOfIterations) {
+				break;
+			}
+		}
+		return Collections.unmodifiableList(path);
+	}
+}
@@ -0,0 +1,291 @@
+package org.melvinwm.circlefractal.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.RunLengthTile;
+import org.melvinwm.circlefractal.engine.Tile;
+
+/**
+ * The tiles of a render completed so far, in a file that is only ever appended
+ * to, so that a render killed part-way can be resumed, see
+ * {@link CheckpointedExport}.
+ *
+ * <p>
+ * The file starts with a header describing the render, followed by a record
+ * per completed tile: A record header with the tile, the length and CRC-32 of
+ * its runs, see {@link RunLengthTile#getRuns()}, and its own CRC-32, followed
+ * by the runs. On opening, the records are checked in order: A record whose
+ * header is incomplete or damaged ends the file, since the records after it
+ * cannot be located, and the file is truncated there, which is the normal
+ * result of being killed during an append. A record whose runs are incomplete
+ * also ends the file, and a record whose runs are damaged, for instance
+ * overwritten, is skipped, so that its tile is rendered again. A tile recorded
+ * several times is restored from the last intact record.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+final class RenderCheckpoint implements Closeable {
+
+	// "CFCP" and "TILE".
+	private static final int fileMagic = 0x43464350;
+	private static final int recordMagic = 0x54494C45;
+	private static final int version = 1;
+
+	// Magic, version, width, height, iterations, division factor, cut-off, tile
+	// size and CRC-32.
+	static final int headerLength = 4 + 4 + 4 + 4 + 4 + 4 + 8 + 4 + 4;
+	// Magic, x, y, width, height, runs length, runs CRC-32 and header CRC-32.
+	static final int recordHeaderLength = 8 * 4;
+
+	private static final Logger logger = LogManager.getLogger(CheckpointedExport.class);
+
+	private final Path file;
+	private final Map<Tile, RunLengthTile> restoredTiles;
+	private final int damagedCount;
+
+	// NOTE: Ownership (channel): By this, closed in 'close()'.
+	private final FileChannel channel;
+
+	private RenderCheckpoint(Path file, FileChannel channel, Map<Tile, RunLengthTile> restoredTiles,
+			int damagedCount) {
+		this.file = file;
+		this.channel = channel;
+		this.restoredTiles = Collections.unmodifiableMap(restoredTiles);
+		this.damagedCount = damagedCount;
+	}
+
+	/**
+	 * Opens the checkpoint of a render, restoring the tiles recorded in it, or
+	 * creates it. A file recorded for other parameters or another tile size, or
+	 * that is not a checkpoint at all, is started over.
+	 *
+	 * <p>
+	 * Blocking: Yes, reads the whole file.
+	 *
+	 * @param tileSize
+	 *            The size that the image is split into tiles with, see
+	 *            {@link Tile#split}. Recorded tiles not of that split are
+	 *            ignored.
+	 */
+	static RenderCheckpoint open(Path file, CircleFractalParameters parameters, int tileSize) throws IOException {
+
+		final ByteBuffer expectedHeader = createHeader(parameters, tileSize);
+
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+
+			final ByteBuffer header = ByteBuffer.allocate(headerLength);
+			readFully(channel, header, 0);
+
+			if (!header.equals(expectedHeader)) {
+
+				if (channel.size() > 0) {
+					logger.warn("Starting over the checkpoint '{}', which is not of {} with tile size {}.", file,
+							parameters, tileSize);
+				}
+
+				channel.truncate(0);
+				writeFully(channel, expectedHeader, 0);
+				channel.force(true);
+				channel.position(headerLength);
+				return new RenderCheckpoint(file, channel, new HashMap<>(), 0);
+			}
+
+			final Set<Tile> tiles = new HashSet<>(Tile.split(parameters.width, parameters.height, tileSize));
+			final Map<Tile, RunLengthTile> restoredTiles = new HashMap<>();
+			final Set<Tile> damagedTiles = new HashSet<>();
+
+			final long size = channel.size();
+			final ByteBuffer recordHeader = ByteBuffer.allocate(recordHeaderLength);
+			long position = headerLength;
+
+			while (true) {
+
+				recordHeader.clear();
+				if (readFully(channel, recordHeader, position) < recordHeaderLength
+						|| recordHeader.getInt(0) != recordMagic
+						|| recordHeader.getInt(recordHeaderLength - 4) != crc(recordHeader, recordHeaderLength - 4)) {
+					break;
+				}
+
+				final int x = recordHeader.getInt(4);
+				final int y = recordHeader.getInt(8);
+				final int width = recordHeader.getInt(12);
+				final int height = recordHeader.getInt(16);
+				final int runsLength = recordHeader.getInt(20);
+				if (x < 0 || y < 0 || width <= 0 || height <= 0 || runsLength < 0
+						|| runsLength > size - position - recordHeaderLength) {
+					break;
+				}
+				final Tile tile = new Tile(x, y, width, height);
+
+				final ByteBuffer runs = ByteBuffer.allocate(runsLength);
+				readFully(channel, runs, position + recordHeaderLength);
+				position += recordHeaderLength + runsLength;
+
+				final RunLengthTile restoredTile = restore(tile, runs, recordHeader.getInt(24), tiles);
+				if (restoredTile != null) {
+					restoredTiles.put(tile, restoredTile);
+					damagedTiles.remove(tile);
+				} else if (!restoredTiles.containsKey(tile)) {
+					damagedTiles.add(tile);
+				}
+			}
+
+			if (position < size) {
+				logger.warn("Truncating the checkpoint '{}' from {} to {} bytes, after an incomplete record.", file,
+						size, position);
+				channel.truncate(position);
+			}
+			channel.position(position);
+
+			if (!damagedTiles.isEmpty()) {
+				logger.warn("Skipping damaged tiles {} of the checkpoint '{}'.", damagedTiles, file);
+			}
+
+			return new RenderCheckpoint(file, channel, restoredTiles, damagedTiles.size());
+
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * The tile of an intact record, or null if damaged.
+	 */
+	private static RunLengthTile restore(Tile tile, ByteBuffer runs, int runsCrc, Set<Tile> tiles) {
+
+		if (!tiles.contains(tile) || crc(runs, runs.capacity()) != runsCrc) {
+			return null;
+		}
+
+		try {
+			return RunLengthTile.fromRuns(tile.width, tile.height, runs.array());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static ByteBuffer createHeader(CircleFractalParameters parameters, int tileSize) {
+
+		final ByteBuffer header = ByteBuffer.allocate(headerLength);
+		header.putInt(fileMagic).putInt(version).putInt(parameters.width).putInt(parameters.height)
+				.putInt(parameters.numberOfIterations).putInt(parameters.divisionFactor)
+				.putDouble(parameters.cutOff).putInt(tileSize);
+		header.putInt(crc(header, headerLength - 4));
+		header.flip();
+		return header;
+	}
+
+	private static int crc(ByteBuffer buffer, int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, length);
+		return (int) crc.getValue();
+	}
+
+	/*
+	 * Reads until the buffer is full or the file ends, and flips the buffer.
+	 *
+	 * @return The number of bytes read.
+	 */
+	private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+		}
+		buffer.flip();
+		return buffer.limit();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	/**
+	 * @return The tiles restored from the file when opened.
+	 */
+	Map<Tile, RunLengthTile> getRestoredTiles() {
+		return restoredTiles;
+	}
+
+	/**
+	 * @return The number of tiles of which only damaged records were found when
+	 *         opened, and that are therefore not restored.
+	 */
+	int getDamagedCount() {
+		return damagedCount;
+	}
+
+	/**
+	 * Appends a completed tile. The tile is only certain to survive a crash of
+	 * the operating system once synced, see {@link #sync()}, but survives the
+	 * JVM being killed once appended.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	synchronized void append(Tile tile, RunLengthTile runLengthTile) throws IOException {
+
+		final byte[] runs = runLengthTile.getRuns();
+		final ByteBuffer record = ByteBuffer.allocate(recordHeaderLength + runs.length);
+
+		final CRC32 runsCrc = new CRC32();
+		runsCrc.update(runs);
+
+		record.putInt(recordMagic).putInt(tile.x).putInt(tile.y).putInt(tile.width).putInt(tile.height)
+				.putInt(runs.length).putInt((int) runsCrc.getValue());
+		record.putInt(crc(record, recordHeaderLength - 4));
+		record.put(runs);
+		record.flip();
+
+		// The whole record at once, so that a kill or an interrupt during the append,
+		// which closes the channel, leaves at most an incomplete last record.
+		final long position = channel.position();
+		writeFully(channel, record, position);
+		channel.position(position + record.limit());
+	}
+
+	/**
+	 * Forces the appended tiles to the storage device.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	void sync() throws IOException {
+		channel.force(false);
+	}
+
+	/**
+	 * Closes and deletes the file, once the render is done.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(file);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,75 @@
+package org.melvinwm.circlefractal.server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory cache of encoded tiles, evicting the least recently used tiles
+ * once the total size of the cached tiles exceeds the capacity.
+ * 
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+final class TileCache {
+
+	private final long capacityBytes;
+
+	// Guarded by 'this'. In access order, least recently used first.
+	private final LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+	private long sizeBytes;
+
+	/**
+	 * @param capacityBytes
+	 *            The capacity. 0 disables caching.
+	 */
+	TileCache(long capacityBytes) {
+
+		if (capacityBytes < 0) {
+			throw new IllegalArgumentException("'capacityBytes' was negative: " + capacityBytes + ".");
+		}
+
+		this.capacityBytes = capacityBytes;
+	}
+
+	/**
+	 * Blocking: No.
+	 */
+	synchronized Optional<byte[]> get(String key) {
+		return Optional.ofNullable(tiles.get(key));
+	}
+
+	/**
+	 * Caches a tile, unless it is larger than the capacity.
+	 * 
+	 * <p>
+	 * Blocking: No.
+	 * 
+	 * @param tile
+	 *            The encoded tile. Must not be modified afterwards.
+	 */
+	synchronized void put(String key, byte[] tile) {
+
+		if (tile.length > capacityBytes) {
+			return;
+		}
+
+		final byte[] previous = tiles.put(key, tile);
+		sizeBytes += tile.length - (previous != null ? previous.length : 0);
+
+		for (final Iterator<Map.Entry<String, byte[]>> iterator = tiles.entrySet().iterator(); sizeBytes > capacityBytes
+				&& iterator.hasNext();) {
+			sizeBytes -= iterator.next().getValue().length;
+			iterator.remove();
+		}
+	}
+
+	synchronized int getTileCount() {
+		return tiles.size();
+	}
+
+	synchronized long getSizeBytes() {
+		return sizeBytes;
+	}
+}
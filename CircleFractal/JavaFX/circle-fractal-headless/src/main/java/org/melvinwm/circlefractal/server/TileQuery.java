@@ -0,0 +1,212 @@
+package org.melvinwm.circlefractal.server;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+/**
+ * A request for a tile, parsed from the URL query parameters:
+ * <ul>
+ * <li>'z', 'x', 'y': Zoom level, column and row of the tile, see
+ * {@link TileRenderer#renderZoomed}. Required.
+ * <li>'size': Width and height of the tile, default {@value #defaultTileSize}
+ * and at most {@value #maximumTileSize}.
+ * <li>'width', 'height': Size of the image at zoom level 0, default
+ * {@value #defaultImageWidth}x{@value #defaultImageHeight}, the size of the
+ * GUI's image.
+ * <li>'iterations', 'divisionFactor', 'cutOff': The fractal parameters, with
+ * the GUI's defaults, and at most {@value #maximumNumberOfIterations}
+ * iterations.
+ * </ul>
+ * 
+ * <p>
+ * Thread safety: Immutable.
+ */
+final class TileQuery {
+
+	static final int defaultTileSize = 256;
+	static final int defaultImageWidth = 500;
+	static final int defaultImageHeight = 350;
+	static final int maximumTileSize = 1024;
+	static final int maximumImageSize = 10_000;
+	static final int maximumNumberOfIterations = 1000;
+
+	// Part of the ETags, so that ETags from an earlier, differently rendering
+	// version are not matched. Change when the rendering changes.
+	private static final String renderingVersion = "1";
+
+	final CircleFractalParameters parameters;
+	final int zoom;
+	final long column;
+	final long row;
+	final int tileSize;
+
+	private TileQuery(CircleFractalParameters parameters, int zoom, long column, long row, int tileSize) {
+		this.parameters = parameters;
+		this.zoom = zoom;
+		this.column = column;
+		this.row = row;
+		this.tileSize = tileSize;
+	}
+
+	/**
+	 * @param rawQuery
+	 *            The raw query of the URL. May be null, since that is how
+	 *            {@link java.net.URI#getRawQuery} gives no query.
+	 * @throws IllegalArgumentException
+	 *             If a parameter is missing or not valid.
+	 */
+	static TileQuery parse(String rawQuery) {
+
+		final Map<String, String> values = parseQuery(rawQuery);
+
+		final int tileSize = getInt(values, "size", defaultTileSize, 1, maximumTileSize);
+		final CircleFractalParameters parameters = new CircleFractalParameters(
+				getInt(values, "width", defaultImageWidth, 1, maximumImageSize),
+				getInt(values, "height", defaultImageHeight, 1, maximumImageSize),
+				getInt(values, "iterations", 5, 0, maximumNumberOfIterations),
+				getInt(values, "divisionFactor", 2, 2, Integer.MAX_VALUE), getDouble(values, "cutOff", 1.5));
+
+		return new TileQuery(parameters, getInt(values, "z", null, 0, TileRenderer.maximumZoom),
+				getLong(values, "x", 0, Long.MAX_VALUE), getLong(values, "y", 0, Long.MAX_VALUE), tileSize);
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery) {
+
+		final Map<String, String> values = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return values;
+		}
+
+		for (final String pair : rawQuery.split("&")) {
+			final int separatorIndex = pair.indexOf('=');
+			if (separatorIndex < 0) {
+				throw new IllegalArgumentException("Query parameter without value: '" + pair + "'.");
+			}
+			try {
+				values.put(URLDecoder.decode(pair.substring(0, separatorIndex), "UTF-8"),
+						URLDecoder.decode(pair.substring(separatorIndex + 1), "UTF-8"));
+			} catch (UnsupportedEncodingException e) {
+				// UTF-8 is always supported.
+				throw new IllegalStateException(e);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @param defaultValue
+	 *            Null if the parameter is required.
+	 */
+	private static int getInt(Map<String, String> values, String name, Integer defaultValue, int minimum,
+			int maximum) {
+
+		final String text = values.get(name);
+		if (text == null) {
+			if (defaultValue == null) {
+				throw new IllegalArgumentException("Missing query parameter '" + name + "'.");
+			}
+			return defaultValue;
+		}
+
+		final int value;
+		try {
+			value = Integer.parseInt(text);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Query parameter '" + name + "' is not an integer: '" + text + "'.");
+		}
+
+		if (value < minimum || value > maximum) {
+			throw new IllegalArgumentException(
+					"Query parameter '" + name + "' is not from " + minimum + " to " + maximum + ": " + value + ".");
+		}
+		return value;
+	}
+
+	/**
+	 * Gets a required parameter.
+	 */
+	private static long getLong(Map<String, String> values, String name, long minimum, long maximum) {
+
+		final String text = values.get(name);
+		if (text == null) {
+			throw new IllegalArgumentException("Missing query parameter '" + name + "'.");
+		}
+
+		final long value;
+		try {
+			value = Long.parseLong(text);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Query parameter '" + name + "' is not an integer: '" + text + "'.");
+		}
+
+		if (value < minimum || value > maximum) {
+			throw new IllegalArgumentException(
+					"Query parameter '" + name + "' is not from " + minimum + " to " + maximum + ": " + value + ".");
+		}
+		return value;
+	}
+
+	private static double getDouble(Map<String, String> values, String name, double defaultValue) {
+
+		final String text = values.get(name);
+		if (text == null) {
+			return defaultValue;
+		}
+
+		try {
+			final double value = Double.parseDouble(text);
+			if (Double.isNaN(value) || Double.isInfinite(value)) {
+				throw new NumberFormatException();
+			}
+			return value;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Query parameter '" + name + "' is not a number: '" + text + "'.");
+		}
+	}
+
+	/**
+	 * @return A key identifying the rendered tile, equal for queries that render
+	 *         the same tile.
+	 */
+	String getKey() {
+		return parameters.width + "x" + parameters.height + "/i" + parameters.numberOfIterations + "/d"
+				+ parameters.divisionFactor + "/c" + parameters.cutOff + "/s" + tileSize + "/" + zoom + "/" + column
+				+ "/" + row;
+	}
+
+	/**
+	 * Since rendering is deterministic, the ETag is derived from the key, and can
+	 * be checked without rendering the tile.
+	 * 
+	 * @return The quoted ETag for the tile.
+	 */
+	String getETag() {
+
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest((renderingVersion + ":" + getKey()).getBytes(StandardCharsets.UTF_8));
+
+			final StringBuilder eTag = new StringBuilder("\"");
+			for (int i = 0; i < 12; i++) {
+				eTag.append(String.format("%02x", digest[i]));
+			}
+			return eTag.append('"').toString();
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 is always supported.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getKey();
+	}
+}
@@ -0,0 +1,374 @@
+package org.melvinwm.circlefractal.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.PngEncoding;
+import org.melvinwm.circlefractal.engine.RenderCoalescer;
+import org.melvinwm.circlefractal.engine.RenderScheduler;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP server rendering circle-fractal tiles on demand as PNG images, for
+ * instance for dashboards.
+ * 
+ * <p>
+ * Endpoints:
+ * <ul>
+ * <li>{@value #tilePath}: A tile, with the parameters given as URL query
+ * parameters, see {@link TileQuery}. Answers with an ETag, and with status 304
+ * if it matches 'If-None-Match'.
+ * <li>{@value #metricsPath}: The counters of {@link TileServerMetrics} and the
+ * render queue and cache, as plain text.
+ * </ul>
+ * 
+ * <p>
+ * At most 'renderConcurrency' tiles are rendered at a time. Further renders
+ * wait in a first-come, first-served queue of at most 'queueCapacity' renders,
+ * for at most 'queueTimeoutMillis'. Renders that do not fit in the queue, or
+ * time out, are rejected with status 503 and 'Retry-After'. Concurrent requests
+ * for the same tile share one render, see {@link RenderCoalescer}. Rendered
+ * tiles are kept in an in-memory least-recently-used cache.
+ * 
+ * <p>
+ * The tiles are rendered in the background class of the shared
+ * {@link RenderScheduler}, so interactive renders in the same JVM go first.
+ * 
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+public final class TileServer implements AutoCloseable {
+
+	static final String tilePath = "/tile";
+	static final String metricsPath = "/metrics";
+
+	private static final int retryAfterSeconds = 1;
+
+	private static final Logger logger = LogManager.getLogger(TileServer.class);
+
+	private final HttpServer httpServer;
+	// NOTE: Ownership (thread pool): Owned by this, closed in 'close'.
+	private final ExecutorService exchangeExecutorService = Executors.newCachedThreadPool();
+	// NOTE: Ownership (executor): Owned by this, closed in 'close'.
+	private final ExecutorService renderExecutorService;
+
+	private final int renderConcurrency;
+	private final int queueCapacity;
+	private final long queueTimeoutMillis;
+	private final Semaphore renderPermits;
+	// Renders that are queued or active.
+	private final AtomicInteger admittedRenderCount = new AtomicInteger();
+
+	private final TileCache tileCache;
+
+	// Renders on the thread of the request starting the render, while concurrent
+	// requests for the same tile wait for it.
+	private final RenderCoalescer<String, byte[]> tileRenders = new RenderCoalescer<>(Runnable::run);
+	private final TileServerMetrics metrics = new TileServerMetrics();
+
+	/**
+	 * Starts the server.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 * 
+	 * @param address
+	 *            The address to listen on. Port 0 means any free port.
+	 * @param renderConcurrency
+	 *            The number of tiles rendered at a time. Must be strictly positive.
+	 * @param queueCapacity
+	 *            The number of renders that may wait. Must be non-negative.
+	 * @param queueTimeoutMillis
+	 *            The time a render may wait. Must be non-negative.
+	 * @param cacheCapacityBytes
+	 *            The total size of the cached tiles. Must be non-negative, and 0
+	 *            disables caching.
+	 */
+	public TileServer(InetSocketAddress address, int renderConcurrency, int queueCapacity, long queueTimeoutMillis,
+			long cacheCapacityBytes) throws IOException {
+
+		if (renderConcurrency <= 0 || queueCapacity < 0 || queueTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Illegal render limits: renderConcurrency " + renderConcurrency
+					+ ", queueCapacity " + queueCapacity + ", queueTimeoutMillis " + queueTimeoutMillis + ".");
+		}
+
+		this.renderConcurrency = renderConcurrency;
+		this.queueCapacity = queueCapacity;
+		this.queueTimeoutMillis = queueTimeoutMillis;
+		this.renderPermits = new Semaphore(renderConcurrency, true);
+		this.tileCache = new TileCache(cacheCapacityBytes);
+		this.renderExecutorService = RenderScheduler.getInstance().newExecutor(RenderScheduler.Priority.BACKGROUND,
+				renderConcurrency);
+
+		httpServer = HttpServer.create(address, 0);
+		httpServer.createContext(tilePath, this::handleTile);
+		httpServer.createContext(metricsPath, this::handleMetrics);
+		httpServer.setExecutor(exchangeExecutorService);
+		httpServer.start();
+	}
+
+	/**
+	 * @return The address listened on.
+	 */
+	public InetSocketAddress getAddress() {
+		return httpServer.getAddress();
+	}
+
+	public TileServerMetrics getMetrics() {
+		return metrics;
+	}
+
+	private void handleTile(HttpExchange exchange) throws IOException {
+
+		final long startNanos = System.nanoTime();
+
+		try {
+
+			if (!exchange.getRequestMethod().equals("GET")) {
+				metrics.recordBadRequest();
+				sendText(exchange, 405, "Only GET is supported.\n");
+				return;
+			}
+
+			final TileQuery query;
+			try {
+				query = TileQuery.parse(exchange.getRequestURI().getRawQuery());
+			} catch (IllegalArgumentException e) {
+				metrics.recordBadRequest();
+				sendText(exchange, 400, e.getMessage() + "\n");
+				return;
+			}
+
+			final String eTag = query.getETag();
+			exchange.getResponseHeaders().set("ETag", eTag);
+			exchange.getResponseHeaders().set("Cache-Control", "public, max-age=86400");
+
+			final String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+			if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(eTag))) {
+				metrics.recordNotModified();
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+
+			final Optional<byte[]> cachedTile = tileCache.get(query.getKey());
+			final byte[] tile;
+			if (cachedTile.isPresent()) {
+				metrics.recordCacheHit();
+				tile = cachedTile.get();
+			} else {
+				try {
+					tile = renderShared(query);
+				} catch (RejectedExecutionException e) {
+					metrics.recordRejected();
+					exchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+					sendText(exchange, 503, e.getMessage() + "\n");
+					return;
+				} catch (IllegalArgumentException e) {
+					metrics.recordBadRequest();
+					sendText(exchange, 400, e.getMessage() + "\n");
+					return;
+				}
+			}
+
+			exchange.getResponseHeaders().set("Content-Type", "image/png");
+			send(exchange, 200, tile);
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			metrics.recordError();
+			sendText(exchange, 503, "Server is stopping.\n");
+		} catch (IOException | RuntimeException e) {
+			metrics.recordError();
+			logger.error("Failed to serve a tile request: " + exchange.getRequestURI(), e);
+			throw e;
+		} finally {
+			metrics.recordRequest(System.nanoTime() - startNanos);
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Renders, encodes and caches the tile, or waits for the render of the same
+	 * tile for another request if there is one in flight.
+	 * 
+	 * <p>
+	 * Blocking: Yes, and computationally heavy.
+	 * 
+	 * @throws RejectedExecutionException
+	 *             See {@link #renderAdmitted}.
+	 */
+	private byte[] renderShared(TileQuery query) throws InterruptedException, IOException {
+
+		final RenderCoalescer.Ticket<byte[]> ticket = tileRenders.request(query.getKey(), control -> {
+			final byte[] tile = renderAdmitted(query);
+			tileCache.put(query.getKey(), tile);
+			return tile;
+		});
+
+		try {
+			return ticket.getResult().get();
+		} catch (InterruptedException e) {
+			ticket.cancel();
+			throw e;
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof InterruptedException) {
+				throw (InterruptedException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Renders and encodes the tile, if admitted.
+	 * 
+	 * <p>
+	 * Blocking: Yes, and computationally heavy.
+	 * 
+	 * @throws RejectedExecutionException
+	 *             If the queue is full, or the render waited too long.
+	 */
+	private byte[] renderAdmitted(TileQuery query) throws InterruptedException, IOException {
+
+		if (admittedRenderCount.incrementAndGet() > renderConcurrency + queueCapacity) {
+			admittedRenderCount.decrementAndGet();
+			throw new RejectedExecutionException("Too many tiles are being rendered, try again later.");
+		}
+
+		try {
+
+			if (!renderPermits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new RejectedExecutionException("Waited too long to render the tile, try again later.");
+			}
+
+			try {
+				final int[] argb = render(query);
+				metrics.recordRender(argb.length);
+				return PngEncoding.encode(argb, query.tileSize, query.tileSize);
+			} finally {
+				renderPermits.release();
+			}
+
+		} finally {
+			admittedRenderCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Renders the tile on the shared render workers.
+	 * 
+	 * <p>
+	 * Blocking: Yes, until rendered.
+	 */
+	private int[] render(TileQuery query) throws InterruptedException {
+
+		final Future<int[]> result = renderExecutorService.submit(
+				() -> new TileRenderer(query.parameters).renderZoomed(query.zoom, query.column, query.row,
+						query.tileSize));
+
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			throw e;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		try {
+			final int activeRenderCount = renderConcurrency - renderPermits.availablePermits();
+			sendText(exchange, 200,
+					metrics.toText(Math.max(admittedRenderCount.get() - activeRenderCount, 0), activeRenderCount,
+							tileRenders.getCoalescedRequestCount(), tileCache.getTileCount(),
+							tileCache.getSizeBytes()));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void sendText(HttpExchange exchange, int status, String text) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		send(exchange, status, text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(status, body.length);
+		try (final OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+		metrics.recordBytesServed(body.length);
+	}
+
+	/**
+	 * Stops the server, without waiting for the requests being served.
+	 * 
+	 * <p>
+	 * Blocking: No.
+	 */
+	@Override
+	public void close() {
+		httpServer.stop(0);
+		exchangeExecutorService.shutdownNow();
+		renderExecutorService.shutdownNow();
+	}
+
+	/**
+	 * Runs a server.
+	 * 
+	 * <p>
+	 * Arguments: The port, default 8080. The following system properties
+	 * configure the server:
+	 * <ul>
+	 * <li>'circlefractal.server.host': The host name or address to listen on,
+	 * default the loopback address.
+	 * <li>'circlefractal.server.renderConcurrency': Default the number of cores.
+	 * <li>'circlefractal.server.queueCapacity': Default 4 times the render
+	 * concurrency.
+	 * <li>'circlefractal.server.queueTimeoutMillis': Default 10000.
+	 * <li>'circlefractal.server.cacheCapacityMegabytes': Default 64.
+	 * </ul>
+	 */
+	public static void main(String[] args) throws IOException {
+
+		final int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		final String host = System.getProperty("circlefractal.server.host");
+		final int renderConcurrency = Integer.getInteger("circlefractal.server.renderConcurrency",
+				Runtime.getRuntime().availableProcessors());
+
+		final TileServer server = new TileServer(
+				host != null ? new InetSocketAddress(host, port) : new InetSocketAddress("localhost", port),
+				renderConcurrency, Integer.getInteger("circlefractal.server.queueCapacity", 4 * renderConcurrency),
+				Long.getLong("circlefractal.server.queueTimeoutMillis", 10_000),
+				Long.getLong("circlefractal.server.cacheCapacityMegabytes", 64) * 1024 * 1024);
+
+		System.out.println("Serving tiles at http://" + server.getAddress().getHostString() + ":"
+				+ server.getAddress().getPort() + tilePath + "?z=0&x=0&y=0");
+	}
+}
@@ -0,0 +1,205 @@
+package org.melvinwm.circlefractal.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for a {@link TileServer}: Requests by outcome, latencies, and
+ * throughput since the server started.
+ * 
+ * <p>
+ * Latencies are counted in a histogram with fixed buckets, from which
+ * percentiles are estimated as the upper bound of the bucket they fall in.
+ * 
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+public final class TileServerMetrics {
+
+	/**
+	 * Upper bounds in milliseconds of the latency histogram buckets, apart from
+	 * the last bucket, which is unbounded.
+	 */
+	static final long[] latencyBucketUpperBoundsMillis = new long[] { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000,
+			2000, 5000 };
+
+	private final long startNanos = System.nanoTime();
+
+	private final LongAdder requestCount = new LongAdder();
+	private final LongAdder cacheHitCount = new LongAdder();
+	private final LongAdder notModifiedCount = new LongAdder();
+	private final LongAdder renderCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+	private final LongAdder badRequestCount = new LongAdder();
+	private final LongAdder errorCount = new LongAdder();
+	private final LongAdder bytesServed = new LongAdder();
+	private final LongAdder renderedPixelCount = new LongAdder();
+
+	private final LongAdder totalLatencyNanos = new LongAdder();
+	private final LongAccumulator maximumLatencyNanos = new LongAccumulator(Math::max, 0);
+	private final AtomicLongArray latencyHistogram = new AtomicLongArray(latencyBucketUpperBoundsMillis.length + 1);
+
+	TileServerMetrics() {
+	}
+
+	void recordRequest(long latencyNanos) {
+
+		requestCount.increment();
+		totalLatencyNanos.add(latencyNanos);
+		maximumLatencyNanos.accumulate(latencyNanos);
+
+		final long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+		int bucket = 0;
+		while (bucket < latencyBucketUpperBoundsMillis.length && latencyMillis >= latencyBucketUpperBoundsMillis[bucket]) {
+			bucket++;
+		}
+		latencyHistogram.incrementAndGet(bucket);
+	}
+
+	void recordCacheHit() {
+		cacheHitCount.increment();
+	}
+
+	void recordNotModified() {
+		notModifiedCount.increment();
+	}
+
+	void recordRender(long pixelCount) {
+		renderCount.increment();
+		renderedPixelCount.add(pixelCount);
+	}
+
+	void recordRejected() {
+		rejectedCount.increment();
+	}
+
+	void recordBadRequest() {
+		badRequestCount.increment();
+	}
+
+	void recordError() {
+		errorCount.increment();
+	}
+
+	void recordBytesServed(long byteCount) {
+		bytesServed.add(byteCount);
+	}
+
+	public long getRequestCount() {
+		return requestCount.sum();
+	}
+
+	public long getCacheHitCount() {
+		return cacheHitCount.sum();
+	}
+
+	public long getNotModifiedCount() {
+		return notModifiedCount.sum();
+	}
+
+	public long getRenderCount() {
+		return renderCount.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	public long getBadRequestCount() {
+		return badRequestCount.sum();
+	}
+
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	public long getBytesServed() {
+		return bytesServed.sum();
+	}
+
+	public double getMeanLatencyMillis() {
+		final long count = requestCount.sum();
+		return count == 0 ? 0.0 : totalLatencyNanos.sum() / 1e6 / count;
+	}
+
+	public double getMaximumLatencyMillis() {
+		return maximumLatencyNanos.get() / 1e6;
+	}
+
+	/**
+	 * @param percentile
+	 *            From 0 to 100.
+	 * @return The estimated latency percentile in milliseconds, or
+	 *         {@link Long#MAX_VALUE} if it is above the largest bucket bound.
+	 */
+	public long getLatencyPercentileMillis(double percentile) {
+
+		long total = 0;
+		for (int bucket = 0; bucket < latencyHistogram.length(); bucket++) {
+			total += latencyHistogram.get(bucket);
+		}
+
+		final double rank = total * percentile / 100.0;
+		long cumulative = 0;
+		for (int bucket = 0; bucket < latencyBucketUpperBoundsMillis.length; bucket++) {
+			cumulative += latencyHistogram.get(bucket);
+			if (cumulative >= rank) {
+				return latencyBucketUpperBoundsMillis[bucket];
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return Requests per second since the server started.
+	 */
+	public double getRequestsPerSecond() {
+		return requestCount.sum() / getUptimeSeconds();
+	}
+
+	/**
+	 * @return Rendered pixels per second since the server started.
+	 */
+	public double getRenderedPixelsPerSecond() {
+		return renderedPixelCount.sum() / getUptimeSeconds();
+	}
+
+	private double getUptimeSeconds() {
+		return Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+	}
+
+	/**
+	 * @return The counters as lines of names and values, separated by a space.
+	 */
+	String toText(int queuedRenderCount, int activeRenderCount, long coalescedRequestCount, int cachedTileCount,
+			long cachedBytes) {
+
+		final StringBuilder text = new StringBuilder();
+		appendLine(text, "requests", getRequestCount());
+		appendLine(text, "cache_hits", getCacheHitCount());
+		appendLine(text, "not_modified", getNotModifiedCount());
+		appendLine(text, "renders", getRenderCount());
+		appendLine(text, "rejected", getRejectedCount());
+		appendLine(text, "bad_requests", getBadRequestCount());
+		appendLine(text, "errors", getErrorCount());
+		appendLine(text, "bytes_served", getBytesServed());
+		appendLine(text, "requests_per_second", getRequestsPerSecond());
+		appendLine(text, "rendered_pixels_per_second", getRenderedPixelsPerSecond());
+		appendLine(text, "latency_mean_millis", getMeanLatencyMillis());
+		appendLine(text, "latency_max_millis", getMaximumLatencyMillis());
+		appendLine(text, "latency_p50_millis", getLatencyPercentileMillis(50));
+		appendLine(text, "latency_p99_millis", getLatencyPercentileMillis(99));
+		appendLine(text, "renders_queued", queuedRenderCount);
+		appendLine(text, "renders_active", activeRenderCount);
+		appendLine(text, "coalesced_requests", coalescedRequestCount);
+		appendLine(text, "cached_tiles", cachedTileCount);
+		appendLine(text, "cached_bytes", cachedBytes);
+		return text.toString();
+	}
+
+	private static void appendLine(StringBuilder text, String name, Object value) {
+		text.append(name).append(' ').append(value).append('\n');
+	}
+}
@@ -0,0 +1,130 @@
+package org.melvinwm.circlefractal.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.Tile;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+public class DistributedRenderCoordinatorTest {
+
+	private static final CircleFractalParameters parameters = new CircleFractalParameters(333, 217, 5, 3, 1.5);
+
+	private static int[] renderLocally() {
+		return new TileRenderer(parameters).render(new Tile(0, 0, parameters.width, parameters.height));
+	}
+
+	@Test
+	public void should_match_local_render_with_several_worker_jvms() throws Exception {
+
+		try (final LocalWorkerProcesses workers = LocalWorkerProcesses.start(3, Arrays.asList("-Xmx64m"))) {
+
+			final DistributedRenderCoordinator coordinator = new DistributedRenderCoordinator(
+					workers.getAddresses(), 50, DistributedRenderCoordinator.defaultTileTimeoutMillis,
+					DistributedRenderCoordinator.defaultMaximumAttemptsPerTile);
+
+			final DistributedRenderCoordinator.Result result = coordinator.render(parameters);
+
+			assertArrayEquals(renderLocally(), result.frame.toArgb());
+			assertEquals(35, result.tileCount);
+			assertEquals(0, result.droppedWorkerCount);
+		}
+	}
+
+	@Test
+	public void should_retry_tiles_of_failing_and_stalled_workers() throws Exception {
+
+		try (final TileWorker worker = new TileWorker(0);
+				final FakeWorker failingWorker = new FakeWorker(false);
+				final FakeWorker stalledWorker = new FakeWorker(true)) {
+
+			new Thread(worker::serve).start();
+
+			final DistributedRenderCoordinator coordinator = new DistributedRenderCoordinator(
+					Arrays.asList(failingWorker.getAddress(), stalledWorker.getAddress(),
+							new InetSocketAddress(InetAddress.getLoopbackAddress(), worker.getPort())),
+					50, 500, DistributedRenderCoordinator.defaultMaximumAttemptsPerTile);
+
+			final DistributedRenderCoordinator.Result result = coordinator.render(parameters);
+
+			assertArrayEquals(renderLocally(), result.frame.toArgb());
+			assertEquals(2, result.droppedWorkerCount);
+			assertTrue(result.retriedTileCount >= 2, "Retried tiles: " + result.retriedTileCount + ".");
+		}
+	}
+
+	@Test
+	public void should_fail_when_all_workers_fail() throws Exception {
+
+		try (final FakeWorker failingWorker = new FakeWorker(false)) {
+
+			final DistributedRenderCoordinator coordinator = new DistributedRenderCoordinator(
+					Collections.singletonList(failingWorker.getAddress()));
+
+			assertThrows(IllegalStateException.class, () -> coordinator.render(parameters));
+		}
+	}
+
+	/**
+	 * Worker that does the handshake and reads the job and the first tile, and
+	 * then either closes the connection or never answers.
+	 */
+	private static final class FakeWorker implements AutoCloseable {
+
+		private final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+
+		FakeWorker(boolean isStalling) throws IOException {
+
+			new Thread(() -> {
+				try {
+					while (true) {
+						final Socket socket = serverSocket.accept();
+						sockets.add(socket);
+
+						final DataInputStream in = new DataInputStream(socket.getInputStream());
+						TileProtocol.readHandshake(in);
+						TileProtocol.writeHandshake(new DataOutputStream(socket.getOutputStream()));
+						TileProtocol.readJob(in);
+						in.readByte();
+						TileProtocol.readTileBody(in);
+
+						if (!isStalling) {
+							socket.close();
+						}
+					}
+				} catch (IOException e) {
+					// Closed.
+				}
+			}).start();
+		}
+
+		InetSocketAddress getAddress() {
+			return new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+		}
+
+		@Override
+		public void close() throws IOException {
+			serverSocket.close();
+			for (final Socket socket : sockets) {
+				socket.close();
+			}
+		}
+	}
+}
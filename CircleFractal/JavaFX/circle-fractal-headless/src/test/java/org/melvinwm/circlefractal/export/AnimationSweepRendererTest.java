@@ -0,0 +1,72 @@
+package org.melvinwm.circlefractal.export;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.Tile;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+public class AnimationSweepRendererTest {
+
+	@Test
+	public void should_render_sweeps_sharing_work_between_frames() throws Exception {
+
+		final CircleFractalParameters start = new CircleFractalParameters(120, 80, 2, 3, 0.5);
+
+		final List<CircleFractalParameters> path = new ArrayList<>();
+		path.addAll(ParameterPath.cutOffSweep(start, 3.5, 4));
+		path.addAll(ParameterPath.iterationSweep(path.get(path.size() - 1), 6, 1));
+		path.add(new CircleFractalParameters(120, 80, 1, 3, 3.5));
+
+		final Path outputDirectory = Files.createTempDirectory("circle-fractal-sweep");
+		try {
+
+			final AnimationSweepRenderer.Result result = new AnimationSweepRenderer(2, 2).render(path,
+					outputDirectory, AnimationSweepRenderer.defaultFileNamePattern);
+
+			// The cut-off sweep, then the first frame of the iteration sweep, are
+			// recolored. Decreasing the number of iterations starts over.
+			assertEquals(path.size(), result.frameCount);
+			assertEquals(2, result.newFieldCount);
+			assertEquals(4, result.deepenedCount);
+			assertEquals(4, result.recoloredCount);
+
+			for (int frame = 0; frame < path.size(); frame++) {
+
+				final CircleFractalParameters parameters = path.get(frame);
+				final BufferedImage image = ImageIO.read(outputDirectory
+						.resolve(String.format(AnimationSweepRenderer.defaultFileNamePattern, frame)).toFile());
+
+				final int[] expected = new TileRenderer(parameters)
+						.render(new Tile(0, 0, parameters.width, parameters.height));
+				assertArrayEquals(expected,
+						image.getRGB(0, 0, parameters.width, parameters.height, null, 0, parameters.width),
+						"Frame " + frame + ": " + parameters);
+			}
+
+		} finally {
+			deleteRecursively(outputDirectory);
+		}
+	}
+
+	private static void deleteRecursively(Path directory) throws IOException {
+		try (final Stream<Path> paths = Files.walk(directory)) {
+			for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+}
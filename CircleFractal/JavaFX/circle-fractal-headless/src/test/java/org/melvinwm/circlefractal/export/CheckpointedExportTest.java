@@ -0,0 +1,181 @@
+package org.melvinwm.circlefractal.export;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.IndexedColors;
+import org.melvinwm.circlefractal.engine.RunLengthTile;
+import org.melvinwm.circlefractal.engine.Tile;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+public class CheckpointedExportTest {
+
+	private static final CircleFractalParameters parameters = new CircleFractalParameters(150, 100, 4, 3, 1.5);
+	private static final int tileSize = 32;
+
+	@Test
+	public void should_render_as_tile_renderer() throws Exception {
+
+		final Path directory = Files.createTempDirectory("circle-fractal-checkpoint");
+		try {
+
+			final Path file = directory.resolve("image.png");
+			final CheckpointedExport.Result result = new CheckpointedExport(2, tileSize, 1).render(parameters, file);
+
+			assertEquals(20, result.tileCount);
+			assertEquals(20, result.getRenderedCount());
+			assertArrayEquals(renderExpected(), read(file));
+			assertFalse(Files.exists(CheckpointedExport.getCheckpointFile(file)));
+
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void should_resume_from_checkpoint() throws Exception {
+
+		final Path directory = Files.createTempDirectory("circle-fractal-checkpoint");
+		try {
+
+			final Path file = directory.resolve("image.png");
+			final List<Tile> tiles = Tile.split(parameters.width, parameters.height, tileSize);
+
+			// A render killed after the first half of the tiles, the first tile of which
+			// is made recognizable.
+			final int[] expected = renderExpected();
+			final int color = IndexedColors.toArgb(7);
+			try (RenderCheckpoint checkpoint = RenderCheckpoint.open(CheckpointedExport.getCheckpointFile(file),
+					parameters, tileSize)) {
+				for (final Tile tile : tiles.subList(0, 10)) {
+					checkpoint.append(tile, encode(tile));
+				}
+				final int[] uniform = new int[tileSize * tileSize];
+				Arrays.fill(uniform, color);
+				checkpoint.append(tiles.get(0), RunLengthTile.encode(uniform, tileSize, tileSize));
+			}
+
+			final CheckpointedExport.Result result = new CheckpointedExport(1, tileSize, 1000).render(parameters,
+					file);
+
+			assertEquals(10, result.restoredCount);
+			assertEquals(10, result.getRenderedCount());
+			assertEquals(0, result.damagedCount);
+
+			for (int y = 0; y < tileSize; y++) {
+				Arrays.fill(expected, y * parameters.width, y * parameters.width + tileSize, color);
+			}
+			assertArrayEquals(expected, read(file));
+
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void should_render_damaged_and_incomplete_tiles_again() throws Exception {
+
+		final Path directory = Files.createTempDirectory("circle-fractal-checkpoint");
+		try {
+
+			final Path file = directory.resolve("image.png");
+			final Path checkpointFile = CheckpointedExport.getCheckpointFile(file);
+			final List<Tile> tiles = Tile.split(parameters.width, parameters.height, tileSize);
+
+			try (RenderCheckpoint checkpoint = RenderCheckpoint.open(checkpointFile, parameters, tileSize)) {
+				for (final Tile tile : tiles) {
+					checkpoint.append(tile, encode(tile));
+				}
+			}
+
+			// Overwrite the runs of the first tile, and append half a record as if
+			// killed while appending.
+			final byte[] record = Files.readAllBytes(checkpointFile);
+			try (FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.wrap(new byte[] { 0x55, 0x55 }),
+						RenderCheckpoint.headerLength + RenderCheckpoint.recordHeaderLength);
+			}
+			try (OutputStream out = Files.newOutputStream(checkpointFile, StandardOpenOption.APPEND)) {
+				out.write(record, RenderCheckpoint.headerLength, RenderCheckpoint.recordHeaderLength + 1);
+			}
+
+			final CheckpointedExport.Result result = new CheckpointedExport(1, tileSize, 1000).render(parameters,
+					file);
+
+			assertEquals(19, result.restoredCount);
+			assertEquals(1, result.getRenderedCount());
+			assertEquals(1, result.damagedCount);
+			assertArrayEquals(renderExpected(), read(file));
+
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void should_start_over_checkpoint_of_other_render() throws Exception {
+
+		final Path directory = Files.createTempDirectory("circle-fractal-checkpoint");
+		try {
+
+			final Path file = directory.resolve("image.png");
+			final CircleFractalParameters other = new CircleFractalParameters(parameters.width, parameters.height,
+					parameters.numberOfIterations + 1, parameters.divisionFactor, parameters.cutOff);
+
+			try (RenderCheckpoint checkpoint = RenderCheckpoint.open(CheckpointedExport.getCheckpointFile(file),
+					other, tileSize)) {
+				final Tile tile = new Tile(0, 0, tileSize, tileSize);
+				checkpoint.append(tile, RunLengthTile
+						.encode(new TileRenderer(other).render(tile), tileSize, tileSize));
+			}
+
+			final CheckpointedExport.Result result = new CheckpointedExport(1, tileSize, 1000).render(parameters,
+					file);
+
+			assertEquals(0, result.restoredCount);
+			assertArrayEquals(renderExpected(), read(file));
+
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	private static RunLengthTile encode(Tile tile) {
+		return RunLengthTile.encode(new TileRenderer(parameters).render(tile), tile.width, tile.height);
+	}
+
+	private static int[] renderExpected() {
+		return new TileRenderer(parameters).render(new Tile(0, 0, parameters.width, parameters.height));
+	}
+
+	private static int[] read(Path file) throws IOException {
+		final BufferedImage image = ImageIO.read(file.toFile());
+		return image.getRGB(0, 0, parameters.width, parameters.height, null, 0, parameters.width);
+	}
+
+	private static void deleteRecursively(Path directory) throws IOException {
+		try (final Stream<Path> paths = Files.walk(directory)) {
+			for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.melvinwm.circlefractal.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+/**
+ * Load-test harness for {@link TileServer}: A number of clients repeatedly
+ * request random tiles for a given duration, and the statuses, latencies and
+ * throughput are reported.
+ * 
+ * <p>
+ * Run against a server on localhost with for instance:
+ * 
+ * <p>
+ * <code>TileServerLoadTester http://localhost:8080 8 10 2</code>
+ * 
+ * <p>
+ * for 8 clients, 10 seconds and zoom levels up to 2.
+ */
+final class TileServerLoadTester {
+
+	private TileServerLoadTester() {
+	}
+
+	/**
+	 * Blocking: Yes.
+	 * 
+	 * @param baseUrl
+	 *            The URL of the server, without a path.
+	 * @param query
+	 *            Extra query parameters, for instance for the fractal
+	 *            parameters, and which must include 'width' and 'height' if
+	 *            they differ from the defaults. Empty, or starts with '&amp;'.
+	 * @param maximumZoom
+	 *            The tiles are spread over the zoom levels from 0 to this.
+	 */
+	static Result run(String baseUrl, int clientCount, long durationMillis, int maximumZoom, String query,
+			CircleFractalParameters parameters) throws Exception {
+
+		final TileRenderer tileRenderer = new TileRenderer(parameters);
+		final long endNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		final long startNanos = System.nanoTime();
+
+		final ExecutorService clientExecutorService = Executors.newFixedThreadPool(clientCount);
+		try {
+
+			final List<Future<Result>> clientResults = new ArrayList<>();
+			for (int client = 0; client < clientCount; client++) {
+				final Random random = new Random(client);
+				clientResults.add(clientExecutorService.submit(() -> {
+
+					final Result result = new Result();
+					while (System.nanoTime() < endNanos) {
+
+						final int zoom = random.nextInt(maximumZoom + 1);
+						final long column = (long) (random.nextDouble()
+								* tileRenderer.getZoomedColumnCount(zoom, TileQuery.defaultTileSize));
+						final long row = (long) (random.nextDouble()
+								* tileRenderer.getZoomedRowCount(zoom, TileQuery.defaultTileSize));
+
+						final URL url = new URL(baseUrl + TileServer.tilePath + "?z=" + zoom + "&x=" + column + "&y="
+								+ row + query);
+
+						final long requestStartNanos = System.nanoTime();
+						final int status = get(url);
+						result.record(status, System.nanoTime() - requestStartNanos);
+					}
+					return result;
+				}));
+			}
+
+			final Result total = new Result();
+			for (final Future<Result> clientResult : clientResults) {
+				total.add(clientResult.get());
+			}
+			total.durationNanos = System.nanoTime() - startNanos;
+			return total;
+
+		} finally {
+			clientExecutorService.shutdownNow();
+		}
+	}
+
+	private static int get(URL url) throws IOException {
+
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			final int status = connection.getResponseCode();
+			try (final InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+				if (in != null) {
+					final byte[] buffer = new byte[8192];
+					while (in.read(buffer) >= 0) {
+						// Drain, so that the connection can be reused.
+					}
+				}
+			}
+			return status;
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Thread safety: Not thread-safe.
+	 */
+	static final class Result {
+
+		final Map<Integer, Integer> statusCounts = new TreeMap<>();
+		final List<Long> latenciesNanos = new ArrayList<>();
+		long durationNanos;
+
+		void record(int status, long latencyNanos) {
+			statusCounts.merge(status, 1, Integer::sum);
+			latenciesNanos.add(latencyNanos);
+		}
+
+		void add(Result other) {
+			other.statusCounts.forEach((status, count) -> statusCounts.merge(status, count, Integer::sum));
+			latenciesNanos.addAll(other.latenciesNanos);
+		}
+
+		int getCount(int status) {
+			return statusCounts.getOrDefault(status, 0);
+		}
+
+		double getLatencyPercentileMillis(double percentile) {
+			if (latenciesNanos.isEmpty()) {
+				return 0.0;
+			}
+			final List<Long> sorted = new ArrayList<>(latenciesNanos);
+			Collections.sort(sorted);
+			final int index = (int) Math.min(sorted.size() - 1, Math.ceil(sorted.size() * percentile / 100.0) - 1);
+			return sorted.get(Math.max(index, 0)) / 1e6;
+		}
+
+		double getRequestsPerSecond() {
+			return latenciesNanos.size() / (durationNanos / 1e9);
+		}
+
+		@Override
+		public String toString() {
+			return latenciesNanos.size() + " requests, " + String.format("%.1f", getRequestsPerSecond())
+					+ " requests/s, statuses " + statusCounts + ", latency p50 "
+					+ String.format("%.1f", getLatencyPercentileMillis(50)) + " ms, p99 "
+					+ String.format("%.1f", getLatencyPercentileMillis(99)) + " ms, max "
+					+ String.format("%.1f", getLatencyPercentileMillis(100)) + " ms";
+		}
+	}
+
+	/**
+	 * Arguments: Base URL, default "http://localhost:8080", number of clients,
+	 * default 8, duration in seconds, default 10, and maximum zoom level, default
+	 * 2. Uses the default fractal parameters of the server.
+	 */
+	public static void main(String[] args) throws Exception {
+
+		final String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+		final int clientCount = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		final long durationMillis = (args.length > 2 ? Long.parseLong(args[2]) : 10) * 1000;
+		final int maximumZoom = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+		final Result result = run(baseUrl, clientCount, durationMillis, maximumZoom, "",
+				TileQuery.parse("z=0&x=0&y=0").parameters);
+
+		System.out.println(result);
+	}
+}
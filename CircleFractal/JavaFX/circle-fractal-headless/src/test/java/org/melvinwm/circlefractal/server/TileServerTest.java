@@ -0,0 +1,93 @@
+package org.melvinwm.circlefractal.server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+public class TileServerTest {
+
+	private static TileServer startServer(int renderConcurrency, int queueCapacity, long queueTimeoutMillis,
+			long cacheCapacityBytes) throws Exception {
+		return new TileServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), renderConcurrency,
+				queueCapacity, queueTimeoutMillis, cacheCapacityBytes);
+	}
+
+	private static String getBaseUrl(TileServer server) {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+	}
+
+	private static HttpURLConnection get(TileServer server, String pathAndQuery) throws Exception {
+		return (HttpURLConnection) new URL(getBaseUrl(server) + pathAndQuery).openConnection();
+	}
+
+	@Test
+	public void should_serve_tiles_with_etags_and_caching() throws Exception {
+
+		try (final TileServer server = startServer(2, 4, 10_000, 16 * 1024 * 1024)) {
+
+			final String tileQuery = TileServer.tilePath + "?z=1&x=1&y=1&size=64&iterations=5&divisionFactor=3";
+
+			final HttpURLConnection first = get(server, tileQuery);
+			assertEquals(200, first.getResponseCode());
+			assertEquals("image/png", first.getContentType());
+			final String eTag = first.getHeaderField("ETag");
+			assertNotNull(eTag);
+
+			final BufferedImage image;
+			try (final InputStream in = first.getInputStream()) {
+				image = ImageIO.read(in);
+			}
+			final int[] expected = new TileRenderer(new CircleFractalParameters(500, 350, 5, 3, 1.5)).renderZoomed(1,
+					1, 1, 64);
+			assertArrayEquals(expected, image.getRGB(0, 0, 64, 64, null, 0, 64));
+
+			final HttpURLConnection second = get(server, tileQuery);
+			assertEquals(200, second.getResponseCode());
+			assertEquals(eTag, second.getHeaderField("ETag"));
+			second.getInputStream().close();
+			assertEquals(1, server.getMetrics().getCacheHitCount());
+			assertEquals(1, server.getMetrics().getRenderCount());
+
+			final HttpURLConnection conditional = get(server, tileQuery);
+			conditional.setRequestProperty("If-None-Match", eTag);
+			assertEquals(304, conditional.getResponseCode());
+			assertEquals(1, server.getMetrics().getNotModifiedCount());
+
+			assertEquals(400, get(server, TileServer.tilePath + "?z=1&x=1").getResponseCode());
+			assertEquals(400, get(server, TileServer.tilePath + "?z=0&x=5&y=0").getResponseCode());
+
+			final HttpURLConnection metrics = get(server, TileServer.metricsPath);
+			assertEquals(200, metrics.getResponseCode());
+			metrics.getInputStream().close();
+		}
+	}
+
+	@Test
+	public void should_reject_renders_beyond_the_queue_under_load() throws Exception {
+
+		try (final TileServer server = startServer(1, 1, 0, 0)) {
+
+			final TileServerLoadTester.Result result = TileServerLoadTester.run(getBaseUrl(server), 6, 1500, 2,
+					"&iterations=200", new CircleFractalParameters(500, 350, 200, 2, 1.5));
+
+			assertTrue(result.getCount(200) > 0, result.toString());
+			assertTrue(result.getCount(503) > 0, result.toString());
+			assertEquals(result.getCount(503), server.getMetrics().getRejectedCount());
+			assertEquals(0, server.getMetrics().getErrorCount());
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks finding the nearest circle of every pixel of a small image: The
+ * greedy descent of {@link PointToColorCalculator}, the search of
+ * {@link ExactPointToColorCalculator}, and visiting every circle, which is only
+ * feasible at few iterations.
+ * 
+ * <p>
+ * Throughput is reported as pixels per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NearestCircleSearchBenchmark {
+
+	private static final int width = 100;
+	private static final int height = 70;
+	private static final int pixelCount = width * height;
+
+	@Param({ "5", "8" })
+	public int numberOfIterations;
+
+	@Param({ "2", "3" })
+	public int divisionFactor;
+
+	private PointToColorCalculator greedy;
+	private ExactPointToColorCalculator exact;
+
+	private final double[] descentState = new double[PointToColorCalculator.descentStateLength];
+
+	@Setup
+	public void setup() {
+		greedy = PointToColorCalculator.forImage(width, height, numberOfIterations, divisionFactor, 1.5);
+		exact = ExactPointToColorCalculator.forImage(width, height, numberOfIterations, divisionFactor, 1.5);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(pixelCount)
+	public void greedy(Blackhole blackhole) {
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				greedy.startDescent(descentState, x, y);
+				blackhole.consume(greedy.continueDescent(descentState, numberOfIterations, x, y));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(pixelCount)
+	public void exact(Blackhole blackhole) {
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				blackhole.consume(exact.getDistance(x, y, null));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(pixelCount)
+	public void bruteForce(Blackhole blackhole) {
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				blackhole.consume(exact.getBruteForceDistance(x, y));
+			}
+		}
+	}
+}
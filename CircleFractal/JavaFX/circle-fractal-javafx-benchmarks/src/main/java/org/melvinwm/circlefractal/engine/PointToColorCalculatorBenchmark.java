@@ -0,0 +1,97 @@
+package org.melvinwm.circlefractal.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link PointToColorCalculator#getColor} and the other kernels, by
+ * computing the colors of a small image per invocation, pixel by pixel or in
+ * bands of rows with {@link PointToColorKernel#getColors}.
+ * 
+ * <p>
+ * Throughput is reported as pixels per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PointToColorCalculatorBenchmark {
+
+	private static final int width = 100;
+	private static final int height = 70;
+	private static final int pixelCount = width * height;
+
+	@Param({ "0", "5", "20", "100" })
+	public int numberOfIterations;
+
+	@Param({ "2", "3", "5" })
+	public int divisionFactor;
+
+	@Param({ "1.5" })
+	public double cutOff;
+
+	@Param({ "double", "single", "exact" })
+	public String precision;
+
+	private PointToColorKernel pointToColorCalculator;
+
+	private final int[] bandArgb = new int[width * PointToColorCalculator.coherentBlockSize];
+
+	@Setup
+	public void setup() {
+
+		switch (precision) {
+		case "double":
+			pointToColorCalculator = PointToColorCalculator.forImage(width, height, numberOfIterations,
+					divisionFactor, cutOff);
+			break;
+		case "single":
+			pointToColorCalculator = SinglePrecisionPointToColorCalculator.forImage(width, height,
+					numberOfIterations, divisionFactor, cutOff);
+			break;
+		case "exact":
+			pointToColorCalculator = ExactPointToColorCalculator.forImage(width, height, numberOfIterations,
+					divisionFactor, cutOff);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown precision: " + precision + ".");
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(pixelCount)
+	public void getColor(Blackhole blackhole) {
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				blackhole.consume(pointToColorCalculator.getColor(x, y, null));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(pixelCount)
+	public void getColors(Blackhole blackhole) {
+
+		for (int y = 0; y < height; y += PointToColorCalculator.coherentBlockSize) {
+			final int rowCount = Math.min(PointToColorCalculator.coherentBlockSize, height - y);
+			pointToColorCalculator.getColors(0, y, width, rowCount, bandArgb, null);
+			blackhole.consume(bandArgb);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package org.melvinwm.circlefractal.javafx.drawer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.scene.image.Image;
+
+/**
+ * Benchmarks {@link CircleFractalDrawer} end to end, including setup, thread
+ * pools, progress updating and assembling of the image.
+ * 
+ * <p>
+ * The image size is the same as the one used in the application.
+ * 
+ * <p>
+ * Throughput is reported as pixels per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CircleFractalDrawerBenchmark {
+
+	private static final int width = 500;
+	private static final int height = 350;
+	private static final int pixelCount = width * height;
+
+	@Param({ "5", "50" })
+	public int numberOfIterations;
+
+	@Param({ "2", "3" })
+	public int divisionFactor;
+
+	@Param({ "1.5" })
+	public double cutOff;
+
+	@Param({ "false", "true" })
+	public boolean isParallelizedComputation;
+
+	@Setup
+	public void setup() {
+		JavaFXToolkitStarter.ensureStarted();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(pixelCount)
+	public Image draw() throws Exception {
+
+		final CircleFractalDrawer drawer = new CircleFractalDrawer(width, height, numberOfIterations, divisionFactor,
+				cutOff, isParallelizedComputation);
+
+		drawer.run();
+
+		return drawer.get();
+	}
+}
@@ -0,0 +1,62 @@
+package org.melvinwm.circlefractal.javafx.drawer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.melvinwm.circlefractal.engine.IndexedColors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javafx.scene.image.Image;
+
+/**
+ * Benchmarks assembling the image from already computed pixels, which is
+ * uploading the frame buffer into its image, expanding the indexed colors, as
+ * done at the end of {@link CircleFractalDrawer}.
+ * 
+ * <p>
+ * Throughput is reported as pixels per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrameBufferUploadBenchmark {
+
+	private static final int width = 500;
+	private static final int height = 350;
+	private static final int pixelCount = width * height;
+
+	private FrameBuffer frameBuffer;
+
+	@Setup
+	public void setup() {
+
+		JavaFXToolkitStarter.ensureStarted();
+
+		frameBuffer = new FrameBufferPool().acquire(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				frameBuffer.setPixel(x, y, IndexedColors.toArgb((x * y) % IndexedColors.colorCount));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(pixelCount)
+	public Image upload() {
+		frameBuffer.markRowsDirty(0, height);
+		frameBuffer.upload();
+		return frameBuffer.getImage();
+	}
+}
@@ -0,0 +1,33 @@
+package org.melvinwm.circlefractal.javafx.drawer;
+
+import javafx.embed.swing.JFXPanel;
+
+/**
+ * Starts the JavaFX toolkit for benchmarks that need it, for instance for
+ * creating images and for progress updates from tasks.
+ * 
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+final class JavaFXToolkitStarter {
+
+	private static boolean isStarted = false;
+
+	private JavaFXToolkitStarter() {
+	}
+
+	/**
+	 * Starts the JavaFX toolkit if it has not been started already.
+	 * 
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	static synchronized void ensureStarted() {
+		if (!isStarted) {
+			// NOTE: Creating a 'JFXPanel' is a side-effecting way of starting the
+			// toolkit, since Java 8 has no 'Platform.startup'.
+			new JFXPanel();
+			isStarted = true;
+		}
+	}
+}
@@ -50,6 +50,9 @@ public class App extends Application {
 	}
 
 	public static void main(String[] args) {
+		// Start loading the last session's frame and rendering the first frame while
+		// the JavaFX toolkit starts and the GUI is loaded.
+		WarmStart.begin();
 		Application.launch(App.class, args);
 	}
 
@@ -111,6 +114,7 @@ public class App extends Application {
 			// a'setOnHidden'-registered callback.
 			final CircleFractalMainController mainController = loader.getController();
 			mainController.setHostServices(hostServices);
+			WarmStart.getBegun().ifPresent(mainController::startWith);
 
 			// Releasing owned resources upon shutdown.
 			primaryStage.setOnHidden(windowEvent -> mainController.close());
@@ -0,0 +1,185 @@
+package org.melvinwm.circlefractal.javafx;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.RenderAutoTuner;
+import org.melvinwm.circlefractal.engine.RenderControl;
+import org.melvinwm.circlefractal.engine.RenderScheduler;
+import org.melvinwm.circlefractal.engine.RenderStrategy;
+import org.melvinwm.circlefractal.engine.RenderTuning;
+
+/**
+ * The render strategies tuned for this machine, see {@link RenderAutoTuner}:
+ * Loaded from the {@link RenderTuningStore}, calibrated in the background if
+ * none is stored for the machine's number of workers, for instance at the
+ * first launch, or again on request, and then stored.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+final class AutoTuning {
+
+	private static final Logger logger = LogManager.getLogger(App.class);
+
+	private static final AutoTuning instance = new AutoTuning(RenderTuningStore.configured(),
+			new RenderAutoTuner());
+
+	/**
+	 * May be null, if persisting is disabled.
+	 */
+	private final RenderTuningStore store;
+	private final RenderAutoTuner tuner;
+
+	// Guarded by 'this'. The tuning and the calibration in progress, may be null.
+	private RenderTuning tuning;
+	private CompletableFuture<Optional<RenderTuning>> calibration;
+	private boolean isLoaded;
+
+	AutoTuning(Optional<RenderTuningStore> store, RenderAutoTuner tuner) {
+		this.store = store.orElse(null);
+		this.tuner = tuner;
+	}
+
+	static AutoTuning getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Loads the stored tuning, unless loaded before. A tuning calibrated with
+	 * another number of workers is ignored.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	synchronized void load() {
+
+		if (isLoaded) {
+			return;
+		}
+		isLoaded = true;
+
+		Optional.ofNullable(store).flatMap(RenderTuningStore::load).ifPresent(loaded -> {
+			if (loaded.isFor(RenderScheduler.getInstance())) {
+				tuning = loaded;
+			} else {
+				logger.info("Ignoring the render tuning calibrated with {} workers.", loaded.workerCount);
+			}
+		});
+	}
+
+	/**
+	 * Loads the stored tuning, and starts calibrating if there is none.
+	 *
+	 * <p>
+	 * Blocking: Yes, while loading.
+	 */
+	synchronized void loadOrCalibrate() {
+		load();
+		if (tuning == null) {
+			calibrate();
+		}
+	}
+
+	/**
+	 * @return The tuning, or empty if not loaded or calibrated.
+	 */
+	synchronized Optional<RenderTuning> getTuning() {
+		return Optional.ofNullable(tuning);
+	}
+
+	/**
+	 * @return The calibration in progress, if any.
+	 */
+	synchronized Optional<CompletableFuture<Optional<RenderTuning>>> getCalibration() {
+		return Optional.ofNullable(calibration);
+	}
+
+	/**
+	 * Starts calibrating on a background thread, unless a calibration is in
+	 * progress. The new tuning replaces the current one once done, and is stored.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @return The calibration, giving the new tuning, or empty if it failed.
+	 */
+	synchronized CompletableFuture<Optional<RenderTuning>> calibrate() {
+
+		if (calibration != null) {
+			return calibration;
+		}
+
+		final CompletableFuture<Optional<RenderTuning>> started = new CompletableFuture<>();
+		calibration = started;
+
+		final Thread thread = new Thread(() -> {
+
+			Optional<RenderTuning> calibrated = Optional.empty();
+			try {
+				// Never cancelled, the thread is stopped with the JVM.
+				calibrated = tuner.calibrate(new RenderControl() {
+
+					@Override
+					public boolean isCancelled() {
+						return false;
+					}
+
+					@Override
+					public void updateProgress(long workDone, long totalWork) {
+					}
+				});
+			} catch (Exception e) {
+				// Tuning is not essential, so only report.
+				logger.error("Failure while calibrating the render strategies.", e);
+			}
+
+			synchronized (this) {
+				calibrated.ifPresent(newTuning -> tuning = newTuning);
+				calibration = null;
+			}
+
+			if (calibrated.isPresent() && store != null) {
+				try {
+					store.save(calibrated.get());
+				} catch (IOException e) {
+					logger.warn("Failed to store the render tuning.", e);
+				}
+			}
+
+			started.complete(calibrated);
+
+		}, "render-calibration");
+		thread.setDaemon(true);
+		thread.start();
+
+		return started;
+	}
+
+	/**
+	 * Selects the strategy for a render.
+	 *
+	 * @param isAutoTuned
+	 *            Whether to use the tuned strategy instead of the given
+	 *            parallelization. While there is no tuning, the strategy used
+	 *            when not tuned is used, parallelized if there are several
+	 *            workers.
+	 * @param isSinglePrecisionAllowed
+	 *            Whether the single-precision kernel may be used. With a tuning,
+	 *            it is only used if the tuning found it faster.
+	 */
+	RenderStrategy selectStrategy(int width, int height, boolean isAutoTuned, boolean isParallelizedComputation,
+			boolean isSinglePrecisionAllowed) {
+
+		if (!isAutoTuned) {
+			return RenderStrategy.of(isParallelizedComputation, isSinglePrecisionAllowed);
+		}
+
+		return getTuning().map(current -> current.getStrategy(width, height))
+				.orElseGet(() -> RenderStrategy.of(RenderScheduler.getInstance().getWorkerCount() > 1, true))
+				.withSinglePrecisionAllowed(isSinglePrecisionAllowed);
+	}
+}
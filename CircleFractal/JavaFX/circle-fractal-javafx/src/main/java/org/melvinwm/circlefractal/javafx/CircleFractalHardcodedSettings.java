@@ -10,4 +10,20 @@ public interface CircleFractalHardcodedSettings {
 	 * Height of the image used for the circle-fractal drawing.
 	 */
 	public static final int drawingAreaImageHeight = 350;
+
+	// NOTE: The defaults must match the initial values of the controls in
+	// 'CircleFractalMainView.fxml'.
+
+	/**
+	 * Default number of iterations.
+	 */
+	public static final int defaultNumberOfIterations = 5;
+	/**
+	 * Default division factor.
+	 */
+	public static final int defaultDivisionFactor = 2;
+	/**
+	 * Default cut-off.
+	 */
+	public static final double defaultCutOff = 1.5;
 }
@@ -1,19 +1,33 @@
 package org.melvinwm.circlefractal.javafx;
 
+import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.RenderMetrics;
+import org.melvinwm.circlefractal.engine.RenderProfile;
+import org.melvinwm.circlefractal.engine.RenderStrategy;
+import org.melvinwm.circlefractal.engine.RenderTuning;
 import org.melvinwm.circlefractal.javafx.drawer.CircleFractalDrawer;
+import org.melvinwm.circlefractal.javafx.drawer.CostHeatmap;
+import org.melvinwm.circlefractal.javafx.drawer.SharedCircleFractalRenders;
 
+import javafx.animation.AnimationTimer;
 import javafx.application.HostServices;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
@@ -23,11 +37,13 @@ import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Slider;
 import javafx.scene.control.Spinner;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.paint.Color;
 import javafx.util.StringConverter;
 
@@ -49,11 +65,36 @@ public class CircleFractalMainController implements AutoCloseable {
 	// Internal.
 	//
 
+	private static final Logger logger = LogManager.getLogger(App.class);
+
 	/**
 	 * May not be used until after setup, may be null.
 	 */
 	private HostServices hostServices;
 
+	/**
+	 * Where the last frame shown is persisted on close, may be null.
+	 */
+	private LastFrameStore lastFrameStore;
+
+	private boolean isClosed;
+
+	/**
+	 * The settings of the last requested drawing, may be null.
+	 */
+	private DrawingSettings requestedSettings;
+
+	/**
+	 * The last drawn image and its settings, may be null.
+	 */
+	private Image shownImage;
+	private DrawingSettings shownSettings;
+
+	/**
+	 * The profile of the last drawn heatmap, may be null.
+	 */
+	private RenderProfile shownProfile;
+
 	@FXML
 	private Canvas fractalDrawingCanvas;
 
@@ -78,6 +119,25 @@ public class CircleFractalMainController implements AutoCloseable {
 	@FXML
 	private CheckBox isParallelizedComputationCheckBox;
 
+	@FXML
+	private CheckBox isSinglePrecisionAllowedCheckBox;
+
+	@FXML
+	private CheckBox isAutoTunedCheckBox;
+
+	@FXML
+	private Label autoTuningStatusLabel;
+
+	@FXML
+	private ChoiceBox<String> renderModeChoiceBox;
+
+	@FXML
+	private Label costSummaryLabel;
+
+	private static final String fractalRenderMode = "Fractal";
+	private static final String descentDepthRenderMode = "Descent depth heatmap";
+	private static final String tileTimeRenderMode = "Tile time heatmap";
+
 	/*
 	 * Service abstraction to implement drawing, including cancellation and progress
 	 * updates.
@@ -92,11 +152,43 @@ public class CircleFractalMainController implements AutoCloseable {
 		public final IntegerProperty divisionFactor = new SimpleIntegerProperty();
 		public final DoubleProperty cutOff = new SimpleDoubleProperty();
 		public final BooleanProperty isParallelizedComputation = new SimpleBooleanProperty();
+		public final BooleanProperty isSinglePrecisionAllowed = new SimpleBooleanProperty();
+		public final BooleanProperty isAutoTuned = new SimpleBooleanProperty();
+		// The profile to record the render in, may be null.
+		public final ObjectProperty<RenderProfile> profile = new SimpleObjectProperty<>();
+
+		// Renders are shared with other callers asking for the same parameters at
+		// the same time, and their frame buffers are reused across renders.
+		public final SharedCircleFractalRenders sharedRenders = SharedCircleFractalRenders.getInstance();
+
+		/**
+		 * @return The strategy tuned for the machine, or the chosen parallelization.
+		 */
+		public RenderStrategy getStrategy() {
+			return AutoTuning.getInstance().selectStrategy(imageWidth.get(), imageHeight.get(), isAutoTuned.get(),
+					isParallelizedComputation.get(), isSinglePrecisionAllowed.get());
+		}
 
 		@Override
 		protected Task<Image> createTask() {
-			return new CircleFractalDrawer(imageWidth.get(), imageHeight.get(), numberOfIterations.get(),
-					divisionFactor.get(), cutOff.get(), isParallelizedComputation.get());
+			if (profile.get() != null) {
+				// Profiled renders are not shared, so that the profile is of this render.
+				return new CircleFractalDrawer(imageWidth.get(), imageHeight.get(), numberOfIterations.get(),
+						divisionFactor.get(), cutOff.get(), getStrategy(), Optional.empty(),
+						Optional.of(profile.get()));
+			}
+			return sharedRenders.createTask(imageWidth.get(), imageHeight.get(), numberOfIterations.get(),
+					divisionFactor.get(), cutOff.get(), getStrategy());
+		}
+
+		@Override
+		protected void scheduled() {
+			RenderMetrics.getInstance().recordServiceRenderRequest();
+		}
+
+		@Override
+		protected void cancelled() {
+			RenderMetrics.getInstance().recordServiceCancellation();
 		}
 	}
 
@@ -202,6 +294,9 @@ public class CircleFractalMainController implements AutoCloseable {
 						CircleFractalHardcodedSettings.drawingAreaImageHeight);
 			};
 			final Consumer<Image> updateImage = (Image image) -> {
+				// The image's frame buffer must not be reused while the canvas may still
+				// read from it.
+				drawingService.sharedRenders.getFrameBufferPool().setShown(drawingService, image);
 				fractalDrawingCanvas.getGraphicsContext2D().drawImage(image, 0, 0);
 			};
 			clearImage.run();
@@ -212,12 +307,18 @@ public class CircleFractalMainController implements AutoCloseable {
 			drawingService.divisionFactor.bind(divisionFactorSlider.valueProperty());
 			drawingService.cutOff.bind(cutOffSpinner.valueProperty());
 			drawingService.isParallelizedComputation.bind(isParallelizedComputationCheckBox.selectedProperty());
+			drawingService.isSinglePrecisionAllowed.bind(isSinglePrecisionAllowedCheckBox.selectedProperty());
+			drawingService.isAutoTuned.bind(isAutoTunedCheckBox.selectedProperty());
+
+			// The tuned strategy overrides the chosen parallelization.
+			isParallelizedComputationCheckBox.disableProperty().bind(isAutoTunedCheckBox.selectedProperty());
+			isAutoTunedCheckBox.selectedProperty().addListener((observable, oldValue, newValue) -> {
+				showAutoTuningStatus();
+			});
+			showAutoTuningStatus();
 
 			drawRequestButton.onActionProperty().set(actionEvent -> {
-				// We only restart if there were no failures.
-				if (drawingService.getState() != Worker.State.FAILED) {
-					fractalDrawingProgressBar.setVisible(true);
-					drawingService.restart();
+				if (startDrawing()) {
 					clearImage.run();
 				}
 			});
@@ -225,7 +326,15 @@ public class CircleFractalMainController implements AutoCloseable {
 			fractalDrawingProgressBar.progressProperty().bind(drawingService.progressProperty());
 
 			drawingService.setOnSucceeded(workerStateEvent -> {
-				updateImage.accept(drawingService.getValue());
+				if (drawingService.profile.get() != null) {
+					shownProfile = drawingService.profile.get();
+					showRenderMode();
+				} else {
+					updateImage.accept(drawingService.getValue());
+					shownImage = drawingService.getValue();
+					shownSettings = requestedSettings;
+					recordFrameShownWhenOnScreen(true);
+				}
 				fractalDrawingProgressBar.setVisible(false);
 			});
 
@@ -237,6 +346,121 @@ public class CircleFractalMainController implements AutoCloseable {
 
 			fractalDrawingProgressBar.setVisible(false);
 		}
+
+		// Render mode choice-box. Switching between the modes shows the last drawn
+		// frame or profile, if any, without drawing again.
+		{
+			renderModeChoiceBox.getItems().setAll(fractalRenderMode, descentDepthRenderMode, tileTimeRenderMode);
+			renderModeChoiceBox.setValue(fractalRenderMode);
+			renderModeChoiceBox.valueProperty().addListener((observable, oldValue, newValue) -> showRenderMode());
+
+			costSummaryLabel.setVisible(false);
+			costSummaryLabel.managedProperty().bind(costSummaryLabel.visibleProperty());
+		}
+	}
+
+	/**
+	 * @return The heatmap to show, if any.
+	 */
+	private Optional<CostHeatmap.View> getHeatmapView() {
+
+		if (descentDepthRenderMode.equals(renderModeChoiceBox.getValue())) {
+			return Optional.of(CostHeatmap.View.DESCENT_DEPTH);
+		}
+		if (tileTimeRenderMode.equals(renderModeChoiceBox.getValue())) {
+			return Optional.of(CostHeatmap.View.TILE_TIME);
+		}
+		return Optional.empty();
+	}
+
+	/*
+	 * Shows the last drawn frame or heatmap for the chosen render mode, if any.
+	 */
+	private void showRenderMode() {
+
+		final Optional<CostHeatmap.View> heatmapView = getHeatmapView();
+
+		if (heatmapView.isPresent() && shownProfile != null) {
+			fractalDrawingCanvas.getGraphicsContext2D().drawImage(CostHeatmap.draw(shownProfile, heatmapView.get()),
+					0, 0);
+			costSummaryLabel.setText(shownProfile.getSummary().toString());
+		} else if (!heatmapView.isPresent() && shownImage != null) {
+			fractalDrawingCanvas.getGraphicsContext2D().drawImage(shownImage, 0, 0);
+		}
+
+		costSummaryLabel.setVisible(heatmapView.isPresent() && shownProfile != null);
+	}
+
+	/*
+	 * Shows whether the render strategy is tuned, and which strategy is used.
+	 * While calibrating, shows that, and again once done.
+	 */
+	private void showAutoTuningStatus() {
+
+		final Optional<CompletableFuture<Optional<RenderTuning>>> calibration = AutoTuning.getInstance()
+				.getCalibration();
+
+		if (calibration.isPresent()) {
+			autoTuningStatusLabel.setText("Calibrating for this machine...");
+			calibration.get().thenRun(() -> Platform.runLater(this::showAutoTuningStatus));
+		} else if (!AutoTuning.getInstance().getTuning().isPresent()) {
+			autoTuningStatusLabel.setText("Not calibrated, using " + drawingService.getStrategy() + ".");
+		} else {
+			autoTuningStatusLabel.setText("Using " + drawingService.getStrategy() + ".");
+		}
+	}
+
+	/**
+	 * Internal FXML callback. Re-runs the calibration of the render strategies.
+	 */
+	public void recalibrate() {
+		AutoTuning.getInstance().calibrate();
+		showAutoTuningStatus();
+	}
+
+	/**
+	 * Starts drawing with the current settings.
+	 * 
+	 * @return Whether started, which it is not after failures.
+	 */
+	private boolean startDrawing() {
+
+		// We only restart if there were no failures.
+		if (drawingService.getState() == Worker.State.FAILED) {
+			return false;
+		}
+
+		requestedSettings = new DrawingSettings(drawingService.numberOfIterations.get(),
+				drawingService.divisionFactor.get(), drawingService.cutOff.get(),
+				drawingService.isParallelizedComputation.get(), drawingService.isSinglePrecisionAllowed.get(),
+				drawingService.isAutoTuned.get());
+
+		drawingService.profile.set(getHeatmapView().isPresent()
+				? new RenderProfile(drawingService.imageWidth.get(), drawingService.imageHeight.get())
+				: null);
+
+		showAutoTuningStatus();
+
+		fractalDrawingProgressBar.setVisible(true);
+		drawingService.restart();
+		return true;
+	}
+
+	/*
+	 * Records the frame drawn on the canvas as shown, at the first pulse at which
+	 * the canvas is in a showing window.
+	 */
+	private void recordFrameShownWhenOnScreen(boolean isRendered) {
+		new AnimationTimer() {
+			@Override
+			public void handle(long now) {
+				if (fractalDrawingCanvas.getScene() != null && fractalDrawingCanvas.getScene().getWindow() != null
+						&& fractalDrawingCanvas.getScene().getWindow().isShowing()) {
+					stop();
+					RenderMetrics.getInstance().recordFrameShown(isRendered);
+				}
+			}
+		}.start();
 	}
 
 	/**
@@ -261,8 +485,72 @@ public class CircleFractalMainController implements AutoCloseable {
 		this.hostServices = hostServices.orElse(null);
 	}
 
+	/**
+	 * Starts with the settings of the warm start once it has loaded them, shows
+	 * the frame persisted by the last session if any, and draws the first frame,
+	 * taking over the render started by the warm start. Until then, the canvas
+	 * stays grey. The last frame shown is persisted on close.
+	 * 
+	 * <p>
+	 * Blocking: No.
+	 * 
+	 * @param warmStart
+	 *            The warm start.
+	 */
+	void startWith(WarmStart warmStart) {
+
+		lastFrameStore = warmStart.getStore().orElse(null);
+
+		warmStart.getLoaded().thenAcceptAsync(this::startWith, Platform::runLater);
+	}
+
+	private void startWith(WarmStart.Loaded loaded) {
+
+		// Drawing already requested by the user, or closed.
+		if (requestedSettings != null || isClosed) {
+			return;
+		}
+
+		numberOfIterationsSpinner.getValueFactory().setValue(loaded.settings.numberOfIterations);
+		divisionFactorSlider.setValue(loaded.settings.divisionFactor);
+		cutOffSpinner.getValueFactory().setValue(loaded.settings.cutOff);
+		isParallelizedComputationCheckBox.setSelected(loaded.settings.isParallelizedComputation);
+		isSinglePrecisionAllowedCheckBox.setSelected(loaded.settings.isSinglePrecisionAllowed);
+		isAutoTunedCheckBox.setSelected(loaded.settings.isAutoTuned);
+
+		if (loaded.lastFrame != null) {
+			fractalDrawingCanvas.getGraphicsContext2D().getPixelWriter().setPixels(0, 0,
+					CircleFractalHardcodedSettings.drawingAreaImageWidth,
+					CircleFractalHardcodedSettings.drawingAreaImageHeight, PixelFormat.getIntArgbInstance(),
+					loaded.lastFrame, 0, CircleFractalHardcodedSettings.drawingAreaImageWidth);
+			recordFrameShownWhenOnScreen(false);
+		}
+
+		startDrawing();
+	}
+
 	@Override
 	public void close() {
+
+		isClosed = true;
 		drawingService.cancel();
+
+		if (lastFrameStore != null && shownImage != null) {
+
+			final int width = (int) shownImage.getWidth();
+			final int height = (int) shownImage.getHeight();
+			final int[] argb = new int[width * height];
+			shownImage.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb, 0,
+					width);
+
+			try {
+				lastFrameStore.save(shownSettings, argb);
+			} catch (IOException | IllegalArgumentException e) {
+				// Persisting the last frame is not essential, so only report.
+				logger.warn("Failed to persist the last frame.", e);
+			}
+		}
+
+		drawingService.sharedRenders.getFrameBufferPool().setShown(drawingService, Optional.empty());
 	}
 }
@@ -0,0 +1,97 @@
+package org.melvinwm.circlefractal.javafx;
+
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * The settings of the drawing controls, as used for a render.
+ *
+ * <p>
+ * Thread safety: Immutable.
+ */
+final class DrawingSettings {
+
+	// The ranges of the controls in 'CircleFractalMainView.fxml'.
+	private static final int maximumNumberOfIterations = 1000;
+	private static final int minimumDivisionFactor = 2;
+	private static final int maximumDivisionFactor = 5;
+	private static final double maximumCutOff = 4.0;
+
+	final int numberOfIterations;
+	final int divisionFactor;
+	final double cutOff;
+	final boolean isParallelizedComputation;
+	final boolean isSinglePrecisionAllowed;
+	// Whether the strategy tuned for the machine is used instead of
+	// 'isParallelizedComputation', see 'AutoTuning'.
+	final boolean isAutoTuned;
+
+	DrawingSettings(int numberOfIterations, int divisionFactor, double cutOff, boolean isParallelizedComputation,
+			boolean isSinglePrecisionAllowed, boolean isAutoTuned) {
+		this.numberOfIterations = numberOfIterations;
+		this.divisionFactor = divisionFactor;
+		this.cutOff = cutOff;
+		this.isParallelizedComputation = isParallelizedComputation;
+		this.isSinglePrecisionAllowed = isSinglePrecisionAllowed;
+		this.isAutoTuned = isAutoTuned;
+	}
+
+	/**
+	 * @return The settings the controls start with.
+	 */
+	static DrawingSettings defaults() {
+		return new DrawingSettings(CircleFractalHardcodedSettings.defaultNumberOfIterations,
+				CircleFractalHardcodedSettings.defaultDivisionFactor, CircleFractalHardcodedSettings.defaultCutOff,
+				false, false, true);
+	}
+
+	/**
+	 * @return Whether the settings are within the ranges of the controls.
+	 */
+	boolean isWithinControlRanges() {
+		return numberOfIterations >= 0 && numberOfIterations <= maximumNumberOfIterations
+				&& divisionFactor >= minimumDivisionFactor && divisionFactor <= maximumDivisionFactor
+				&& cutOff >= 0.0 && cutOff <= maximumCutOff;
+	}
+
+	Properties toProperties() {
+
+		final Properties properties = new Properties();
+		properties.setProperty("numberOfIterations", Integer.toString(numberOfIterations));
+		properties.setProperty("divisionFactor", Integer.toString(divisionFactor));
+		properties.setProperty("cutOff", Double.toString(cutOff));
+		properties.setProperty("isParallelizedComputation", Boolean.toString(isParallelizedComputation));
+		properties.setProperty("isSinglePrecisionAllowed", Boolean.toString(isSinglePrecisionAllowed));
+		properties.setProperty("isAutoTuned", Boolean.toString(isAutoTuned));
+		return properties;
+	}
+
+	/**
+	 * @return The settings, or empty if any is missing, malformed or outside the
+	 *         ranges of the controls.
+	 */
+	static Optional<DrawingSettings> fromProperties(Properties properties) {
+
+		try {
+			final DrawingSettings settings = new DrawingSettings(
+					Integer.parseInt(properties.getProperty("numberOfIterations")),
+					Integer.parseInt(properties.getProperty("divisionFactor")),
+					Double.parseDouble(properties.getProperty("cutOff")),
+					Boolean.parseBoolean(properties.getProperty("isParallelizedComputation")),
+					Boolean.parseBoolean(properties.getProperty("isSinglePrecisionAllowed")),
+					Boolean.parseBoolean(properties.getProperty("isAutoTuned")));
+
+			return settings.isWithinControlRanges() ? Optional.of(settings) : Optional.empty();
+
+		} catch (NumberFormatException | NullPointerException e) {
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "DrawingSettings [numberOfIterations=" + numberOfIterations + ", divisionFactor=" + divisionFactor
+				+ ", cutOff=" + cutOff + ", isParallelizedComputation=" + isParallelizedComputation
+				+ ", isSinglePrecisionAllowed=" + isSinglePrecisionAllowed + ", isAutoTuned=" + isAutoTuned + "]";
+	}
+}
@@ -0,0 +1,197 @@
+package org.melvinwm.circlefractal.javafx;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+
+import javax.imageio.ImageIO;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.PngEncoding;
+
+/**
+ * Persists the last frame shown in a session and its drawing settings, so that
+ * the next session can show it at once on start-up.
+ *
+ * <p>
+ * The directory is configured with the system property
+ * {@value #directoryProperty}, by default '.circlefractal' in the user's home
+ * directory. An empty value disables persisting.
+ *
+ * <p>
+ * Files that are missing or cannot be read are treated as no frame having been
+ * persisted.
+ *
+ * <p>
+ * Thread safety: Thread-safe, though concurrent saves may mix the frame of one
+ * save with the settings of another.
+ */
+final class LastFrameStore {
+
+	static final String directoryProperty = "circlefractal.lastFrameDirectory";
+
+	private static final String imageFileName = "last-frame.png";
+	private static final String settingsFileName = "last-frame.properties";
+
+	private static final Logger logger = LogManager.getLogger(App.class);
+
+	private final Path directory;
+	private final int width;
+	private final int height;
+
+	/**
+	 * @param width
+	 *            Width of the frames, frames of other sizes are not loaded.
+	 * @param height
+	 *            Height of the frames, frames of other sizes are not loaded.
+	 */
+	LastFrameStore(Path directory, int width, int height) {
+		this.directory = directory;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @return The configured directory, which is also used for other state
+	 *         persisted between sessions, or empty if persisting is disabled.
+	 */
+	static Optional<Path> configuredDirectory() {
+
+		final String configuredDirectory = System.getProperty(directoryProperty,
+				Paths.get(System.getProperty("user.home"), ".circlefractal").toString());
+
+		return configuredDirectory.isEmpty() ? Optional.empty() : Optional.of(Paths.get(configuredDirectory));
+	}
+
+	/**
+	 * @return The store for the configured directory and the size of the drawing
+	 *         area, or empty if persisting is disabled.
+	 */
+	static Optional<LastFrameStore> configured() {
+		return configuredDirectory().map(directory -> new LastFrameStore(directory,
+				CircleFractalHardcodedSettings.drawingAreaImageWidth,
+				CircleFractalHardcodedSettings.drawingAreaImageHeight));
+	}
+
+	/**
+	 * Loads the settings of the last frame, and the frame if the settings are
+	 * valid.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 *
+	 * @return The last frame, or empty if there are no valid settings.
+	 */
+	Optional<LastFrame> load() {
+		return loadSettings().map(settings -> new LastFrame(settings, loadFrame().orElse(null)));
+	}
+
+	private Optional<DrawingSettings> loadSettings() {
+
+		final Properties properties = new Properties();
+
+		try (InputStream in = Files.newInputStream(directory.resolve(settingsFileName))) {
+			properties.load(in);
+		} catch (NoSuchFileException e) {
+			return Optional.empty();
+		} catch (IOException e) {
+			logger.warn("Failed to load the settings of the last frame.", e);
+			return Optional.empty();
+		}
+
+		final Optional<DrawingSettings> settings = DrawingSettings.fromProperties(properties);
+		if (!settings.isPresent()) {
+			logger.warn("Ignoring invalid settings of the last frame: {}.", properties);
+		}
+		return settings;
+	}
+
+	/*
+	 * The colors in row-major order, or empty if there is no frame of the
+	 * expected size.
+	 */
+	private Optional<int[]> loadFrame() {
+
+		final Path imageFile = directory.resolve(imageFileName);
+		if (!Files.exists(imageFile)) {
+			return Optional.empty();
+		}
+
+		final BufferedImage image;
+		try {
+			image = ImageIO.read(imageFile.toFile());
+		} catch (IOException e) {
+			logger.warn("Failed to load the last frame.", e);
+			return Optional.empty();
+		}
+
+		if (image == null || image.getWidth() != width || image.getHeight() != height) {
+			logger.warn("Ignoring the last frame, which is not a {}x{} image.", width, height);
+			return Optional.empty();
+		}
+
+		return Optional.of(image.getRGB(0, 0, width, height, null, 0, width));
+	}
+
+	/**
+	 * Saves a frame and its settings, replacing the previous ones.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 *
+	 * @param argb
+	 *            The colors of the frame in row-major order.
+	 */
+	void save(DrawingSettings settings, int[] argb) throws IOException {
+
+		if (argb.length != width * height) {
+			throw new IllegalArgumentException("Frame does not have " + width + "x" + height + " pixels.");
+		}
+
+		Files.createDirectories(directory);
+
+		// Write to temporary files first, so that a failed save does not leave
+		// half-written files behind.
+
+		final Path temporaryImageFile = directory.resolve(imageFileName + ".tmp");
+		PngEncoding.write(argb, width, height, temporaryImageFile);
+
+		final Path temporarySettingsFile = directory.resolve(settingsFileName + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temporarySettingsFile)) {
+			settings.toProperties().store(out, "Settings of the last circle-fractal frame.");
+		}
+
+		Files.move(temporaryImageFile, directory.resolve(imageFileName), StandardCopyOption.REPLACE_EXISTING);
+		Files.move(temporarySettingsFile, directory.resolve(settingsFileName), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * The settings of the last frame, and the frame.
+	 *
+	 * <p>
+	 * Thread safety: Immutable.
+	 */
+	static final class LastFrame {
+
+		final DrawingSettings settings;
+		/**
+		 * The colors of the frame in row-major order, may be null, if there is no
+		 * frame of the expected size.
+		 */
+		final int[] argb;
+
+		LastFrame(DrawingSettings settings, int[] argb) {
+			this.settings = settings;
+			this.argb = argb;
+		}
+	}
+}
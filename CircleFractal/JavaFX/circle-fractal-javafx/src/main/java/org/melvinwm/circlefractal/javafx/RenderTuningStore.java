@@ -0,0 +1,90 @@
+package org.melvinwm.circlefractal.javafx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.RenderTuning;
+
+/**
+ * Persists the render strategies tuned for the machine, see
+ * {@link RenderTuning}, so that the calibration only runs at the first launch.
+ *
+ * <p>
+ * Stored in the directory of the {@link LastFrameStore}. A file that is missing
+ * or cannot be read is treated as no tuning having been stored.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+final class RenderTuningStore {
+
+	private static final String fileName = "render-tuning.properties";
+
+	private static final Logger logger = LogManager.getLogger(App.class);
+
+	private final Path directory;
+
+	RenderTuningStore(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return The store for the configured directory, or empty if persisting is
+	 *         disabled.
+	 */
+	static Optional<RenderTuningStore> configured() {
+		return LastFrameStore.configuredDirectory().map(RenderTuningStore::new);
+	}
+
+	/**
+	 * Blocking: Yes.
+	 */
+	Optional<RenderTuning> load() {
+
+		final Properties properties = new Properties();
+
+		try (InputStream in = Files.newInputStream(directory.resolve(fileName))) {
+			properties.load(in);
+		} catch (NoSuchFileException e) {
+			return Optional.empty();
+		} catch (IOException e) {
+			logger.warn("Failed to load the render tuning.", e);
+			return Optional.empty();
+		}
+
+		final Optional<RenderTuning> tuning = RenderTuning.fromProperties(properties);
+		if (!tuning.isPresent()) {
+			logger.warn("Ignoring invalid render tuning: {}.", properties);
+		}
+		return tuning;
+	}
+
+	/**
+	 * Saves a tuning, replacing the previous one.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 */
+	void save(RenderTuning tuning) throws IOException {
+
+		Files.createDirectories(directory);
+
+		// Write to a temporary file first, so that a failed save does not leave a
+		// half-written file behind.
+		final Path temporaryFile = directory.resolve(fileName + ".tmp");
+		try (OutputStream out = Files.newOutputStream(temporaryFile)) {
+			tuning.toProperties().store(out, "Render strategies tuned for this machine.");
+		}
+
+		Files.move(temporaryFile, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
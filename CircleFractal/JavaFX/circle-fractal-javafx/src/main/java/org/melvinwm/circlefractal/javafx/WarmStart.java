@@ -0,0 +1,138 @@
+package org.melvinwm.circlefractal.javafx;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.javafx.drawer.SharedCircleFractalRenders;
+
+/**
+ * Work done at launch, in parallel with loading and showing the GUI: Loads the
+ * settings and frame persisted by the last session, see {@link LastFrameStore},
+ * and starts rendering the first frame with those settings, or the default
+ * settings if none were persisted, see
+ * {@link SharedCircleFractalRenders#prefetch}, with the render strategy tuned
+ * for the machine. If none is tuned yet, starts calibrating, see
+ * {@link AutoTuning}.
+ *
+ * <p>
+ * The persisted frame is loaded before the render is started, so that loading
+ * it does not compete with the render workers.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+final class WarmStart {
+
+	private static final Logger logger = LogManager.getLogger(App.class);
+
+	/**
+	 * May be null, if not begun.
+	 */
+	private static volatile WarmStart begun;
+
+	/**
+	 * May be null, if persisting is disabled.
+	 */
+	private final LastFrameStore store;
+
+	private final CompletableFuture<Loaded> loaded = new CompletableFuture<>();
+
+	private WarmStart(Optional<LastFrameStore> store) {
+		this.store = store.orElse(null);
+	}
+
+	/**
+	 * Begins the warm start on a background thread.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 */
+	static void begin() {
+
+		final WarmStart warmStart = new WarmStart(LastFrameStore.configured());
+
+		final Thread thread = new Thread(warmStart::run, "warm-start");
+		thread.setDaemon(true);
+		thread.start();
+
+		begun = warmStart;
+	}
+
+	/**
+	 * @return The warm start, or empty if not begun.
+	 */
+	static Optional<WarmStart> getBegun() {
+		return Optional.ofNullable(begun);
+	}
+
+	private void run() {
+
+		try {
+			final Optional<LastFrameStore.LastFrame> lastFrame = Optional.ofNullable(store)
+					.flatMap(LastFrameStore::load);
+			final DrawingSettings drawingSettings = lastFrame.map(frame -> frame.settings)
+					.orElseGet(DrawingSettings::defaults);
+
+			final AutoTuning autoTuning = AutoTuning.getInstance();
+			autoTuning.load();
+
+			SharedCircleFractalRenders.getInstance().prefetch(CircleFractalHardcodedSettings.drawingAreaImageWidth,
+					CircleFractalHardcodedSettings.drawingAreaImageHeight, drawingSettings.numberOfIterations,
+					drawingSettings.divisionFactor, drawingSettings.cutOff,
+					autoTuning.selectStrategy(CircleFractalHardcodedSettings.drawingAreaImageWidth,
+							CircleFractalHardcodedSettings.drawingAreaImageHeight, drawingSettings.isAutoTuned,
+							drawingSettings.isParallelizedComputation, drawingSettings.isSinglePrecisionAllowed));
+
+			// The calibration renders have background priority, so the first frame
+			// overtakes them at tile boundaries. Started before completing, so that the
+			// GUI sees the calibration in progress.
+			autoTuning.loadOrCalibrate();
+
+			loaded.complete(new Loaded(drawingSettings, lastFrame.map(frame -> frame.argb).orElse(null)));
+
+		} catch (RuntimeException e) {
+			// The warm start is not essential, so only report.
+			logger.error("Failure during the warm start.", e);
+			loaded.complete(new Loaded(DrawingSettings.defaults(), null));
+		}
+	}
+
+	/**
+	 * @return The store to persist the last frame of the session in, or empty if
+	 *         persisting is disabled.
+	 */
+	Optional<LastFrameStore> getStore() {
+		return Optional.ofNullable(store);
+	}
+
+	/**
+	 * @return Completed with the persisted settings and frame once loaded and the
+	 *         first frame is being rendered. Never completed exceptionally.
+	 */
+	CompletableFuture<Loaded> getLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * The settings of the first frame, which is being rendered, and the frame
+	 * persisted by the last session with those settings.
+	 *
+	 * <p>
+	 * Thread safety: Immutable.
+	 */
+	static final class Loaded {
+
+		final DrawingSettings settings;
+		/**
+		 * The colors of the frame in row-major order, may be null, if none.
+		 */
+		final int[] lastFrame;
+
+		Loaded(DrawingSettings settings, int[] lastFrame) {
+			this.settings = settings;
+			this.lastFrame = lastFrame;
+		}
+	}
+}
@@ -1,28 +1,17 @@
 package org.melvinwm.circlefractal.javafx.drawer;
 
-import java.nio.IntBuffer;
-import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.melvinwm.circlefractal.javafx.App;
+import java.util.Optional;
+
+import org.melvinwm.circlefractal.engine.CircleFractalEngine;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.RenderCoalescer;
+import org.melvinwm.circlefractal.engine.RenderControl;
+import org.melvinwm.circlefractal.engine.RenderProfile;
+import org.melvinwm.circlefractal.engine.RenderScheduler;
+import org.melvinwm.circlefractal.engine.RenderStrategy;
 
 import javafx.concurrent.Task;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelFormat;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
 
 /**
  * Task class for supporting drawing circle-fractals and the drawing life-cycle.
@@ -31,6 +20,13 @@ import javafx.scene.image.WritableImage;
  * Supports progress and cancellation.
  * 
  * <p>
+ * A thin adapter over {@link CircleFractalEngine}: The workers write the
+ * computed colors directly into a reusable {@link FrameBuffer}, and the
+ * resulting image is the image of that frame buffer. The image may therefore be
+ * reused by later renders with the same frame buffer pool, see
+ * {@link FrameBufferPool}.
+ * 
+ * <p>
  * Thread safety: Same as the Task superclass.
  */
 public final class CircleFractalDrawer extends Task<Image> {
@@ -40,173 +36,123 @@ public final class CircleFractalDrawer extends Task<Image> {
 	private final int numberOfIterations;
 	private final int divisionFactor;
 	private final double cutOff;
-	private final boolean isParallelizedComputation;
-
-	private final Logger logger = LogManager.getLogger(App.class);
+	private final RenderStrategy strategy;
+	private final FrameBufferPool frameBufferPool;
+	// Where the work of the render is recorded, may be null.
+	private final RenderProfile profile;
 
 	public CircleFractalDrawer(int width, int height, int numberOfIterations, int divisionFactor, double cutOff,
 			boolean isParallelizedComputation) {
 
-		this.width = width;
-		this.height = height;
-		this.numberOfIterations = numberOfIterations;
-		this.divisionFactor = divisionFactor;
-		this.cutOff = cutOff;
-		this.isParallelizedComputation = isParallelizedComputation;
+		this(width, height, numberOfIterations, divisionFactor, cutOff, isParallelizedComputation, false,
+				Optional.empty());
 	}
 
 	/**
-	 * Continually update the progress until cancelled.
-	 * 
-	 * <p>
-	 * Updating the drawing progress using a scheduler in order to avoid the issues
-	 * that updating from multiple threads can give, such as progress decreasing
-	 * wrongly. Progress decreasing wrongly can for instance happen this way: a task
-	 * gets the progress value, its executing thread gets paused, and then after
-	 * another task executed by another thread updates with a newer progress value,
-	 * the first thread resumes and the first task updates with its outdated
-	 * progress value.
-	 * 
-	 * @param progressSoFarCount
-	 *            The progress so far, owned and updated by the caller.
-	 * @param totalWork
-	 *            The total work. Strictly positive integer, with
-	 * 
-	 *            {@code 0 <= progressSoFarCount <= totalWork}.
+	 * @param isSinglePrecisionAllowed
+	 *            Whether the faster single-precision kernel may be used, see
+	 *            {@link CircleFractalEngine}.
+	 * @param frameBufferPool
+	 *            The pool to get the frame buffer to render into from. If empty,
+	 *            a new frame buffer is allocated for this render only.
 	 */
-	private void scheduleProgressCountUpdating(AtomicInteger progressSoFarCount, int totalWork,
-			ScheduledExecutorService updateProgressScheduledExecutorService) {
-
-		updateProgressScheduledExecutorService.schedule(() -> {
-			updateProgress(progressSoFarCount.get(), totalWork);
-
-			if (!isDone()) {
-				scheduleProgressCountUpdating(progressSoFarCount, totalWork, updateProgressScheduledExecutorService);
-			}
+	public CircleFractalDrawer(int width, int height, int numberOfIterations, int divisionFactor, double cutOff,
+			boolean isParallelizedComputation, boolean isSinglePrecisionAllowed,
+			Optional<FrameBufferPool> frameBufferPool) {
 
-		}, 5, TimeUnit.MILLISECONDS);
+		this(width, height, numberOfIterations, divisionFactor, cutOff, isParallelizedComputation,
+				isSinglePrecisionAllowed, frameBufferPool, Optional.empty());
 	}
 
-	/*
-	 * Perform the task of drawing the image, handling cancellation, parallelization
-	 * and progress indication.
-	 * 
-	 * <p> If there was no progress indication, parallelized drawing, or
-	 * cancellation supported, this would simply be a loop that calculated the color
-	 * for each point using {@link PointToColorCalculator} and returning the
-	 * resulting image.
-	 * 
-	 * <p> If there was only parallelized drawing and no cancellation and progress
-	 * indication, this would also be relatively simple, since you could just create
-	 * a number of tasks, execute them without giving them any further input or get
-	 * output from them, and wait for them all to finish. And likewise, if there was
-	 * only cancellation and progress indication and no parallelization, simply make
-	 * a basic loop that outputs progress as well as checks for cancellation. It is
-	 * the combination of the three features that complicates matters a whole lot.
+	/**
+	 * See {@link #CircleFractalDrawer(int, int, int, int, double, boolean, boolean, Optional)}.
 	 * 
-	 * <p> This is arguably an argument against relatively many inclusions of
-	 * features, and possibly an argument in favour of having something similar to a
-	 * "feature budget" or similar, given that features can have many costs, and the
-	 * more features that are supported, the more everything may be strained, which
-	 * can have both considerably up-front as well as short-term and long-term
-	 * consequences. What if a feature is needed and the "feature budget" is full?
-	 * It may be necessary to take out or deprecate one or more other features. It
-	 * also motivates work towards being able to "increase" the "feature budget",
-	 * which can depend on many factors, including architecture.
+	 * @param profile
+	 *            Where to record the work of the render, see
+	 *            {@link CircleFractalEngine}.
 	 */
-	@Override
-	protected Image call() throws Exception {
-
-		logger.trace("JVM active thread count: {}", Thread.activeCount());
-
-		// Setup.
-
-		final double centerX = width / 2.0;
-		final double centerY = height / 2.0;
-		// Note: Could maybe give as argument instead, but care would have
-		// to be taken regarding the cut-off.
-		final double maximumDistance = PointToColorCalculator.calcLength(centerX, centerY) + 10;
-
-		final PointToColorCalculator pointToColorCalculator = new PointToColorCalculator(centerX, centerY,
-				numberOfIterations, maximumDistance, divisionFactor, cutOff);
-
-		final int totalWork = width * height;
+	public CircleFractalDrawer(int width, int height, int numberOfIterations, int divisionFactor, double cutOff,
+			boolean isParallelizedComputation, boolean isSinglePrecisionAllowed,
+			Optional<FrameBufferPool> frameBufferPool, Optional<RenderProfile> profile) {
 
-		updateProgress(0, totalWork);
+		this(width, height, numberOfIterations, divisionFactor, cutOff,
+				RenderStrategy.of(isParallelizedComputation, isSinglePrecisionAllowed), frameBufferPool, profile);
+	}
 
-		final AtomicInteger progressSoFarCount = new AtomicInteger();
-		progressSoFarCount.set(0);
+	/**
+	 * See {@link #CircleFractalDrawer(int, int, int, int, double, boolean, boolean, Optional, Optional)}.
+	 * 
+	 * @param strategy
+	 *            How the work of the render is divided and computed, see
+	 *            {@link CircleFractalEngine}.
+	 */
+	public CircleFractalDrawer(int width, int height, int numberOfIterations, int divisionFactor, double cutOff,
+			RenderStrategy strategy, Optional<FrameBufferPool> frameBufferPool, Optional<RenderProfile> profile) {
 
-		// NOTE: Ownership (thread pool): Locally here, closed in this scope.
-		ExecutorService paintingExecutorService;
-		if (isParallelizedComputation) {
-			paintingExecutorService = Executors.newWorkStealingPool();
-		} else {
-			paintingExecutorService = Executors.newSingleThreadExecutor();
+		if (profile.isPresent() && (profile.get().width != width || profile.get().height != height)) {
+			throw new IllegalArgumentException("The profile did not have the size of the image: "
+					+ profile.get().width + "x" + profile.get().height + ".");
 		}
 
-		// NOTE: Ownership (thread pool): Locally here, closed in this scope.
-		final ScheduledExecutorService updateProgressScheduledExecutorService = Executors.newScheduledThreadPool(1);
-
-		// Drawing.
-
-		try {
-
-			scheduleProgressCountUpdating(progressSoFarCount, totalWork, updateProgressScheduledExecutorService);
-
-			// Create a task for every line.
-			final List<Callable<int[]>> tasks = IntStream.range(0, height).<Callable<int[]>>mapToObj(y -> {
-				return new Callable<int[]>() {
-
-					@Override
-					public int[] call() throws Exception {
-
-						final int[] lineBuffer = new int[width];
-
-						for (int x = 0; x < width; x++) {
-
-							if (isCancelled()) {
-								paintingExecutorService.shutdownNow();
-								throw new InterruptedException("Circle-fractal drawing task was cancelled.");
-							}
-
-							final int argb = pointToColorCalculator.getColor(x, y);
-							lineBuffer[x] = argb;
+		this.width = width;
+		this.height = height;
+		this.numberOfIterations = numberOfIterations;
+		this.divisionFactor = divisionFactor;
+		this.cutOff = cutOff;
+		this.strategy = strategy;
+		this.frameBufferPool = frameBufferPool.orElseGet(FrameBufferPool::new);
+		this.profile = profile.orElse(null);
+	}
 
-							progressSoFarCount.incrementAndGet();
-						}
+	@Override
+	protected Image call() throws Exception {
 
-						return lineBuffer;
-					}
-				};
-			}).collect(Collectors.toList());
+		return render(new RenderControl() {
 
-			final List<Future<int[]>> results = paintingExecutorService.invokeAll(tasks);
+			@Override
+			public boolean isCancelled() {
+				return CircleFractalDrawer.this.isCancelled();
+			}
 
-			if (isCancelled()) {
-				return null;
+			@Override
+			public void updateProgress(long workDone, long totalWork) {
+				CircleFractalDrawer.this.updateProgress(workDone, totalWork);
 			}
+		});
+	}
 
-			// Get results and turn into image.
-			final int[] buffer = results.stream().<int[]>map(future -> {
-				try {
-					return future.get();
-				} catch (InterruptedException | ExecutionException e) {
-					throw new IllegalArgumentException(e);
-				}
-			}).flatMapToInt(line -> Arrays.stream(line)).toArray();
+	/**
+	 * Performs the render on the calling thread, with the given control for
+	 * cancellation and progress instead of those of this task. For running the
+	 * render outside of the task life-cycle, for instance when the render is
+	 * shared between several callers, see {@link RenderCoalescer}. Should only be
+	 * called once, and not together with running this task.
+	 * 
+	 * <p>
+	 * Blocking: Yes, computationally heavy.
+	 * 
+	 * @return The image, or null if cancelled.
+	 */
+	public Image render(RenderControl control) throws Exception {
 
-			final WritableImage writableImage = new WritableImage(width, height);
-			final PixelWriter pixelWriter = writableImage.getPixelWriter();
-			pixelWriter.setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), IntBuffer.wrap(buffer), width);
+		final CircleFractalEngine engine = new CircleFractalEngine(
+				new CircleFractalParameters(width, height, numberOfIterations, divisionFactor, cutOff), strategy,
+				Optional.ofNullable(profile), RenderScheduler.Priority.INTERACTIVE);
 
-			updateProgress(totalWork, totalWork);
+		// NOTE: Ownership (frame buffer): Locally here, released in this scope once
+		// the workers have stopped, which they have once the engine returns.
+		final FrameBuffer frameBuffer = frameBufferPool.acquire(width, height);
 
-			return writableImage;
+		boolean isCompleted = false;
+		try {
+			isCompleted = engine.render(control, frameBuffer);
+			return isCompleted ? frameBuffer.getImage() : null;
 		} finally {
-
-			paintingExecutorService.shutdownNow();
-			updateProgressScheduledExecutorService.shutdownNow();
+			if (isCompleted) {
+				frameBufferPool.releaseCompleted(frameBuffer);
+			} else {
+				frameBufferPool.release(frameBuffer);
+			}
 		}
 	}
 }
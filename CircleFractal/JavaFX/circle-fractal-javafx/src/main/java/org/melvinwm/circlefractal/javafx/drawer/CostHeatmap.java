@@ -0,0 +1,111 @@
+package org.melvinwm.circlefractal.javafx.drawer;
+
+import org.melvinwm.circlefractal.engine.RenderProfile;
+import org.melvinwm.circlefractal.engine.Tile;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Draws a {@link RenderProfile} as a heatmap, from blue for the cheapest to red
+ * for the most expensive, for seeing where the work of a render goes.
+ *
+ * <p>
+ * Thread safety: Stateless.
+ */
+public final class CostHeatmap {
+
+	/**
+	 * What the heatmap shows.
+	 */
+	public enum View {
+
+		/**
+		 * The number of levels the descent for each pixel went through.
+		 */
+		DESCENT_DEPTH,
+
+		/**
+		 * The time spent on each tile, with the edges of the tiles darkened.
+		 */
+		TILE_TIME
+	}
+
+	// Number of distinct heatmap colors.
+	private static final int colorCount = 256;
+
+	private static final int[] colors = createColors();
+
+	private CostHeatmap() {
+	}
+
+	private static int[] createColors() {
+
+		final int[] colors = new int[colorCount];
+		for (int i = 0; i < colorCount; i++) {
+			final double heat = i / (double) (colorCount - 1);
+			final Color color = Color.hsb(240.0 * (1.0 - heat), 1.0, 0.35 + 0.65 * heat);
+			colors[i] = 0xFF000000 | (int) Math.round(color.getRed() * 255) << 16
+					| (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+		}
+		return colors;
+	}
+
+	/**
+	 * @param heat
+	 *            From 0 for the cheapest to 1 for the most expensive.
+	 * @return The ARGB color for the heat.
+	 */
+	static int toArgb(double heat) {
+		return colors[(int) Math.round(Math.max(0.0, Math.min(1.0, heat)) * (colorCount - 1))];
+	}
+
+	/**
+	 * Draws the profile of a finished render.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 *
+	 * @return A new image of the size of the profile.
+	 */
+	public static WritableImage draw(RenderProfile profile, View view) {
+
+		final int[] argb = new int[profile.width * profile.height];
+
+		if (view == View.DESCENT_DEPTH) {
+
+			final int maximumDepth = Math.max(profile.getSummary().maximumDescentDepth, 1);
+			for (int y = 0; y < profile.height; y++) {
+				for (int x = 0; x < profile.width; x++) {
+					argb[y * profile.width + x] = toArgb(profile.getDescentDepth(x, y) / (double) maximumDepth);
+				}
+			}
+		} else {
+
+			long maximumNanos = 1;
+			for (final RenderProfile.TileTime tileTime : profile.getTileTimes()) {
+				maximumNanos = Math.max(maximumNanos, tileTime.nanos);
+			}
+
+			for (final RenderProfile.TileTime tileTime : profile.getTileTimes()) {
+
+				final Tile tile = tileTime.tile;
+				final int color = toArgb(tileTime.nanos / (double) maximumNanos);
+				final int edgeColor = 0xFF000000 | (color >> 1 & 0x7F7F7F);
+
+				for (int y = tile.y; y < tile.y + tile.height; y++) {
+					for (int x = tile.x; x < tile.x + tile.width; x++) {
+						final boolean isEdge = x == tile.x || y == tile.y;
+						argb[y * profile.width + x] = isEdge ? edgeColor : color;
+					}
+				}
+			}
+		}
+
+		final WritableImage image = new WritableImage(profile.width, profile.height);
+		image.getPixelWriter().setPixels(0, 0, profile.width, profile.height, PixelFormat.getIntArgbInstance(), argb,
+				0, profile.width);
+		return image;
+	}
+}
@@ -0,0 +1,178 @@
+package org.melvinwm.circlefractal.javafx.drawer;
+
+import org.melvinwm.circlefractal.engine.IndexedColors;
+import org.melvinwm.circlefractal.engine.IndexedFrame;
+import org.melvinwm.circlefractal.engine.PixelSink;
+import org.melvinwm.circlefractal.engine.RunLengthTile;
+
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * A reusable frame for circle-fractal renders: An indexed frame that workers
+ * write directly into, see {@link IndexedFrame}, and an image that the written
+ * pixels are uploaded to.
+ *
+ * <p>
+ * Only the rows marked dirty since the last upload are uploaded, expanded to
+ * ARGB a band of rows at a time. As a pixel sink, written rows are marked
+ * dirty, and finishing uploads.
+ *
+ * <p>
+ * Obtained from and owned by a {@link FrameBufferPool}.
+ *
+ * <p>
+ * Thread safety: Pixels may be written concurrently by multiple threads as long
+ * as they write distinct pixels. Marking rows dirty is thread-safe. Uploading
+ * must not happen concurrently with writing, and only while the image is not
+ * shown, or on the JavaFX thread.
+ */
+public final class FrameBuffer implements PixelSink {
+
+	final int width;
+	final int height;
+
+	// Number of rows expanded to ARGB at a time when uploading.
+	private static final int uploadBandHeight = 32;
+
+	private final IndexedFrame pixels;
+	// Only used by the upload.
+	private final int[] uploadBand;
+
+	private final WritableImage image;
+
+	// Guarded by 'this'. Empty if 'dirtyFromY >= dirtyToY'.
+	private int dirtyFromY;
+	private int dirtyToY;
+
+	FrameBuffer(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.pixels = new IndexedFrame(width, height);
+		this.uploadBand = new int[width * Math.min(uploadBandHeight, height)];
+		this.image = new WritableImage(width, height);
+	}
+
+	/**
+	 * Writes a single pixel.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @param argb
+	 *            A color of the palette, see {@link IndexedColors}.
+	 */
+	void setPixel(int x, int y, int argb) {
+		pixels.setArgb(y * width + x, argb);
+	}
+
+	@Override
+	public void write(int x, int y, int[] argb, int count) {
+		final int offset = y * width + x;
+		for (int i = 0; i < count; i++) {
+			pixels.setArgb(offset + i, argb[i]);
+		}
+		markRowsDirty(y, y + 1);
+	}
+
+	@Override
+	public void finish() {
+		upload();
+	}
+
+	/**
+	 * Marks the rows from 'fromY' inclusive to 'toY' exclusive as dirty.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 */
+	synchronized void markRowsDirty(int fromY, int toY) {
+		if (dirtyFromY >= dirtyToY) {
+			dirtyFromY = fromY;
+			dirtyToY = toY;
+		} else {
+			dirtyFromY = Math.min(dirtyFromY, fromY);
+			dirtyToY = Math.max(dirtyToY, toY);
+		}
+	}
+
+	/**
+	 * Uploads the dirty rows to the image, and marks them as clean.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 *
+	 * @return The number of rows uploaded.
+	 */
+	int upload() {
+
+		final int fromY;
+		final int toY;
+		synchronized (this) {
+			fromY = dirtyFromY;
+			toY = dirtyToY;
+			dirtyFromY = 0;
+			dirtyToY = 0;
+		}
+
+		if (fromY >= toY) {
+			return 0;
+		}
+
+		for (int bandFromY = fromY; bandFromY < toY; bandFromY += uploadBandHeight) {
+
+			final int bandHeight = Math.min(uploadBandHeight, toY - bandFromY);
+			pixels.expand(bandFromY * width, bandHeight * width, uploadBand, 0);
+
+			image.getPixelWriter().setPixels(0, bandFromY, width, bandHeight, PixelFormat.getIntArgbInstance(),
+					uploadBand, 0, width);
+		}
+
+		return toY - fromY;
+	}
+
+	/**
+	 * Uploads a whole frame to the image, decoding it a band of rows at a time.
+	 * Does not change the pixels, which renders overwrite anyway, nor the dirty
+	 * rows.
+	 *
+	 * <p>
+	 * Blocking: Yes.
+	 *
+	 * @param frame
+	 *            Must have the size of this.
+	 */
+	void upload(RunLengthTile frame) {
+
+		if (frame.width != width || frame.height != height) {
+			throw new IllegalArgumentException("Frame size " + frame.width + "x" + frame.height
+					+ " differs from the frame buffer size " + width + "x" + height + ".");
+		}
+
+		for (int bandFromY = 0; bandFromY < height; bandFromY += uploadBandHeight) {
+
+			final int bandHeight = Math.min(uploadBandHeight, height - bandFromY);
+			frame.decodeRows(bandFromY, bandFromY + bandHeight, uploadBand, 0, width);
+
+			image.getPixelWriter().setPixels(0, bandFromY, width, bandHeight, PixelFormat.getIntArgbInstance(),
+					uploadBand, 0, width);
+		}
+	}
+
+	/**
+	 * Run-length encodes the pixels. Must not happen concurrently with writing.
+	 *
+	 * <p>
+	 * Blocking: Yes, linear in the number of pixels.
+	 */
+	RunLengthTile encode() {
+		return RunLengthTile.encode(pixels);
+	}
+
+	/**
+	 * @return The image the pixels are uploaded to.
+	 */
+	WritableImage getImage() {
+		return image;
+	}
+}
@@ -0,0 +1,197 @@
+package org.melvinwm.circlefractal.javafx.drawer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+import javafx.scene.image.Image;
+
+/**
+ * Pool of reusable {@link FrameBuffer}s, so that renders do not allocate a new
+ * image and pixel buffer each time.
+ *
+ * <p>
+ * A frame buffer is either in use by a render, completed, shown, or free.
+ * Renders only get free frame buffers, so a render never writes into the frame
+ * buffer that is shown or about to be shown. With one render at a time, this
+ * gives double-buffering: One frame buffer is shown while the next render
+ * writes into the other.
+ *
+ * <p>
+ * Several viewers may show frame buffers from the same pool, for instance when
+ * a render is shared between windows, and a frame buffer is shown as long as
+ * any viewer shows it.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+public final class FrameBufferPool {
+
+	// Number of free frame buffers kept for reuse.
+	private static final int maximumFreeCount = 2;
+	// Number of completed frame buffers kept for reuse once shown. Older ones
+	// are dropped from the pool.
+	private static final int maximumCompletedCount = 4;
+
+	// Guarded by 'this'.
+	private final Deque<FrameBuffer> free = new ArrayDeque<>();
+	private final Map<FrameBuffer, Boolean> inUse = new IdentityHashMap<>();
+	// Released by completed renders and not yet shown, most recent first.
+	private final Deque<FrameBuffer> completed = new ArrayDeque<>();
+	private final Map<Object, FrameBuffer> shownByViewer = new IdentityHashMap<>();
+
+	/**
+	 * Gets a free frame buffer of the given size, allocating a new one if there is
+	 * none. Must be released after use with {@link #release}.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 */
+	synchronized FrameBuffer acquire(int width, int height) {
+
+		FrameBuffer frameBuffer = null;
+
+		for (final Iterator<FrameBuffer> iterator = free.iterator(); iterator.hasNext();) {
+			final FrameBuffer candidate = iterator.next();
+			if (candidate.width == width && candidate.height == height) {
+				iterator.remove();
+				frameBuffer = candidate;
+				break;
+			}
+		}
+
+		if (frameBuffer == null) {
+			frameBuffer = new FrameBuffer(width, height);
+		}
+
+		inUse.put(frameBuffer, true);
+		return frameBuffer;
+	}
+
+	/**
+	 * Releases a frame buffer acquired with {@link #acquire}, after the render
+	 * using it has stopped writing to it.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 */
+	synchronized void release(FrameBuffer frameBuffer) {
+		inUse.remove(frameBuffer);
+		freeIfUnused(frameBuffer);
+	}
+
+	/**
+	 * Releases a frame buffer acquired with {@link #acquire}, after the render
+	 * using it has completed with its image as the result. The frame buffer is
+	 * not reused until its image has been shown, see {@link #setShown}, and is no
+	 * longer shown.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 */
+	synchronized void releaseCompleted(FrameBuffer frameBuffer) {
+		inUse.remove(frameBuffer);
+		completed.addFirst(frameBuffer);
+		if (completed.size() > maximumCompletedCount) {
+			completed.removeLast();
+		}
+	}
+
+	/**
+	 * Blocking: No.
+	 *
+	 * @return The frame buffer released as completed, see
+	 *         {@link #releaseCompleted}, with the given image, if it is still in
+	 *         this pool and not yet shown.
+	 */
+	synchronized Optional<FrameBuffer> getCompleted(Image image) {
+		for (final FrameBuffer frameBuffer : completed) {
+			if (frameBuffer.getImage() == image) {
+				return Optional.of(frameBuffer);
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Records that the given image, which should be the image of a frame buffer
+	 * from this pool, is now the one shown. Same as {@link #setShown(Object, Image)}
+	 * with this pool as the viewer.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @param image
+	 *            The shown image.
+	 */
+	public void setShown(Image image) {
+		setShown(this, image);
+	}
+
+	/**
+	 * Records that the given image, which should be the image of a frame buffer
+	 * from this pool, is now the one shown by the given viewer. The frame buffer
+	 * previously shown by the viewer becomes free for reuse once no render uses it
+	 * and no other viewer shows it.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 *
+	 * @param viewer
+	 *            The viewer, compared by identity.
+	 * @param image
+	 *            The shown image. If empty, the viewer no longer shows any image.
+	 */
+	public synchronized void setShown(Object viewer, Optional<Image> image) {
+
+		FrameBuffer shown = null;
+		if (image.isPresent()) {
+			for (final FrameBuffer frameBuffer : inUse.keySet()) {
+				if (frameBuffer.getImage() == image.get()) {
+					shown = frameBuffer;
+				}
+			}
+			for (final FrameBuffer frameBuffer : free) {
+				if (frameBuffer.getImage() == image.get()) {
+					shown = frameBuffer;
+				}
+			}
+			for (final FrameBuffer frameBuffer : completed) {
+				if (frameBuffer.getImage() == image.get()) {
+					shown = frameBuffer;
+				}
+			}
+			for (final FrameBuffer frameBuffer : shownByViewer.values()) {
+				if (frameBuffer.getImage() == image.get()) {
+					shown = frameBuffer;
+				}
+			}
+		}
+
+		final FrameBuffer previous = shown != null ? shownByViewer.put(viewer, shown) : shownByViewer.remove(viewer);
+		free.remove(shown);
+		completed.remove(shown);
+
+		if (previous != null && previous != shown) {
+			freeIfUnused(previous);
+		}
+	}
+
+	/**
+	 * See {@link #setShown(Object, Optional)}.
+	 */
+	public void setShown(Object viewer, Image image) {
+		setShown(viewer, Optional.of(image));
+	}
+
+	// Must hold the lock on 'this'.
+	private void freeIfUnused(FrameBuffer frameBuffer) {
+		if (!shownByViewer.containsValue(frameBuffer) && !inUse.containsKey(frameBuffer)
+				&& !completed.contains(frameBuffer) && free.size() < maximumFreeCount) {
+			free.addFirst(frameBuffer);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package org.melvinwm.circlefractal.javafx.drawer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.melvinwm.circlefractal.engine.RunLengthTile;
+import org.melvinwm.circlefractal.javafx.App;
+
+/**
+ * In-memory cache of rendered frames, run-length encoded, see
+ * {@link RunLengthTile}, evicting the least recently used frames once the total
+ * size of the cached frames exceeds the capacity.
+ *
+ * <p>
+ * Thread safety: Thread-safe.
+ *
+ * @param <K>
+ *            Identifies frames with the same pixels.
+ */
+final class FrameCache<K> {
+
+	private static final Logger logger = LogManager.getLogger(App.class);
+
+	private final long capacityBytes;
+
+	// Guarded by 'this'. In access order, least recently used first.
+	private final LinkedHashMap<K, RunLengthTile> frames = new LinkedHashMap<>(16, 0.75f, true);
+	private long sizeBytes;
+
+	/**
+	 * @param capacityBytes
+	 *            The capacity. 0 disables caching.
+	 */
+	FrameCache(long capacityBytes) {
+
+		if (capacityBytes < 0) {
+			throw new IllegalArgumentException("'capacityBytes' was negative: " + capacityBytes + ".");
+		}
+
+		this.capacityBytes = capacityBytes;
+	}
+
+	/**
+	 * Blocking: No.
+	 */
+	synchronized Optional<RunLengthTile> get(K key) {
+		return Optional.ofNullable(frames.get(key));
+	}
+
+	/**
+	 * Caches a frame, unless it is larger than the capacity.
+	 *
+	 * <p>
+	 * Blocking: No.
+	 */
+	synchronized void put(K key, RunLengthTile frame) {
+
+		logger.debug("Frame {}x{} run-length encoded to {} bytes, compression ratio {}.", frame.width,
+				frame.height, frame.getSizeBytes(), String.format("%.1f", frame.getCompressionRatio()));
+
+		if (frame.getSizeBytes() > capacityBytes) {
+			return;
+		}
+
+		final RunLengthTile previous = frames.put(key, frame);
+		sizeBytes += frame.getSizeBytes() - (previous != null ? previous.getSizeBytes() : 0);
+
+		final Iterator<Map.Entry<K, RunLengthTile>> iterator = frames.entrySet().iterator();
+		while (sizeBytes > capacityBytes && iterator.hasNext()) {
+			sizeBytes -= iterator.next().getValue().getSizeBytes();
+			iterator.remove();
+		}
+	}
+
+	synchronized int getFrameCount() {
+		return frames.size();
+	}
+
+	synchronized long getSizeBytes() {
+		return sizeBytes;
+	}
+}
@@ -0,0 +1,326 @@
+package org.melvinwm.circlefractal.javafx.drawer;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.RenderCoalescer;
+import org.melvinwm.circlefractal.engine.RenderStrategy;
+import org.melvinwm.circlefractal.engine.RunLengthTile;
+
+import javafx.concurrent.Task;
+import javafx.scene.image.Image;
+
+/**
+ * Circle-fractal renders shared between the callers in the JVM, for instance
+ * several windows asking for the same parameters at the same time, see
+ * {@link RenderCoalescer}.
+ * 
+ * <p>
+ * Each caller gets its own task, which attaches to the shared render: It
+ * reports the shared progress, and cancelling it only stops the shared render
+ * once all the tasks attached to it are cancelled. The renders use a shared
+ * {@link FrameBufferPool}, on which callers must record the images they show,
+ * with themselves as the viewer.
+ * 
+ * <p>
+ * Completed frames are kept in a {@link FrameCache}, run-length encoded, so
+ * that going back to recent parameters, for instance when undoing a change,
+ * shows the frame without rendering it again. The capacity is configured with
+ * the system property {@value #frameCacheCapacityProperty}, in megabytes,
+ * default {@value #defaultFrameCacheCapacityMegabytes}, where 0 disables the
+ * cache.
+ * 
+ * <p>
+ * Thread safety: Thread-safe.
+ */
+public final class SharedCircleFractalRenders {
+
+	static final String frameCacheCapacityProperty = "circlefractal.frameCacheCapacityMegabytes";
+	static final long defaultFrameCacheCapacityMegabytes = 32;
+
+	private static final long progressIntervalMillis = 10;
+
+	private static final SharedCircleFractalRenders instance = new SharedCircleFractalRenders();
+
+	private final RenderCoalescer<Key, Image> coalescer;
+	private final FrameBufferPool frameBufferPool = new FrameBufferPool();
+	private final FrameCache<Key> frameCache;
+
+	// Guarded by 'this'. The ticket of the prefetched render, handed over to the
+	// first task for the same key, may be null.
+	private Key prefetchedKey;
+	private RenderCoalescer.Ticket<Image> prefetchedTicket;
+
+	private SharedCircleFractalRenders() {
+		// NOTE: Ownership (thread pool): Owned by this, lives as long as the JVM,
+		// with daemon threads.
+		this(Executors.newCachedThreadPool(runnable -> {
+			final Thread thread = new Thread(runnable, "shared-circle-fractal-render");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	/**
+	 * @param renderExecutor
+	 *            Runs the shared renders.
+	 */
+	SharedCircleFractalRenders(Executor renderExecutor) {
+		this(renderExecutor,
+				Long.getLong(frameCacheCapacityProperty, defaultFrameCacheCapacityMegabytes) * 1024 * 1024);
+	}
+
+	/**
+	 * @param renderExecutor
+	 *            Runs the shared renders.
+	 * @param frameCacheCapacityBytes
+	 *            See {@link FrameCache}.
+	 */
+	SharedCircleFractalRenders(Executor renderExecutor, long frameCacheCapacityBytes) {
+		this.coalescer = new RenderCoalescer<>(renderExecutor);
+		this.frameCache = new FrameCache<>(frameCacheCapacityBytes);
+	}
+
+	public static SharedCircleFractalRenders getInstance() {
+		return instance;
+	}
+
+	public FrameBufferPool getFrameBufferPool() {
+		return frameBufferPool;
+	}
+
+	/**
+	 * @return The number of requests that attached to a render in flight instead
+	 *         of starting one.
+	 */
+	public long getCoalescedRequestCount() {
+		return coalescer.getCoalescedRequestCount();
+	}
+
+	/**
+	 * Starts the render for the given parameters ahead of time, for instance at
+	 * start-up before the GUI is shown. The render is kept, even once done,
+	 * until the first task for the same parameters takes it over, see
+	 * {@link #createTask}. Cancels any render prefetched earlier that has not
+	 * been taken over.
+	 * 
+	 * <p>
+	 * Blocking: No.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the parameters are invalid.
+	 */
+	public void prefetch(int width, int height, int numberOfIterations, int divisionFactor, double cutOff,
+			boolean isParallelizedComputation, boolean isSinglePrecisionAllowed) {
+
+		prefetch(width, height, numberOfIterations, divisionFactor, cutOff,
+				RenderStrategy.of(isParallelizedComputation, isSinglePrecisionAllowed));
+	}
+
+	/**
+	 * See {@link #prefetch(int, int, int, int, double, boolean, boolean)}.
+	 * 
+	 * @param strategy
+	 *            See {@link #createTask(int, int, int, int, double, RenderStrategy)}.
+	 */
+	public void prefetch(int width, int height, int numberOfIterations, int divisionFactor, double cutOff,
+			RenderStrategy strategy) {
+
+		final CircleFractalParameters parameters = new CircleFractalParameters(width, height, numberOfIterations,
+				divisionFactor, cutOff);
+		final Key key = new Key(parameters, strategy);
+
+		final RenderCoalescer.Ticket<Image> ticket = request(key, strategy);
+
+		final RenderCoalescer.Ticket<Image> previousTicket;
+		synchronized (this) {
+			previousTicket = prefetchedTicket;
+			prefetchedKey = key;
+			prefetchedTicket = ticket;
+		}
+
+		if (previousTicket != null) {
+			previousTicket.cancel();
+		}
+	}
+
+	private synchronized Optional<RenderCoalescer.Ticket<Image>> takePrefetched(Key key) {
+
+		if (prefetchedTicket == null || !prefetchedKey.equals(key)) {
+			return Optional.empty();
+		}
+
+		final RenderCoalescer.Ticket<Image> ticket = prefetchedTicket;
+		prefetchedKey = null;
+		prefetchedTicket = null;
+		return Optional.of(ticket);
+	}
+
+	/**
+	 * @return The number of frames in the frame cache.
+	 */
+	public int getCachedFrameCount() {
+		return frameCache.getFrameCount();
+	}
+
+	/**
+	 * @return The total size of the frames in the frame cache, in bytes.
+	 */
+	public long getCachedFrameSizeBytes() {
+		return frameCache.getSizeBytes();
+	}
+
+	private RenderCoalescer.Ticket<Image> request(Key key, RenderStrategy strategy) {
+		return coalescer.request(key, control -> {
+
+			final Optional<RunLengthTile> cachedFrame = frameCache.get(key);
+			if (cachedFrame.isPresent()) {
+				return uploadCached(cachedFrame.get());
+			}
+
+			final Image image = new CircleFractalDrawer(key.parameters.width, key.parameters.height,
+					key.parameters.numberOfIterations, key.parameters.divisionFactor, key.parameters.cutOff, strategy,
+					Optional.of(frameBufferPool), Optional.empty()).render(control);
+
+			// Cancelled renders give no image.
+			if (image != null) {
+				frameBufferPool.getCompleted(image)
+						.ifPresent(frameBuffer -> frameCache.put(key, frameBuffer.encode()));
+			}
+			return image;
+		});
+	}
+
+	/*
+	 * Uploads a cached frame to a frame buffer of the pool.
+	 */
+	private Image uploadCached(RunLengthTile frame) {
+
+		// NOTE: Ownership (frame buffer): Locally here, released in this scope.
+		final FrameBuffer frameBuffer = frameBufferPool.acquire(frame.width, frame.height);
+		boolean isCompleted = false;
+		try {
+			frameBuffer.upload(frame);
+			isCompleted = true;
+		} finally {
+			if (isCompleted) {
+				frameBufferPool.releaseCompleted(frameBuffer);
+			} else {
+				frameBufferPool.release(frameBuffer);
+			}
+		}
+		return frameBuffer.getImage();
+	}
+
+	/**
+	 * Creates a task that attaches to the render for the given parameters,
+	 * taking over the prefetched render, see {@link #prefetch}, or starting a new
+	 * one if no render for them is in flight. The parameters are validated when
+	 * the task runs, so that invalid parameters fail the task.
+	 * 
+	 * @param isParallelizedComputation
+	 *            Only used if the render is started by this task, since it does
+	 *            not change the result.
+	 * @param isSinglePrecisionAllowed
+	 *            See {@link CircleFractalDrawer}.
+	 */
+	public Task<Image> createTask(int width, int height, int numberOfIterations, int divisionFactor, double cutOff,
+			boolean isParallelizedComputation, boolean isSinglePrecisionAllowed) {
+
+		return createTask(width, height, numberOfIterations, divisionFactor, cutOff,
+				RenderStrategy.of(isParallelizedComputation, isSinglePrecisionAllowed));
+	}
+
+	/**
+	 * See {@link #createTask(int, int, int, int, double, boolean, boolean)}.
+	 * 
+	 * @param strategy
+	 *            See {@link CircleFractalDrawer}. Only used if the render is
+	 *            started by this task, except whether the single-precision
+	 *            kernel may be used, since only that can change the result.
+	 */
+	public Task<Image> createTask(int width, int height, int numberOfIterations, int divisionFactor, double cutOff,
+			RenderStrategy strategy) {
+
+		return new Task<Image>() {
+
+			@Override
+			protected Image call() throws Exception {
+
+				final CircleFractalParameters parameters = new CircleFractalParameters(width, height,
+						numberOfIterations, divisionFactor, cutOff);
+				final Key key = new Key(parameters, strategy);
+
+				final RenderCoalescer.Ticket<Image> ticket = takePrefetched(key)
+						.orElseGet(() -> request(key, strategy));
+
+				final CompletableFuture<Image> result = ticket.getResult();
+
+				try {
+					while (true) {
+
+						if (isCancelled()) {
+							ticket.cancel();
+							return null;
+						}
+
+						updateProgress(ticket.getProgress(), 1.0);
+
+						try {
+							final Image image = result.get(progressIntervalMillis, TimeUnit.MILLISECONDS);
+							updateProgress(1.0, 1.0);
+							return image;
+						} catch (TimeoutException e) {
+							// Update the progress and check for cancellation.
+						}
+					}
+				} catch (InterruptedException | CancellationException e) {
+					ticket.cancel();
+					if (isCancelled()) {
+						return null;
+					}
+					throw e;
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Identifies renders with the same result. Only the kernel can change the
+	 * result, see {@link RenderStrategy#getResultKernel()}, not the rest of the
+	 * strategy.
+	 */
+	private static final class Key {
+
+		final CircleFractalParameters parameters;
+		final RenderStrategy.Kernel resultKernel;
+
+		Key(CircleFractalParameters parameters, RenderStrategy strategy) {
+			this.parameters = parameters;
+			this.resultKernel = strategy.getResultKernel();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && parameters.equals(((Key) other).parameters)
+					&& resultKernel == ((Key) other).resultKernel;
+		}
+
+		@Override
+		public int hashCode() {
+			return parameters.hashCode() * 31 + resultKernel.hashCode();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package org.melvinwm.circlefractal.javafx;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.melvinwm.circlefractal.engine.CircleFractalParameters;
+import org.melvinwm.circlefractal.engine.Tile;
+import org.melvinwm.circlefractal.engine.TileRenderer;
+
+public class LastFrameStoreTest {
+
+	private static final int width = 50;
+	private static final int height = 35;
+
+	@Test
+	public void should_load_saved_frame_and_settings() throws Exception {
+
+		final Path directory = Files.createTempDirectory("circle-fractal-last-frame");
+		try {
+			final LastFrameStore store = new LastFrameStore(directory.resolve("nested"), width, height);
+
+			assertFalse(store.load().isPresent());
+
+			final int[] argb = new TileRenderer(new CircleFractalParameters(width, height, 7, 3, 0.5))
+					.render(new Tile(0, 0, width, height));
+			store.save(new DrawingSettings(7, 3, 0.5, true, false, false), argb);
+
+			final LastFrameStore.LastFrame lastFrame = store.load().get();
+			final DrawingSettings settings = lastFrame.settings;
+			assertEquals(7, settings.numberOfIterations);
+			assertEquals(3, settings.divisionFactor);
+			assertEquals(0.5, settings.cutOff);
+			assertTrue(settings.isParallelizedComputation);
+			assertFalse(settings.isSinglePrecisionAllowed);
+			assertFalse(settings.isAutoTuned);
+
+			assertArrayEquals(argb, lastFrame.argb);
+
+			// Frames of other sizes are not loaded.
+			assertNull(new LastFrameStore(directory.resolve("nested"), height, width).load().get().argb);
+
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	@Test
+	public void should_ignore_invalid_settings_and_frames() throws Exception {
+
+		final Path directory = Files.createTempDirectory("circle-fractal-last-frame");
+		try {
+			final LastFrameStore store = new LastFrameStore(directory, width, height);
+
+			// The frame is not loaded without valid settings.
+			final int[] argb = new TileRenderer(new CircleFractalParameters(width, height, 7, 3, 0.5))
+					.render(new Tile(0, 0, width, height));
+			store.save(new DrawingSettings(7, 3, 0.5, true, false, false), argb);
+
+			Files.write(directory.resolve("last-frame.properties"),
+					"numberOfIterations=5\ndivisionFactor=9\ncutOff=1.5\n".getBytes(StandardCharsets.ISO_8859_1));
+			assertFalse(store.load().isPresent());
+
+			Files.write(directory.resolve("last-frame.properties"),
+					"numberOfIterations=five\n".getBytes(StandardCharsets.ISO_8859_1));
+			assertFalse(store.load().isPresent());
+
+			Files.write(directory.resolve("last-frame.properties"),
+					("numberOfIterations=5\ndivisionFactor=2\ncutOff=1.5\nisParallelizedComputation=true\n"
+							+ "isSinglePrecisionAllowed=false\nisAutoTuned=true\n")
+									.getBytes(StandardCharsets.ISO_8859_1));
+			assertTrue(store.load().get().settings.isAutoTuned);
+
+			Files.write(directory.resolve("last-frame.png"), new byte[] { 1, 2, 3 });
+			assertNull(store.load().get().argb);
+
+		} finally {
+			deleteRecursively(directory);
+		}
+	}
+
+	static void deleteRecursively(Path directory) throws IOException {
+		try (final Stream<Path> paths = Files.walk(directory)) {
+			for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package org.melvinwm.circlefractal.javafx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.melvinwm.circlefractal.engine.RenderStrategy;
+import org.melvinwm.circlefractal.engine.RenderTuning;
+
+public class RenderTuningStoreTest {
+
+	@Test
+	public void should_load_saved_tuning() throws Exception {
+
+		final Path directory = Files.createTempDirectory("circle-fractal-render-tuning");
+		try {
+			final RenderTuningStore store = new RenderTuningStore(directory.resolve("nested"));
+			assertFalse(store.load().isPresent());
+
+			final RenderTuning tuning = new RenderTuning(6,
+					Arrays.asList(RenderStrategy.of(false, false), RenderStrategy.of(true, false),
+							new RenderStrategy(RenderStrategy.Execution.PARALLEL_ROWS, 32,
+									RenderStrategy.Kernel.SINGLE_PRECISION)));
+			store.save(tuning);
+
+			final RenderTuning loaded = store.load().get();
+			assertEquals(6, loaded.workerCount);
+			assertEquals(tuning.getStrategies(), loaded.getStrategies());
+
+			Files.write(directory.resolve("nested").resolve("render-tuning.properties"),
+					"workerCount=6\n".getBytes(StandardCharsets.ISO_8859_1));
+			assertFalse(store.load().isPresent());
+
+		} finally {
+			LastFrameStoreTest.deleteRecursively(directory);
+		}
+	}
+}
@@ -1,17 +1,27 @@
 package org.melvinwm.circlefractal.javafx.drawer;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.melvinwm.circlefractal.engine.RenderProfile;
 import org.testfx.framework.junit5.ApplicationExtension;
 import org.testfx.framework.junit5.Start;
 
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.concurrent.Worker;
 import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
 import javafx.stage.Stage;
 
 @ExtendWith(ApplicationExtension.class)
@@ -51,6 +61,36 @@ public class CircleFractalDrawerTest {
 		}
 	}
 
+	@Test
+	public void should_record_profile() throws Exception {
+
+		final int iterationCount = 5;
+		final int divisionFactor = 2;
+		final double cutOff = 1.5;
+
+		for (final boolean doParallelizedComputation : new boolean[] { false, true }) {
+
+			final RenderProfile profile = new RenderProfile(width, height);
+			final CircleFractalDrawer drawer = new CircleFractalDrawer(width, height, iterationCount, divisionFactor,
+					cutOff, doParallelizedComputation, false, Optional.empty(), Optional.of(profile));
+
+			drawer.run();
+			drawer.get();
+
+			final int tilePixelCount = profile.getTileTimes().stream()
+					.mapToInt(tileTime -> tileTime.tile.getPixelCount()).sum();
+			assertEquals(width * height, tilePixelCount);
+
+			final RenderProfile.Summary summary = profile.getSummary();
+			assertEquals(profile.getTileTimes().size(), summary.tileCount);
+			assertTrue(summary.maximumDescentDepth > summary.minimumDescentDepth);
+			assertTrue(summary.maximumTileNanos >= summary.medianTileNanos);
+
+			final Image heatmap = CostHeatmap.draw(profile, CostHeatmap.View.DESCENT_DEPTH);
+			assertEquals(width, heatmap.getWidth());
+		}
+	}
+
 	@Test
 	public void should_handle_cancellation() throws Exception {
 
@@ -82,4 +122,83 @@ public class CircleFractalDrawerTest {
 			});
 		}
 	}
+
+	@Test
+	public void should_share_render_between_concurrent_callers() throws Exception {
+
+		// Hold back the shared render until the second caller has attached to it.
+		final CountDownLatch startRender = new CountDownLatch(1);
+		final SharedCircleFractalRenders sharedRenders = new SharedCircleFractalRenders(runnable -> new Thread(() -> {
+			try {
+				startRender.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+			runnable.run();
+		}).start());
+
+		final Task<Image> first = sharedRenders.createTask(width, height, 50, 2, 0.0, true, false);
+		final Task<Image> second = sharedRenders.createTask(width, height, 50, 2, 0.0, false, false);
+
+		new Thread(first).start();
+		new Thread(second).start();
+		while (sharedRenders.getCoalescedRequestCount() == 0) {
+			Thread.sleep(5);
+		}
+		startRender.countDown();
+
+		assertSame(first.get(), second.get());
+		assertEquals(1, sharedRenders.getCoalescedRequestCount());
+	}
+
+	@Test
+	public void should_hand_prefetched_render_over_to_first_task() throws Exception {
+
+		final AtomicInteger renderCount = new AtomicInteger();
+		final SharedCircleFractalRenders sharedRenders = new SharedCircleFractalRenders(runnable -> {
+			renderCount.incrementAndGet();
+			new Thread(runnable).start();
+		});
+
+		sharedRenders.prefetch(width, height, 5, 2, 1.5, true, false);
+
+		// Even once the prefetched render is done.
+		Thread.sleep(100);
+
+		final Task<Image> first = sharedRenders.createTask(width, height, 5, 2, 1.5, false, false);
+		first.run();
+		assertNotEquals(null, first.get());
+		assertEquals(1, renderCount.get());
+
+		final Task<Image> second = sharedRenders.createTask(width, height, 5, 2, 1.5, false, false);
+		second.run();
+		assertNotEquals(null, second.get());
+		assertEquals(2, renderCount.get());
+	}
+
+	@Test
+	public void should_show_cached_frame_without_rendering() throws Exception {
+
+		final SharedCircleFractalRenders sharedRenders = new SharedCircleFractalRenders(
+				runnable -> new Thread(runnable).start());
+
+		final Task<Image> first = sharedRenders.createTask(width, height, 5, 2, 1.5, false, false);
+		first.run();
+		final Image rendered = first.get();
+		assertEquals(1, sharedRenders.getCachedFrameCount());
+		assertTrue(sharedRenders.getCachedFrameSizeBytes() * 5 < 4L * width * height);
+
+		final Task<Image> second = sharedRenders.createTask(width, height, 5, 2, 1.5, false, false);
+		second.run();
+		final Image cached = second.get();
+		assertNotSame(rendered, cached);
+
+		final int[] renderedPixels = new int[width * height];
+		final int[] cachedPixels = new int[width * height];
+		rendered.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), renderedPixels, 0,
+				width);
+		cached.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), cachedPixels, 0,
+				width);
+		assertArrayEquals(renderedPixels, cachedPixels);
+	}
 }